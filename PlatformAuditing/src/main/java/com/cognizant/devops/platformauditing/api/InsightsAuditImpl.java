@@ -15,6 +15,10 @@
  ******************************************************************************/
 package com.cognizant.devops.platformauditing.api;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import com.cognizant.devops.platformauditing.hyperledger.accesslayer.BCGatewayContractProvider;
 import com.cognizant.devops.platformauditing.hyperledger.accesslayer.BCNetworkGatewayClient;
 import com.cognizant.devops.platformauditing.util.LoadFile;
 import com.cognizant.devops.platformauditing.util.RestructureDataUtil;
@@ -172,6 +176,16 @@ public class InsightsAuditImpl implements InsightsAudit {
 
     }
 
+    /**
+     * Runs ledger inserts on the gateway submit pool so that several assets can
+     * be in flight at once. Inserts made by one task stay in order, so the
+     * changelogs of an issue should go into the same task as the issue. Blocks
+     * while the pool is full.
+     */
+    public CompletableFuture<Boolean> insertAsync(Callable<Boolean> insertTask) {
+        return BCGatewayContractProvider.getInstance().runAsync(insertTask);
+    }
+
 	// common method for insertion
     private boolean insertNode(JsonObject arg, BCNetworkGatewayClient bcNetworkClient) throws Exception {
 		String[] nodeData = { arg.toString() };
@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformauditing.hyperledger.accesslayer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.InvalidKeyException;
+import java.security.PrivateKey;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hyperledger.fabric.gateway.Contract;
+import org.hyperledger.fabric.gateway.ContractException;
+import org.hyperledger.fabric.gateway.Gateway;
+import org.hyperledger.fabric.gateway.GatewayRuntimeException;
+import org.hyperledger.fabric.gateway.Identities;
+import org.hyperledger.fabric.gateway.Network;
+import org.hyperledger.fabric.gateway.Wallet;
+import org.hyperledger.fabric.gateway.Wallets;
+
+import com.cognizant.devops.platformauditing.util.LoadFile;
+import com.cognizant.devops.platformcommons.constants.ConfigOptions;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Holds one gateway connection and contract for the whole process. The
+ * identity and network config are read once on first use, the contract is
+ * thread safe and shared by all callers. A call that fails on the gateway,
+ * is rejected by the peers or times out waiting for the commit drops the
+ * connection so that the next call reconnects, read only calls are retried
+ * once on the new connection. Submits are not retried as the transaction may
+ * already have been ordered.
+ */
+public class BCGatewayContractProvider {
+	private static final Logger LOG = LogManager.getLogger(BCGatewayContractProvider.class);
+	private static final int DEFAULT_MAX_IN_FLIGHT_TRANSACTIONS = 8;
+	private static BCGatewayContractProvider instance = null;
+
+	private Gateway gateway;
+	private volatile Contract contract;
+	private final Semaphore inFlightTransactions;
+	private final ExecutorService submitExecutor;
+	private final Connector connector;
+
+	private interface ContractCall {
+		byte[] call(Contract contract) throws Exception;
+	}
+
+	interface Connector {
+		Contract connect() throws IOException, CertificateException, InvalidKeyException;
+	}
+
+	private BCGatewayContractProvider(int maxInFlightTransactions) {
+		this(maxInFlightTransactions, null);
+		Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+	}
+
+	/**
+	 * @param maxInFlightTransactions
+	 * @param connector opens the contract, the configured gateway when null
+	 */
+	BCGatewayContractProvider(int maxInFlightTransactions, Connector connector) {
+		this.connector = connector != null ? connector : this::connect;
+		this.inFlightTransactions = new Semaphore(maxInFlightTransactions);
+		AtomicInteger threadCount = new AtomicInteger();
+		this.submitExecutor = Executors.newFixedThreadPool(maxInFlightTransactions, runnable -> {
+			Thread thread = new Thread(runnable, "BCGatewaySubmit-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public static synchronized BCGatewayContractProvider getInstance() {
+		if (instance == null) {
+			int maxInFlightTransactions = DEFAULT_MAX_IN_FLIGHT_TRANSACTIONS;
+			JsonObject config = LoadFile.getInstance().getConfig();
+			if (config != null && config.has("maxInFlightTransactions")) {
+				maxInFlightTransactions = Math.max(1, config.get("maxInFlightTransactions").getAsInt());
+			}
+			instance = new BCGatewayContractProvider(maxInFlightTransactions);
+		}
+		return instance;
+	}
+
+	/**
+	 * Contract of the configured channel, connecting on first use
+	 *
+	 * @return Contract
+	 * @throws IOException
+	 * @throws CertificateException
+	 * @throws InvalidKeyException
+	 */
+	public Contract getContract() throws IOException, CertificateException, InvalidKeyException {
+		Contract current = contract;
+		if (current == null) {
+			synchronized (this) {
+				if (contract == null) {
+					contract = connector.connect();
+				}
+				current = contract;
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Evaluate a query transaction, retried once after a reconnect
+	 *
+	 * @param functionName
+	 * @param args
+	 * @return byte[]
+	 * @throws Exception
+	 */
+	public byte[] evaluate(String functionName, String... args) throws Exception {
+		return execute(current -> current.evaluateTransaction(functionName, args), true);
+	}
+
+	/**
+	 * Submit a transaction and wait until it is committed
+	 *
+	 * @param functionName
+	 * @param args
+	 * @return byte[]
+	 * @throws Exception
+	 */
+	public byte[] submit(String functionName, String... args) throws Exception {
+		return execute(current -> current.createTransaction(functionName).submit(args), false);
+	}
+
+	/**
+	 * Submit a transaction without waiting for it. At most
+	 * maxInFlightTransactions are in flight, further calls block until one
+	 * completes so that callers streaming assets cannot run ahead of the
+	 * ledger.
+	 *
+	 * @param functionName
+	 * @param args
+	 * @return CompletableFuture with the transaction result
+	 */
+	public CompletableFuture<byte[]> submitAsync(String functionName, String... args) {
+		return runAsync(() -> submit(functionName, args));
+	}
+
+	/**
+	 * Run a task that talks to the ledger on the submit pool, bounded the same
+	 * way as {@link #submitAsync(String, String...)}
+	 *
+	 * @param task
+	 * @return CompletableFuture with the task result
+	 */
+	public <T> CompletableFuture<T> runAsync(Callable<T> task) {
+		try {
+			inFlightTransactions.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			CompletableFuture<T> interrupted = new CompletableFuture<>();
+			interrupted.completeExceptionally(e);
+			return interrupted;
+		}
+		try {
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return task.call();
+				} catch (Exception e) {
+					throw new CompletionException(e);
+				} finally {
+					inFlightTransactions.release();
+				}
+			}, submitExecutor);
+		} catch (RuntimeException e) {
+			inFlightTransactions.release();
+			throw e;
+		}
+	}
+
+	private byte[] execute(ContractCall contractCall, boolean retry) throws Exception {
+		Contract current = getContract();
+		try {
+			return contractCall.call(current);
+		} catch (GatewayRuntimeException | ContractException | TimeoutException e) {
+			LOG.warn("Gateway call failed, the connection will be reopened: {}", e.getMessage());
+			reset(current);
+			if (!retry) {
+				throw e;
+			}
+			return contractCall.call(getContract());
+		}
+	}
+
+	private Contract connect() throws IOException, CertificateException, InvalidKeyException {
+		JsonObject config = LoadFile.getInstance().getConfig();
+		// peer0.org1 user, signcert and keystore
+		final String certUser = config.get("peer0_org1_user").getAsString();
+		// fetch peer0.org1 org
+		final JsonElement org = config.get("organizations").getAsJsonObject().get("Org1");
+		final String signedCertPEMPath = org.getAsJsonObject().get("signedCertPEM").getAsJsonObject().get("path")
+				.getAsString();
+		final String adminPrivateKeyPEMPath = org.getAsJsonObject().get("adminPrivateKeyPEM").getAsJsonObject()
+				.get("path").getAsString();
+		final String orgmsp = org.getAsJsonObject().get("mspid").getAsString();
+		// fetch channel name and chaincode
+		final String channel = config.get("channels").getAsJsonObject().get("channelname").getAsJsonObject()
+				.get("channel").getAsString();
+		final String contractName = config.get("contractname").getAsString();
+
+		Wallet wallet = Wallets.newInMemoryWallet();
+		X509Certificate certificate = Identities.readX509Certificate(readPem(signedCertPEMPath));
+		PrivateKey privateKey = Identities.readPrivateKey(readPem(adminPrivateKeyPEMPath));
+		wallet.put(certUser, Identities.newX509Identity(orgmsp, certificate, privateKey));
+
+		Path networkConfigFile = Paths.get(ConfigOptions.BLOCKCHAIN_CONFIG_FILE_RESOLVED_PATH);
+		Gateway connectedGateway = Gateway.createBuilder().identity(wallet, certUser).networkConfig(networkConfigFile)
+				.connect();
+		Network network = connectedGateway.getNetwork(channel);
+		gateway = connectedGateway;
+		LOG.info("Gateway connected to channel {} contract {}", channel, contractName);
+		return network.getContract(contractName);
+	}
+
+	private static String readPem(String filePath) throws IOException {
+		return new String(Files.readAllBytes(Paths.get(filePath)), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Drop the connection the failed contract belongs to, unless another caller
+	 * already replaced it
+	 */
+	private synchronized void reset(Contract failed) {
+		if (contract == failed) {
+			contract = null;
+			closeGateway();
+		}
+	}
+
+	private void closeGateway() {
+		if (gateway != null) {
+			try {
+				gateway.close();
+			} catch (RuntimeException e) {
+				LOG.warn("Unable to close gateway", e);
+			}
+			gateway = null;
+		}
+	}
+
+	public synchronized void close() {
+		contract = null;
+		closeGateway();
+		submitExecutor.shutdown();
+	}
+}
@@ -17,95 +17,24 @@ package com.cognizant.devops.platformauditing.hyperledger.accesslayer;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.stream.Stream;
-import org.hyperledger.fabric.gateway.Contract;
-
-import org.hyperledger.fabric.gateway.Gateway;
-import org.hyperledger.fabric.gateway.Identities;
-import org.hyperledger.fabric.gateway.Network;
-import org.hyperledger.fabric.gateway.Wallet;
-import org.hyperledger.fabric.gateway.Wallets;
-
-import org.hyperledger.fabric.gateway.impl.GatewayImpl;
-
 import java.security.InvalidKeyException;
-import java.security.PrivateKey;
-
 import java.security.cert.CertificateException;
+import java.util.concurrent.CompletableFuture;
+
+import org.hyperledger.fabric.gateway.Contract;
 
 import com.cognizant.devops.platformauditing.commons.ChainCodeMethods;
-import com.cognizant.devops.platformauditing.util.LoadFile;
-import com.cognizant.devops.platformcommons.constants.ConfigOptions;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
 public class BCNetworkGatewayClient {
 
+	/**
+	 * Shared contract of the configured channel, see
+	 * {@link BCGatewayContractProvider}
+	 */
 	public Contract gatewayContract() throws IOException, CertificateException, InvalidKeyException {
-
-		JsonObject config = LoadFile.getInstance().getConfig();
-		// peer0.org1 user, signcert and keystore
-		final String certUser = config.get("peer0_org1_user").getAsString();
-		// fetch peer0.org1 org
-		final JsonElement orgElement = config.get("organizations");
-		final JsonElement org = orgElement.getAsJsonObject().get("Org1");
-		// fetch peer0.org1 signedCertPEM
-		final JsonElement signedCertPEM = org.getAsJsonObject().get("signedCertPEM");
-		final String signedCertPEMPath = signedCertPEM.getAsJsonObject().get("path").getAsString();
-		// fetch peer0.org1 adminPrivateKeyPEM
-		final JsonElement adminPrivateKeyPEM = org.getAsJsonObject().get("adminPrivateKeyPEM");
-		final String adminPrivateKeyPEMPath = adminPrivateKeyPEM.getAsJsonObject().get("path").getAsString();
-		// fetch peer0.org1 org msp
-		final String orgmsp = org.getAsJsonObject().get("mspid").getAsString();
-		// fetch peer0.org1 org signed cert and keystore
-		final String x509CertificatePem = readLineByLine(signedCertPEMPath);
-		final String pkcs8PrivateKeyPem = readLineByLine(adminPrivateKeyPEMPath);
-		// fetch channel name
-		final JsonElement channelElement = config.get("channels");
-		final JsonElement channelname = channelElement.getAsJsonObject().get("channelname");
-		final String channel = channelname.getAsJsonObject().get("channel").getAsString();
-		// fetch chaincode
-		final String contractName = config.get("contractname").getAsString();
-
-		GatewayImpl.Builder builder = (GatewayImpl.Builder) Gateway.createBuilder();
-		Wallet wallet = Wallets.newInMemoryWallet();
-		java.security.cert.X509Certificate certificate = Identities.readX509Certificate(x509CertificatePem);
-		PrivateKey privateKey = Identities.readPrivateKey(pkcs8PrivateKeyPem);
-		wallet.put(certUser, Identities.newX509Identity(orgmsp, certificate, privateKey));
-
-		// Load an existing wallet holding identities used to access the network.
-		// Path walletDirectory = Paths.get("wallet");
-		// wallet = Wallets.newFileSystemWallet(walletDirectory);
-		// Path to a common connection profile describing the network.
-		Path networkConfigFile = Paths.get(ConfigOptions.BLOCKCHAIN_CONFIG_FILE_RESOLVED_PATH);
-
-		// Configure the gateway connection used to access the network.
-		builder.identity(wallet, certUser).networkConfig(networkConfigFile);
-		// Create a gateway connection
-		Gateway gateway = builder.connect();
-
-		// Obtain a smart contract deployed on the network.
-		Network network = gateway.getNetwork(channel);
-		Contract contract = network.getContract(contractName);
-
-		return contract;
-	}
-
-	// Read signcert and keystore file content. Read file content into the string
-	// with - Files.lines(Path path, Charset cs)
-	private static String readLineByLine(String filePath) {
-		StringBuilder contentBuilder = new StringBuilder();
-
-		try (Stream<String> stream = Files.lines(Paths.get(filePath), StandardCharsets.UTF_8)) {
-			stream.forEach(s -> contentBuilder.append(s).append("\n"));
-		} catch (IOException e) {						
-		}
-
-		return contentBuilder.toString();
+		return BCGatewayContractProvider.getInstance().getContract();
 	}
 
 	/**
@@ -114,8 +43,7 @@ public class BCNetworkGatewayClient {
 	 * @throws Exception
 	 */
 	private String queryBlockChain(String functionName, String[] queryArgs) throws Exception {
-		BCNetworkGatewayClient gatewayObject = new BCNetworkGatewayClient();
-		byte[] queryChainCodeResult = gatewayObject.gatewayContract().evaluateTransaction(functionName, queryArgs);
+		byte[] queryChainCodeResult = BCGatewayContractProvider.getInstance().evaluate(functionName, queryArgs);
 		String stringResponse = new String(queryChainCodeResult, StandardCharsets.UTF_8);
 		return stringResponse;
 
@@ -152,11 +80,21 @@ public class BCNetworkGatewayClient {
 	 * Invoke Blockchain for creating a record
 	 */
 	public JsonObject createBCNode(String[] functionArgs) throws Exception {
-		BCNetworkGatewayClient gatewayObject = new BCNetworkGatewayClient();
-		byte[] createChainCodeResult = gatewayObject.gatewayContract().createTransaction(ChainCodeMethods.INSTANTIATE)
-				.submit(functionArgs);
-		JsonObject response = new JsonParser().parse(new String(createChainCodeResult, StandardCharsets.UTF_8))
-				.getAsJsonObject();
-		return response;
+		byte[] createChainCodeResult = BCGatewayContractProvider.getInstance().submit(ChainCodeMethods.INSTANTIATE,
+				functionArgs);
+		return parseResponse(createChainCodeResult);
+	}
+
+	/**
+	 * Invoke Blockchain for creating a record without waiting for the commit,
+	 * several records can be in flight at once
+	 */
+	public CompletableFuture<JsonObject> createBCNodeAsync(String[] functionArgs) {
+		return BCGatewayContractProvider.getInstance().submitAsync(ChainCodeMethods.INSTANTIATE, functionArgs)
+				.thenApply(BCNetworkGatewayClient::parseResponse);
+	}
+
+	private static JsonObject parseResponse(byte[] chainCodeResult) {
+		return new JsonParser().parse(new String(chainCodeResult, StandardCharsets.UTF_8)).getAsJsonObject();
 	}
 }
\ No newline at end of file
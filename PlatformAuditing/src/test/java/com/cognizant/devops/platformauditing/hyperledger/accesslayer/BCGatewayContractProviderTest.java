@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformauditing.hyperledger.accesslayer;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.TimeoutException;
+
+import org.hyperledger.fabric.gateway.Contract;
+import org.hyperledger.fabric.gateway.ContractException;
+import org.hyperledger.fabric.gateway.GatewayRuntimeException;
+import org.hyperledger.fabric.gateway.Transaction;
+import org.junit.After;
+import org.junit.Test;
+
+public class BCGatewayContractProviderTest {
+
+	private static final byte[] RESULT = "{\"assetID\":\"1\"}".getBytes(StandardCharsets.UTF_8);
+
+	private int connections = 0;
+	private BCGatewayContractProvider provider = null;
+
+	@After
+	public void tearDown() {
+		if (provider != null) {
+			provider.close();
+		}
+	}
+
+	@Test
+	public void testEvaluateReconnectsAndRetriesAfterContractException() throws Exception {
+		provider = getProvider(new ContractException("peer unavailable"), null);
+		assertArrayEquals(RESULT, provider.evaluate("getAssetDetails", "1"));
+		assertEquals(2, connections);
+	}
+
+	@Test
+	public void testEvaluateReconnectsAndRetriesAfterGatewayRuntimeException() throws Exception {
+		provider = getProvider(new GatewayRuntimeException("channel closed"), null);
+		assertArrayEquals(RESULT, provider.evaluate("getAssetDetails", "1"));
+		assertEquals(2, connections);
+	}
+
+	@Test
+	public void testSubmitTimeoutIsNotRetriedButReconnects() throws Exception {
+		provider = getProvider(new TimeoutException("commit timed out"), null);
+		try {
+			provider.submit("createAsset", "{}");
+			fail("A timed out submit must not be retried");
+		} catch (TimeoutException e) {
+			assertEquals(1, connections);
+		}
+		assertArrayEquals(RESULT, provider.submit("createAsset", "{}"));
+		assertEquals(2, connections);
+	}
+
+	@Test
+	public void testSuccessfulCallKeepsConnection() throws Exception {
+		provider = getProvider(null, null);
+		provider.evaluate("getAssetDetails", "1");
+		provider.submit("createAsset", "{}");
+		assertEquals(1, connections);
+	}
+
+	/**
+	 * Provider whose connections hand out contracts failing with the given
+	 * exceptions in turn, a null exception answers with the result
+	 */
+	private BCGatewayContractProvider getProvider(Exception... failures) {
+		LinkedList<Exception> pending = new LinkedList<>(Arrays.asList(failures));
+		return new BCGatewayContractProvider(1, () -> {
+			connections++;
+			return getContract(pending.isEmpty() ? null : pending.poll());
+		});
+	}
+
+	private static Contract getContract(Exception failure) {
+		Transaction transaction = (Transaction) Proxy.newProxyInstance(Transaction.class.getClassLoader(),
+				new Class<?>[] { Transaction.class }, (proxy, method, args) -> answer(method.getName(), failure));
+		return (Contract) Proxy.newProxyInstance(Contract.class.getClassLoader(), new Class<?>[] { Contract.class },
+				(proxy, method, args) -> {
+					if ("createTransaction".equals(method.getName())) {
+						return transaction;
+					}
+					return answer(method.getName(), failure);
+				});
+	}
+
+	private static Object answer(String methodName, Exception failure) throws Exception {
+		if (methodName.startsWith("evaluate") || methodName.startsWith("submit")) {
+			if (failure != null) {
+				throw failure;
+			}
+			return RESULT;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformcommons.config;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+public class AgentDataIngestionConfig implements Serializable {
+
+	private static final long serialVersionUID = -3183540587204417362L;
+
+	private int chunkSize = 1000;
+	private boolean enablePipelinedWrite = false;
+	private int maxInFlightChunksPerRoutingKey = 4;
+	private int maxInFlightChunksPerEngine = 16;
+	private boolean enableMicroBatching = false;
+	private int microBatchMaxMessages = 50;
+	private int microBatchMaxRecords = 1000;
+	private long microBatchMaxWaitInMs = 500;
+	private int consumersPerRoutingKey = 1;
+	private Map<String, Integer> consumersPerToolCategory = new HashMap<>();
+	private boolean enableUniqueKeyOrdering = false;
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	public boolean isEnablePipelinedWrite() {
+		return enablePipelinedWrite;
+	}
+
+	public void setEnablePipelinedWrite(boolean enablePipelinedWrite) {
+		this.enablePipelinedWrite = enablePipelinedWrite;
+	}
+
+	public int getMaxInFlightChunksPerRoutingKey() {
+		return maxInFlightChunksPerRoutingKey;
+	}
+
+	public void setMaxInFlightChunksPerRoutingKey(int maxInFlightChunksPerRoutingKey) {
+		this.maxInFlightChunksPerRoutingKey = maxInFlightChunksPerRoutingKey;
+	}
+
+	public int getMaxInFlightChunksPerEngine() {
+		return maxInFlightChunksPerEngine;
+	}
+
+	public void setMaxInFlightChunksPerEngine(int maxInFlightChunksPerEngine) {
+		this.maxInFlightChunksPerEngine = maxInFlightChunksPerEngine;
+	}
+
+	public boolean isEnableMicroBatching() {
+		return enableMicroBatching;
+	}
+
+	public void setEnableMicroBatching(boolean enableMicroBatching) {
+		this.enableMicroBatching = enableMicroBatching;
+	}
+
+	public int getMicroBatchMaxMessages() {
+		return microBatchMaxMessages;
+	}
+
+	public void setMicroBatchMaxMessages(int microBatchMaxMessages) {
+		this.microBatchMaxMessages = microBatchMaxMessages;
+	}
+
+	public int getMicroBatchMaxRecords() {
+		return microBatchMaxRecords;
+	}
+
+	public void setMicroBatchMaxRecords(int microBatchMaxRecords) {
+		this.microBatchMaxRecords = microBatchMaxRecords;
+	}
+
+	public long getMicroBatchMaxWaitInMs() {
+		return microBatchMaxWaitInMs;
+	}
+
+	public void setMicroBatchMaxWaitInMs(long microBatchMaxWaitInMs) {
+		this.microBatchMaxWaitInMs = microBatchMaxWaitInMs;
+	}
+
+	public int getConsumersPerRoutingKey() {
+		return consumersPerRoutingKey;
+	}
+
+	public void setConsumersPerRoutingKey(int consumersPerRoutingKey) {
+		this.consumersPerRoutingKey = consumersPerRoutingKey;
+	}
+
+	public Map<String, Integer> getConsumersPerToolCategory() {
+		return consumersPerToolCategory;
+	}
+
+	public void setConsumersPerToolCategory(Map<String, Integer> consumersPerToolCategory) {
+		this.consumersPerToolCategory = consumersPerToolCategory;
+	}
+
+	public boolean isEnableUniqueKeyOrdering() {
+		return enableUniqueKeyOrdering;
+	}
+
+	public void setEnableUniqueKeyOrdering(boolean enableUniqueKeyOrdering) {
+		this.enableUniqueKeyOrdering = enableUniqueKeyOrdering;
+	}
+
+	/**
+	 * Consumer count of a tool category, falls back to consumersPerRoutingKey
+	 * when the category has no entry
+	 *
+	 * @param toolCategory
+	 * @return int
+	 */
+	public int getConsumerCount(String toolCategory) {
+		Integer count = null;
+		if (consumersPerToolCategory != null && toolCategory != null) {
+			count = consumersPerToolCategory.get(toolCategory.toUpperCase());
+		}
+		return Math.max(1, count == null ? consumersPerRoutingKey : count);
+	}
+}
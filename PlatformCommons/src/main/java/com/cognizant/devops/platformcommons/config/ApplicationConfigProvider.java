@@ -75,6 +75,8 @@ public class ApplicationConfigProvider implements Serializable {
     private WebhookEngine webhookEngine= new WebhookEngine();
     private String pdfkey;
 	private ApplicationLogLevel applicationLogLevel = new ApplicationLogLevel();
+	private AgentDataIngestionConfig agentDataIngestion = new AgentDataIngestionConfig();
+	private RestClientConfig restClient = new RestClientConfig();
     
 	private ApplicationConfigProvider() {
 		this.refreshTime = new Date(new Date().getTime() - 86400000);
@@ -333,4 +335,20 @@ public class ApplicationConfigProvider implements Serializable {
 	public void setApplicationLogLevel(ApplicationLogLevel applicationLogLevel) {
 		this.applicationLogLevel = applicationLogLevel;
 	}
+
+	public AgentDataIngestionConfig getAgentDataIngestion() {
+		return agentDataIngestion;
+	}
+
+	public void setAgentDataIngestion(AgentDataIngestionConfig agentDataIngestion) {
+		this.agentDataIngestion = agentDataIngestion;
+	}
+
+	public RestClientConfig getRestClient() {
+		return restClient;
+	}
+
+	public void setRestClient(RestClientConfig restClient) {
+		this.restClient = restClient;
+	}
 }
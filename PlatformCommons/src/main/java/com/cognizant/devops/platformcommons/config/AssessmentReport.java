@@ -29,6 +29,9 @@ public class AssessmentReport implements Serializable{
 	private String outputDatasource = "NEO4J";
 	private int maxWorkflowRetries = 5;
 	private String fusionExportAPIUrl = "http://localhost:1337/api/v2.0/export";
+	private int kpiQueriesPerTransaction = 31;
+	private KPIQueryCacheConfig kpiQueryCache = new KPIQueryCacheConfig();
+	private GrafanaPdfBrowserConfig grafanaPdfBrowser = new GrafanaPdfBrowserConfig();
 
 	public String getOutputDatasource() {
 		return outputDatasource;
@@ -53,6 +56,30 @@ public class AssessmentReport implements Serializable{
 	public void setFusionExportAPIUrl(String fusionExportAPIUrl) {
 		this.fusionExportAPIUrl = fusionExportAPIUrl;
 	}
+
+	public int getKpiQueriesPerTransaction() {
+		return kpiQueriesPerTransaction;
+	}
+
+	public void setKpiQueriesPerTransaction(int kpiQueriesPerTransaction) {
+		this.kpiQueriesPerTransaction = kpiQueriesPerTransaction;
+	}
+
+	public KPIQueryCacheConfig getKpiQueryCache() {
+		return kpiQueryCache;
+	}
+
+	public void setKpiQueryCache(KPIQueryCacheConfig kpiQueryCache) {
+		this.kpiQueryCache = kpiQueryCache;
+	}
+
+	public GrafanaPdfBrowserConfig getGrafanaPdfBrowser() {
+		return grafanaPdfBrowser;
+	}
+
+	public void setGrafanaPdfBrowser(GrafanaPdfBrowserConfig grafanaPdfBrowser) {
+		this.grafanaPdfBrowser = grafanaPdfBrowser;
+	}
 	
 	
 }
@@ -23,6 +23,10 @@ public class CorrelationConfig implements Serializable {
 	private int correlationWindow = 48;
 	private int correlationFrequency = 4;
 	private int batchSize = 2000;
+	private int maxParallelCorrelations = 4;
+	private boolean enableBatchPrefetch = true;
+	private boolean enableIncrementalCorrelation = false;
+	private int changeLogMaxNodesPerLabel = 100000;
 	
 	public int getCorrelationWindow() {
 		return correlationWindow;
@@ -42,4 +46,28 @@ public class CorrelationConfig implements Serializable {
 	public void setBatchSize(int batchSize) {
 		this.batchSize = batchSize;
 	}
+	public int getMaxParallelCorrelations() {
+		return maxParallelCorrelations;
+	}
+	public void setMaxParallelCorrelations(int maxParallelCorrelations) {
+		this.maxParallelCorrelations = maxParallelCorrelations;
+	}
+	public boolean isEnableBatchPrefetch() {
+		return enableBatchPrefetch;
+	}
+	public void setEnableBatchPrefetch(boolean enableBatchPrefetch) {
+		this.enableBatchPrefetch = enableBatchPrefetch;
+	}
+	public boolean isEnableIncrementalCorrelation() {
+		return enableIncrementalCorrelation;
+	}
+	public void setEnableIncrementalCorrelation(boolean enableIncrementalCorrelation) {
+		this.enableIncrementalCorrelation = enableIncrementalCorrelation;
+	}
+	public int getChangeLogMaxNodesPerLabel() {
+		return changeLogMaxNodesPerLabel;
+	}
+	public void setChangeLogMaxNodesPerLabel(int changeLogMaxNodesPerLabel) {
+		this.changeLogMaxNodesPerLabel = changeLogMaxNodesPerLabel;
+	}
 }
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformcommons.config;
+
+import java.io.Serializable;
+
+public class ElasticSearchBulkConfig implements Serializable {
+
+	private static final long serialVersionUID = -2684510730929735120L;
+
+	private int maxDocumentsPerRequest = 1000;
+	private long maxBytesPerRequest = 5242880;
+	private int concurrentRequests = 2;
+	private int maxRetries = 3;
+	private long retryBackoffInMs = 500;
+
+	public int getMaxDocumentsPerRequest() {
+		return maxDocumentsPerRequest;
+	}
+
+	public void setMaxDocumentsPerRequest(int maxDocumentsPerRequest) {
+		this.maxDocumentsPerRequest = maxDocumentsPerRequest;
+	}
+
+	public long getMaxBytesPerRequest() {
+		return maxBytesPerRequest;
+	}
+
+	public void setMaxBytesPerRequest(long maxBytesPerRequest) {
+		this.maxBytesPerRequest = maxBytesPerRequest;
+	}
+
+	public int getConcurrentRequests() {
+		return concurrentRequests;
+	}
+
+	public void setConcurrentRequests(int concurrentRequests) {
+		this.concurrentRequests = concurrentRequests;
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	public long getRetryBackoffInMs() {
+		return retryBackoffInMs;
+	}
+
+	public void setRetryBackoffInMs(long retryBackoffInMs) {
+		this.retryBackoffInMs = retryBackoffInMs;
+	}
+}
@@ -24,6 +24,8 @@ public class EndpointData implements Serializable{
 
 	private static final long serialVersionUID = 5450251387447525878L;
 	private String elasticSearchEndpoint;
+	private ElasticSearchBulkConfig elasticSearchBulk = new ElasticSearchBulkConfig();
+	private ElasticSearchScrollConfig elasticSearchScroll = new ElasticSearchScrollConfig();
 
 	public EndpointData() {
 		super();
@@ -36,4 +38,20 @@ public class EndpointData implements Serializable{
 	public void setElasticSearchEndpoint(String elasticSearchEndpoint) {
 		this.elasticSearchEndpoint = elasticSearchEndpoint;
 	}
+
+	public ElasticSearchBulkConfig getElasticSearchBulk() {
+		return elasticSearchBulk;
+	}
+
+	public void setElasticSearchBulk(ElasticSearchBulkConfig elasticSearchBulk) {
+		this.elasticSearchBulk = elasticSearchBulk;
+	}
+
+	public ElasticSearchScrollConfig getElasticSearchScroll() {
+		return elasticSearchScroll;
+	}
+
+	public void setElasticSearchScroll(ElasticSearchScrollConfig elasticSearchScroll) {
+		this.elasticSearchScroll = elasticSearchScroll;
+	}
 }
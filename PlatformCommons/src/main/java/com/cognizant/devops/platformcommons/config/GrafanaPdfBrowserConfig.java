@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformcommons.config;
+
+import java.io.Serializable;
+
+public class GrafanaPdfBrowserConfig implements Serializable {
+
+	private static final long serialVersionUID = -5310288453621473802L;
+
+	private int browserPoolSize = 2;
+	private int exportQueueSize = 20;
+	private int exportTimeoutInSeconds = 300;
+	private int panelPollingIntervalInMs = 250;
+
+	public int getBrowserPoolSize() {
+		return browserPoolSize;
+	}
+
+	public void setBrowserPoolSize(int browserPoolSize) {
+		this.browserPoolSize = browserPoolSize;
+	}
+
+	public int getExportQueueSize() {
+		return exportQueueSize;
+	}
+
+	public void setExportQueueSize(int exportQueueSize) {
+		this.exportQueueSize = exportQueueSize;
+	}
+
+	public int getExportTimeoutInSeconds() {
+		return exportTimeoutInSeconds;
+	}
+
+	public void setExportTimeoutInSeconds(int exportTimeoutInSeconds) {
+		this.exportTimeoutInSeconds = exportTimeoutInSeconds;
+	}
+
+	public int getPanelPollingIntervalInMs() {
+		return panelPollingIntervalInMs;
+	}
+
+	public void setPanelPollingIntervalInMs(int panelPollingIntervalInMs) {
+		this.panelPollingIntervalInMs = panelPollingIntervalInMs;
+	}
+}
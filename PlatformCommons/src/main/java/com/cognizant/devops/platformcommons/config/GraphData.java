@@ -35,6 +35,11 @@ public class GraphData implements Serializable{
 	private Integer connectionExpiryTimeOut;
 	private Integer maxIdleConnections;
 	private Integer logQueryIfProcessingTimeGreaterThanInMS=5;
+	private String transport = "HTTP";
+	private int boltMaxConnectionPoolSize = 100;
+	private long boltConnectionAcquisitionTimeoutInMs = 60000;
+	private int boltFetchSize = 1000;
+	private long boltMaxTransactionRetryTimeInMs = 30000;
 	
 	public String getEndpoint() {
 		return endpoint;
@@ -72,4 +77,34 @@ public class GraphData implements Serializable{
 	public void setLogQueryIfProcessingTimeGreaterThanInMS(Integer logQueryIfProcessingTimeGreaterThanInMS) {
 		this.logQueryIfProcessingTimeGreaterThanInMS = logQueryIfProcessingTimeGreaterThanInMS;
 	}
+	public String getTransport() {
+		return transport;
+	}
+	public void setTransport(String transport) {
+		this.transport = transport;
+	}
+	public int getBoltMaxConnectionPoolSize() {
+		return boltMaxConnectionPoolSize;
+	}
+	public void setBoltMaxConnectionPoolSize(int boltMaxConnectionPoolSize) {
+		this.boltMaxConnectionPoolSize = boltMaxConnectionPoolSize;
+	}
+	public long getBoltConnectionAcquisitionTimeoutInMs() {
+		return boltConnectionAcquisitionTimeoutInMs;
+	}
+	public void setBoltConnectionAcquisitionTimeoutInMs(long boltConnectionAcquisitionTimeoutInMs) {
+		this.boltConnectionAcquisitionTimeoutInMs = boltConnectionAcquisitionTimeoutInMs;
+	}
+	public int getBoltFetchSize() {
+		return boltFetchSize;
+	}
+	public void setBoltFetchSize(int boltFetchSize) {
+		this.boltFetchSize = boltFetchSize;
+	}
+	public long getBoltMaxTransactionRetryTimeInMs() {
+		return boltMaxTransactionRetryTimeInMs;
+	}
+	public void setBoltMaxTransactionRetryTimeInMs(long boltMaxTransactionRetryTimeInMs) {
+		this.boltMaxTransactionRetryTimeInMs = boltMaxTransactionRetryTimeInMs;
+	}
 }
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformcommons.config;
+
+import java.io.Serializable;
+
+public class KPIQueryCacheConfig implements Serializable {
+
+	private static final long serialVersionUID = 4217360938419201337L;
+
+	private boolean enabled = false;
+	private int maxEntries = 5000;
+	private int maxRows = 500000;
+	private long ttlInMinutes = 60;
+	private boolean persistToOutputDatasource = false;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	public int getMaxRows() {
+		return maxRows;
+	}
+
+	public void setMaxRows(int maxRows) {
+		this.maxRows = maxRows;
+	}
+
+	public long getTtlInMinutes() {
+		return ttlInMinutes;
+	}
+
+	public void setTtlInMinutes(long ttlInMinutes) {
+		this.ttlInMinutes = ttlInMinutes;
+	}
+
+	public boolean isPersistToOutputDatasource() {
+		return persistToOutputDatasource;
+	}
+
+	public void setPersistToOutputDatasource(boolean persistToOutputDatasource) {
+		this.persistToOutputDatasource = persistToOutputDatasource;
+	}
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformcommons.config;
+
+import java.io.Serializable;
+
+public class RestClientConfig implements Serializable {
+
+	private static final long serialVersionUID = 6317842508362174091L;
+
+	private int maxConnectionsPerRoute = 20;
+	private long connectionAcquisitionTimeoutInMs = 60000;
+	private int connectTimeoutInMs = 5001;
+	private int readTimeoutInMs = 0;
+	private boolean enableGzip = true;
+
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+	}
+
+	public long getConnectionAcquisitionTimeoutInMs() {
+		return connectionAcquisitionTimeoutInMs;
+	}
+
+	public void setConnectionAcquisitionTimeoutInMs(long connectionAcquisitionTimeoutInMs) {
+		this.connectionAcquisitionTimeoutInMs = connectionAcquisitionTimeoutInMs;
+	}
+
+	public int getConnectTimeoutInMs() {
+		return connectTimeoutInMs;
+	}
+
+	public void setConnectTimeoutInMs(int connectTimeoutInMs) {
+		this.connectTimeoutInMs = connectTimeoutInMs;
+	}
+
+	public int getReadTimeoutInMs() {
+		return readTimeoutInMs;
+	}
+
+	public void setReadTimeoutInMs(int readTimeoutInMs) {
+		this.readTimeoutInMs = readTimeoutInMs;
+	}
+
+	public boolean isEnableGzip() {
+		return enableGzip;
+	}
+
+	public void setEnableGzip(boolean enableGzip) {
+		this.enableGzip = enableGzip;
+	}
+}
@@ -16,6 +16,8 @@
 package com.cognizant.devops.platformcommons.config;
 
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
 
 public class WorkflowDetails implements Serializable {
 
@@ -31,6 +33,14 @@ public class WorkflowDetails implements Serializable {
 	private String workflowExecutorCron = "1 0 0 * * ?";
 	private String workflowRetryExecutorCron = "0 0 */4 ? * *";
 	private String workflowAutoCorrectionSchedular="0 0 */4 ? * *";
+	private int taskParallelism = 8;
+	private long taskTimeoutInSeconds = 1800;
+	private Map<String, Integer> datasourceConcurrency = new HashMap<>();
+	
+	public WorkflowDetails() {
+		datasourceConcurrency.put("NEO4J", 4);
+		datasourceConcurrency.put("ELASTICSEARCH", 4);
+	}
 	
 	public int getCorePoolSize() {
 		return corePoolSize;
@@ -78,6 +88,37 @@ public class WorkflowDetails implements Serializable {
 	public void setWorkflowAutoCorrectionSchedular(String workflowAutoCorrectionSchedular) {
 		this.workflowAutoCorrectionSchedular = workflowAutoCorrectionSchedular;
 	}
+	public int getTaskParallelism() {
+		return taskParallelism;
+	}
+	public void setTaskParallelism(int taskParallelism) {
+		this.taskParallelism = taskParallelism;
+	}
+	public long getTaskTimeoutInSeconds() {
+		return taskTimeoutInSeconds;
+	}
+	public void setTaskTimeoutInSeconds(long taskTimeoutInSeconds) {
+		this.taskTimeoutInSeconds = taskTimeoutInSeconds;
+	}
+	public Map<String, Integer> getDatasourceConcurrency() {
+		return datasourceConcurrency;
+	}
+	public void setDatasourceConcurrency(Map<String, Integer> datasourceConcurrency) {
+		this.datasourceConcurrency = datasourceConcurrency;
+	}
 	
-	
+	/**
+	 * Maximum number of tasks allowed to run together against the datasource, 0
+	 * when the datasource has no limit of its own
+	 * 
+	 * @param datasource
+	 * @return int
+	 */
+	public int getDatasourceConcurrency(String datasource) {
+		if (datasource == null || datasourceConcurrency == null) {
+			return 0;
+		}
+		Integer limit = datasourceConcurrency.get(datasource.toUpperCase());
+		return limit == null ? 0 : Math.max(0, limit);
+	}
 }
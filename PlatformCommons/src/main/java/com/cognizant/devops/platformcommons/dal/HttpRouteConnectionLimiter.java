@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformcommons.dal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.ws.rs.ProcessingException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
+import com.google.gson.JsonObject;
+
+/**
+ * Bounds the number of connections RestApiHandler opens to one route (scheme,
+ * host and port). Requests beyond restClient.maxConnectionsPerRoute wait for a
+ * connection to be released instead of opening new sockets, released
+ * connections go back to the JDK keep-alive cache and are reused by the next
+ * request on the route. Utilization counters are kept per route.
+ *
+ * A permit is held until the response is closed, streamed responses included.
+ * A thread which already holds the permit of a route does not wait for a
+ * second one. A response stream reader which sends another request to the same
+ * server would otherwise wait for itself once all permits are held by such
+ * readers. The nested request counts against the permit of the outer one.
+ */
+public class HttpRouteConnectionLimiter {
+	private static Logger log = LogManager.getLogger(HttpRouteConnectionLimiter.class);
+	private static final HttpRouteConnectionLimiter instance = new HttpRouteConnectionLimiter();
+
+	private final Map<String, RouteStats> routes = new ConcurrentHashMap<>();
+	/* routes whose permit the thread holds, with the number of nested requests */
+	private final ThreadLocal<Map<String, Integer>> heldRoutes = ThreadLocal.withInitial(HashMap::new);
+
+	private HttpRouteConnectionLimiter() {
+	}
+
+	public static HttpRouteConnectionLimiter getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Wait for a free connection on the route of the url
+	 *
+	 * @param url
+	 * @return route to be passed to {@link #release(String)}
+	 */
+	public String acquire(String url) {
+		String route = getRoute(url);
+		RouteStats stats = routes.computeIfAbsent(route, key -> new RouteStats(
+				ApplicationConfigProvider.getInstance().getRestClient().getMaxConnectionsPerRoute()));
+		stats.requests.increment();
+		Map<String, Integer> held = heldRoutes.get();
+		Integer nesting = held.get(route);
+		if (nesting != null) {
+			held.put(route, nesting + 1);
+			stats.nested.increment();
+			return route;
+		}
+		if (!stats.permits.tryAcquire()) {
+			long waitStart = System.currentTimeMillis();
+			stats.waited.increment();
+			boolean acquired;
+			try {
+				acquired = stats.permits.tryAcquire(
+						ApplicationConfigProvider.getInstance().getRestClient().getConnectionAcquisitionTimeoutInMs(),
+						TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ProcessingException("Interrupted while waiting for connection to " + route, e);
+			} finally {
+				stats.waitTimeInMs.add(System.currentTimeMillis() - waitStart);
+			}
+			if (!acquired) {
+				stats.timeouts.increment();
+				throw new ProcessingException("Timed out waiting for connection to " + route);
+			}
+		}
+		held.put(route, 1);
+		int leased = stats.leased.incrementAndGet();
+		stats.peakLeased.accumulateAndGet(leased, Math::max);
+		return route;
+	}
+
+	public void release(String route) {
+		Map<String, Integer> held = heldRoutes.get();
+		Integer nesting = held.get(route);
+		if (nesting != null && nesting > 1) {
+			held.put(route, nesting - 1);
+			return;
+		}
+		held.remove(route);
+		RouteStats stats = routes.get(route);
+		if (stats != null) {
+			stats.leased.decrementAndGet();
+			stats.permits.release();
+		}
+	}
+
+	/**
+	 * @return per route utilization, connections in use, peak, waits and
+	 *         timeouts since start
+	 */
+	public JsonObject getPoolStats() {
+		JsonObject poolStats = new JsonObject();
+		for (Map.Entry<String, RouteStats> entry : routes.entrySet()) {
+			RouteStats stats = entry.getValue();
+			JsonObject routeJson = new JsonObject();
+			routeJson.addProperty("maxConnections", stats.maxConnections);
+			routeJson.addProperty("leased", stats.leased.get());
+			routeJson.addProperty("available", stats.permits.availablePermits());
+			routeJson.addProperty("peakLeased", stats.peakLeased.get());
+			routeJson.addProperty("requests", stats.requests.sum());
+			routeJson.addProperty("waited", stats.waited.sum());
+			routeJson.addProperty("waitTimeInMs", stats.waitTimeInMs.sum());
+			routeJson.addProperty("timeouts", stats.timeouts.sum());
+			routeJson.addProperty("nested", stats.nested.sum());
+			poolStats.add(entry.getKey(), routeJson);
+		}
+		return poolStats;
+	}
+
+	public void logSummary() {
+		log.info("Type=RestClient connectionPoolStats={} ", getPoolStats());
+	}
+
+	private String getRoute(String url) {
+		int schemeEnd = url.indexOf("://");
+		int hostStart = schemeEnd < 0 ? 0 : schemeEnd + 3;
+		int hostEnd = hostStart;
+		while (hostEnd < url.length() && "/?#".indexOf(url.charAt(hostEnd)) < 0) {
+			hostEnd++;
+		}
+		return url.substring(0, hostEnd).toLowerCase();
+	}
+
+	private static class RouteStats {
+		private final int maxConnections;
+		private final Semaphore permits;
+		private final AtomicInteger leased = new AtomicInteger();
+		private final AtomicInteger peakLeased = new AtomicInteger();
+		private final LongAdder requests = new LongAdder();
+		private final LongAdder waited = new LongAdder();
+		private final LongAdder waitTimeInMs = new LongAdder();
+		private final LongAdder timeouts = new LongAdder();
+		private final LongAdder nested = new LongAdder();
+
+		RouteStats(int maxConnections) {
+			this.maxConnections = maxConnections;
+			this.permits = new Semaphore(maxConnections, true);
+		}
+	}
+}
@@ -40,15 +40,23 @@ import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.NewCookie;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.glassfish.jersey.client.ClientProperties;
 import org.glassfish.jersey.client.HttpUrlConnectorProvider;
+import org.glassfish.jersey.client.RequestEntityProcessing;
+import org.glassfish.jersey.client.filter.EncodingFilter;
+import org.glassfish.jersey.media.multipart.BodyPart;
 import org.glassfish.jersey.media.multipart.FormDataMultiPart;
 import org.glassfish.jersey.media.multipart.MultiPartFeature;
 import org.glassfish.jersey.media.multipart.file.FileDataBodyPart;
+import org.glassfish.jersey.media.multipart.file.StreamDataBodyPart;
+import org.glassfish.jersey.message.GZipEncoder;
 
+import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
+import com.cognizant.devops.platformcommons.config.RestClientConfig;
 import com.cognizant.devops.platformcommons.exception.InsightsCustomException;
 import com.cognizant.devops.platformcommons.exception.RestAPI404Exception;
 import com.google.gson.JsonElement;
@@ -60,6 +68,7 @@ public class RestApiHandler {
 	
 	static Client client ;
 	static Client multipartClient;
+	static HttpRouteConnectionLimiter connectionLimiter = HttpRouteConnectionLimiter.getInstance();
 	static {
 		try {
 			
@@ -70,7 +79,10 @@ public class RestApiHandler {
 		}
 	}
 
-	/** Used to initialize Rest client for communication 
+	/** Used to initialize Rest client for communication. Connections are kept
+	 * alive and reused per route by the JDK connector, http.maxConnections is
+	 * raised to restClient.maxConnectionsPerRoute so that idle connections of
+	 * concurrent callers are not dropped.
 	 * @throws NoSuchAlgorithmException 
 	 * @throws KeyManagementException 
 	 * @throws InsightsCustomException 
@@ -113,13 +125,25 @@ public class RestApiHandler {
 			}};
 			sslContext = SSLContext.getInstance("TLS");
 			sslContext.init(null, trustManager, null);
+			RestClientConfig restClientConfig = ApplicationConfigProvider.getInstance().getRestClient();
+			if (System.getProperty("http.maxConnections") == null) {
+				System.setProperty("http.maxConnections",
+						String.valueOf(restClientConfig.getMaxConnectionsPerRoute()));
+			}
 			client = ClientBuilder.newBuilder().sslContext(sslContext).build();
 			multipartClient = ClientBuilder.newBuilder().sslContext(sslContext).register(MultiPartFeature.class)
 					.build();
 			if(client == null) {
 				throw new InsightsCustomException("unable to initilize client");
 			}
-			client.property(ClientProperties.CONNECT_TIMEOUT, 5001);
+			client.property(ClientProperties.CONNECT_TIMEOUT, restClientConfig.getConnectTimeoutInMs());
+			if (restClientConfig.getReadTimeoutInMs() > 0) {
+				/* long Neo4j and Elasticsearch reads have no read timeout unless configured */
+				client.property(ClientProperties.READ_TIMEOUT, restClientConfig.getReadTimeoutInMs());
+			}
+			if (restClientConfig.isEnableGzip()) {
+				client.register(EncodingFilter.class).register(GZipEncoder.class);
+			}
 		} catch (NoSuchAlgorithmException e) {
 			log.error("NoSuchAlgorithmException occured", e);
 			throw new NoSuchAlgorithmException(e.getMessage());
@@ -135,6 +159,13 @@ public class RestApiHandler {
 
 	}
 
+	/**
+	 * @return per route connection utilization of the rest client
+	 */
+	public static JsonObject getConnectionPoolStats() {
+		return connectionLimiter.getPoolStats();
+	}
+
 	/**
 	 * @param url
 	 * @param headers
@@ -157,6 +188,90 @@ public class RestApiHandler {
 		return getRequestBuilder(url, requestJson, headers, HttpMethod.POST);
 	}
 
+	/**
+	 * Post the request and hand the response body to the reader as a stream, the
+	 * response is closed once the reader returns
+	 * 
+	 * @param url
+	 * @param requestJson
+	 * @param headers
+	 * @param reader
+	 * @return
+	 * @throws InsightsCustomException
+	 */
+	public static <T> T doPost(String url, JsonObject requestJson, Map<String, String> headers,
+			ResponseStreamReader<T> reader) throws InsightsCustomException {
+		return doStreamPost(url, Entity.json(requestJson.toString()), false, headers, reader);
+	}
+
+	/**
+	 * Post a body which is written directly to the connection by requestBody
+	 * (e.g. newline delimited json), instead of being built in memory first.
+	 * The response body is handed to the reader as a stream. A response other
+	 * than 200 is thrown as InsightsCustomException with the status and data.
+	 *
+	 * @param url
+	 * @param requestBody
+	 * @param mediaType
+	 * @param headers
+	 * @param reader
+	 * @return
+	 * @throws InsightsCustomException
+	 */
+	public static <T> T doPost(String url, StreamingOutput requestBody, String mediaType, Map<String, String> headers,
+			ResponseStreamReader<T> reader) throws InsightsCustomException {
+		return doStreamPost(url, Entity.entity(requestBody, mediaType), true, headers, reader);
+	}
+
+	private static <T> T doStreamPost(String url, Entity<?> entity, boolean chunked, Map<String, String> headers,
+			ResponseStreamReader<T> reader) throws InsightsCustomException {
+		Builder invocationBuilder = null;
+		Response response = null;
+		String route = connectionLimiter.acquire(url);
+		try {
+			invocationBuilder = client.target(url).request(MediaType.APPLICATION_JSON);
+			if (chunked) {
+				invocationBuilder = invocationBuilder.property(ClientProperties.REQUEST_ENTITY_PROCESSING,
+						RequestEntityProcessing.CHUNKED);
+			}
+			if (headers != null && headers.size() > 0) {
+				for (Map.Entry<String, String> entry : headers.entrySet()) {
+					invocationBuilder = invocationBuilder.header(entry.getKey(), entry.getValue());
+				}
+			}
+			response = invocationBuilder.post(entity, Response.class);
+			if (response.getStatus() != 200) {
+				JsonObject errorResponse = new JsonObject();
+				errorResponse.addProperty("status", response.getStatus());
+				errorResponse.addProperty("data", response.readEntity(String.class));
+				if (response.getStatus() == 404) {
+					throw new RestAPI404Exception(errorResponse.toString());
+				}
+				log.error(" HTTP response has issue for URL {} response {} ", url, errorResponse);
+				throw new InsightsCustomException(errorResponse.toString());
+			}
+			try (InputStream responseStream = response.readEntity(InputStream.class)) {
+				return reader.read(responseStream);
+			}
+		} catch (ProcessingException e) {
+			log.error("ProcessingException occured  ", e);
+			throw e;
+		} catch (RestAPI404Exception e) {
+			log.error("Error while connecting to server RestAPI404Exception ", e);
+			throw new RestAPI404Exception(e.getMessage());
+		} catch (InsightsCustomException e) {
+			throw e;
+		} catch (Exception e) {
+			log.error("Error while connecting to server --", e);
+			throw new InsightsCustomException(e.getMessage());
+		} finally {
+			if (response != null) {
+				response.close();
+			}
+			connectionLimiter.release(route);
+		}
+	}
+
 	/**
 	 * @param url
 	 * @param headers
@@ -193,6 +308,7 @@ public class RestApiHandler {
 		Builder invocationBuilder = null;
 		Response response = null;
 		WebTarget webTarget = null;
+		String route = connectionLimiter.acquire(url);
 		try {
 			webTarget = client.target(url);
 			invocationBuilder = webTarget.request(MediaType.APPLICATION_JSON);
@@ -241,6 +357,7 @@ public class RestApiHandler {
 			if (response != null) {
 				response.close();
 			}
+			connectionLimiter.release(route);
 		}
 		return data;
 	}
@@ -251,6 +368,7 @@ public class RestApiHandler {
 		Builder invocationBuilder = null;
 		Response response = null;
 		WebTarget webTarget = null;
+		String route = connectionLimiter.acquire(url);
 		try {
 			webTarget = client.target(url);
 			if (queryParams != null && !queryParams.entrySet().isEmpty()) {
@@ -297,6 +415,7 @@ public class RestApiHandler {
 			if (response != null) {
 				response.close();
 			}
+			connectionLimiter.release(route);
 		}
 		return data;
 	}
@@ -315,6 +434,7 @@ public class RestApiHandler {
 		Response response = null;
 		WebTarget webTarget = null;
 		Map<String, NewCookie> cookies = new HashMap<>();
+		String route = connectionLimiter.acquire(url);
 		try {
 			webTarget = client.target(url);
 			invocationBuilder = webTarget.request(MediaType.APPLICATION_JSON);
@@ -339,6 +459,7 @@ public class RestApiHandler {
 			if (response != null) {
 				response.close();
 			}
+			connectionLimiter.release(route);
 		}
 		return cookies;
 	}
@@ -356,21 +477,46 @@ public class RestApiHandler {
 			Map<String, String> multipartFileData,
 			Map<String, String> headers, String returnMediaType)
 			throws InsightsCustomException {
+		FileDataBodyPart filePart = null;
+		if (multipartFiles != null && multipartFiles.size() > 0) {
+			for (Map.Entry<String, String> entry : multipartFiles.entrySet()) {
+				filePart = new FileDataBodyPart(entry.getKey(), new File(entry.getValue()));
+			}
+		}
+		return uploadMultipart(url, filePart, multipartFileData, headers, returnMediaType);
+	}
+
+	/**
+	 * Same as uploadMultipartFile, the file part is read from the stream
+	 * instead of a file on disk
+	 * 
+	 * @param url
+	 * @param partName
+	 * @param fileName
+	 * @param fileData
+	 * @param multipartFileData
+	 * @param headers
+	 * @param returnMediaType
+	 * @return
+	 * @throws InsightsCustomException
+	 */
+	public static InputStream uploadMultipartStream(String url, String partName, String fileName, InputStream fileData,
+			Map<String, String> multipartFileData, Map<String, String> headers, String returnMediaType)
+			throws InsightsCustomException {
+		return uploadMultipart(url, new StreamDataBodyPart(partName, fileData, fileName), multipartFileData, headers,
+				returnMediaType);
+	}
+
+	private static InputStream uploadMultipart(String url, BodyPart filePart, Map<String, String> multipartFileData,
+			Map<String, String> headers, String returnMediaType) throws InsightsCustomException {
 		InputStream retunInputStream = null;
 		Builder invocationBuilder = null;
 		Response response = null;
 		WebTarget webTarget = null;
-		FileDataBodyPart filePart = null;
 		FormDataMultiPart formDataMultiPart = new FormDataMultiPart();
+		String route = connectionLimiter.acquire(url);
 		try {
 
-			if (multipartFiles != null && multipartFiles.size() > 0) {
-				for (Map.Entry<String, String> entry : multipartFiles.entrySet()) {
-					filePart = new FileDataBodyPart(entry.getKey(), new File(entry.getValue()));
-				}
-			}
-
-
 			if (multipartFileData != null && multipartFileData.size() > 0) {
 				for (Map.Entry<String, String> entry : multipartFileData.entrySet()) {
 					formDataMultiPart = formDataMultiPart.field(entry.getKey(), entry.getValue());
@@ -402,6 +548,7 @@ public class RestApiHandler {
 			log.error("Error while connecting to server..", e);
 			throw new InsightsCustomException(e.getMessage());
 		} finally {
+			connectionLimiter.release(route);
 			if (formDataMultiPart != null) {
 				try {
 					formDataMultiPart.close();
@@ -428,6 +575,7 @@ public class RestApiHandler {
 		Builder invocationBuilder = null;
 		Response response = null;
 		WebTarget webTarget = null;	
+		String route = connectionLimiter.acquire(url);
 		try {
 			webTarget = multipartClient.target(url);
 			invocationBuilder = webTarget.request();
@@ -449,6 +597,7 @@ public class RestApiHandler {
 			log.error("Error while connecting to server- ", e);
 			throw new InsightsCustomException(e.getMessage());
 		} finally {
+			connectionLimiter.release(route);
 			
 			}
 		
@@ -467,6 +616,7 @@ public class RestApiHandler {
 		WebTarget webTarget = null;
 		FileDataBodyPart filePart = null;
 		FormDataMultiPart formDataMultiPart = new FormDataMultiPart();
+		String route = connectionLimiter.acquire(url);
 		try {
 
 			if (multipartFiles != null && multipartFiles.size() > 0) {
@@ -505,6 +655,7 @@ public class RestApiHandler {
 			log.error("Error while connecting to server : ", e);
 			throw new InsightsCustomException(e.getMessage());
 		} finally {
+			connectionLimiter.release(route);
 			if (formDataMultiPart != null) {
 				try {
 					formDataMultiPart.close();
@@ -517,4 +668,13 @@ public class RestApiHandler {
 	}
 
 	
+	/**
+	 * Consumes a response body stream
+	 *
+	 * @param <T>
+	 */
+	public interface ResponseStreamReader<T> {
+		T read(InputStream responseStream) throws IOException, InsightsCustomException;
+	}
+
 }
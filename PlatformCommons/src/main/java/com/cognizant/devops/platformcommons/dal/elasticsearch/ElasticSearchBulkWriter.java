@@ -0,0 +1,327 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformcommons.dal.elasticsearch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
+import com.cognizant.devops.platformcommons.config.ElasticSearchBulkConfig;
+import com.cognizant.devops.platformcommons.dal.RestApiHandler;
+import com.cognizant.devops.platformcommons.exception.InsightsCustomException;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Writes documents through the Elasticsearch _bulk API. The documents are split
+ * into chunks of at most maxDocumentsPerRequest documents and
+ * maxBytesPerRequest bytes, each chunk is streamed as newline delimited json
+ * and up to concurrentRequests chunks are sent at the same time. Only the
+ * chunks in flight are held in serialized form. Each document is created with
+ * the value of its id property as _id, so that a document which is sent again
+ * is rejected with 409 instead of being indexed twice, and 409 counts as
+ * written. The bulk response is checked per item, items rejected with 429 (and
+ * whole requests rejected with 429) are resent with exponential backoff up to
+ * maxRetries times.
+ */
+public class ElasticSearchBulkWriter {
+
+	private static Logger log = LogManager.getLogger(ElasticSearchBulkWriter.class);
+	private static ElasticSearchBulkWriter instance = null;
+
+	private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+	private static final String CREATE = "create";
+	private static final String ID = "_id";
+	private static final int NEW_LINE = '\n';
+	private static final int CONFLICT = 409;
+	private static final int TOO_MANY_REQUESTS = 429;
+	private static final String STATUS = "status";
+	private static final String ERROR = "error";
+
+	private final ElasticSearchBulkConfig bulkConfig;
+	private final ExecutorService executor;
+
+	private static class BulkDocument {
+		private final JsonObject document;
+		private final byte[] action;
+		private final byte[] source;
+
+		private BulkDocument(JsonObject document, String idProperty) {
+			this.document = document;
+			JsonObject create = new JsonObject();
+			if (idProperty != null && document.has(idProperty) && document.get(idProperty).isJsonPrimitive()) {
+				create.addProperty(ID, document.get(idProperty).getAsString());
+			}
+			JsonObject actionLine = new JsonObject();
+			actionLine.add(CREATE, create);
+			this.action = (actionLine.toString() + "\n").getBytes(StandardCharsets.UTF_8);
+			this.source = document.toString().getBytes(StandardCharsets.UTF_8);
+		}
+
+		private long size() {
+			return action.length + source.length + 1L;
+		}
+	}
+
+	private ElasticSearchBulkWriter(ElasticSearchBulkConfig bulkConfig) {
+		this.bulkConfig = bulkConfig;
+		int concurrentRequests = Math.max(1, bulkConfig.getConcurrentRequests());
+		AtomicInteger threadCount = new AtomicInteger();
+		ThreadPoolExecutor bulkPool = new ThreadPoolExecutor(concurrentRequests, concurrentRequests, 1,
+				TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(), runnable -> {
+					Thread thread = new Thread(runnable, "ESBulkWriter-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		bulkPool.allowCoreThreadTimeOut(true);
+		this.executor = bulkPool;
+	}
+
+	public static synchronized ElasticSearchBulkWriter getInstance() {
+		if (instance == null) {
+			instance = new ElasticSearchBulkWriter(
+					ApplicationConfigProvider.getInstance().getEndpointData().getElasticSearchBulk());
+		}
+		return instance;
+	}
+
+	/**
+	 * Create the documents in the index and wait until every chunk is written.
+	 * 
+	 * @param bulkUrl    _bulk url of the index
+	 * @param documents
+	 * @param idProperty property holding the _id of each document, documents
+	 *                   without it get an id generated by Elasticsearch
+	 * @return documents which could not be created, as json with document,
+	 *         status and error
+	 * @throws InsightsCustomException when interrupted while waiting for the
+	 *                                 chunks
+	 */
+	public List<JsonObject> bulkCreate(String bulkUrl, List<JsonObject> documents, String idProperty)
+			throws InsightsCustomException {
+		long startTime = System.nanoTime();
+		int maxDocuments = Math.max(1, bulkConfig.getMaxDocumentsPerRequest());
+		long maxBytes = Math.max(1, bulkConfig.getMaxBytesPerRequest());
+		Semaphore inFlightChunks = new Semaphore(Math.max(1, bulkConfig.getConcurrentRequests()));
+		List<Future<List<JsonObject>>> chunkResults = new ArrayList<>();
+		List<JsonObject> failedDocuments = new ArrayList<>();
+		try {
+			List<BulkDocument> chunk = new ArrayList<>();
+			long chunkBytes = 0;
+			for (JsonObject document : documents) {
+				BulkDocument bulkDocument = new BulkDocument(document, idProperty);
+				if (!chunk.isEmpty() && (chunk.size() >= maxDocuments || chunkBytes + bulkDocument.size() > maxBytes)) {
+					chunkResults.add(submitChunk(bulkUrl, chunk, inFlightChunks));
+					chunk = new ArrayList<>();
+					chunkBytes = 0;
+				}
+				chunk.add(bulkDocument);
+				chunkBytes += bulkDocument.size();
+			}
+			if (!chunk.isEmpty()) {
+				chunkResults.add(submitChunk(bulkUrl, chunk, inFlightChunks));
+			}
+			for (Future<List<JsonObject>> chunkResult : chunkResults) {
+				failedDocuments.addAll(chunkResult.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			cancel(chunkResults);
+			throw new InsightsCustomException("Interrupted while writing bulk request to " + bulkUrl);
+		} catch (ExecutionException e) {
+			cancel(chunkResults);
+			log.error("Error while writing bulk request to {} ", bulkUrl, e.getCause());
+			throw new InsightsCustomException(String.valueOf(e.getCause()));
+		}
+		log.debug("Bulk write to {} documents={} requests={} failed={} processingTime={} ", bulkUrl, documents.size(),
+				chunkResults.size(), failedDocuments.size(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+		return failedDocuments;
+	}
+
+	private Future<List<JsonObject>> submitChunk(String bulkUrl, List<BulkDocument> chunk, Semaphore inFlightChunks)
+			throws InterruptedException {
+		inFlightChunks.acquire();
+		try {
+			return executor.submit(() -> {
+				try {
+					return writeChunk(bulkUrl, chunk);
+				} finally {
+					inFlightChunks.release();
+				}
+			});
+		} catch (RuntimeException e) {
+			inFlightChunks.release();
+			throw e;
+		}
+	}
+
+	private void cancel(List<Future<List<JsonObject>>> chunkResults) {
+		for (Future<List<JsonObject>> chunkResult : chunkResults) {
+			chunkResult.cancel(true);
+		}
+	}
+
+	/**
+	 * Send the chunk, resending the documents rejected with 429
+	 */
+	private List<JsonObject> writeChunk(String bulkUrl, List<BulkDocument> chunk) {
+		List<JsonObject> failedDocuments = new ArrayList<>();
+		List<BulkDocument> pending = chunk;
+		for (int attempt = 0; !pending.isEmpty(); attempt++) {
+			List<BulkDocument> retry = new ArrayList<>();
+			JsonObject requestError = null;
+			Map<Integer, JsonObject> itemErrors;
+			try {
+				itemErrors = RestApiHandler.doPost(bulkUrl, getRequestBody(pending), NDJSON_MEDIA_TYPE, null,
+						this::readItemErrors);
+			} catch (InsightsCustomException | ProcessingException e) {
+				requestError = getRequestError(e);
+				itemErrors = new HashMap<>();
+				for (int i = 0; i < pending.size(); i++) {
+					itemErrors.put(i, requestError);
+				}
+			}
+			for (Map.Entry<Integer, JsonObject> itemError : itemErrors.entrySet()) {
+				BulkDocument document = pending.get(itemError.getKey());
+				JsonObject error = itemError.getValue();
+				if (getStatus(error) == TOO_MANY_REQUESTS && attempt < bulkConfig.getMaxRetries()) {
+					retry.add(document);
+				} else {
+					JsonObject failedDocument = new JsonObject();
+					failedDocument.add("document", document.document);
+					failedDocument.addProperty(STATUS, getStatus(error));
+					failedDocument.add(ERROR, error.get(ERROR));
+					failedDocuments.add(failedDocument);
+				}
+			}
+			if (requestError == null && !itemErrors.isEmpty()) {
+				log.error("Bulk write to {} rejected {} of {} documents, retrying {} ", bulkUrl, itemErrors.size(),
+						pending.size(), retry.size());
+			}
+			pending = retry;
+			if (!pending.isEmpty() && !backoff(attempt)) {
+				for (BulkDocument document : pending) {
+					JsonObject failedDocument = new JsonObject();
+					failedDocument.add("document", document.document);
+					failedDocument.addProperty(STATUS, TOO_MANY_REQUESTS);
+					failedDocuments.add(failedDocument);
+				}
+				pending = new ArrayList<>();
+			}
+		}
+		return failedDocuments;
+	}
+
+	private StreamingOutput getRequestBody(List<BulkDocument> documents) {
+		return output -> {
+			for (BulkDocument document : documents) {
+				output.write(document.action);
+				output.write(document.source);
+				output.write(NEW_LINE);
+			}
+			output.flush();
+		};
+	}
+
+	/**
+	 * Read the bulk response, only the items which have an error are kept,
+	 * keyed by their position in the request. A 409 means the document was
+	 * already created by an earlier request and is not an error.
+	 */
+	private Map<Integer, JsonObject> readItemErrors(InputStream responseStream) throws IOException {
+		Map<Integer, JsonObject> itemErrors = new HashMap<>();
+		JsonParser parser = new JsonParser();
+		try (JsonReader reader = new JsonReader(new InputStreamReader(responseStream, StandardCharsets.UTF_8))) {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if ("items".equals(reader.nextName())) {
+					reader.beginArray();
+					int position = 0;
+					while (reader.hasNext()) {
+						JsonObject item = parser.parse(reader).getAsJsonObject();
+						for (Map.Entry<String, JsonElement> action : item.entrySet()) {
+							JsonObject result = action.getValue().getAsJsonObject();
+							if (result.has(ERROR) && getStatus(result) != CONFLICT) {
+								itemErrors.put(position, result);
+							}
+						}
+						position++;
+					}
+					reader.endArray();
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		}
+		return itemErrors;
+	}
+
+	private JsonObject getRequestError(Exception e) {
+		JsonObject requestError;
+		try {
+			requestError = new JsonParser().parse(String.valueOf(e.getMessage())).getAsJsonObject();
+			requestError.add(ERROR, requestError.remove("data"));
+		} catch (JsonParseException | IllegalStateException e1) {
+			requestError = new JsonObject();
+			requestError.addProperty(ERROR, String.valueOf(e.getMessage()));
+		}
+		return requestError;
+	}
+
+	private int getStatus(JsonObject error) {
+		return error.has(STATUS) ? error.get(STATUS).getAsInt() : 0;
+	}
+
+	/**
+	 * Wait retryBackoffInMs * 2^attempt before the next attempt
+	 * 
+	 * @return false when interrupted
+	 */
+	private boolean backoff(int attempt) {
+		try {
+			Thread.sleep(bulkConfig.getRetryBackoffInMs() << Math.min(attempt, 16));
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
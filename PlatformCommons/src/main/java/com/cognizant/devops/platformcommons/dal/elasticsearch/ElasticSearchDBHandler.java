@@ -15,9 +15,16 @@
  ******************************************************************************/
 package com.cognizant.devops.platformcommons.dal.elasticsearch;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
+import com.cognizant.devops.platformcommons.config.ElasticSearchScrollConfig;
 import com.cognizant.devops.platformcommons.dal.RestApiHandler;
 import com.cognizant.devops.platformcommons.exception.InsightsCustomException;
 import com.cognizant.devops.platformcommons.exception.RestAPI404Exception;
@@ -25,9 +32,12 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
 
 public class ElasticSearchDBHandler {
 	private static Logger log = LogManager.getLogger(ElasticSearchDBHandler.class);
+	private static final String SIZE = "size";
+	private static final String HITS = "hits";
 
 
 	/**
@@ -63,4 +73,128 @@ public class ElasticSearchDBHandler {
 		}
 		return data;
 	}
+
+	/**
+	 * Run the search over all pages through the scroll API and hand each hit to
+	 * the hitHandler, only one page is read at a time. The size of the query,
+	 * when given, limits the total number of hits, pages are
+	 * elasticSearchScroll.pageSize hits. The scroll context is cleared once
+	 * done.
+	 * 
+	 * @param esEndpoint
+	 * @param indexName
+	 * @param query
+	 * @param hitHandler
+	 * @return number of hits handled
+	 * @throws InsightsCustomException
+	 */
+	public int scrollES(String esEndpoint, String indexName, String query, ElasticSearchHitHandler hitHandler)
+			throws InsightsCustomException {
+		ElasticSearchScrollConfig scrollConfig = ApplicationConfigProvider.getInstance().getEndpointData()
+				.getElasticSearchScroll();
+		JsonObject requestJson = new JsonParser().parse(query).getAsJsonObject();
+		int limit = requestJson.has(SIZE) ? requestJson.get(SIZE).getAsInt() : Integer.MAX_VALUE;
+		int pageSize = Math.max(1, Math.min(scrollConfig.getPageSize(), limit));
+		requestJson.addProperty(SIZE, pageSize);
+		int handledHits = 0;
+		String scrollId = null;
+		try {
+			ScrollPage page = RestApiHandler.doPost(
+					esEndpoint + "/" + indexName + "/_search?scroll=" + scrollConfig.getKeepAlive(), requestJson, null,
+					new ScrollPage(hitHandler, limit - handledHits));
+			while (true) {
+				scrollId = page.scrollId;
+				handledHits += page.handledHits;
+				if (page.hitCount < pageSize || handledHits >= limit || scrollId == null) {
+					break;
+				}
+				JsonObject scrollRequest = new JsonObject();
+				scrollRequest.addProperty("scroll", scrollConfig.getKeepAlive());
+				scrollRequest.addProperty("scroll_id", scrollId);
+				page = RestApiHandler.doPost(esEndpoint + "/_search/scroll", scrollRequest, null,
+						new ScrollPage(hitHandler, limit - handledHits));
+			}
+		} finally {
+			clearScroll(esEndpoint, scrollId);
+		}
+		return handledHits;
+	}
+
+	private void clearScroll(String esEndpoint, String scrollId) {
+		if (scrollId == null) {
+			return;
+		}
+		try {
+			RestApiHandler.doDelete(esEndpoint + "/_search/scroll/" + scrollId, null);
+		} catch (InsightsCustomException e) {
+			log.error("Unable to clear scroll context ", e);
+		}
+	}
+
+	/**
+	 * Reads one page of a search response, hits are handed to the hitHandler
+	 * until maxHits are handled, the remaining hits are only counted
+	 */
+	private static class ScrollPage implements RestApiHandler.ResponseStreamReader<ScrollPage> {
+		private final ElasticSearchHitHandler hitHandler;
+		private final int maxHits;
+		private final JsonParser jsonParser = new JsonParser();
+		private String scrollId;
+		private int hitCount = 0;
+		private int handledHits = 0;
+
+		private ScrollPage(ElasticSearchHitHandler hitHandler, int maxHits) {
+			this.hitHandler = hitHandler;
+			this.maxHits = maxHits;
+		}
+
+		@Override
+		public ScrollPage read(InputStream responseStream) throws IOException, InsightsCustomException {
+			try (JsonReader reader = new JsonReader(new InputStreamReader(responseStream, StandardCharsets.UTF_8))) {
+				reader.beginObject();
+				while (reader.hasNext()) {
+					String name = reader.nextName();
+					if ("_scroll_id".equals(name)) {
+						scrollId = reader.nextString();
+					} else if (HITS.equals(name)) {
+						readHits(reader);
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+			}
+			return this;
+		}
+
+		private void readHits(JsonReader reader) throws IOException, InsightsCustomException {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if (HITS.equals(reader.nextName())) {
+					reader.beginArray();
+					while (reader.hasNext()) {
+						readHit(reader);
+						hitCount++;
+					}
+					reader.endArray();
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		}
+
+		private void readHit(JsonReader reader) throws IOException, InsightsCustomException {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if ("_source".equals(reader.nextName()) && handledHits < maxHits) {
+					hitHandler.handleHit(jsonParser.parse(reader).getAsJsonObject());
+					handledHits++;
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		}
+	}
 }
\ No newline at end of file
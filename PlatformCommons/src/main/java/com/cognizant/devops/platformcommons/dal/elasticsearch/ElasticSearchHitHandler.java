@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformcommons.dal.elasticsearch;
+
+import com.cognizant.devops.platformcommons.exception.InsightsCustomException;
+import com.google.gson.JsonObject;
+
+/**
+ * Callback for documents read page by page from an Elasticsearch search
+ */
+public interface ElasticSearchHitHandler {
+
+	/**
+	 * Called once per hit while the page is being read
+	 *
+	 * @param source _source of the hit
+	 * @throws InsightsCustomException
+	 */
+	void handleHit(JsonObject source) throws InsightsCustomException;
+}
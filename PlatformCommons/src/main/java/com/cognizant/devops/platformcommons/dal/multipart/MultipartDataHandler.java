@@ -60,4 +60,25 @@ public class MultipartDataHandler {
 		return status;
 
 	}
+
+	/**
+	 * Upload the stream as the multipart file, the response body is returned as
+	 * stream to the caller
+	 * 
+	 * @param url
+	 * @param partName
+	 * @param fileName
+	 * @param fileData
+	 * @param multipartFileData
+	 * @param headers
+	 * @param returnMediaType
+	 * @return
+	 * @throws InsightsCustomException
+	 */
+	public InputStream uploadMultipartStream(String url, String partName, String fileName, InputStream fileData,
+			Map<String, String> multipartFileData, Map<String, String> headers, String returnMediaType)
+			throws InsightsCustomException {
+		return RestApiHandler.uploadMultipartStream(url, partName, fileName, fileData, multipartFileData, headers,
+				returnMediaType);
+	}
 }
@@ -89,11 +89,27 @@ public class DocumentParser {
 	 * @throws InsightsCustomException
 	 */
 	public GraphResponse processGraphDBNode(String jsonData) throws InsightsCustomException {
+		try {
+			return processGraphDBNode(new JsonParser().parse(jsonData).getAsJsonObject());
+		} catch (InsightsCustomException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new InsightsCustomException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Process GraphDB return data which is already parsed
+	 * 
+	 * @param parsedJson
+	 * @return GraphResponse
+	 * @throws InsightsCustomException
+	 */
+	public GraphResponse processGraphDBNode(JsonObject parsedJson) throws InsightsCustomException {
 		try {
 			GraphResponse response = new GraphResponse();
 			List<NodeData> nodeDataList = response.getNodes();
-			JsonElement parsedJson = new JsonParser().parse(jsonData);
-			response.setJson(parsedJson.getAsJsonObject());
+			response.setJson(parsedJson);
 			processGraphDBJson(parsedJson, nodeDataList, null, "");
 			return response;
 		} catch (Exception e) {
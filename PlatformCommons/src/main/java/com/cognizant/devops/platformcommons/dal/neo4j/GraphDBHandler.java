@@ -20,6 +20,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -47,18 +48,27 @@ public class GraphDBHandler{
 	String TRANSACTION_COMMIT_URL = ApplicationConfigProvider.getInstance().getGraph().getEndpoint()
 			+ COMMIT_URL;
 	DocumentParser parser;
+	GraphDBTransport transport;
 
 	public GraphDBHandler() {
 		parser = new DocumentParser();
 		SCHEMA_INDEX_URL = ApplicationConfigProvider.getInstance().getGraph().getEndpoint() + SCHEMAURL;
 		TRANSACTION_COMMIT_URL = ApplicationConfigProvider.getInstance().getGraph().getEndpoint()
 				+ COMMIT_URL;
+		transport = GraphDBTransportFactory.getTransport(TRANSACTION_COMMIT_URL);
 	}
 
+	/**
+	 * Handler for a Neo4j other than the configured one, always uses the HTTP
+	 * transport
+	 * 
+	 * @param inputDataSource
+	 */
 	public GraphDBHandler(String inputDataSource) {
 		parser = new DocumentParser();
 		SCHEMA_INDEX_URL = inputDataSource + SCHEMAURL;
 		TRANSACTION_COMMIT_URL = inputDataSource + COMMIT_URL;
+		transport = new HttpGraphDBTransport(TRANSACTION_COMMIT_URL);
 	}
 
 	/**
@@ -82,8 +92,8 @@ public class GraphDBHandler{
 		JsonArray statementArray = new JsonArray();
 		statementArray.add(statement);
 		requestJson.add(ConfigOptions.STATEMENTS , statementArray);
-		String response = neo4jCommunication(requestJson);
-		return buildResponseJsonFromString(response);
+		JsonObject response = neo4jCommunication(requestJson);
+		return buildResponseJson(response);
 	}
 
 	/**
@@ -102,8 +112,8 @@ public class GraphDBHandler{
 		JsonArray statementArray = new JsonArray();
 		statementArray.add(statement);
 		requestJson.add(ConfigOptions.STATEMENTS , statementArray);
-		String response = neo4jCommunication(requestJson);
-		return buildResponseJsonFromString(response);
+		JsonObject response = neo4jCommunication(requestJson);
+		return buildResponseJson(response);
 	}
 
 	/**
@@ -118,8 +128,8 @@ public class GraphDBHandler{
 			return new JsonObject();
 		}
 		JsonObject requestJson = buildRequestJson(dataList, cypherQuery);
-		String response = neo4jCommunication(requestJson);
-		return buildResponseJsonFromString(response);
+		JsonObject response = neo4jCommunication(requestJson);
+		return buildResponseJson(response);
 	}
 
 	/**
@@ -139,7 +149,7 @@ public class GraphDBHandler{
 		statement.add(ConfigOptions.RESULTDATACONTENTS, resultDataContents);
 
 		requestJson.add(ConfigOptions.STATEMENTS , statementArray);
-		String response = neo4jCommunication(requestJson);
+		JsonObject response = neo4jCommunication(requestJson);
 		return parser.processGraphDBNode(response);
 	}
 
@@ -162,8 +172,56 @@ public class GraphDBHandler{
 		statement.add(ConfigOptions.RESULTDATACONTENTS, resultDataContents);
 
 		requestJson.add(ConfigOptions.STATEMENTS , statementArray);
-		String response = neo4jCommunication(requestJson);
-		return new JsonParser().parse(response).getAsJsonObject();
+		return neo4jCommunication(requestJson);
+	}
+
+	/**
+	 * Execute Cypher Query and stream the returned rows to the row handler
+	 * without holding the whole response in memory
+	 * 
+	 * @param query
+	 * @param rowHandler
+	 * @return number of rows read
+	 * @throws InsightsCustomException
+	 */
+	public int executeCypherQueryForRows(String query, GraphRowHandler rowHandler) throws InsightsCustomException {
+		JsonObject requestJson = new JsonObject();
+		JsonArray statementArray = new JsonArray();
+		statementArray.add(getRowStatement(query));
+
+		requestJson.add(ConfigOptions.STATEMENTS , statementArray);
+		return neo4jStreamCommunication(requestJson, rowHandler);
+	}
+
+	/**
+	 * Execute several Cypher Queries in one transaction and stream the returned
+	 * rows to the row handler, the statementIndex of a row is the index of its
+	 * query in the list
+	 * 
+	 * @param queries
+	 * @param rowHandler
+	 * @return number of rows read
+	 * @throws InsightsCustomException
+	 */
+	public int executeCypherQueriesForRows(List<String> queries, GraphRowHandler rowHandler)
+			throws InsightsCustomException {
+		JsonObject requestJson = new JsonObject();
+		JsonArray statementArray = new JsonArray();
+		for (String query : queries) {
+			statementArray.add(getRowStatement(query));
+		}
+
+		requestJson.add(ConfigOptions.STATEMENTS , statementArray);
+		return neo4jStreamCommunication(requestJson, rowHandler);
+	}
+
+	private JsonObject getRowStatement(String query) {
+		JsonObject statement = new JsonObject();
+		statement.addProperty(ConfigOptions.STATEMENT, query);
+		JsonArray resultDataContents = new JsonArray();
+		resultDataContents.add("row");
+		statement.add(ConfigOptions.RESULTDATACONTENTS, resultDataContents);
+		return statement;
 	}
 
 	/**
@@ -173,7 +231,7 @@ public class GraphDBHandler{
 	 */
 	public String executeCypherQueryRaw(String queryJson) throws InsightsCustomException {
 		JsonObject requestJson = new JsonParser().parse(queryJson).getAsJsonObject();
-		return neo4jCommunication(requestJson);
+		return neo4jCommunication(requestJson).toString();
 	}
 
 	/**
@@ -199,7 +257,7 @@ public class GraphDBHandler{
 			statementArray.add(statement);
 		}
 		requestJson.add(ConfigOptions.STATEMENTS , statementArray);
-		String response = neo4jCommunication(requestJson);
+		JsonObject response = neo4jCommunication(requestJson);
 		return parser.processGraphDBNode(response);
 	}
 
@@ -208,14 +266,10 @@ public class GraphDBHandler{
 	 * @return
 	 * @throws InsightsCustomException
 	 */
-	private JsonObject buildResponseJsonFromString(String response) throws InsightsCustomException {
-		try {
-			JsonObject responseJson = new JsonObject();
-			responseJson.add("response", new JsonParser().parse(response));
-			return responseJson;
-		} catch (Exception e) {
-			throw new InsightsCustomException(e.getMessage());
-		}
+	private JsonObject buildResponseJson(JsonObject response) {
+		JsonObject responseJson = new JsonObject();
+		responseJson.add("response", response);
+		return responseJson;
 	}
 
 	/**
@@ -242,25 +296,42 @@ public class GraphDBHandler{
 
 	/**
 	 * @param requestJson
-	 * @return String
+	 * @return JsonObject
 	 * @throws InsightsCustomException
 	 */
-	private String neo4jCommunication(JsonObject requestJson) throws InsightsCustomException {
+	private JsonObject neo4jCommunication(JsonObject requestJson) throws InsightsCustomException {
 		long time = System.currentTimeMillis();
-		int rowCount = 0;
-		String returnResponse = null;
-		Map<String, String> headers = new HashMap<>();
-		headers.put(ConfigOptions.AUTHORIZATION, ApplicationConfigProvider.getInstance().getGraph().getAuthToken());
-		headers.put("X-Stream", "true");
-		returnResponse = RestApiHandler.doPost(TRANSACTION_COMMIT_URL, requestJson, headers);
-		
-		JsonObject graphJsonObj=new JsonParser().parse(returnResponse).getAsJsonObject();
+		JsonObject graphJsonObj = transport.commit(requestJson);
 
 		parseGraphResponseForError(graphJsonObj, requestJson.toString());
-		rowCount = getRecordCount(graphJsonObj); 
-		StackTraceElement[] stacktrace = Thread.currentThread().getStackTrace();
-		StackTraceElement stackTrace = stacktrace[3];
+		int rowCount = getRecordCount(graphJsonObj);
+		logQueryDetails(requestJson, time, rowCount, Thread.currentThread().getStackTrace()[3]);
+		return graphJsonObj;
+	}
+
+	/**
+	 * @param requestJson
+	 * @param rowHandler
+	 * @return number of rows read
+	 * @throws InsightsCustomException
+	 */
+	private int neo4jStreamCommunication(JsonObject requestJson, GraphRowHandler rowHandler)
+			throws InsightsCustomException {
+		long time = System.currentTimeMillis();
+		AtomicInteger rowCount = new AtomicInteger();
+		JsonArray errors = transport.commit(requestJson, (statementIndex, columns, row) -> {
+			rowHandler.handleRow(statementIndex, columns, row);
+			rowCount.incrementAndGet();
+		});
 
+		JsonObject errorJson = new JsonObject();
+		errorJson.add("errors", errors);
+		parseGraphResponseForError(errorJson, requestJson.toString());
+		logQueryDetails(requestJson, time, rowCount.get(), Thread.currentThread().getStackTrace()[3]);
+		return rowCount.get();
+	}
+
+	private void logQueryDetails(JsonObject requestJson, long time, int rowCount, StackTraceElement stackTrace) {
 		long processingTime = (System.currentTimeMillis() - time);
 
 		if (processingTime > ApplicationConfigProvider.getInstance().getGraph()
@@ -279,10 +350,9 @@ public class GraphDBHandler{
 					stackTrace.getFileName(), stackTrace.getMethodName(), stackTrace.getLineNumber(),
 					ApplicationConfigProvider.getInstance().getGraph().getEndpoint(), processingTime, rowCount);
 		}
-		return returnResponse;
 	}
 	
-
+	
 
 	void parseGraphResponseForError(JsonObject graphResponse,String requestJson) throws InsightsCustomException {
 		JsonArray errorMessage = graphResponse.getAsJsonArray("errors");
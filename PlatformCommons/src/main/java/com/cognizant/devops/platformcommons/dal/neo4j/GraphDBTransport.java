@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright 2020 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformcommons.dal.neo4j;
+
+import com.cognizant.devops.platformcommons.exception.InsightsCustomException;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Carries a Neo4j transaction request to the database. The request and the
+ * response use the JSON shape of the transaction commit endpoint
+ * (statements/results/errors) whatever the wire protocol is, so that
+ * {@link GraphDBHandler} and its callers do not depend on the transport.
+ */
+public interface GraphDBTransport {
+
+	/**
+	 * Run all statements of the request in one transaction
+	 *
+	 * @param requestJson
+	 * @return response with results and errors
+	 * @throws InsightsCustomException
+	 */
+	JsonObject commit(JsonObject requestJson) throws InsightsCustomException;
+
+	/**
+	 * Run all statements of the request in one transaction and hand each
+	 * returned row to the row handler as soon as it is read
+	 *
+	 * @param requestJson
+	 * @param rowHandler
+	 * @return errors reported by the database, empty when none
+	 * @throws InsightsCustomException
+	 */
+	JsonArray commit(JsonObject requestJson, GraphRowHandler rowHandler) throws InsightsCustomException;
+}
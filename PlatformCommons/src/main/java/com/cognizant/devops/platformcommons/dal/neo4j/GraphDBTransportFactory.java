@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2020 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformcommons.dal.neo4j;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
+
+/**
+ * Picks the graph transport configured for this process in server-config.json
+ * (graph.transport). HTTP is the default. The Bolt transport lives in
+ * PlatformDAL together with the Neo4j driver, it is loaded by name so that
+ * modules without PlatformDAL on the classpath keep using HTTP.
+ */
+public class GraphDBTransportFactory {
+	private static Logger log = LogManager.getLogger(GraphDBTransportFactory.class);
+	public static final String TRANSPORT_HTTP = "HTTP";
+	public static final String TRANSPORT_BOLT = "BOLT";
+	private static final String BOLT_TRANSPORT_CLASS = "com.cognizant.devops.platformdal.dal.BoltGraphDBTransport";
+	private static GraphDBTransport boltTransport;
+	private static boolean boltUnavailable = false;
+
+	private GraphDBTransportFactory() {
+	}
+
+	/**
+	 * @param transactionCommitUrl commit URL used by the HTTP transport
+	 * @return GraphDBTransport
+	 */
+	public static GraphDBTransport getTransport(String transactionCommitUrl) {
+		String transport = ApplicationConfigProvider.getInstance().getGraph().getTransport();
+		if (TRANSPORT_BOLT.equalsIgnoreCase(transport)) {
+			GraphDBTransport transportInstance = getBoltTransport();
+			if (transportInstance != null) {
+				return transportInstance;
+			}
+		}
+		return new HttpGraphDBTransport(transactionCommitUrl);
+	}
+
+	private static synchronized GraphDBTransport getBoltTransport() {
+		if (boltTransport == null && !boltUnavailable) {
+			try {
+				Class<?> transportClass = Class.forName(BOLT_TRANSPORT_CLASS);
+				boltTransport = (GraphDBTransport) transportClass.newInstance();
+				log.info("Type=GraphDB Using Bolt transport for graph queries");
+			} catch (ClassNotFoundException | LinkageError e) {
+				boltUnavailable = true;
+				log.error("Type=GraphDB Bolt transport is not available in this module, using HTTP transport ", e);
+			} catch (Exception e) {
+				boltUnavailable = true;
+				log.error("Type=GraphDB Unable to initialize Bolt transport, using HTTP transport ", e);
+			}
+		}
+		return boltTransport;
+	}
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright 2020 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformcommons.dal.neo4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import com.cognizant.devops.platformcommons.constants.ConfigOptions;
+import com.cognizant.devops.platformcommons.exception.InsightsCustomException;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Reads a Neo4j transaction response from the HTTP stream in one pass. Only
+ * one row is held in memory at a time, it is handed to the
+ * {@link GraphRowHandler} and dropped. Values other than results and errors
+ * are skipped.
+ */
+public class GraphResponseStreamParser {
+
+	private final GraphRowHandler rowHandler;
+	private final JsonParser jsonParser = new JsonParser();
+	private JsonArray errors = new JsonArray();
+	private int rowCount = 0;
+
+	public GraphResponseStreamParser(GraphRowHandler rowHandler) {
+		this.rowHandler = rowHandler;
+	}
+
+	/**
+	 * Parse the complete response stream
+	 *
+	 * @param responseStream
+	 * @return GraphResponseStreamParser
+	 * @throws IOException
+	 * @throws InsightsCustomException
+	 */
+	public GraphResponseStreamParser parse(InputStream responseStream) throws IOException, InsightsCustomException {
+		try (JsonReader reader = new JsonReader(new InputStreamReader(responseStream, StandardCharsets.UTF_8))) {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if (ConfigOptions.RESULTS.equals(name)) {
+					readResults(reader);
+				} else if ("errors".equals(name)) {
+					errors = jsonParser.parse(reader).getAsJsonArray();
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		}
+		return this;
+	}
+
+	private void readResults(JsonReader reader) throws IOException, InsightsCustomException {
+		reader.beginArray();
+		int statementIndex = 0;
+		while (reader.hasNext()) {
+			JsonArray columns = new JsonArray();
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if ("columns".equals(name)) {
+					columns = jsonParser.parse(reader).getAsJsonArray();
+				} else if ("data".equals(name)) {
+					readData(reader, statementIndex, columns);
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+			statementIndex++;
+		}
+		reader.endArray();
+	}
+
+	private void readData(JsonReader reader, int statementIndex, JsonArray columns)
+			throws IOException, InsightsCustomException {
+		reader.beginArray();
+		while (reader.hasNext()) {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if ("row".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+					rowHandler.handleRow(statementIndex, columns, jsonParser.parse(reader).getAsJsonArray());
+					rowCount++;
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		}
+		reader.endArray();
+	}
+
+	public JsonArray getErrors() {
+		return errors;
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2020 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformcommons.dal.neo4j;
+
+import com.cognizant.devops.platformcommons.exception.InsightsCustomException;
+import com.google.gson.JsonArray;
+
+/**
+ * Callback for rows read from a streamed Neo4j transaction response
+ */
+public interface GraphRowHandler {
+
+	/**
+	 * Called once per row while the response is being read
+	 *
+	 * @param statementIndex index of the statement in the request
+	 * @param columns        column names of the statement
+	 * @param row            values of the row in column order
+	 * @throws InsightsCustomException
+	 */
+	void handleRow(int statementIndex, JsonArray columns, JsonArray row) throws InsightsCustomException;
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright 2020 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformcommons.dal.neo4j;
+
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
+import com.cognizant.devops.platformcommons.constants.ConfigOptions;
+import com.cognizant.devops.platformcommons.dal.RestApiHandler;
+import com.cognizant.devops.platformcommons.exception.InsightsCustomException;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Sends the transaction request to the HTTP transaction commit endpoint
+ * through {@link RestApiHandler}
+ */
+public class HttpGraphDBTransport implements GraphDBTransport {
+
+	private final String transactionCommitUrl;
+
+	public HttpGraphDBTransport(String transactionCommitUrl) {
+		this.transactionCommitUrl = transactionCommitUrl;
+	}
+
+	/**
+	 * The response is parsed straight from the HTTP stream, the raw string is
+	 * never materialized
+	 */
+	@Override
+	public JsonObject commit(JsonObject requestJson) throws InsightsCustomException {
+		return RestApiHandler.doPost(transactionCommitUrl, requestJson, getGraphHeaders(),
+				responseStream -> new JsonParser()
+						.parse(new InputStreamReader(responseStream, StandardCharsets.UTF_8)).getAsJsonObject());
+	}
+
+	@Override
+	public JsonArray commit(JsonObject requestJson, GraphRowHandler rowHandler) throws InsightsCustomException {
+		GraphResponseStreamParser streamParser = RestApiHandler.doPost(transactionCommitUrl, requestJson,
+				getGraphHeaders(), responseStream -> new GraphResponseStreamParser(rowHandler).parse(responseStream));
+		return streamParser.getErrors();
+	}
+
+	private Map<String, String> getGraphHeaders() {
+		Map<String, String> headers = new HashMap<>();
+		headers.put(ConfigOptions.AUTHORIZATION, ApplicationConfigProvider.getInstance().getGraph().getAuthToken());
+		headers.put("X-Stream", "true");
+		return headers;
+	}
+}
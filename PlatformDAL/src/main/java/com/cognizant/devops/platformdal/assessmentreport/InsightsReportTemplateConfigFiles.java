@@ -46,6 +46,9 @@ public class InsightsReportTemplateConfigFiles implements Serializable {
 
 	@Column(name = "reportId")
 	private Integer reportId;
+
+	@Column(name = "fileVersion")
+	private Long fileVersion;
 	
 	public byte[] getFileData() {
 		return fileData;
@@ -79,4 +82,12 @@ public class InsightsReportTemplateConfigFiles implements Serializable {
 		this.fileName = fileName;
 	}
 
+	public Long getFileVersion() {
+		return fileVersion;
+	}
+
+	public void setFileVersion(Long fileVersion) {
+		this.fileVersion = fileVersion;
+	}
+
 }
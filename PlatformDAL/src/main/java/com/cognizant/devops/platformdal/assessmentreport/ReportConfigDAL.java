@@ -825,6 +825,34 @@ public class ReportConfigDAL extends BaseDAL {
 		}
 	}
 
+	/**
+	 * Method to fetch the name and version of the Report Template Config Files
+	 * using Report ID, without loading the file data
+	 * 
+	 * @param reportId
+	 * @return Map of file name and file version, version 0 for files stored
+	 *         before versions were kept
+	 */
+	public Map<String, Long> getReportTemplateConfigFileVersionsByReportId(int reportId) {
+		try  {
+			
+			Map<String,Object> parameters = new HashMap<>();
+			parameters.put("reportId", reportId);
+			List<Object[]> records = getResultList(
+					"SELECT RE.fileName, RE.fileVersion FROM InsightsReportTemplateConfigFiles RE WHERE RE.reportId = :reportId",
+					Object[].class,
+					parameters);
+			Map<String, Long> fileVersions = new HashMap<>();
+			for (Object[] record : records) {
+				fileVersions.put((String) record[0], record[1] == null ? 0L : (Long) record[1]);
+			}
+			return fileVersions;
+
+		} catch (Exception e) {
+			log.error(e);
+			throw e;
+		}
+	}
 	
 	/**
 	 * Method to fetch Report Template Config Files using Filename and ReportId
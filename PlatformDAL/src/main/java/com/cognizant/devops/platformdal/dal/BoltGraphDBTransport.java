@@ -0,0 +1,378 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *   
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * 	of the License at
+ *   
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *   
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformdal.dal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.ProcessingException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.neo4j.driver.AccessMode;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.neo4j.driver.TransactionWork;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.exceptions.Neo4jException;
+import org.neo4j.driver.exceptions.ServiceUnavailableException;
+import org.neo4j.driver.exceptions.SessionExpiredException;
+import org.neo4j.driver.types.Node;
+import org.neo4j.driver.types.Path;
+import org.neo4j.driver.types.Relationship;
+
+import com.cognizant.devops.platformcommons.constants.ConfigOptions;
+import com.cognizant.devops.platformcommons.dal.neo4j.GraphDBTransport;
+import com.cognizant.devops.platformcommons.dal.neo4j.GraphRowHandler;
+import com.cognizant.devops.platformcommons.exception.InsightsCustomException;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Runs the transaction request over Bolt with the Neo4j driver. Statement
+ * parameters are sent as driver values and records are read in batches of
+ * graph.boltFetchSize, the response is built in the same JSON shape the HTTP
+ * commit endpoint returns (row and graph result data contents) so callers see
+ * no difference. Connection failures are raised as {@link ProcessingException}
+ * like the HTTP transport does, so subscribers keep requeueing the message.
+ *
+ * Callers write parameters in the legacy {props} form the commit endpoint of
+ * Neo4j 3.5 accepts, a placeholder naming a parameter of its statement is sent
+ * as $props. A request without any writing clause runs as a read transaction.
+ */
+public class BoltGraphDBTransport implements GraphDBTransport {
+	private static Logger log = LogManager.getLogger(BoltGraphDBTransport.class);
+	private static final Pattern LEGACY_PARAMETER = Pattern.compile("\\{(\\w+)\\}");
+	private static final Pattern WRITE_CLAUSE = Pattern.compile(
+			"\\b(CREATE|MERGE|SET|DELETE|DETACH|REMOVE|DROP|FOREACH|LOAD|CALL)\\b", Pattern.CASE_INSENSITIVE);
+
+	/**
+	 * The whole request is retried by the driver on transient errors up to
+	 * graph.boltMaxTransactionRetryTimeInMs
+	 */
+	@Override
+	public JsonObject commit(JsonObject requestJson) throws InsightsCustomException {
+		JsonObject response = new JsonObject();
+		JsonArray errors = new JsonArray();
+		boolean readOnly = isReadOnly(requestJson);
+		try (Session session = openSession(readOnly)) {
+			TransactionWork<JsonArray> work = tx -> {
+				JsonArray statementResults = new JsonArray();
+				for (JsonElement statement : getStatements(requestJson)) {
+					statementResults.add(runStatement(tx, statement.getAsJsonObject()));
+				}
+				return statementResults;
+			};
+			JsonArray results = readOnly ? session.readTransaction(work) : session.writeTransaction(work);
+			response.add(ConfigOptions.RESULTS, results);
+		} catch (ServiceUnavailableException | SessionExpiredException e) {
+			log.error("Type=GraphDB Unable to reach Neo4j over Bolt ", e);
+			throw new ProcessingException(e.getMessage(), e);
+		} catch (Neo4jException e) {
+			response.add(ConfigOptions.RESULTS, new JsonArray());
+			errors.add(getError(e));
+		} catch (Exception e) {
+			log.error("Type=GraphDB Error while running Bolt transaction ", e);
+			throw new InsightsCustomException(e.getMessage());
+		}
+		response.add("errors", errors);
+		return response;
+	}
+
+	/**
+	 * Rows are handed to the row handler while the transaction is open, this
+	 * path is not retried so that no row is delivered twice
+	 */
+	@Override
+	public JsonArray commit(JsonObject requestJson, GraphRowHandler rowHandler) throws InsightsCustomException {
+		JsonArray errors = new JsonArray();
+		try (Session session = openSession(isReadOnly(requestJson));
+				Transaction tx = session.beginTransaction()) {
+			int statementIndex = 0;
+			for (JsonElement statementElement : getStatements(requestJson)) {
+				JsonObject statement = statementElement.getAsJsonObject();
+				Map<String, Object> parameters = getParameters(statement);
+				Result result = tx.run(getStatementText(statement, parameters), parameters);
+				JsonArray columns = toJsonArray(result.keys());
+				while (result.hasNext()) {
+					rowHandler.handleRow(statementIndex, columns, getRow(result.next()));
+				}
+				statementIndex++;
+			}
+			tx.commit();
+		} catch (ServiceUnavailableException | SessionExpiredException e) {
+			log.error("Type=GraphDB Unable to reach Neo4j over Bolt ", e);
+			throw new ProcessingException(e.getMessage(), e);
+		} catch (Neo4jException e) {
+			errors.add(getError(e));
+		} catch (InsightsCustomException e) {
+			throw e;
+		} catch (Exception e) {
+			log.error("Type=GraphDB Error while running Bolt transaction ", e);
+			throw new InsightsCustomException(e.getMessage());
+		}
+		return errors;
+	}
+
+	private Session openSession(boolean readOnly) {
+		return GraphDBConnection.getInstance().getDriver().session(SessionConfig.builder()
+				.withDefaultAccessMode(readOnly ? AccessMode.READ : AccessMode.WRITE).build());
+	}
+
+	/**
+	 * @return true when no statement of the request has a clause which may
+	 *         write, a keyword in a string literal only makes it a write
+	 */
+	static boolean isReadOnly(JsonObject requestJson) {
+		for (JsonElement statement : getStatements(requestJson)) {
+			if (WRITE_CLAUSE.matcher(statement.getAsJsonObject().get(ConfigOptions.STATEMENT).getAsString()).find()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return statement with each {name} placeholder of a parameter written as
+	 *         $name, map literals are left as they are
+	 */
+	static String getStatementText(JsonObject statement, Map<String, Object> parameters) {
+		String text = statement.get(ConfigOptions.STATEMENT).getAsString();
+		if (parameters.isEmpty()) {
+			return text;
+		}
+		Matcher matcher = LEGACY_PARAMETER.matcher(text);
+		StringBuffer converted = new StringBuffer(text.length());
+		while (matcher.find()) {
+			String replacement = parameters.containsKey(matcher.group(1)) ? "$" + matcher.group(1) : matcher.group();
+			matcher.appendReplacement(converted, Matcher.quoteReplacement(replacement));
+		}
+		matcher.appendTail(converted);
+		return converted.toString();
+	}
+
+	private static JsonArray getStatements(JsonObject requestJson) {
+		if (requestJson.has(ConfigOptions.STATEMENTS)) {
+			return requestJson.getAsJsonArray(ConfigOptions.STATEMENTS);
+		}
+		return new JsonArray();
+	}
+
+	private JsonObject runStatement(Transaction tx, JsonObject statement) {
+		boolean includeGraph = false;
+		if (statement.has(ConfigOptions.RESULTDATACONTENTS)) {
+			for (JsonElement content : statement.getAsJsonArray(ConfigOptions.RESULTDATACONTENTS)) {
+				includeGraph = includeGraph || ConfigOptions.GRAPH.equals(content.getAsString());
+			}
+		}
+		Map<String, Object> parameters = getParameters(statement);
+		Result result = tx.run(getStatementText(statement, parameters), parameters);
+		JsonObject statementResult = new JsonObject();
+		statementResult.add("columns", toJsonArray(result.keys()));
+		JsonArray data = new JsonArray();
+		while (result.hasNext()) {
+			Record record = result.next();
+			JsonObject rowData = new JsonObject();
+			rowData.add("row", getRow(record));
+			if (includeGraph) {
+				rowData.add(ConfigOptions.GRAPH, getGraph(record));
+			}
+			data.add(rowData);
+		}
+		statementResult.add("data", data);
+		return statementResult;
+	}
+
+	private JsonObject getError(Neo4jException e) {
+		JsonObject error = new JsonObject();
+		error.addProperty("code", e.code());
+		error.addProperty("message", e.getMessage());
+		return error;
+	}
+
+	private Map<String, Object> getParameters(JsonObject statement) {
+		if (statement.has("parameters") && statement.get("parameters").isJsonObject()) {
+			return toMap(statement.getAsJsonObject("parameters"));
+		}
+		return Collections.emptyMap();
+	}
+
+	private Map<String, Object> toMap(JsonObject jsonObject) {
+		Map<String, Object> map = new LinkedHashMap<>();
+		for (Map.Entry<String, JsonElement> entry : jsonObject.entrySet()) {
+			map.put(entry.getKey(), toJavaValue(entry.getValue()));
+		}
+		return map;
+	}
+
+	private Object toJavaValue(JsonElement element) {
+		if (element == null || element.isJsonNull()) {
+			return null;
+		} else if (element.isJsonObject()) {
+			return toMap(element.getAsJsonObject());
+		} else if (element.isJsonArray()) {
+			List<Object> list = new ArrayList<>();
+			for (JsonElement item : element.getAsJsonArray()) {
+				list.add(toJavaValue(item));
+			}
+			return list;
+		}
+		JsonPrimitive primitive = element.getAsJsonPrimitive();
+		if (primitive.isBoolean()) {
+			return primitive.getAsBoolean();
+		} else if (primitive.isNumber()) {
+			String number = primitive.getAsString();
+			if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+				try {
+					return Long.parseLong(number);
+				} catch (NumberFormatException e) {
+					return primitive.getAsDouble();
+				}
+			}
+			return primitive.getAsDouble();
+		}
+		return primitive.getAsString();
+	}
+
+	private JsonArray getRow(Record record) {
+		JsonArray row = new JsonArray();
+		for (Value value : record.values()) {
+			row.add(toJsonValue(value.asObject()));
+		}
+		return row;
+	}
+
+	/**
+	 * Nodes and relationships are written as their property map and paths as the
+	 * list of their elements, the same as the row result data content
+	 */
+	@SuppressWarnings("unchecked")
+	private JsonElement toJsonValue(Object value) {
+		if (value == null) {
+			return JsonNull.INSTANCE;
+		} else if (value instanceof Node) {
+			return toJsonValue(((Node) value).asMap());
+		} else if (value instanceof Relationship) {
+			return toJsonValue(((Relationship) value).asMap());
+		} else if (value instanceof Path) {
+			JsonArray pathArray = new JsonArray();
+			Path path = (Path) value;
+			pathArray.add(toJsonValue(path.start()));
+			for (Path.Segment segment : path) {
+				pathArray.add(toJsonValue(segment.relationship()));
+				pathArray.add(toJsonValue(segment.end()));
+			}
+			return pathArray;
+		} else if (value instanceof Map) {
+			JsonObject jsonObject = new JsonObject();
+			for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+				jsonObject.add(entry.getKey(), toJsonValue(entry.getValue()));
+			}
+			return jsonObject;
+		} else if (value instanceof List) {
+			JsonArray jsonArray = new JsonArray();
+			for (Object item : (List<Object>) value) {
+				jsonArray.add(toJsonValue(item));
+			}
+			return jsonArray;
+		} else if (value instanceof Number) {
+			return new JsonPrimitive((Number) value);
+		} else if (value instanceof Boolean) {
+			return new JsonPrimitive((Boolean) value);
+		}
+		return new JsonPrimitive(String.valueOf(value));
+	}
+
+	private JsonObject getGraph(Record record) {
+		JsonArray nodes = new JsonArray();
+		JsonArray relationships = new JsonArray();
+		Set<Long> nodeIds = new HashSet<>();
+		Set<Long> relationshipIds = new HashSet<>();
+		for (Value value : record.values()) {
+			collectGraphElements(value.asObject(), nodes, relationships, nodeIds, relationshipIds);
+		}
+		JsonObject graph = new JsonObject();
+		graph.add("nodes", nodes);
+		graph.add("relationships", relationships);
+		return graph;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void collectGraphElements(Object value, JsonArray nodes, JsonArray relationships, Set<Long> nodeIds,
+			Set<Long> relationshipIds) {
+		if (value instanceof Node) {
+			Node node = (Node) value;
+			if (nodeIds.add(node.id())) {
+				JsonObject nodeJson = new JsonObject();
+				nodeJson.addProperty("id", String.valueOf(node.id()));
+				JsonArray labels = new JsonArray();
+				for (String label : node.labels()) {
+					labels.add(label);
+				}
+				nodeJson.add("labels", labels);
+				nodeJson.add("properties", toJsonValue(node.asMap()));
+				nodes.add(nodeJson);
+			}
+		} else if (value instanceof Relationship) {
+			Relationship relationship = (Relationship) value;
+			if (relationshipIds.add(relationship.id())) {
+				JsonObject relationshipJson = new JsonObject();
+				relationshipJson.addProperty("id", String.valueOf(relationship.id()));
+				relationshipJson.addProperty("type", relationship.type());
+				relationshipJson.addProperty("startNode", String.valueOf(relationship.startNodeId()));
+				relationshipJson.addProperty("endNode", String.valueOf(relationship.endNodeId()));
+				relationshipJson.add("properties", toJsonValue(relationship.asMap()));
+				relationships.add(relationshipJson);
+			}
+		} else if (value instanceof Path) {
+			for (Node node : ((Path) value).nodes()) {
+				collectGraphElements(node, nodes, relationships, nodeIds, relationshipIds);
+			}
+			for (Relationship relationship : ((Path) value).relationships()) {
+				collectGraphElements(relationship, nodes, relationships, nodeIds, relationshipIds);
+			}
+		} else if (value instanceof Map) {
+			for (Object item : ((Map<String, Object>) value).values()) {
+				collectGraphElements(item, nodes, relationships, nodeIds, relationshipIds);
+			}
+		} else if (value instanceof List) {
+			for (Object item : (List<Object>) value) {
+				collectGraphElements(item, nodes, relationships, nodeIds, relationshipIds);
+			}
+		}
+	}
+
+	private JsonArray toJsonArray(List<String> values) {
+		JsonArray jsonArray = new JsonArray();
+		for (String value : values) {
+			jsonArray.add(value);
+		}
+		return jsonArray;
+	}
+}
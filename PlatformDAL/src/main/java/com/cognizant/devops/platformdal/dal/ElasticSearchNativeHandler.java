@@ -23,77 +23,82 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
+import com.cognizant.devops.platformcommons.dal.elasticsearch.ElasticSearchBulkWriter;
 import com.cognizant.devops.platformcommons.dal.elasticsearch.ElasticSearchDBHandler;
+import com.cognizant.devops.platformcommons.dal.elasticsearch.ElasticSearchHitHandler;
 import com.cognizant.devops.platformcommons.exception.InsightsCustomException;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
+import com.cognizant.devops.platformcommons.exception.RestAPI404Exception;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 
 public class ElasticSearchNativeHandler {
 	private static Logger log = LogManager.getLogger(ElasticSearchNativeHandler.class.getName());
-	private static final String STATUS ="status";
+	private static final String UUID_PROPERTY = "uuid";
+	private final ElasticSearchDBHandler esDbHandler = new ElasticSearchDBHandler();
 	
+	/**
+	 * Collect the _source of every hit of the query, all pages are read
+	 * 
+	 * @param esQuery
+	 * @param indexName
+	 * @return
+	 */
 	public List<JsonObject> getESResult(String esQuery, String indexName) {
-		ElasticSearchDBHandler esDbHandler = new ElasticSearchDBHandler();
 		List<JsonObject> recordlist = new ArrayList<>();
 		try {
-			String sourceESCacheUrl = ApplicationConfigProvider.getInstance().getEndpointData()
-					.getElasticSearchEndpoint() + "/" + indexName;
-
-			JsonObject esResponse = esDbHandler.queryES(sourceESCacheUrl + "/_search", esQuery);
-
-			if (esResponse.has(STATUS) && esResponse.get(STATUS).getAsInt() == 404) {
-				log.debug("Worlflow Detail ====  Elastic Serach data not retirved . Message is {} ", esResponse);
-			} else {
-				JsonArray esResponseArray = esResponse.get("hits").getAsJsonObject().get("hits").getAsJsonArray();
-				for (JsonElement esResponseSource : esResponseArray) {
-					JsonObject parsedJson = new JsonParser().parse(esResponseSource.toString()).getAsJsonObject();
-					JsonObject recordKPI = parsedJson.get("_source").getAsJsonObject();
-					log.debug(" recordKPI {} ", recordKPI);
-					recordlist.add(recordKPI);
-				}
-			}
-			log.debug(" esResponse API response {} ", esResponse);
+			scrollESResult(esQuery, indexName, recordlist::add);
 		} catch (InsightsCustomException e) {
 			log.error(e);
 		}
 		return recordlist;
 	}
 
-	public List<JsonObject> saveESResult(String indexName, List<JsonObject> rows) {
-		ElasticSearchDBHandler esDbHandler = new ElasticSearchDBHandler();
-		List<JsonObject> recordlist = new ArrayList<>();
+	/**
+	 * Hand the _source of every hit of the query to the hitHandler page by
+	 * page, without holding the whole result
+	 * 
+	 * @param esQuery
+	 * @param indexName
+	 * @param hitHandler
+	 * @return number of hits handled, 0 when the index does not exist
+	 * @throws InsightsCustomException
+	 */
+	public int scrollESResult(String esQuery, String indexName, ElasticSearchHitHandler hitHandler)
+			throws InsightsCustomException {
 		try {
-			String sourceESCacheUrl = ApplicationConfigProvider.getInstance().getEndpointData()
-					.getElasticSearchEndpoint() + "/" + indexName + "/_bulk";
-			StringBuilder bulkESJsons = new StringBuilder();
-			for (JsonElement bulkItem : rows) {
-				JsonObject bulkItemJson = new JsonObject();
-				String uuid = UUID.randomUUID().toString();
-				bulkItem.getAsJsonObject().addProperty("uuid", uuid);
-				bulkItemJson.add("create", bulkItem.getAsJsonObject());
-				bulkESJsons.append(bulkItemJson);
-			}
-			bulkESJsons = bulkESJsons.append("\\n");
-			log.debug(" bulk Item Json {} ", bulkESJsons);
-			JsonObject esResponse = esDbHandler.queryES(sourceESCacheUrl, bulkESJsons.toString());
+			int hitCount = esDbHandler.scrollES(
+					ApplicationConfigProvider.getInstance().getEndpointData().getElasticSearchEndpoint(), indexName,
+					esQuery, hitHandler);
+			log.debug(" Elastic Search index {} returned {} records ", indexName, hitCount);
+			return hitCount;
+		} catch (RestAPI404Exception e) {
+			log.debug("Worlflow Detail ====  Elastic Serach data not retirved . Message is {} ", e.getMessage());
+			return 0;
+		}
+	}
 
-			if (esResponse.has(STATUS) && esResponse.get(STATUS).getAsInt() == 404) {
-				log.debug("Worlflow Detail ====  Elastic Serach data not retirved . Message is {} ", esResponse);
-			} else {
-				JsonArray esResponseArray = esResponse.get("hits").getAsJsonObject().get("hits").getAsJsonArray();
-				for (JsonElement esResponseSource : esResponseArray) {
-					JsonObject parsedJson = new JsonParser().parse(esResponseSource.toString()).getAsJsonObject();
-					JsonObject recordKPI = parsedJson.get("_source").getAsJsonObject();
-					log.debug(" recordKPI {} ", recordKPI);
-					recordlist.add(recordKPI);
-				}
+	/**
+	 * Create the rows in the index through the bulk API, each row gets a uuid
+	 * which is used as its _id, a row which already has one keeps it so that
+	 * saving it again does not duplicate it
+	 * 
+	 * @param indexName
+	 * @param rows
+	 * @return rows which could not be created, with their status and error
+	 * @throws InsightsCustomException
+	 */
+	public List<JsonObject> saveESResult(String indexName, List<JsonObject> rows) throws InsightsCustomException {
+		String bulkUrl = ApplicationConfigProvider.getInstance().getEndpointData().getElasticSearchEndpoint() + "/"
+				+ indexName + "/_bulk";
+		for (JsonObject row : rows) {
+			if (!row.has(UUID_PROPERTY)) {
+				row.addProperty(UUID_PROPERTY, UUID.randomUUID().toString());
 			}
-			log.debug(" esResponse API response {} ", esResponse);
-		} catch (InsightsCustomException e) {
-			log.error(e);
 		}
-		return recordlist;
+		List<JsonObject> failedRows = ElasticSearchBulkWriter.getInstance().bulkCreate(bulkUrl, rows, UUID_PROPERTY);
+		if (!failedRows.isEmpty()) {
+			log.error("Worlflow Detail ==== {} of {} records not saved in Elastic Search index {}, first error {} ",
+					failedRows.size(), rows.size(), indexName, failedRows.get(0).get("error"));
+		}
+		return failedRows;
 	}
-}
\ No newline at end of file
+}
@@ -16,55 +16,64 @@
 package com.cognizant.devops.platformdal.dal;
 
 import java.util.Base64;
-/*
-import org.neo4j.driver.v1.AuthTokens;
-import org.neo4j.driver.v1.Config;
-import org.neo4j.driver.v1.Driver;
-import org.neo4j.driver.v1.GraphDatabase;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Config;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.GraphDatabase;
 
 import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
+import com.cognizant.devops.platformcommons.config.GraphData;
 
+/**
+ * Holds the process wide Neo4j driver. The driver keeps the pool of Bolt
+ * connections, sessions borrow a connection from it and give it back on close.
+ */
 public final class GraphDBConnection implements AutoCloseable {
 
 	private final Driver driver;
 	private static GraphDBConnection graphDBConnection;
-	private Integer defaultMaxIdleConnections = 25;
-	
+
 	private GraphDBConnection(String uri, String user, String password) {
-		Integer maxIdleConnections = ApplicationConfigProvider.getInstance().getGraph().getMaxIdleConnections();
-		if(maxIdleConnections == null) {
-			maxIdleConnections = defaultMaxIdleConnections;
+		GraphData graph = ApplicationConfigProvider.getInstance().getGraph();
+		Config.ConfigBuilder configBuilder = Config.builder()
+				.withMaxConnectionPoolSize(graph.getBoltMaxConnectionPoolSize())
+				.withConnectionAcquisitionTimeout(graph.getBoltConnectionAcquisitionTimeoutInMs(), TimeUnit.MILLISECONDS)
+				.withMaxTransactionRetryTime(graph.getBoltMaxTransactionRetryTimeInMs(), TimeUnit.MILLISECONDS)
+				.withFetchSize(graph.getBoltFetchSize());
+		if (graph.getConnectionExpiryTimeOut() != null) {
+			configBuilder.withMaxConnectionLifetime(graph.getConnectionExpiryTimeOut(), TimeUnit.SECONDS);
 		}
-		driver = GraphDatabase.driver( uri, AuthTokens.basic( user, password ),
-										Config.build().withMaxIdleConnections(maxIdleConnections).toConfig() );
+		driver = GraphDatabase.driver(uri, AuthTokens.basic(user, password), configBuilder.build());
 	}
-	
-	public static GraphDBConnection getInstance() {
-		if(graphDBConnection == null) {
+
+	public static synchronized GraphDBConnection getInstance() {
+		if (graphDBConnection == null) {
 			String uri = ApplicationConfigProvider.getInstance().getGraph().getBoltEndPoint();
-			
-			String authToken = ApplicationConfigProvider.getInstance().getGraph().getAuthToken();
+
+			String authToken = ApplicationConfigProvider.getInstance().getGraph().getAuthToken().trim();
+			if (authToken.regionMatches(true, 0, "Basic ", 0, 6)) {
+				authToken = authToken.substring(6).trim();
+			}
 			String decodedAuthToken = new String(Base64.getDecoder().decode(authToken));
-			String[] parts = decodedAuthToken.split(":");
-			
-			graphDBConnection = new GraphDBConnection(uri,parts[0],parts[1]);
+			String[] parts = decodedAuthToken.split(":", 2);
+
+			graphDBConnection = new GraphDBConnection(uri, parts[0], parts[1]);
+			Runtime.getRuntime().addShutdownHook(new Thread(graphDBConnection.driver::close));
 		}
-		
+
 		return graphDBConnection;
 	}
-	
+
 	@Override
 	public void close() throws Exception {
 		driver.close();
 
 	}
-	
+
 	public Driver getDriver() {
-		if(driver == null) {
-			getInstance();
-		}
 		return driver;
 	}
 
 }
-*/
@@ -63,6 +63,10 @@ public class Application implements ApplicationConfigInterface {
 			timerEngineAggregator.schedule(engineAggregatorModuleTrigger, 0,
 					ApplicationConfigProvider.getInstance().getSchedulerConfigData().getEngineAggregatorModuleInterval()
 							* 60 * 1000);
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				timerEngineAggregator.cancel();
+				EngineAggregatorModule.closeSubscribers();
+			}, "EngineAggregatorShutdown"));
 
 			// Schedule the Correlation Module.
 			Timer timerEngineCorrelatorModule = new Timer("EngineCorrelatorModule");
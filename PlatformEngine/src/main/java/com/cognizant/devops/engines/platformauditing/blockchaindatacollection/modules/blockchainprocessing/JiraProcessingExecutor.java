@@ -45,6 +45,8 @@ import java.security.PrivateKey;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 
 public class JiraProcessingExecutor extends TimerTask implements ApplicationConfigInterface {
@@ -89,6 +91,7 @@ public class JiraProcessingExecutor extends TimerTask implements ApplicationConf
 			boolean nextBatchQuery = true;
 			while (nextBatchQuery) {
 				Boolean successfulWriteFlag = true;
+				Map<String, List<JsonElement>> issueRows = new LinkedHashMap<>();
 				StringBuffer cypherPickUpTime = new StringBuffer();
 
 				cypherPickUpTime.append("RETURN distinct(n) ORDER BY n.inSightsTime,n.changeDateEpoch");
@@ -120,7 +123,7 @@ public class JiraProcessingExecutor extends TimerTask implements ApplicationConf
 						LOG.debug("decryptedBytes");
 						LOG.debug(new String(decryptedBytes));
 						if(hc.equals(new String(decryptedBytes)))
-							successfulWriteFlag = insertJiraNodes(dataElem, successfulWriteFlag);
+							issueRows.computeIfAbsent(getIssueKey(dataElem), issueKey -> new ArrayList<>()).add(dataElem);
 						else
 							LOG.debug("Hash values do not match.. skipping uuid: " +
 									dataElem.getAsJsonObject().get("row").getAsJsonArray().get(0).getAsJsonObject().getAsJsonPrimitive("uuid"));
@@ -129,6 +132,7 @@ public class JiraProcessingExecutor extends TimerTask implements ApplicationConf
 							dataElem.getAsJsonObject().get("row").getAsJsonArray().get(0).getAsJsonObject().getAsJsonPrimitive("uuid")+"\nNode skipped...");
                     //successfulWriteFlag = insertJiraNodes(dataElem, successfulWriteFlag);
 				}
+				successfulWriteFlag = writeIssues(issueRows);
 
 				// check for success for updating tracking
 
@@ -214,25 +218,64 @@ public class JiraProcessingExecutor extends TimerTask implements ApplicationConf
         return sb.toString();
     }
 
+	/**
+	 * Write the verified rows to the ledger. An issue and its changelogs are
+	 * written by one task in query order, as a changelog is validated against
+	 * the ledger copy of its issue, while different issues are in flight at the
+	 * same time.
+	 * 
+	 * @param issueRows
+	 * @return false if any row could not be written
+	 */
+	private boolean writeIssues(Map<String, List<JsonElement>> issueRows) {
+		List<CompletableFuture<Boolean>> writes = new ArrayList<>(issueRows.size());
+		for (List<JsonElement> rows : issueRows.values()) {
+			writes.add(insightAuditImpl.insertAsync(() -> {
+				boolean successfulWriteFlag = true;
+				for (JsonElement dataElem : rows) {
+					successfulWriteFlag = insertJiraNodes(dataElem, successfulWriteFlag);
+				}
+				return successfulWriteFlag;
+			}));
+		}
+		boolean successfulWriteFlag = true;
+		for (CompletableFuture<Boolean> write : writes) {
+			try {
+				if (!write.join())
+					successfulWriteFlag = false;
+			} catch (CompletionException e) {
+				LOG.error("Error occured while inserting changed node ", e);
+				successfulWriteFlag = false;
+			}
+		}
+		return successfulWriteFlag;
+	}
+
+	private String getIssueKey(JsonElement dataElem) {
+		JsonObject node = dataElem.getAsJsonObject().get("row").getAsJsonArray().get(0).getAsJsonObject();
+		return node.has("issueKey") ? node.get("issueKey").getAsString() : node.get("key").getAsString();
+	}
+
+	private synchronized void updateLastTimestamp(long timestamp) {
+		lastTimestamp = Math.max(lastTimestamp, timestamp);
+	}
+
 	private boolean insertJiraNodes(JsonElement dataElem, boolean successfulWriteFlag) {
 		GraphDBHandler dbHandler = new GraphDBHandler();
 		try {
 			if (dataElem.getAsJsonObject().get("row").getAsJsonArray().get(0).getAsJsonObject().has(InsightsAuditConstants.DIGITALSIGNATURE))
                 dataElem.getAsJsonObject().get("row").getAsJsonArray().get(0).getAsJsonObject().remove(InsightsAuditConstants.DIGITALSIGNATURE);
 			if (dataElem.getAsJsonObject().get("row").getAsJsonArray().get(0).getAsJsonObject().has("changeId")) {
-				lastTimestamp = dataElem.getAsJsonObject().get("row").getAsJsonArray().get(0).getAsJsonObject()
-						.getAsJsonPrimitive("changeDateEpoch").getAsLong();
-				boolean result;
-				synchronized (insightAuditImpl) {
-					result = insightAuditImpl.insertChangeLogData(
-							dataElem.getAsJsonObject().get("row").getAsJsonArray().get(0).getAsJsonObject());
-				}
+				updateLastTimestamp(dataElem.getAsJsonObject().get("row").getAsJsonArray().get(0).getAsJsonObject()
+						.getAsJsonPrimitive("changeDateEpoch").getAsLong());
+				boolean result = insightAuditImpl.insertChangeLogData(
+						dataElem.getAsJsonObject().get("row").getAsJsonArray().get(0).getAsJsonObject());
 				boolean tempFlag = utilObj.updateFlagToNeo4j(result, dataElem.getAsJsonObject());
 				if (!tempFlag || !result)
 					successfulWriteFlag = false;
 			} else {
-				lastTimestamp = dataElem.getAsJsonObject().get("row").getAsJsonArray().get(0).getAsJsonObject()
-						.getAsJsonPrimitive("inSightsTime").getAsLong();
+				updateLastTimestamp(dataElem.getAsJsonObject().get("row").getAsJsonArray().get(0).getAsJsonObject()
+						.getAsJsonPrimitive("inSightsTime").getAsLong());
 				JsonArray changelogArray = new JsonArray();
 				String jiraKey = dataElem.getAsJsonObject().get("row").getAsJsonArray().get(0).getAsJsonObject()
 						.getAsJsonPrimitive("key").getAsString();
@@ -250,12 +293,9 @@ public class JiraProcessingExecutor extends TimerTask implements ApplicationConf
 								.add(changeLog.getAsJsonObject().get("row").getAsJsonArray().get(0).getAsJsonObject());
 					}
 				}
-				boolean result;
-				synchronized (insightAuditImpl) {
-					result = insightAuditImpl.insertJiraNode(
-							dataElem.getAsJsonObject().get("row").getAsJsonArray().get(0).getAsJsonObject(),
-							changelogArray);
-				}
+				boolean result = insightAuditImpl.insertJiraNode(
+						dataElem.getAsJsonObject().get("row").getAsJsonArray().get(0).getAsJsonObject(),
+						changelogArray);
 				boolean tempFlag = utilObj.updateFlagToNeo4j(result, dataElem.getAsJsonObject());
 				if (!tempFlag || !result)
 					successfulWriteFlag = false;
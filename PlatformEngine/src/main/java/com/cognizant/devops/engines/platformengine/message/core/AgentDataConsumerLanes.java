@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.engines.platformengine.message.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.cognizant.devops.platformcommons.exception.InsightsCustomException;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Ordered parallel processing for one agent queue. Records of a message are
+ * spread over a fixed number of single threaded lanes by the hash of their
+ * uniqueKey values, so every upsert of the same entity runs on the same lane
+ * while different entities are written in parallel. Records without uniqueKey
+ * (plain creates and relations) are written by the consumer thread itself, as
+ * concurrent MERGEs on them could create duplicates. The caller waits for all
+ * parts of a message, so a failed message is requeued before the next one is
+ * written.
+ */
+public class AgentDataConsumerLanes {
+	private static Logger log = LogManager.getLogger(AgentDataConsumerLanes.class);
+
+	private final List<ExecutorService> lanes;
+
+	/**
+	 * Writes the records of one lane
+	 */
+	public interface LaneWriter {
+		/**
+		 * @return number of chunks written
+		 */
+		int write(List<JsonObject> records) throws InsightsCustomException;
+	}
+
+	public AgentDataConsumerLanes(String routingKey, int laneCount) {
+		this.lanes = new ArrayList<>(laneCount);
+		for (int i = 0; i < laneCount; i++) {
+			String threadName = "AgentDataLane-" + routingKey + "-" + i;
+			lanes.add(Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, threadName);
+				thread.setDaemon(true);
+				return thread;
+			}));
+		}
+		log.debug("Type=AgentEngine routingKey={} {} consumer lanes created", routingKey, laneCount);
+	}
+
+	public int getLaneCount() {
+		return lanes.size();
+	}
+
+	/**
+	 * Split the records of one message over the lanes and wait until every part
+	 * is written. The first failure is rethrown once all lanes are done.
+	 *
+	 * @param records
+	 * @param uniqueKeys properties identifying an entity, may be empty
+	 * @param writer
+	 * @return number of chunks written
+	 * @throws InsightsCustomException
+	 */
+	public int write(List<JsonObject> records, List<String> uniqueKeys, LaneWriter writer)
+			throws InsightsCustomException {
+		if (uniqueKeys.isEmpty()) {
+			return writer.write(records);
+		}
+		List<List<JsonObject>> parts = new ArrayList<>(lanes.size());
+		for (int i = 0; i < lanes.size(); i++) {
+			parts.add(new ArrayList<>());
+		}
+		for (JsonObject record : records) {
+			parts.get(getLane(record, uniqueKeys, lanes.size())).add(record);
+		}
+		List<CompletableFuture<Integer>> futures = new ArrayList<>(lanes.size());
+		for (int i = 0; i < lanes.size(); i++) {
+			List<JsonObject> part = parts.get(i);
+			if (!part.isEmpty()) {
+				futures.add(CompletableFuture.supplyAsync(() -> {
+					try {
+						return writer.write(part);
+					} catch (InsightsCustomException e) {
+						throw new CompletionException(e);
+					}
+				}, lanes.get(i)));
+			}
+		}
+		int chunkCount = 0;
+		Throwable failure = null;
+		for (CompletableFuture<Integer> future : futures) {
+			try {
+				chunkCount += future.join();
+			} catch (CompletionException e) {
+				if (failure == null) {
+					failure = e.getCause() != null ? e.getCause() : e;
+				}
+			}
+		}
+		if (failure instanceof InsightsCustomException) {
+			throw (InsightsCustomException) failure;
+		} else if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure != null) {
+			throw new InsightsCustomException(failure.getMessage());
+		}
+		return chunkCount;
+	}
+
+	static int getLane(JsonObject record, List<String> uniqueKeys, int laneCount) {
+		int hash = 1;
+		for (String uniqueKey : uniqueKeys) {
+			JsonElement value = record.get(uniqueKey);
+			hash = 31 * hash + (value == null ? 0 : value.hashCode());
+		}
+		return Math.floorMod(hash, laneCount);
+	}
+
+	public void shutdown() {
+		for (ExecutorService lane : lanes) {
+			lane.shutdown();
+		}
+	}
+}
@@ -0,0 +1,311 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.engines.platformengine.message.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.ProcessingException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.cognizant.devops.platformcommons.config.AgentDataIngestionConfig;
+import com.cognizant.devops.platformcommons.exception.InsightsCustomException;
+import com.google.gson.JsonObject;
+import com.rabbitmq.client.Channel;
+
+/**
+ * Buffers small agent messages of one queue that produce the same cypher
+ * query and writes them to Neo4j as one UNWIND statement. A buffer is flushed
+ * when it reaches the configured message or record count or when its oldest
+ * message has waited microBatchMaxWaitInMs. All delivery tags of a flushed
+ * batch are acked together, with a multiple ack whenever no older delivery on
+ * the channel is still pending. The batcher has to be closed while its channel
+ * is still open, pending batches are written and acked then.
+ */
+public class AgentDataMicroBatcher {
+	private static Logger log = LogManager.getLogger(AgentDataMicroBatcher.class);
+	private static ScheduledExecutorService flushScheduler = null;
+
+	private final String routingKey;
+	private final Channel channel;
+	private final BatchWriter writer;
+	private final int maxMessages;
+	private final int maxRecords;
+	private final long maxWaitInMs;
+	private final Map<String, Batch> buffers = new LinkedHashMap<>();
+	private final TreeSet<Long> pendingDeliveryTags = new TreeSet<>();
+	private final Object flushLock = new Object();
+	private boolean closed = false;
+
+	/**
+	 * Writes the records of one flushed batch
+	 */
+	public interface BatchWriter {
+		void write(String cypherQuery, List<String> labels, List<JsonObject> records) throws InsightsCustomException;
+	}
+
+	public AgentDataMicroBatcher(String routingKey, Channel channel, AgentDataIngestionConfig config,
+			BatchWriter writer) {
+		this.routingKey = routingKey;
+		this.channel = channel;
+		this.writer = writer;
+		this.maxMessages = Math.max(1, config.getMicroBatchMaxMessages());
+		this.maxRecords = Math.max(1, config.getMicroBatchMaxRecords());
+		this.maxWaitInMs = Math.max(1, config.getMicroBatchMaxWaitInMs());
+	}
+
+	public int getMaxRecords() {
+		return maxRecords;
+	}
+
+	/**
+	 * Add the parsed records of one delivery to the buffer of its cypher query.
+	 * The buffer is flushed on the calling thread once it is full. A delivery
+	 * added after close is requeued.
+	 *
+	 * @param cypherQuery
+	 * @param labels
+	 * @param records
+	 * @param deliveryTag
+	 * @throws IOException
+	 */
+	public void add(String cypherQuery, List<String> labels, List<JsonObject> records, long deliveryTag)
+			throws IOException {
+		Batch fullBatch = null;
+		synchronized (this) {
+			if (closed) {
+				synchronized (channel) {
+					channel.basicNack(deliveryTag, false, true);
+				}
+				return;
+			}
+			pendingDeliveryTags.add(deliveryTag);
+			Batch batch = buffers.get(cypherQuery);
+			if (batch == null) {
+				batch = new Batch(cypherQuery, labels);
+				buffers.put(cypherQuery, batch);
+				scheduleFlush(batch);
+			}
+			batch.add(records, deliveryTag);
+			if (batch.deliveryTags.size() >= maxMessages || batch.records.size() >= maxRecords) {
+				buffers.remove(cypherQuery);
+				batch.cancelFlush();
+				fullBatch = batch;
+			}
+		}
+		if (fullBatch != null) {
+			flush(fullBatch);
+		}
+	}
+
+	/**
+	 * Flush the pending batch of the given query, used before a message that
+	 * bypasses batching is written so that upserts keep their order.
+	 *
+	 * @param cypherQuery
+	 * @throws IOException
+	 */
+	public void flush(String cypherQuery) throws IOException {
+		Batch batch;
+		synchronized (this) {
+			batch = buffers.remove(cypherQuery);
+		}
+		if (batch != null) {
+			batch.cancelFlush();
+			flush(batch);
+		}
+	}
+
+	/**
+	 * Write and ack every pending batch and cancel their scheduled flushes, must
+	 * be called before the channel is closed
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		List<Batch> batches;
+		synchronized (this) {
+			closed = true;
+			batches = new ArrayList<>(buffers.values());
+			buffers.clear();
+		}
+		for (Batch batch : batches) {
+			batch.cancelFlush();
+			flush(batch);
+		}
+	}
+
+	private void flush(Batch batch) throws IOException {
+		synchronized (flushLock) {
+			long startTime = System.nanoTime();
+			try {
+				writer.write(batch.cypherQuery, batch.labels, batch.records);
+				ack(batch.deliveryTags);
+				long processingTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+				AgentDataThroughputMetrics.recordSuccess(routingKey, batch.deliveryTags.size(), batch.records.size(),
+						1, processingTime);
+				log.debug(
+						"Type=AgentEngine routingKey={} dataSize={} ProcessingTime={} micro batch of {} messages written",
+						routingKey, batch.records.size(), processingTime, batch.deliveryTags.size());
+			} catch (ProcessingException e) {
+				log.error("routingKey={} ProcessingException occured while writing micro batch ", routingKey, e);
+				AgentDataThroughputMetrics.recordFailure(routingKey);
+				nack(batch.deliveryTags);
+			} catch (Exception e) {
+				log.error("routingKey={} Unable to write micro batch of {} messages, retrying each message ",
+						routingKey, batch.deliveryTags.size(), e);
+				retryIndividually(batch);
+			}
+		}
+	}
+
+	/**
+	 * A failed batch may hold a single bad message, so every message is written
+	 * on its own and only the failing ones are rejected.
+	 */
+	private void retryIndividually(Batch batch) throws IOException {
+		for (int i = 0; i < batch.deliveryTags.size(); i++) {
+			long deliveryTag = batch.deliveryTags.get(i);
+			List<JsonObject> records = batch.records.subList(batch.offsets.get(i), batch.offsets.get(i + 1));
+			try {
+				writer.write(batch.cypherQuery, batch.labels, records);
+				AgentDataThroughputMetrics.recordSuccess(routingKey, 1, records.size(), 1, 0);
+				settle(deliveryTag);
+				synchronized (channel) {
+					channel.basicAck(deliveryTag, false);
+				}
+			} catch (ProcessingException e) {
+				AgentDataThroughputMetrics.recordFailure(routingKey);
+				settle(deliveryTag);
+				synchronized (channel) {
+					channel.basicNack(deliveryTag, false, true);
+				}
+			} catch (Exception e) {
+				log.error("routingKey={} deliveryTag={} Unable to write message ", routingKey, deliveryTag, e);
+				AgentDataThroughputMetrics.recordFailure(routingKey);
+				settle(deliveryTag);
+				synchronized (channel) {
+					channel.basicReject(deliveryTag, false);
+				}
+			}
+		}
+	}
+
+	private void ack(List<Long> deliveryTags) throws IOException {
+		long maxDeliveryTag = 0;
+		boolean multiple;
+		synchronized (this) {
+			for (Long deliveryTag : deliveryTags) {
+				pendingDeliveryTags.remove(deliveryTag);
+				maxDeliveryTag = Math.max(maxDeliveryTag, deliveryTag);
+			}
+			multiple = pendingDeliveryTags.isEmpty() || pendingDeliveryTags.first() > maxDeliveryTag;
+		}
+		synchronized (channel) {
+			if (multiple) {
+				channel.basicAck(maxDeliveryTag, true);
+			} else {
+				for (Long deliveryTag : deliveryTags) {
+					channel.basicAck(deliveryTag, false);
+				}
+			}
+		}
+	}
+
+	private void nack(List<Long> deliveryTags) throws IOException {
+		for (Long deliveryTag : deliveryTags) {
+			settle(deliveryTag);
+		}
+		synchronized (channel) {
+			for (Long deliveryTag : deliveryTags) {
+				channel.basicNack(deliveryTag, false, true);
+			}
+		}
+	}
+
+	private synchronized void settle(long deliveryTag) {
+		pendingDeliveryTags.remove(deliveryTag);
+	}
+
+	private void scheduleFlush(Batch batch) {
+		batch.flushTask = getFlushScheduler().schedule(() -> {
+			boolean expired;
+			synchronized (this) {
+				expired = buffers.get(batch.cypherQuery) == batch;
+				if (expired) {
+					buffers.remove(batch.cypherQuery);
+				}
+			}
+			if (expired) {
+				try {
+					flush(batch);
+				} catch (Exception e) {
+					log.error("routingKey={} Unable to flush micro batch ", routingKey, e);
+				}
+			}
+		}, maxWaitInMs, TimeUnit.MILLISECONDS);
+	}
+
+	private static synchronized ScheduledExecutorService getFlushScheduler() {
+		if (flushScheduler == null) {
+			ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+				Thread thread = new Thread(runnable, "AgentDataMicroBatchFlusher");
+				thread.setDaemon(true);
+				return thread;
+			});
+			scheduler.setRemoveOnCancelPolicy(true);
+			flushScheduler = scheduler;
+		}
+		return flushScheduler;
+	}
+
+	private static class Batch {
+		private final String cypherQuery;
+		private final List<String> labels;
+		private final List<JsonObject> records = new ArrayList<>();
+		private final List<Long> deliveryTags = new ArrayList<>();
+		private final List<Integer> offsets = new ArrayList<>();
+		private ScheduledFuture<?> flushTask;
+
+		Batch(String cypherQuery, List<String> labels) {
+			this.cypherQuery = cypherQuery;
+			this.labels = labels;
+			this.offsets.add(0);
+		}
+
+		void add(List<JsonObject> messageRecords, long deliveryTag) {
+			records.addAll(messageRecords);
+			deliveryTags.add(deliveryTag);
+			offsets.add(records.size());
+		}
+
+		void cancelFlush() {
+			if (flushTask != null) {
+				flushTask.cancel(false);
+			}
+		}
+	}
+}
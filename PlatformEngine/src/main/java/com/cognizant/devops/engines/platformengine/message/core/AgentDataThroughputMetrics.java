@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.engines.platformengine.message.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Per queue counters for agent data written to Neo4j. The summary is logged in
+ * the same Type=AgentEngine format as the other engine logs so that it can be
+ * picked from the log files.
+ */
+public class AgentDataThroughputMetrics {
+	private static Logger log = LogManager.getLogger(AgentDataThroughputMetrics.class);
+	private static final Map<String, QueueMetrics> registry = new ConcurrentHashMap<>();
+
+	private AgentDataThroughputMetrics() {
+	}
+
+	public static void recordSuccess(String routingKey, int records, int chunks, long processingTimeInMs) {
+		recordSuccess(routingKey, 1, records, chunks, processingTimeInMs);
+	}
+
+	public static void recordSuccess(String routingKey, int messages, int records, int chunks,
+			long processingTimeInMs) {
+		QueueMetrics metrics = getQueueMetrics(routingKey);
+		metrics.messages.add(messages);
+		metrics.records.add(records);
+		metrics.chunks.add(chunks);
+		metrics.processingTimeInMs.add(processingTimeInMs);
+	}
+
+	public static void recordFailure(String routingKey) {
+		getQueueMetrics(routingKey).failures.increment();
+	}
+
+	public static double getRecordsPerSecond(int records, long processingTimeInMs) {
+		return processingTimeInMs <= 0 ? records * 1000d : (records * 1000d) / processingTimeInMs;
+	}
+
+	/**
+	 * Log the counters collected since last call for every routing key and reset
+	 * them.
+	 */
+	public static void logSummary() {
+		for (Map.Entry<String, QueueMetrics> entry : registry.entrySet()) {
+			QueueMetrics metrics = entry.getValue();
+			long messages = metrics.messages.sumThenReset();
+			long records = metrics.records.sumThenReset();
+			long chunks = metrics.chunks.sumThenReset();
+			long processingTime = metrics.processingTimeInMs.sumThenReset();
+			long failures = metrics.failures.sumThenReset();
+			if (messages == 0 && failures == 0) {
+				continue;
+			}
+			log.info(
+					"Type=AgentEngine routingKey={} messages={} records={} chunks={} failures={} ProcessingTime={} recordsPerSecond={} ",
+					entry.getKey(), messages, records, chunks, failures, processingTime,
+					String.format("%.2f", getRecordsPerSecond((int) Math.min(records, Integer.MAX_VALUE), processingTime)));
+		}
+	}
+
+	private static QueueMetrics getQueueMetrics(String routingKey) {
+		return registry.computeIfAbsent(routingKey, key -> new QueueMetrics());
+	}
+
+	private static class QueueMetrics {
+		private final LongAdder messages = new LongAdder();
+		private final LongAdder records = new LongAdder();
+		private final LongAdder chunks = new LongAdder();
+		private final LongAdder processingTimeInMs = new LongAdder();
+		private final LongAdder failures = new LongAdder();
+	}
+}
@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.engines.platformengine.message.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.cognizant.devops.engines.platformengine.modules.correlation.CorrelationChangeLog;
+import com.cognizant.devops.platformcommons.config.AgentDataIngestionConfig;
+import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
+import com.cognizant.devops.platformcommons.dal.neo4j.GraphDBHandler;
+import com.cognizant.devops.platformcommons.exception.InsightsCustomException;
+import com.google.gson.JsonObject;
+
+/**
+ * Writes the chunks of one agent message to Neo4j over several concurrent
+ * transactional requests. The engine wide pool size caps the total number of
+ * in-flight chunks and a semaphore per routing key keeps one noisy queue from
+ * taking every slot. writeChunks returns only after all submitted chunks are
+ * complete, so callers can ack the message once it returns.
+ */
+public class AgentDataWritePipeline {
+	private static Logger log = LogManager.getLogger(AgentDataWritePipeline.class);
+	private static AgentDataWritePipeline instance = null;
+
+	private final ExecutorService executor;
+	private final int maxInFlightPerRoutingKey;
+	private final Map<String, Semaphore> routingKeySlots = new ConcurrentHashMap<>();
+
+	private AgentDataWritePipeline(AgentDataIngestionConfig config) {
+		int engineLimit = Math.max(1, config.getMaxInFlightChunksPerEngine());
+		this.maxInFlightPerRoutingKey = Math.max(1, config.getMaxInFlightChunksPerRoutingKey());
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(engineLimit, engineLimit, 1, TimeUnit.MINUTES,
+				new LinkedBlockingQueue<Runnable>(), runnable -> {
+					Thread thread = new Thread(runnable, "AgentDataWriter-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		((ThreadPoolExecutor) this.executor).allowCoreThreadTimeOut(true);
+		log.debug("Type=AgentEngine AgentDataWritePipeline created with maxInFlightChunksPerEngine={} maxInFlightChunksPerRoutingKey={}",
+				engineLimit, maxInFlightPerRoutingKey);
+	}
+
+	public static synchronized AgentDataWritePipeline getInstance() {
+		if (instance == null) {
+			instance = new AgentDataWritePipeline(ApplicationConfigProvider.getInstance().getAgentDataIngestion());
+		}
+		return instance;
+	}
+
+	/**
+	 * Submit every chunk and wait for all of them. Once a chunk fails no further
+	 * chunk is submitted, the ones already in flight are awaited and the first
+	 * failure is rethrown so that the caller can nack or reject the message.
+	 *
+	 * @param routingKey
+	 * @param chunks
+	 * @param labels
+	 * @param cypherQuery
+	 * @param dbHandler
+	 * @throws InsightsCustomException
+	 */
+	public void writeChunks(String routingKey, List<List<JsonObject>> chunks, List<String> labels,
+			String cypherQuery, GraphDBHandler dbHandler) throws InsightsCustomException {
+		Semaphore slots = routingKeySlots.computeIfAbsent(routingKey, key -> new Semaphore(maxInFlightPerRoutingKey));
+		AtomicBoolean failed = new AtomicBoolean(false);
+		List<Future<JsonObject>> futures = new ArrayList<>(chunks.size());
+		try {
+			for (List<JsonObject> chunk : chunks) {
+				slots.acquire();
+				if (failed.get()) {
+					slots.release();
+					break;
+				}
+				try {
+					futures.add(executor.submit(() -> {
+						try {
+							return writeChunk(routingKey, chunk, labels, cypherQuery, dbHandler);
+						} catch (Exception e) {
+							failed.set(true);
+							throw e;
+						} finally {
+							slots.release();
+						}
+					}));
+				} catch (RuntimeException e) {
+					slots.release();
+					throw e;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			awaitAll(futures);
+			throw new InsightsCustomException("Interrupted while writing chunks for routing key " + routingKey);
+		}
+		Throwable failure = awaitAll(futures);
+		if (failure instanceof InsightsCustomException) {
+			throw (InsightsCustomException) failure;
+		} else if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure != null) {
+			throw new InsightsCustomException(failure.getMessage());
+		}
+	}
+
+	/**
+	 * Write a single chunk with the given handler, the written node ids are
+	 * added to the correlation change log. Neo4j rolls back a chunk which
+	 * returns errors, the chunk then fails so that the caller rejects the
+	 * message instead of acking data which was not written.
+	 *
+	 * @param routingKey
+	 * @param chunk
+	 * @param labels
+	 * @param cypherQuery
+	 * @param dbHandler
+	 * @return JsonObject
+	 * @throws InsightsCustomException
+	 */
+	public static JsonObject writeChunk(String routingKey, List<JsonObject> chunk, List<String> labels,
+			String cypherQuery, GraphDBHandler dbHandler) throws InsightsCustomException {
+		JsonObject graphResponse = dbHandler.bulkCreateNodes(chunk, labels, cypherQuery);
+		if (graphResponse.has("response")
+				&& graphResponse.get("response").getAsJsonObject().get("errors").getAsJsonArray().size() > 0) {
+			log.error("Unable to insert nodes for routing key: {}  error occured: {} ", routingKey, graphResponse);
+			throw new InsightsCustomException("Unable to insert " + chunk.size() + " nodes for routing key "
+					+ routingKey + " : " + graphResponse.get("response").getAsJsonObject().get("errors"));
+		}
+		CorrelationChangeLog.getInstance().record(labels, graphResponse);
+		return graphResponse;
+	}
+
+	private Throwable awaitAll(List<Future<JsonObject>> futures) {
+		Throwable failure = null;
+		boolean interrupted = false;
+		for (Future<JsonObject> future : futures) {
+			while (true) {
+				try {
+					future.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = e.getCause();
+					}
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return failure;
+	}
+}
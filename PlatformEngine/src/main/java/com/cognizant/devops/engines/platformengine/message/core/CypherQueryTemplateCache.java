@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.engines.platformengine.message.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Holds cypher statements built by the subscribers so that a statement is
+ * built once per routing key and message shape instead of once per delivery.
+ * Statements kept here must not contain record values, those are passed as
+ * parameters so that Neo4j can reuse the cached plan as well.
+ *
+ * @param <T> template type
+ */
+public class CypherQueryTemplateCache<T> {
+	private static Logger log = LogManager.getLogger(CypherQueryTemplateCache.class);
+	private static final int MAX_TEMPLATES = 1024;
+	private static final Map<String, CypherQueryTemplateCache<?>> caches = new ConcurrentHashMap<>();
+
+	private final String name;
+	private final Map<String, T> templates = new ConcurrentHashMap<>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	private CypherQueryTemplateCache(String name) {
+		this.name = name;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <T> CypherQueryTemplateCache<T> getCache(String name) {
+		return (CypherQueryTemplateCache<T>) caches.computeIfAbsent(name, CypherQueryTemplateCache::new);
+	}
+
+	/**
+	 * Return the template for the given key, building it on first use
+	 *
+	 * @param key
+	 * @param builder
+	 * @return T
+	 */
+	public T get(String key, Supplier<T> builder) {
+		T template = templates.get(key);
+		if (template != null) {
+			hits.increment();
+			return template;
+		}
+		misses.increment();
+		template = builder.get();
+		if (templates.size() >= MAX_TEMPLATES) {
+			log.debug("Type=AgentEngine Query template cache {} reached {} entries, clearing it", name, MAX_TEMPLATES);
+			templates.clear();
+		}
+		templates.put(key, template);
+		return template;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public int size() {
+		return templates.size();
+	}
+
+	/**
+	 * Log size and hit/miss counts of every cache
+	 */
+	public static void logSummary() {
+		for (CypherQueryTemplateCache<?> cache : caches.values()) {
+			log.info("Type=AgentEngine queryTemplateCache={} size={} hits={} misses={} ", cache.name, cache.size(),
+					cache.getHitCount(), cache.getMissCount());
+		}
+	}
+}
@@ -16,26 +16,102 @@
 package com.cognizant.devops.engines.platformengine.message.factory;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Envelope;
 
 public abstract class EngineSubscriberResponseHandler {
 	private Channel channel;
+	private final List<Channel> consumerChannels = new CopyOnWriteArrayList<>();
+	private final ThreadLocal<Channel> deliveryChannel = new ThreadLocal<>();
 	private EngineSubscriberResponseHandler engineSubscriberResponseHandler;
+	private String routingKey;
 	public EngineSubscriberResponseHandler(String routingKey) throws Exception{
+		register(routingKey);
+	}
+	
+	/**
+	 * For subclasses that need their own fields set before the consumers start,
+	 * they call {@link #register(String)} at the end of their constructor.
+	 */
+	protected EngineSubscriberResponseHandler() {
+	}
+	
+	protected void register(String routingKey) throws Exception {
 		engineSubscriberResponseHandler = this;
+		this.routingKey = routingKey;
 		MessageSubscriberFactory.getInstance().registerSubscriber(routingKey, engineSubscriberResponseHandler);
 	}
 	
+	/**
+	 * Cancel the consumers of this subscriber and close their channels
+	 * 
+	 * @throws Exception
+	 */
+	public void close() throws Exception {
+		if (routingKey != null) {
+			MessageSubscriberFactory.getInstance().unregisterSubscriber(routingKey, this);
+		}
+	}
+	
 	public abstract void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException;
 	
+	/**
+	 * Number of unacknowledged messages the broker may push to this subscriber,
+	 * called while the subscriber is registered.
+	 * 
+	 * @return int
+	 */
+	public int getPrefetchCount() {
+		return ApplicationConfigProvider.getInstance().getMessageQueue().getPrefetchCount();
+	}
 	
+	/**
+	 * Number of consumers, each on its own channel, registered for the routing
+	 * key. Called when the subscriber registers.
+	 * 
+	 * @param routingKey
+	 * @return int
+	 */
+	public int getConsumerCount(String routingKey) {
+		return 1;
+	}
+	
+	/**
+	 * Channel of the delivery being handled on the calling thread, or the first
+	 * channel of the consumer group. Delivery tags must be acked on the channel
+	 * they came from.
+	 * 
+	 * @return Channel
+	 */
 	public Channel getChannel() {
-		return channel;
+		Channel current = deliveryChannel.get();
+		return current != null ? current : channel;
 	}
 	public void setChannel(Channel channel) {
 		this.channel = channel;
 	}
+	
+	public List<Channel> getConsumerChannels() {
+		return consumerChannels;
+	}
+	
+	void addConsumerChannel(Channel consumerChannel) {
+		if (consumerChannels.isEmpty()) {
+			setChannel(consumerChannel);
+		}
+		consumerChannels.add(consumerChannel);
+	}
+	
+	void setDeliveryChannel(Channel consumerChannel) {
+		if (consumerChannel == null) {
+			deliveryChannel.remove();
+		} else {
+			deliveryChannel.set(consumerChannel);
+		}
+	}
 }
@@ -16,6 +16,7 @@
 package com.cognizant.devops.engines.platformengine.message.factory;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.TimeoutException;
 
 import org.apache.logging.log4j.LogManager;
@@ -48,30 +49,53 @@ public class MessageSubscriberFactory {
 		}
 	}
 
+	/**
+	 * Register the consumer group of a routing key, getConsumerCount consumers
+	 * on the same queue, each with its own channel and prefetch so that the
+	 * broker can dispatch to them in parallel.
+	 */
 	public void registerSubscriber(String routingKey, final EngineSubscriberResponseHandler responseHandler)
 			throws IOException, InsightsCustomException {
 		String queueName = routingKey.replace(".", "_");
-		Channel channel = RabbitMQConnectionProvider.getChannel(routingKey, queueName,MQMessageConstants.EXCHANGE_NAME,MQMessageConstants.EXCHANGE_TYPE);
-		responseHandler.setChannel(channel);
-		log.debug("prefetchCount {} for routingKey {} ",
-				ApplicationConfigProvider.getInstance().getMessageQueue().getPrefetchCount(), routingKey);
-		Consumer consumer = new DefaultConsumer(channel) {
-			@Override
-			public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties,
-					byte[] body) throws IOException {
-				try {
-					responseHandler.handleDelivery(consumerTag, envelope, properties, body);
-				} catch (Exception e) {
-					log.error("Error : ", e);
-				}
+		int consumerCount = Math.max(1, responseHandler.getConsumerCount(routingKey));
+		int prefetchCount = responseHandler.getPrefetchCount();
+		for (int i = 0; i < consumerCount; i++) {
+			Channel channel = RabbitMQConnectionProvider.getChannel(routingKey, queueName,
+					MQMessageConstants.EXCHANGE_NAME, MQMessageConstants.EXCHANGE_TYPE);
+			responseHandler.addConsumerChannel(channel);
+			if (prefetchCount != ApplicationConfigProvider.getInstance().getMessageQueue().getPrefetchCount()) {
+				channel.basicQos(prefetchCount);
 			}
-		};
-		channel.basicConsume(queueName, false, routingKey, consumer);
+			Consumer consumer = new DefaultConsumer(channel) {
+				@Override
+				public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties,
+						byte[] body) throws IOException {
+					responseHandler.setDeliveryChannel(getChannel());
+					try {
+						responseHandler.handleDelivery(consumerTag, envelope, properties, body);
+					} catch (Exception e) {
+						log.error("Error : ", e);
+					} finally {
+						responseHandler.setDeliveryChannel(null);
+					}
+				}
+			};
+			channel.basicConsume(queueName, false, getConsumerTag(routingKey, i), consumer);
+		}
+		log.debug("prefetchCount {} consumerCount {} for routingKey {} ", prefetchCount, consumerCount, routingKey);
 	}
 
 	public void unregisterSubscriber(String routingKey, final EngineSubscriberResponseHandler responseHandler)
 			throws IOException, TimeoutException {
-		responseHandler.getChannel().basicCancel(routingKey);
-		responseHandler.getChannel().close();
+		List<Channel> channels = responseHandler.getConsumerChannels();
+		for (int i = 0; i < channels.size(); i++) {
+			channels.get(i).basicCancel(getConsumerTag(routingKey, i));
+			channels.get(i).close();
+		}
+		channels.clear();
+	}
+
+	private static String getConsumerTag(String routingKey, int consumerIndex) {
+		return consumerIndex == 0 ? routingKey : routingKey + "-" + consumerIndex;
 	}
-}
\ No newline at end of file
+}
@@ -19,11 +19,10 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.StringTokenizer;
-import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
@@ -33,19 +32,26 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.cognizant.devops.engines.platformengine.message.core.AgentDataConstants;
+import com.cognizant.devops.engines.platformengine.message.core.AgentDataConsumerLanes;
+import com.cognizant.devops.engines.platformengine.message.core.AgentDataMicroBatcher;
+import com.cognizant.devops.engines.platformengine.message.core.AgentDataThroughputMetrics;
+import com.cognizant.devops.engines.platformengine.message.core.AgentDataWritePipeline;
+import com.cognizant.devops.engines.platformengine.message.core.CypherQueryTemplateCache;
 import com.cognizant.devops.engines.platformengine.message.factory.EngineSubscriberResponseHandler;
-import com.cognizant.devops.engines.platformengine.modules.aggregator.BusinessMappingData;
+import com.cognizant.devops.engines.platformengine.modules.aggregator.BusinessMappingMatcher;
+import com.cognizant.devops.engines.platformengine.modules.correlation.CorrelationChangeLog;
 import com.cognizant.devops.engines.util.DataEnrichUtils;
+import com.cognizant.devops.platformcommons.config.AgentDataIngestionConfig;
 import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
 import com.cognizant.devops.platformcommons.constants.MQMessageConstants;
 import com.cognizant.devops.platformcommons.dal.neo4j.GraphDBHandler;
 import com.cognizant.devops.platformcommons.exception.InsightsCustomException;
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Envelope;
 
 public class AgentDataSubscriber extends EngineSubscriberResponseHandler {
@@ -65,26 +71,32 @@ public class AgentDataSubscriber extends EngineSubscriberResponseHandler {
 	private String sourceProperty;
 	private Boolean isEnrichmentRequired;
 	private String agentId;
-	List<BusinessMappingData> businessMappingList = new ArrayList<>(0);
+	private BusinessMappingMatcher businessMappingMatcher = BusinessMappingMatcher.empty();
 	private Map<String,String> loggingInfo = new ConcurrentHashMap<>();
+	private final Map<Channel, AgentDataMicroBatcher> microBatchers = new HashMap<>();
+	private AgentDataConsumerLanes consumerLanes;
+	private boolean closed = false;
+	private static final CypherQueryTemplateCache<AgentDataQueryTemplate> queryTemplateCache = CypherQueryTemplateCache
+			.getCache("AgentData");
 
 	public AgentDataSubscriber(String routingKey, String category, String labelName, String toolName,
-			List<BusinessMappingData> businessMappingList, boolean isEnrichmentRequired, String targetProperty,
+			BusinessMappingMatcher businessMappingMatcher, boolean isEnrichmentRequired, String targetProperty,
 			String keyPattern, String sourceProperty, String agentId) throws Exception {
-		super(routingKey);
+		super();
 		this.category = category;
 		this.toolName = toolName;
 		this.labelName = labelName;
-		this.businessMappingList = businessMappingList;
+		this.businessMappingMatcher = businessMappingMatcher;
 		this.isEnrichmentRequired = isEnrichmentRequired;
 		this.targetProperty = targetProperty;
 		this.keyPattern = keyPattern;
 		this.sourceProperty = sourceProperty;
 		this.agentId = agentId;
+		register(routingKey);
 	}
 
-	public void setMappingData(List<BusinessMappingData> businessMappingList) {
-		this.businessMappingList = businessMappingList;
+	public void setMappingData(BusinessMappingMatcher businessMappingMatcher) {
+		this.businessMappingMatcher = businessMappingMatcher;
 	}
 
 	@Override
@@ -99,51 +111,14 @@ public class AgentDataSubscriber extends EngineSubscriberResponseHandler {
 			log.debug(
 					" Type=AgentEngine toolName={} category={} agentId={} routingKey={} dataSize={} execId={} ProcessingTime={} Data ==== Routing key in data {} received data size {} ",
 					toolName, category, agentId, routingKey, message.length(), "-", 0, routingKey, message.length());
-			List<String> labels = new ArrayList<>();
-			labels.add("RAW");
-			if (this.labelName == null) {
-				labels.addAll(Arrays.asList(routingKey.split(MQMessageConstants.ROUTING_KEY_SEPERATOR)));
-			} else {
-				labels.add(this.category.toUpperCase());
-				labels.add(this.toolName.toUpperCase());
-				labels.add(this.labelName);
-				labels.add("DATA");
-			}
-
 			List<JsonObject> dataList = new ArrayList<>();
 			JsonElement json = new JsonParser().parse(message);
-			boolean dataUpdateSupported = false;
-			String uniqueKey = "";
-			JsonObject relationMetadata = null;
+			JsonObject metadata = null;
 			if (json.isJsonObject()) {
 				JsonObject messageObject = json.getAsJsonObject();
 				json = messageObject.get("data");
 				if (messageObject.has("metadata")) {
-					JsonObject metadata = messageObject.get("metadata").getAsJsonObject();
-					if (metadata.has(AgentDataConstants.LABELS)) {
-						JsonArray additionalLabels = metadata.get(AgentDataConstants.LABELS).getAsJsonArray();
-						for (JsonElement additionalLabel : additionalLabels) {
-							String label = additionalLabel.getAsString();
-							if (!labels.contains(label)) {
-								labels.add(label);
-							}
-						}
-					}
-					if (metadata.has("dataUpdateSupported")) {
-						dataUpdateSupported = metadata.get("dataUpdateSupported").getAsBoolean();
-					}
-					if (metadata.has("uniqueKey")) {
-						JsonArray uniqueKeyArray = metadata.getAsJsonArray("uniqueKey");
-						StringBuffer keys = new StringBuffer();
-						for (JsonElement key : uniqueKeyArray) {
-							keys.append(key.getAsString()).append(",");
-						}
-						keys.delete(keys.length() - 1, keys.length());
-						uniqueKey = keys.toString();
-					}
-					if (metadata.has("relation")) {
-						relationMetadata = metadata.get("relation").getAsJsonObject();
-					}
+					metadata = messageObject.get("metadata").getAsJsonObject();
 				}
 			}
 
@@ -178,100 +153,264 @@ public class AgentDataSubscriber extends EngineSubscriberResponseHandler {
 					}
 				}
 
-				String cypherQuery = "";
-				String queryLabel = "";
-				for (String label : labels) {
-					if (label != null && label.trim().length() > 0) {
-						queryLabel += ":" + label;
-					}
-				}
-				if (relationMetadata != null) {
-					cypherQuery = buildRelationCypherQuery(relationMetadata, queryLabel);
-				} else if (dataUpdateSupported) {
-					cypherQuery = buildCypherQuery(queryLabel, uniqueKey);
-				} else {
-					cypherQuery = "UNWIND {props} AS properties CREATE (n" + queryLabel
-							+ ") set n=properties return count(n)";
-				}
+				AgentDataQueryTemplate queryTemplate = getQueryTemplate(routingKey, metadata);
+				List<String> labels = queryTemplate.labels;
+				String cypherQuery = queryTemplate.cypherQuery;
 
-				List<List<JsonObject>> partitionList = partitionList(dataList, 1000);
-				for (List<JsonObject> chunk : partitionList) {
-					JsonObject graphResponse = dbHandler.bulkCreateNodes(chunk, labels, cypherQuery);
-					if (graphResponse.get("response").getAsJsonObject().get("errors").getAsJsonArray().size() > 0) {
-						log.error("Unable to insert nodes for routing key: {}  error occured: {} ", routingKey,
-								graphResponse);
+				AgentDataConsumerLanes lanes = getConsumerLanes(routingKey);
+				int chunkCount;
+				if (lanes != null) {
+					chunkCount = lanes.write(dataList, queryTemplate.uniqueKeys,
+							records -> writeRecords(routingKey, records, labels, cypherQuery));
+				} else {
+					AgentDataMicroBatcher batcher = getMicroBatcher(routingKey);
+					if (batcher != null) {
+						if (dataList.size() < batcher.getMaxRecords()) {
+							// acked by the batcher once the batch is written
+							batcher.add(cypherQuery, labels, dataList, envelope.getDeliveryTag());
+							return;
+						}
+						batcher.flush(cypherQuery);
 					}
+					chunkCount = writeRecords(routingKey, dataList, labels, cypherQuery);
 				}
 				long processingTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+				AgentDataThroughputMetrics.recordSuccess(routingKey, dataList.size(), chunkCount, processingTime);
 				log.debug(
-						" Type=AgentEngine toolName={} category={} agentId={} routingKey={} dataSize={} execId={} ProcessingTime={} Data ==== Processingtime={} ms",
-						toolName, category, agentId, "-", 0, loggingInfo.get("execId"), processingTime, processingTime);
-				getChannel().basicAck(envelope.getDeliveryTag(), false);
+						" Type=AgentEngine toolName={} category={} agentId={} routingKey={} dataSize={} execId={} ProcessingTime={} Data ==== Processingtime={} ms chunks={} recordsPerSecond={}",
+						toolName, category, agentId, "-", 0, loggingInfo.get("execId"), processingTime, processingTime,
+						chunkCount, AgentDataThroughputMetrics.getRecordsPerSecond(dataList.size(), processingTime));
+				synchronized (getChannel()) {
+					getChannel().basicAck(envelope.getDeliveryTag(), false);
+				}
 			}
 		} catch (ProcessingException e) {
+			AgentDataThroughputMetrics.recordFailure(envelope.getRoutingKey());
 			log.error(" toolName={} category={} agentId={} execId={} ProcessingException occured ", toolName, category,
 					agentId, loggingInfo.get("execId"), e);
-			getChannel().basicNack(envelope.getDeliveryTag(), false, true);
+			synchronized (getChannel()) {
+				getChannel().basicNack(envelope.getDeliveryTag(), false, true);
+			}
 		} catch (InsightsCustomException e) {
+			AgentDataThroughputMetrics.recordFailure(envelope.getRoutingKey());
 			log.error("Error in payload {} ",message);
 			log.error(" toolName={} category={} agentId={} execId={} InsightsCustomException occured  ", toolName,
 					category, agentId, loggingInfo.get("execId"), e);
-			getChannel().basicReject(envelope.getDeliveryTag(), false);
+			synchronized (getChannel()) {
+				getChannel().basicReject(envelope.getDeliveryTag(), false);
+			}
 		} catch (Exception e) {
+			AgentDataThroughputMetrics.recordFailure(envelope.getRoutingKey());
 			log.error("Error in payload {} ",message);
 			log.error(" toolName={} category={} agentId={} execId={} Exception occured  ", toolName, category, agentId,
 					loggingInfo.get("execId"), e);
-			getChannel().basicReject(envelope.getDeliveryTag(), false);
+			synchronized (getChannel()) {
+				getChannel().basicReject(envelope.getDeliveryTag(), false);
+			}
 		}
 	}
 
-	private JsonObject applyDataTagging(JsonObject asJsonObject) {
-		List<String> selectedBusinessMappingArray = new ArrayList<>(0);
-		Map<String, String> labelMappingMap = new TreeMap<>();
-		for (BusinessMappingData businessMappingData : businessMappingList) {
-			Map<String, String> map = businessMappingData.getPropertyMap();
-			int totalCount = businessMappingData.getPropertyMap().size();
-			int matchLabelcount = 0;
-			for (Entry<String, String> mapValue : map.entrySet()) {
-				if (asJsonObject.has(mapValue.getKey())) {
-					String jsonValue = asJsonObject.get(mapValue.getKey()).getAsString();
-					if (jsonValue.equalsIgnoreCase(mapValue.getValue())) {
-						matchLabelcount++;
+	/**
+	 * Labels and cypher query only depend on the routing key and the message
+	 * metadata, so they are built once per metadata signature and reused
+	 */
+	private AgentDataQueryTemplate getQueryTemplate(String routingKey, JsonObject metadata) {
+		String signature = metadata == null ? "" : metadata.toString();
+		boolean recordChanges = CorrelationChangeLog.isEnabled();
+		return queryTemplateCache.get(routingKey + "|" + recordChanges + "|" + signature,
+				() -> buildQueryTemplate(routingKey, metadata, recordChanges));
+	}
+
+	/**
+	 * @param routingKey
+	 * @param metadata
+	 * @param recordChanges return the written node ids for the correlation change
+	 *                      log
+	 * @return AgentDataQueryTemplate
+	 */
+	private AgentDataQueryTemplate buildQueryTemplate(String routingKey, JsonObject metadata,
+			boolean recordChanges) {
+		List<String> labels = new ArrayList<>();
+		labels.add("RAW");
+		if (this.labelName == null) {
+			labels.addAll(Arrays.asList(routingKey.split(MQMessageConstants.ROUTING_KEY_SEPERATOR)));
+		} else {
+			labels.add(this.category.toUpperCase());
+			labels.add(this.toolName.toUpperCase());
+			labels.add(this.labelName);
+			labels.add("DATA");
+		}
+		boolean dataUpdateSupported = false;
+		String uniqueKey = "";
+		JsonObject relationMetadata = null;
+		if (metadata != null) {
+			if (metadata.has(AgentDataConstants.LABELS)) {
+				JsonArray additionalLabels = metadata.get(AgentDataConstants.LABELS).getAsJsonArray();
+				for (JsonElement additionalLabel : additionalLabels) {
+					String label = additionalLabel.getAsString();
+					if (!labels.contains(label)) {
+						labels.add(label);
 					}
 				}
 			}
-			if (totalCount == matchLabelcount) {
-				selectedBusinessMappingArray.add(businessMappingData.getBusinessMappingLabel());
+			if (metadata.has("dataUpdateSupported")) {
+				dataUpdateSupported = metadata.get("dataUpdateSupported").getAsBoolean();
+			}
+			if (metadata.has("uniqueKey")) {
+				JsonArray uniqueKeyArray = metadata.getAsJsonArray("uniqueKey");
+				StringBuilder keys = new StringBuilder();
+				for (JsonElement key : uniqueKeyArray) {
+					keys.append(key.getAsString()).append(",");
+				}
+				keys.delete(keys.length() - 1, keys.length());
+				uniqueKey = keys.toString();
+			}
+			if (metadata.has("relation")) {
+				relationMetadata = metadata.get("relation").getAsJsonObject();
 			}
 		}
 
-		if (!selectedBusinessMappingArray.isEmpty()) {
-			for (int i = 0; i < selectedBusinessMappingArray.size(); i++) {
-				StringTokenizer sk = new StringTokenizer(selectedBusinessMappingArray.get(i), ":");
-				int level = 0;
-				while (sk.hasMoreTokens()) {
-					String token = sk.nextToken();
-					level++;
-					String key = "orgLevel_" + level;
-					if (!labelMappingMap.containsKey(key)) {
-						labelMappingMap.put(key, token);
-					} else {
-						if (!labelMappingMap.get(key).contains(token)) {
-							labelMappingMap.put(key, labelMappingMap.get(key).concat("," + token));
-						}
-					}
-				}
+		StringBuilder queryLabel = new StringBuilder();
+		for (String label : labels) {
+			if (label != null && label.trim().length() > 0) {
+				queryLabel.append(":").append(label);
+			}
+		}
+		String cypherQuery;
+		if (relationMetadata != null) {
+			cypherQuery = buildRelationCypherQuery(relationMetadata, queryLabel.toString());
+			if (recordChanges) {
+				cypherQuery += " RETURN collect(distinct id(source)) + collect(distinct id(destination)) as "
+						+ CorrelationChangeLog.NODE_IDS;
 			}
-			JsonParser jsonParser = new JsonParser();
-			Gson gson = new Gson();
-			for (Entry<String, String> entry : labelMappingMap.entrySet()) {
-				List<String> items = Arrays.asList(entry.getValue().split("\\s*,\\s*"));
-				JsonArray jsonArray = (JsonArray) jsonParser.parse(items.toString());
-				asJsonObject.add(entry.getKey(), jsonArray);
+		} else if (dataUpdateSupported) {
+			cypherQuery = buildCypherQuery(queryLabel.toString(), uniqueKey);
+			if (recordChanges) {
+				cypherQuery += ", " + CorrelationChangeLog.getNodeIdsReturnItem("node");
 			}
+		} else {
+			cypherQuery = "UNWIND {props} AS properties CREATE (n" + queryLabel + ") set n=properties return count(n)";
+			if (recordChanges) {
+				cypherQuery += ", " + CorrelationChangeLog.getNodeIdsReturnItem("n");
+			}
+		}
+		List<String> uniqueKeys = Collections.emptyList();
+		if (relationMetadata == null && dataUpdateSupported && !uniqueKey.isEmpty()) {
+			uniqueKeys = Collections.unmodifiableList(Arrays.asList(uniqueKey.split(",")));
+		}
+		return new AgentDataQueryTemplate(Collections.unmodifiableList(labels), cypherQuery, uniqueKeys);
+	}
+
+	/**
+	 * With uniqueKey ordering only one message is in flight, so a requeued
+	 * message is redelivered before any newer upsert of the same entity.
+	 */
+	@Override
+	public int getPrefetchCount() {
+		AgentDataIngestionConfig ingestionConfig = ApplicationConfigProvider.getInstance().getAgentDataIngestion();
+		if (ingestionConfig.isEnableUniqueKeyOrdering()) {
+			return 1;
+		}
+		if (ingestionConfig.isEnableMicroBatching()) {
+			return Math.max(super.getPrefetchCount(), ingestionConfig.getMicroBatchMaxMessages());
+		}
+		return super.getPrefetchCount();
+	}
+
+	/**
+	 * Consumers of a routing key, set per tool category. With uniqueKey ordering
+	 * the routing key keeps a single consumer and the records are spread over
+	 * that many lanes instead, so that upserts of one entity stay in order.
+	 */
+	@Override
+	public int getConsumerCount(String routingKey) {
+		AgentDataIngestionConfig ingestionConfig = ApplicationConfigProvider.getInstance().getAgentDataIngestion();
+		if (ingestionConfig.isEnableUniqueKeyOrdering()) {
+			return 1;
+		}
+		return ingestionConfig.getConsumerCount(getToolCategory(routingKey));
+	}
+
+	private static String getToolCategory(String routingKey) {
+		return routingKey.split(MQMessageConstants.ROUTING_KEY_SEPERATOR)[0];
+	}
+
+	private synchronized AgentDataConsumerLanes getConsumerLanes(String routingKey) {
+		AgentDataIngestionConfig ingestionConfig = ApplicationConfigProvider.getInstance().getAgentDataIngestion();
+		if (!ingestionConfig.isEnableUniqueKeyOrdering()) {
+			return null;
+		}
+		if (consumerLanes == null) {
+			int laneCount = ingestionConfig.getConsumerCount(getToolCategory(routingKey));
+			if (laneCount < 2) {
+				return null;
+			}
+			consumerLanes = new AgentDataConsumerLanes(routingKey, laneCount);
+		}
+		return consumerLanes;
+	}
+
+	/**
+	 * Delivery tags are scoped to their channel, so each consumer channel has
+	 * its own batcher
+	 */
+	private synchronized AgentDataMicroBatcher getMicroBatcher(String routingKey) {
+		AgentDataIngestionConfig ingestionConfig = ApplicationConfigProvider.getInstance().getAgentDataIngestion();
+		if (closed || !ingestionConfig.isEnableMicroBatching() || ingestionConfig.isEnableUniqueKeyOrdering()) {
+			return null;
+		}
+		return microBatchers.computeIfAbsent(getChannel(),
+				channel -> new AgentDataMicroBatcher(routingKey, channel, ingestionConfig,
+						(query, queryLabels, records) -> writeRecords(routingKey, records, queryLabels, query)));
+	}
 
+	/**
+	 * Write the records in chunks, either one after another or through the
+	 * write pipeline when pipelined writes are enabled
+	 * 
+	 * @return number of chunks written
+	 */
+	private int writeRecords(String routingKey, List<JsonObject> dataList, List<String> labels, String cypherQuery)
+			throws InsightsCustomException {
+		AgentDataIngestionConfig ingestionConfig = ApplicationConfigProvider.getInstance().getAgentDataIngestion();
+		List<List<JsonObject>> partitionList = partitionList(dataList, Math.max(1, ingestionConfig.getChunkSize()));
+		if (ingestionConfig.isEnablePipelinedWrite() && partitionList.size() > 1) {
+			AgentDataWritePipeline.getInstance().writeChunks(routingKey, partitionList, labels, cypherQuery,
+					dbHandler);
+		} else {
+			for (List<JsonObject> chunk : partitionList) {
+				AgentDataWritePipeline.writeChunk(routingKey, chunk, labels, cypherQuery, dbHandler);
+			}
+		}
+		return partitionList.size();
+	}
+
+	/**
+	 * Write and ack the pending micro batches while the channels are open, then
+	 * stop consuming and release the consumer lanes
+	 */
+	@Override
+	public void close() throws Exception {
+		List<AgentDataMicroBatcher> batchers;
+		synchronized (this) {
+			closed = true;
+			batchers = new ArrayList<>(microBatchers.values());
+			microBatchers.clear();
+		}
+		for (AgentDataMicroBatcher batcher : batchers) {
+			batcher.close();
 		}
-		return asJsonObject;
+		super.close();
+		synchronized (this) {
+			if (consumerLanes != null) {
+				consumerLanes.shutdown();
+				consumerLanes = null;
+			}
+		}
+	}
+
+	private JsonObject applyDataTagging(JsonObject asJsonObject) {
+		return businessMappingMatcher.applyDataTagging(asJsonObject);
 	}
 
 
@@ -395,4 +534,16 @@ public class AgentDataSubscriber extends EngineSubscriberResponseHandler {
         return cypherQuery.toString();
     }
 
-}
\ No newline at end of file
+	private static final class AgentDataQueryTemplate {
+		private final List<String> labels;
+		private final String cypherQuery;
+		private final List<String> uniqueKeys;
+
+		private AgentDataQueryTemplate(List<String> labels, String cypherQuery, List<String> uniqueKeys) {
+			this.labels = labels;
+			this.cypherQuery = cypherQuery;
+			this.uniqueKeys = uniqueKeys;
+		}
+	}
+
+}
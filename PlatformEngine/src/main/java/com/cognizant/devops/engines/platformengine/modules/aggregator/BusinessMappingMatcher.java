@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.engines.platformengine.modules.aggregator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.TreeMap;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Business mappings of one tool compiled for online data tagging. Mapping
+ * values are indexed by property name and case folded value, so tagging a
+ * record only looks at the record's own properties instead of comparing it
+ * with every mapping. The orgLevel values of each mapping label are split
+ * and parsed once here as well.
+ */
+public class BusinessMappingMatcher {
+	private static final String ORG_LEVEL = "orgLevel_";
+	private static final BusinessMappingMatcher EMPTY = new BusinessMappingMatcher(new ArrayList<>(0));
+
+	private final Map<String, Map<String, List<Integer>>> valueIndex = new HashMap<>();
+	private final List<Integer> unconditionalMappings = new ArrayList<>();
+	private final int[] propertyCounts;
+	private final List<List<List<JsonElement>>> mappingOrgLevels = new ArrayList<>();
+
+	public BusinessMappingMatcher(List<BusinessMappingData> businessMappingList) {
+		JsonParser jsonParser = new JsonParser();
+		propertyCounts = new int[businessMappingList.size()];
+		for (int i = 0; i < businessMappingList.size(); i++) {
+			BusinessMappingData businessMappingData = businessMappingList.get(i);
+			Map<String, String> propertyMap = businessMappingData.getPropertyMap();
+			propertyCounts[i] = propertyMap.size();
+			if (propertyMap.isEmpty()) {
+				unconditionalMappings.add(i);
+			}
+			for (Entry<String, String> property : propertyMap.entrySet()) {
+				if (property.getValue() == null) {
+					continue;
+				}
+				valueIndex.computeIfAbsent(property.getKey(), key -> new HashMap<>())
+						.computeIfAbsent(foldCase(property.getValue()), value -> new ArrayList<>()).add(i);
+			}
+			mappingOrgLevels.add(parseOrgLevels(businessMappingData.getBusinessMappingLabel(), jsonParser));
+		}
+	}
+
+	public static BusinessMappingMatcher empty() {
+		return EMPTY;
+	}
+
+	public boolean isEmpty() {
+		return propertyCounts.length == 0;
+	}
+
+	/**
+	 * Add orgLevel_n arrays of all mappings matching the record. A mapping
+	 * matches when every one of its properties is present in the record with
+	 * the same value ignoring case.
+	 *
+	 * @param record
+	 * @return the same record
+	 */
+	public JsonObject applyDataTagging(JsonObject record) {
+		if (isEmpty()) {
+			return record;
+		}
+		Map<Integer, Integer> matchCounts = new HashMap<>();
+		for (Entry<String, JsonElement> property : record.entrySet()) {
+			Map<String, List<Integer>> valueMappings = valueIndex.get(property.getKey());
+			if (valueMappings == null) {
+				continue;
+			}
+			List<Integer> candidates = valueMappings.get(foldCase(property.getValue().getAsString()));
+			if (candidates != null) {
+				for (Integer candidate : candidates) {
+					matchCounts.merge(candidate, 1, Integer::sum);
+				}
+			}
+		}
+		List<Integer> selectedMappings = new ArrayList<>(unconditionalMappings);
+		for (Entry<Integer, Integer> matchCount : matchCounts.entrySet()) {
+			if (matchCount.getValue() == propertyCounts[matchCount.getKey()]) {
+				selectedMappings.add(matchCount.getKey());
+			}
+		}
+		if (selectedMappings.isEmpty()) {
+			return record;
+		}
+		selectedMappings.sort(null);
+
+		Map<String, Set<JsonElement>> orgLevelValues = new TreeMap<>();
+		for (Integer mapping : selectedMappings) {
+			List<List<JsonElement>> orgLevels = mappingOrgLevels.get(mapping);
+			for (int level = 0; level < orgLevels.size(); level++) {
+				orgLevelValues.computeIfAbsent(ORG_LEVEL + (level + 1), key -> new LinkedHashSet<>())
+						.addAll(orgLevels.get(level));
+			}
+		}
+		for (Entry<String, Set<JsonElement>> entry : orgLevelValues.entrySet()) {
+			JsonArray jsonArray = new JsonArray();
+			for (JsonElement value : entry.getValue()) {
+				jsonArray.add(value);
+			}
+			record.add(entry.getKey(), jsonArray);
+		}
+		return record;
+	}
+
+	/**
+	 * Split a label like ORG:BU:PROJECT into its levels, each level holding the
+	 * comma separated values of that token as JSON values.
+	 */
+	private static List<List<JsonElement>> parseOrgLevels(String businessMappingLabel, JsonParser jsonParser) {
+		List<List<JsonElement>> orgLevels = new ArrayList<>();
+		if (businessMappingLabel == null) {
+			return orgLevels;
+		}
+		StringTokenizer sk = new StringTokenizer(businessMappingLabel, ":");
+		while (sk.hasMoreTokens()) {
+			List<JsonElement> levelValues = new ArrayList<>();
+			for (String item : sk.nextToken().split("\\s*,\\s*")) {
+				levelValues.add(parseOrgLevelValue(item, jsonParser));
+			}
+			orgLevels.add(levelValues);
+		}
+		return orgLevels;
+	}
+
+	private static JsonElement parseOrgLevelValue(String item, JsonParser jsonParser) {
+		try {
+			JsonArray parsed = jsonParser.parse(Arrays.asList(item).toString()).getAsJsonArray();
+			if (parsed.size() == 1 && parsed.get(0).isJsonPrimitive()) {
+				return parsed.get(0);
+			}
+		} catch (RuntimeException e) {
+			// not a bare JSON value, e.g. contains spaces, keep it as text
+		}
+		return new JsonPrimitive(item);
+	}
+
+	/**
+	 * Fold a value the same way String.equalsIgnoreCase compares characters, so
+	 * that equal folded values mean equalsIgnoreCase would have matched
+	 */
+	static String foldCase(String value) {
+		char[] chars = value.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+		}
+		return new String(chars);
+	}
+}
@@ -26,6 +26,8 @@ import java.util.TimerTask;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.cognizant.devops.engines.platformengine.message.core.AgentDataThroughputMetrics;
+import com.cognizant.devops.engines.platformengine.message.core.CypherQueryTemplateCache;
 import com.cognizant.devops.engines.platformengine.message.core.EngineStatusLogger;
 import com.cognizant.devops.engines.platformengine.message.factory.EngineSubscriberResponseHandler;
 import com.cognizant.devops.engines.platformengine.message.subscriber.AgentDataSubscriber;
@@ -33,6 +35,7 @@ import com.cognizant.devops.engines.platformengine.message.subscriber.AgentHealt
 import com.cognizant.devops.platformcommons.config.ApplicationConfigInterface;
 import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
 import com.cognizant.devops.platformcommons.constants.PlatformServiceConstants;
+import com.cognizant.devops.platformcommons.dal.HttpRouteConnectionLimiter;
 import com.cognizant.devops.platformcommons.dal.neo4j.GraphDBHandler;
 import com.cognizant.devops.platformcommons.dal.neo4j.GraphResponse;
 import com.cognizant.devops.platformcommons.dal.neo4j.NodeData;
@@ -63,18 +66,21 @@ public class EngineAggregatorModule extends TimerTask implements ApplicationConf
 			AgentConfigDAL agentConfigDal = new AgentConfigDAL();
 			List<AgentConfig> allAgentConfigurations = agentConfigDal.getAllEngineAggregatorAgentConfigurations();
 			boolean enableOnlineDatatagging = ApplicationConfigProvider.getInstance().isEnableOnlineDatatagging();
-			Map<String, List<BusinessMappingData>> businessMappinMap = new HashMap<>(0);
+			Map<String, BusinessMappingMatcher> businessMappinMap = new HashMap<>(0);
 			if (enableOnlineDatatagging) {
 				businessMappinMap = getMetaData(graphDBHandler);
 			}
-			for (AgentConfig agentConfig : allAgentConfigurations) {
-				String toolName = agentConfig.getToolName().toUpperCase();
-				List<BusinessMappingData> businessMappingList = businessMappinMap.get(toolName);
-				if (businessMappingList == null) {
-					businessMappingList = new ArrayList<>(0);
+			synchronized (EngineAggregatorModule.class) {
+				for (AgentConfig agentConfig : allAgentConfigurations) {
+					String toolName = agentConfig.getToolName().toUpperCase();
+					BusinessMappingMatcher businessMappingMatcher = businessMappinMap.getOrDefault(toolName,
+							BusinessMappingMatcher.empty());
+					registerAggragators(agentConfig, graphDBHandler, toolName, businessMappingMatcher);
 				}
-				registerAggragators(agentConfig, graphDBHandler, toolName, businessMappingList);
 			}
+			AgentDataThroughputMetrics.logSummary();
+			CypherQueryTemplateCache.logSummary();
+			HttpRouteConnectionLimiter.getInstance().logSummary();
 		}catch(InsightsCustomException e ) {
 			log.error("Error while loading Engine Aggregator Module ",e);
 			EngineStatusLogger.getInstance().createEngineStatusNode(
@@ -84,8 +90,23 @@ public class EngineAggregatorModule extends TimerTask implements ApplicationConf
 		log.debug(" EngineAggregatorModule Completed ====");
 	}
 
+	/**
+	 * Stop all agent data and health subscribers, called when the engine shuts
+	 * down
+	 */
+	public static synchronized void closeSubscribers() {
+		for (Map.Entry<String, EngineSubscriberResponseHandler> entry : registry.entrySet()) {
+			try {
+				entry.getValue().close();
+			} catch (Exception e) {
+				log.error("Unable to close subscriber for routing key: {}", entry.getKey(), e);
+			}
+		}
+		registry.clear();
+	}
+
 	private void registerAggragators(AgentConfig agentConfig, GraphDBHandler graphDBHandler, String toolName,
-			List<BusinessMappingData> businessMappingList) {
+			BusinessMappingMatcher businessMappingMatcher) {
 			Boolean isEnrichmentRequired= false;
 		String targetProperty="";
 		String keyPattern="";
@@ -109,7 +130,7 @@ public class EngineAggregatorModule extends TimerTask implements ApplicationConf
 			if (dataRoutingKey != null && !registry.containsKey(dataRoutingKey)) {
 				try {
 					registry.put(dataRoutingKey, new AgentDataSubscriber(dataRoutingKey,
-							agentConfig.getToolCategory(), agentConfig.getLabelName(), toolName, businessMappingList,isEnrichmentRequired, targetProperty,
+							agentConfig.getToolCategory(), agentConfig.getLabelName(), toolName, businessMappingMatcher,isEnrichmentRequired, targetProperty,
 							keyPattern,sourceProperty,agentConfig.getAgentKey()));
 					log.debug(" Type=AgentEngine toolName={} category={} agentId={} routingKey={} dataSize={} execId={} ProcessingTime={} Successfully registered data subscriber for routing key: {}  " ,toolName,agentConfig.getToolCategory(),agentConfig.getAgentKey(),dataRoutingKey,0,"-",0,dataRoutingKey);
 				} catch (Exception e) {
@@ -123,7 +144,7 @@ public class EngineAggregatorModule extends TimerTask implements ApplicationConf
 						PlatformServiceConstants.SUCCESS);
 			} else if (registry.containsKey(dataRoutingKey)) {
 				AgentDataSubscriber dataSubscriber = (AgentDataSubscriber) registry.get(dataRoutingKey);
-				dataSubscriber.setMappingData(businessMappingList);
+				dataSubscriber.setMappingData(businessMappingMatcher);
 			}
 
 			String healthRoutingKey = json.get("health").getAsString();
@@ -154,9 +175,9 @@ public class EngineAggregatorModule extends TimerTask implements ApplicationConf
 	}
 
 
-	private Map<String, List<BusinessMappingData>> getMetaData(GraphDBHandler dbHandler) {
+	private Map<String, BusinessMappingMatcher> getMetaData(GraphDBHandler dbHandler) {
 		List<NodeData> nodes = null;
-		Map<String, List<BusinessMappingData>> businessMappinMap = new HashMap<>(0);
+		Map<String, BusinessMappingMatcher> businessMappinMap = new HashMap<>(0);
 		Set<String> additionalProperties = new HashSet<>();
 		additionalProperties.add("adminuser");
 		additionalProperties.add("inSightsTime");
@@ -196,7 +217,7 @@ public class EngineAggregatorModule extends TimerTask implements ApplicationConf
 					toolDataList.add(toolData);
 				}
 				log.debug("arg0 toolDataList {} ",  toolDataList);
-				businessMappinMap.put(toolName, toolDataList);
+				businessMappinMap.put(toolName, new BusinessMappingMatcher(toolDataList));
 			}
 		} catch (InsightsCustomException e) {
 			log.error(e);
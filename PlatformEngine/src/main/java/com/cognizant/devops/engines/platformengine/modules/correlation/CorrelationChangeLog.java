@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.engines.platformengine.modules.correlation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
+import com.cognizant.devops.platformcommons.config.CorrelationConfig;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Ids of the nodes written by the agent and webhook subscribers since the last
+ * correlation cycle, kept per label. The write statements return the ids in a
+ * nodeIds column (see {@link #getNodeIdsReturnItem(String)}), the correlator
+ * drains the ids of a destination label and only looks at those nodes.
+ * 
+ * The log is in memory, a full correlation sweep is due after engine start and
+ * every correlationFrequency hours, and for a label whose log overflowed, so
+ * nothing lost here is left uncorrelated.
+ */
+public class CorrelationChangeLog {
+	private static Logger log = LogManager.getLogger(CorrelationChangeLog.class);
+	public static final String NODE_IDS = "nodeIds";
+	private static final Set<String> IGNORED_LABELS = new HashSet<>(Arrays.asList("RAW", "DATA", "LATEST"));
+	private static final CorrelationChangeLog instance = new CorrelationChangeLog();
+
+	private final Map<String, LabelChanges> changes = new ConcurrentHashMap<>();
+	private volatile long lastFullSweepTime = 0;
+
+	private CorrelationChangeLog() {
+	}
+
+	public static CorrelationChangeLog getInstance() {
+		return instance;
+	}
+
+	public static boolean isEnabled() {
+		CorrelationConfig correlationConfig = ApplicationConfigProvider.getInstance().getCorrelations();
+		return correlationConfig != null && correlationConfig.isEnableIncrementalCorrelation();
+	}
+
+	/**
+	 * Return item to be added to a write statement so that the ids of the written
+	 * nodes come back in the response
+	 * 
+	 * @param nodeVariable
+	 * @return return item
+	 */
+	public static String getNodeIdsReturnItem(String nodeVariable) {
+		return "collect(distinct id(" + nodeVariable + ")) as " + NODE_IDS;
+	}
+
+	/**
+	 * Record the node ids found in the nodeIds column of the write response under
+	 * each of the labels
+	 * 
+	 * @param labels
+	 * @param graphResponse response of GraphDBHandler write methods
+	 */
+	public void record(Collection<String> labels, JsonObject graphResponse) {
+		if (!isEnabled() || labels == null || graphResponse == null || !graphResponse.has("response")) {
+			return;
+		}
+		List<Long> nodeIds = getNodeIds(graphResponse.getAsJsonObject("response"));
+		if (nodeIds.isEmpty()) {
+			return;
+		}
+		int maxNodesPerLabel = ApplicationConfigProvider.getInstance().getCorrelations().getChangeLogMaxNodesPerLabel();
+		for (String label : labels) {
+			if (label == null || label.trim().isEmpty() || IGNORED_LABELS.contains(label)) {
+				continue;
+			}
+			changes.compute(label, (key, labelChanges) -> {
+				LabelChanges updatedChanges = labelChanges == null ? new LabelChanges() : labelChanges;
+				updatedChanges.add(nodeIds, maxNodesPerLabel);
+				return updatedChanges;
+			});
+		}
+	}
+
+	/**
+	 * Take the changes recorded for the label, the log of the label is empty
+	 * afterwards
+	 * 
+	 * @param label
+	 * @return LabelChanges
+	 */
+	public LabelChanges drain(String label) {
+		LabelChanges labelChanges = changes.remove(String.valueOf(label));
+		if (labelChanges == null) {
+			return new LabelChanges();
+		}
+		if (labelChanges.isOverflowed()) {
+			log.debug(" Type=Correlator Change log for label {} overflowed, full correlation sweep is required", label);
+		}
+		return labelChanges;
+	}
+
+	public boolean isFullSweepDue(long fullSweepIntervalInMs) {
+		return System.currentTimeMillis() - lastFullSweepTime >= fullSweepIntervalInMs;
+	}
+
+	public void markFullSweep(long sweepStartTime) {
+		lastFullSweepTime = sweepStartTime;
+	}
+
+	private List<Long> getNodeIds(JsonObject response) {
+		List<Long> nodeIds = new ArrayList<>();
+		if (!response.has(CorrelationExecutor.RESULT)) {
+			return nodeIds;
+		}
+		for (JsonElement result : response.getAsJsonArray(CorrelationExecutor.RESULT)) {
+			JsonArray columns = result.getAsJsonObject().getAsJsonArray("columns");
+			int nodeIdsIndex = -1;
+			for (int i = 0; columns != null && i < columns.size(); i++) {
+				if (NODE_IDS.equals(columns.get(i).getAsString())) {
+					nodeIdsIndex = i;
+				}
+			}
+			if (nodeIdsIndex < 0) {
+				continue;
+			}
+			for (JsonElement data : result.getAsJsonObject().getAsJsonArray("data")) {
+				JsonElement ids = data.getAsJsonObject().getAsJsonArray("row").get(nodeIdsIndex);
+				if (ids.isJsonArray()) {
+					for (JsonElement id : ids.getAsJsonArray()) {
+						nodeIds.add(id.getAsLong());
+					}
+				}
+			}
+		}
+		return nodeIds;
+	}
+
+	/**
+	 * Node ids recorded for one label
+	 */
+	public static class LabelChanges {
+		private final Set<Long> nodeIds = new LinkedHashSet<>();
+		private boolean overflowed = false;
+
+		private void add(List<Long> ids, int maxNodes) {
+			for (Long id : ids) {
+				if (nodeIds.size() >= maxNodes) {
+					overflowed = true;
+					return;
+				}
+				nodeIds.add(id);
+			}
+		}
+
+		public List<Long> getNodeIds() {
+			return Collections.unmodifiableList(new ArrayList<>(nodeIds));
+		}
+
+		public boolean isOverflowed() {
+			return overflowed;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.engines.platformengine.modules.correlation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Per correlation counters of one correlation cycle. Lag is measured from the
+ * start of the cycle, scheduleLag is how long the correlation waited for a
+ * worker and completionLag is when it finished, so correlations that keep
+ * finishing late in the cycle are visible in the logs.
+ */
+public class CorrelationExecutionMetrics {
+	private static Logger log = LogManager.getLogger(CorrelationExecutionMetrics.class);
+	private static final Map<String, RelationMetrics> registry = new ConcurrentHashMap<>();
+
+	private CorrelationExecutionMetrics() {
+	}
+
+	public static void recordStart(String relationName, long cycleStartTime) {
+		getRelationMetrics(relationName).scheduleLagInMs.set(System.currentTimeMillis() - cycleStartTime);
+	}
+
+	public static void recordBatch(String relationName, int records, long processingTimeInMs) {
+		RelationMetrics metrics = getRelationMetrics(relationName);
+		metrics.batches.increment();
+		metrics.records.add(records);
+		metrics.processingTimeInMs.add(processingTimeInMs);
+	}
+
+	public static void recordFailure(String relationName) {
+		getRelationMetrics(relationName).failures.increment();
+	}
+
+	public static void recordEnd(String relationName, long cycleStartTime) {
+		getRelationMetrics(relationName).completionLagInMs.set(System.currentTimeMillis() - cycleStartTime);
+	}
+
+	public static double getRecordsPerSecond(long records, long processingTimeInMs) {
+		return processingTimeInMs <= 0 ? records * 1000d : (records * 1000d) / processingTimeInMs;
+	}
+
+	/**
+	 * Log the counters of every correlation run in the cycle and reset them.
+	 * 
+	 * @param execId
+	 */
+	public static void logSummary(String execId) {
+		for (Map.Entry<String, RelationMetrics> entry : registry.entrySet()) {
+			RelationMetrics metrics = entry.getValue();
+			long batches = metrics.batches.sumThenReset();
+			long records = metrics.records.sumThenReset();
+			long processingTime = metrics.processingTimeInMs.sumThenReset();
+			long failures = metrics.failures.sumThenReset();
+			log.info(
+					" Type=Correlator execId={} correlationName={} batches={} processedRecords={} failures={} ProcessingTime={} recordsPerSecond={} scheduleLagInMs={} completionLagInMs={} ",
+					execId, entry.getKey(), batches, records, failures, processingTime,
+					String.format("%.2f", getRecordsPerSecond(records, processingTime)),
+					metrics.scheduleLagInMs.getAndSet(0), metrics.completionLagInMs.getAndSet(0));
+		}
+		registry.clear();
+	}
+
+	private static RelationMetrics getRelationMetrics(String relationName) {
+		return registry.computeIfAbsent(String.valueOf(relationName), key -> new RelationMetrics());
+	}
+
+	private static class RelationMetrics {
+		private final LongAdder batches = new LongAdder();
+		private final LongAdder records = new LongAdder();
+		private final LongAdder processingTimeInMs = new LongAdder();
+		private final LongAdder failures = new LongAdder();
+		private final AtomicLong scheduleLagInMs = new AtomicLong();
+		private final AtomicLong completionLagInMs = new AtomicLong();
+	}
+}
@@ -18,9 +18,18 @@ package com.cognizant.devops.engines.platformengine.modules.correlation;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -55,6 +64,12 @@ public class CorrelationExecutor {
 	private long lastCorrelationTime;
 	private long currentCorrelationTime;
 	private int dataBatchSize;
+	private int maxParallelCorrelations;
+	private boolean enableBatchPrefetch;
+	private boolean enableIncrementalCorrelation;
+	private long correlationFrequencyInMs;
+	private boolean fullSweep = true;
+	private ExecutorService prefetchPool;
 	InsightsConfigFilesDAL configFilesDAL = new InsightsConfigFilesDAL();
 	private Map<String,String> loggingInfo = new ConcurrentHashMap<>();
 	/**
@@ -79,34 +94,200 @@ public class CorrelationExecutor {
 				log.error(" execId={} No Correlation Configuration found in DB as well as in correlation.json",loggingInfo.get("execId"));
 				return;
 			}
-			for (CorrelationConfiguration correlation : correlations) {
-				loggingInfo.put("sourceTool", String.valueOf(correlation.getSourceToolName()));
-				loggingInfo.put("destinationTool", String.valueOf(correlation.getDestinationToolName()));
-				loggingInfo.put("correlationName", String.valueOf(correlation.getRelationName()));
-				log.debug(" Type=Correlator execId={} correlationName={} sourceTool={} destinationTool={} ProcessingTime={} processedRecords={} Correlation started for {}",loggingInfo.get("execId"),loggingInfo.get("correlationName"),loggingInfo.get("sourceTool"),loggingInfo.get("destinationTool"),0,0, correlation.getRelationName());
-				if (correlation.isSelfRelation()) {
-					continue;
+			executeCorrelationGroups(getCorrelationGroups(correlations));
+			CorrelationExecutionMetrics.logSummary(loggingInfo.get("execId"));
+		} else {
+			log.error(" execId={} correlationName={} sourceTool={} destinationTool={} Correlation configuration is not provided in server-config.json.",loggingInfo.get("execId"),loggingInfo.get("correlationName"),loggingInfo.get("sourceTool"),loggingInfo.get("destinationTool"));
+		}
+	}
+
+	/**
+	 * Correlations with the same destination label update the same destination
+	 * nodes (correlationTime and RAW label), so they are kept in one group and
+	 * run one after the other.
+	 * 
+	 * @param correlations
+	 * @return correlation groups by destination label
+	 */
+	private Collection<List<CorrelationConfiguration>> getCorrelationGroups(
+			List<CorrelationConfiguration> correlations) {
+		Map<String, List<CorrelationConfiguration>> correlationGroups = new LinkedHashMap<>();
+		for (CorrelationConfiguration correlation : correlations) {
+			correlationGroups.computeIfAbsent(String.valueOf(correlation.getDestinationLabelName()),
+					label -> new ArrayList<>()).add(correlation);
+		}
+		return correlationGroups.values();
+	}
+
+	/**
+	 * Run the correlation groups concurrently, up to maxParallelCorrelations
+	 * groups at a time. Each group gets its own executor so that the logging
+	 * details of one correlation are not overwritten by another.
+	 * 
+	 * @param correlationGroups
+	 */
+	private void executeCorrelationGroups(Collection<List<CorrelationConfiguration>> correlationGroups) {
+		long cycleStartTime = System.currentTimeMillis();
+		CorrelationChangeLog changeLog = CorrelationChangeLog.getInstance();
+		fullSweep = !enableIncrementalCorrelation || changeLog.isFullSweepDue(correlationFrequencyInMs);
+		log.debug(" Type=Correlator execId={} correlationName={} sourceTool={} destinationTool={} ProcessingTime={} processedRecords={} incrementalCorrelation={} fullSweep={}",loggingInfo.get("execId"),"-","-","-",0,0,enableIncrementalCorrelation,fullSweep);
+		int parallelism = Math.max(1, Math.min(maxParallelCorrelations, correlationGroups.size()));
+		ExecutorService correlationPool = Executors.newFixedThreadPool(parallelism,
+				getThreadFactory("CorrelationExecutor-"));
+		if (enableBatchPrefetch) {
+			prefetchPool = Executors.newFixedThreadPool(parallelism, getThreadFactory("CorrelationPrefetch-"));
+		}
+		try {
+			List<Future<?>> groupResults = new ArrayList<>();
+			for (List<CorrelationConfiguration> correlationGroup : correlationGroups) {
+				CorrelationExecutor groupExecutor = createGroupExecutor();
+				groupResults.add(correlationPool
+						.submit(() -> groupExecutor.executeCorrelationGroup(correlationGroup, cycleStartTime)));
+			}
+			for (Future<?> groupResult : groupResults) {
+				try {
+					groupResult.get();
+				} catch (ExecutionException e) {
+					log.error(" execId={} Error occured while executing correlation group", loggingInfo.get("execId"),
+							e.getCause());
 				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.error(" execId={} Correlation execution interrupted", loggingInfo.get("execId"), e);
+		} finally {
+			correlationPool.shutdown();
+			if (prefetchPool != null) {
+				prefetchPool.shutdown();
+			}
+		}
+		if (enableIncrementalCorrelation && fullSweep) {
+			changeLog.markFullSweep(cycleStartTime);
+		}
+	}
+
+	private CorrelationExecutor createGroupExecutor() {
+		CorrelationExecutor groupExecutor = new CorrelationExecutor();
+		groupExecutor.maxCorrelationTime = maxCorrelationTime;
+		groupExecutor.lastCorrelationTime = lastCorrelationTime;
+		groupExecutor.currentCorrelationTime = currentCorrelationTime;
+		groupExecutor.dataBatchSize = dataBatchSize;
+		groupExecutor.enableIncrementalCorrelation = enableIncrementalCorrelation;
+		groupExecutor.fullSweep = fullSweep;
+		groupExecutor.prefetchPool = prefetchPool;
+		groupExecutor.loggingInfo.put("execId", loggingInfo.get("execId"));
+		return groupExecutor;
+	}
+
+	private ThreadFactory getThreadFactory(String namePrefix) {
+		AtomicInteger threadCount = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * With incremental correlation the node ids written to the group's
+	 * destination label since the last cycle are taken from the change log and
+	 * only those nodes are correlated. A full sweep scans the whole label, it is
+	 * done every correlationFrequency hours and when the change log overflowed.
+	 */
+	private void executeCorrelationGroup(List<CorrelationConfiguration> correlationGroup, long cycleStartTime) {
+		List<Long> changedNodeIds = Collections.emptyList();
+		boolean groupFullSweep = fullSweep;
+		if (enableIncrementalCorrelation) {
+			CorrelationChangeLog.LabelChanges changes = CorrelationChangeLog.getInstance()
+					.drain(correlationGroup.get(0).getDestinationLabelName());
+			groupFullSweep = groupFullSweep || changes.isOverflowed();
+			changedNodeIds = changes.getNodeIds();
+		}
+		for (CorrelationConfiguration correlation : correlationGroup) {
+			loggingInfo.put("sourceTool", String.valueOf(correlation.getSourceToolName()));
+			loggingInfo.put("destinationTool", String.valueOf(correlation.getDestinationToolName()));
+			loggingInfo.put("correlationName", String.valueOf(correlation.getRelationName()));
+			log.debug(" Type=Correlator execId={} correlationName={} sourceTool={} destinationTool={} ProcessingTime={} processedRecords={} Correlation started for {}",loggingInfo.get("execId"),loggingInfo.get("correlationName"),loggingInfo.get("sourceTool"),loggingInfo.get("destinationTool"),0,0, correlation.getRelationName());
+			if (correlation.isSelfRelation()) {
+				continue;
+			}
+			long st = System.currentTimeMillis();
+			CorrelationExecutionMetrics.recordStart(correlation.getRelationName(), cycleStartTime);
+			int processedRecords;
+			if (groupFullSweep) {
 				updateNodesMissingCorrelationFields(correlation);
-				int availableRecords = 1;
-				while (availableRecords > 0) {
-					List<JsonObject> sourceDataList = loadDestinationData(correlation);
-					availableRecords = sourceDataList.size();
-					if (!sourceDataList.isEmpty()) {
-						executeCorrelations(correlation, sourceDataList);
-					} else {
-						log.debug(" Type=Correlator execId={} correlationName={} sourceTool={} destinationTool={} ProcessingTime={} processedRecords={} No record found for Correlation of {}" ,loggingInfo.get("execId"),loggingInfo.get("correlationName"),loggingInfo.get("sourceTool"),loggingInfo.get("destinationTool"),0,0, correlation.getRelationName());
-					}
-				}
+				processedRecords = correlateDestinationData(correlation, null);
 				removeRawLabel(correlation);
-				log.debug(" Type=Correlator execId={} correlationName={} sourceTool={} destinationTool={} ProcessingTime={} processedRecords={} Correlation end for{}",loggingInfo.get("execId"),loggingInfo.get("correlationName"),loggingInfo.get("sourceTool"),loggingInfo.get("destinationTool"),0,0, correlation.getRelationName());
+			} else {
+				processedRecords = correlateChangedNodes(correlation, changedNodeIds);
 			}
-		} else {
-			log.error(" execId={} correlationName={} sourceTool={} destinationTool={} Correlation configuration is not provided in server-config.json.",loggingInfo.get("execId"),loggingInfo.get("correlationName"),loggingInfo.get("sourceTool"),loggingInfo.get("destinationTool"));
+			CorrelationExecutionMetrics.recordEnd(correlation.getRelationName(), cycleStartTime);
+			log.debug(" Type=Correlator execId={} correlationName={} sourceTool={} destinationTool={} ProcessingTime={} processedRecords={} Correlation end for{}",loggingInfo.get("execId"),loggingInfo.get("correlationName"),loggingInfo.get("sourceTool"),loggingInfo.get("destinationTool"),(System.currentTimeMillis() - st),processedRecords, correlation.getRelationName());
 		}
 	}
 
-	
+	/**
+	 * Correlate the destination nodes written since the last cycle, in batches of
+	 * node ids
+	 * 
+	 * @param correlation
+	 * @param changedNodeIds
+	 * @return number of correlated destination nodes
+	 */
+	private int correlateChangedNodes(CorrelationConfiguration correlation, List<Long> changedNodeIds) {
+		int processedRecords = 0;
+		int batchSize = Math.max(1, dataBatchSize);
+		for (int i = 0; i < changedNodeIds.size(); i += batchSize) {
+			processedRecords += correlateDestinationData(correlation,
+					changedNodeIds.subList(i, Math.min(changedNodeIds.size(), i + batchSize)));
+		}
+		log.debug(" Type=Correlator execId={} correlationName={} sourceTool={} destinationTool={} ProcessingTime={} processedRecords={} Incremental correlation of {} changed nodes",loggingInfo.get("execId"),loggingInfo.get("correlationName"),loggingInfo.get("sourceTool"),loggingInfo.get("destinationTool"),0,processedRecords,changedNodeIds.size());
+		return processedRecords;
+	}
+
+	/**
+	 * Load and correlate destination batches until none is left. With prefetch
+	 * enabled the next batch is loaded while the current one is committed, the
+	 * uuids of the batch in flight are excluded from that load.
+	 * 
+	 * @param correlation
+	 * @param changedNodeIds node ids to look at, null to look at the whole label
+	 * @return number of correlated destination nodes
+	 */
+	private int correlateDestinationData(CorrelationConfiguration correlation, List<Long> changedNodeIds) {
+		int processedRecords = 0;
+		List<JsonObject> sourceDataList = loadDestinationData(correlation, Collections.emptyList(), changedNodeIds);
+		while (!sourceDataList.isEmpty()) {
+			List<JsonObject> currentDataList = sourceDataList;
+			Future<List<JsonObject>> nextDataList = null;
+			if (prefetchPool != null) {
+				nextDataList = prefetchPool
+						.submit(() -> loadDestinationData(correlation, currentDataList, changedNodeIds));
+			}
+			processedRecords += executeCorrelations(correlation, currentDataList);
+			if (nextDataList != null) {
+				sourceDataList = getPrefetchedData(correlation, nextDataList, changedNodeIds);
+			} else {
+				sourceDataList = loadDestinationData(correlation, Collections.emptyList(), changedNodeIds);
+			}
+		}
+		log.debug(" Type=Correlator execId={} correlationName={} sourceTool={} destinationTool={} ProcessingTime={} processedRecords={} No record found for Correlation of {}" ,loggingInfo.get("execId"),loggingInfo.get("correlationName"),loggingInfo.get("sourceTool"),loggingInfo.get("destinationTool"),0,0, correlation.getRelationName());
+		return processedRecords;
+	}
+
+	private List<JsonObject> getPrefetchedData(CorrelationConfiguration correlation,
+			Future<List<JsonObject>> nextDataList, List<Long> changedNodeIds) {
+		try {
+			return nextDataList.get();
+		} catch (ExecutionException e) {
+			log.error(" execId={} correlationName={} sourceTool={} destinationTool={} Error occured while prefetching the destination data, loading again.",loggingInfo.get("execId"),loggingInfo.get("correlationName"),loggingInfo.get("sourceTool"),loggingInfo.get("destinationTool"), e.getCause());
+			return loadDestinationData(correlation, Collections.emptyList(), changedNodeIds);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.error(" execId={} correlationName={} sourceTool={} destinationTool={} Interrupted while prefetching the destination data.",loggingInfo.get("execId"),loggingInfo.get("correlationName"),loggingInfo.get("sourceTool"),loggingInfo.get("destinationTool"), e);
+			return Collections.emptyList();
+		}
+	}
 
 	/**
 	 * Update the destination node max time where the correlation fields are
@@ -148,21 +329,35 @@ public class CorrelationExecutor {
 	 * Identify the destination nodes which are available for building correlations
 	 * and load the uuid for source nodes.
 	 * 
-	 * @param destination
-	 * @param relName
+	 * @param correlation
+	 * @param excludedDataList batch still being correlated, its uuids are skipped
+	 * @param changedNodeIds   only these nodes are loaded, null to load from the
+	 *                         whole label
 	 * @return
 	 */
-	private List<JsonObject> loadDestinationData(CorrelationConfiguration correlation) {
+	private List<JsonObject> loadDestinationData(CorrelationConfiguration correlation,
+			List<JsonObject> excludedDataList, List<Long> changedNodeIds) {
 		log.debug(" Type=Correlator execId={} correlationName={} sourceTool={} destinationTool={} ProcessingTime={} processedRecords={} In loadDestinationData, lastCorrelationTime {} maxCorrelationTime  {} currentCorrelationTime {}",loggingInfo.get("execId"),loggingInfo.get("correlationName"),loggingInfo.get("sourceTool"),loggingInfo.get("destinationTool"),0,0,correlation.getDestinationToolName(),lastCorrelationTime,maxCorrelationTime,currentCorrelationTime);
 		List<JsonObject> destinationDataList = new ArrayList<>();
 		String destinationLabelName = correlation.getDestinationLabelName();
 		List<String> destinationFields = Arrays.asList(correlation.getDestinationFields().split("\\s*,\\s*"));
 		StringBuffer cypher = new StringBuffer();
+		boolean hasParameters = !excludedDataList.isEmpty() || changedNodeIds != null;
+		if (hasParameters) {
+			cypher.append("WITH {props} as props ");
+		}
 		cypher.append("MATCH (destination:RAW:DATA:").append(destinationLabelName).append(") ");
-		cypher.append("where not ((destination) <-[:").append(correlation.getRelationName()).append("]- (:DATA:")
+		cypher.append("where ");
+		if (changedNodeIds != null) {
+			cypher.append("id(destination) IN props.changedNodeIds AND ");
+		}
+		cypher.append("not ((destination) <-[:").append(correlation.getRelationName()).append("]- (:DATA:")
 				.append(correlation.getSourceLabelName()).append(")) ");
 		cypher.append("AND (not exists(destination.correlationTime) OR ");
 		cypher.append("destination.correlationTime < ").append(lastCorrelationTime).append(" ) ");
+		if (!excludedDataList.isEmpty()) {
+			cypher.append("AND NOT destination.uuid IN props.excludedUuids ");
+		}
 		cypher.append("AND (");
 		for (String field : destinationFields) {
 			cypher.append("exists(destination.").append(field).append(") OR ");
@@ -192,8 +387,27 @@ public class CorrelationExecutor {
 		log.debug(" Type=Correlator execId={} correlationName={} sourceTool={} destinationTool={} ProcessingTime={} processedRecords={} DestinationData {} ", loggingInfo.get("execId"),loggingInfo.get("correlationName"),loggingInfo.get("sourceTool"),loggingInfo.get("destinationTool"),0,0,cypher);
 		GraphDBHandler dbHandler = new GraphDBHandler();
 		try {
-			GraphResponse response = dbHandler.executeCypherQuery(cypher.toString());
-			JsonArray rows = response.getJson().get(RESULT).getAsJsonArray().get(0).getAsJsonObject().get("data")
+			JsonObject response;
+			if (!hasParameters) {
+				response = dbHandler.executeCypherQuery(cypher.toString()).getJson();
+			} else {
+				JsonObject parameters = new JsonObject();
+				JsonArray excludedUuids = new JsonArray();
+				for (JsonObject data : excludedDataList) {
+					excludedUuids.add(data.get("uuid"));
+				}
+				parameters.add("excludedUuids", excludedUuids);
+				if (changedNodeIds != null) {
+					JsonArray nodeIds = new JsonArray();
+					for (Long nodeId : changedNodeIds) {
+						nodeIds.add(nodeId);
+					}
+					parameters.add("changedNodeIds", nodeIds);
+				}
+				response = dbHandler.executeQueryWithData(cypher.toString(), Collections.singletonList(parameters))
+						.getAsJsonObject("response");
+			}
+			JsonArray rows = response.get(RESULT).getAsJsonArray().get(0).getAsJsonObject().get("data")
 					.getAsJsonArray().get(0).getAsJsonObject().get("row").getAsJsonArray();
 			destinationDataList = new ArrayList<>();
 			if (rows.isJsonNull() || rows.size() == 0 || rows.get(0).getAsJsonArray().size() == 0) {
@@ -247,8 +461,11 @@ public class CorrelationExecutor {
 			processedRecords = correlationExecutionResponse.get("response").getAsJsonObject().get(RESULT)
 					.getAsJsonArray().get(0).getAsJsonObject().get("data").getAsJsonArray().get(0).getAsJsonObject()
 					.get("row").getAsInt();
+			CorrelationExecutionMetrics.recordBatch(correlation.getRelationName(), processedRecords,
+					System.currentTimeMillis() - st);
 			log.debug(" Type=Correlator execId={} correlationName={} sourceTool={} destinationTool={} ProcessingTime={} processedRecords={} Processed Records for correlation= {}  ",loggingInfo.get("execId"),loggingInfo.get("correlationName"),loggingInfo.get("sourceTool"),loggingInfo.get("destinationTool"),(System.currentTimeMillis() - st),processedRecords,processedRecords);
 		} catch (InsightsCustomException e) {
+			CorrelationExecutionMetrics.recordFailure(correlation.getRelationName());
 			log.error(" execId={} correlationName={} sourceTool={} destinationTool={} Error occured while executing correlations",loggingInfo.get("execId"),loggingInfo.get("correlationName"),loggingInfo.get("sourceTool"),loggingInfo.get("destinationTool"),e);
 			EngineStatusLogger.getInstance().createEngineStatusNode(
 					" Error occured while executing correlations for relation " + e.getMessage(),
@@ -392,6 +609,10 @@ public class CorrelationExecutor {
 	 */
 	private void loadCorrelationConfiguration(CorrelationConfig correlations) {
 		dataBatchSize = correlations.getBatchSize();
+		maxParallelCorrelations = correlations.getMaxParallelCorrelations();
+		enableBatchPrefetch = correlations.isEnableBatchPrefetch();
+		enableIncrementalCorrelation = correlations.isEnableIncrementalCorrelation();
+		correlationFrequencyInMs = correlations.getCorrelationFrequency() * 60L * 60 * 1000;
 		currentCorrelationTime = System.currentTimeMillis() / 1000;
 		maxCorrelationTime = currentCorrelationTime + correlations.getCorrelationWindow() * 60 * 60;
 		lastCorrelationTime = currentCorrelationTime - correlations.getCorrelationFrequency() * 60 * 60;
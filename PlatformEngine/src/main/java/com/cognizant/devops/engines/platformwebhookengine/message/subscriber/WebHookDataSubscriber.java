@@ -17,28 +17,41 @@ package com.cognizant.devops.engines.platformwebhookengine.message.subscriber;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import com.cognizant.devops.engines.platformengine.message.core.CypherQueryTemplateCache;
 import com.cognizant.devops.engines.platformengine.message.core.EngineStatusLogger;
 import com.cognizant.devops.engines.platformengine.message.factory.EngineSubscriberResponseHandler;
+import com.cognizant.devops.engines.platformengine.modules.correlation.CorrelationChangeLog;
 import com.cognizant.devops.engines.platformwebhookengine.parser.InsightsWebhookParserFactory;
 import com.cognizant.devops.engines.platformwebhookengine.parser.InsightsWebhookParserInterface;
 import com.cognizant.devops.engines.util.WebhookEventProcessing;
+import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
 import com.cognizant.devops.platformcommons.constants.PlatformServiceConstants;
 import com.cognizant.devops.platformcommons.dal.neo4j.GraphDBHandler;
 import com.cognizant.devops.platformdal.webhookConfig.WebHookConfig;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import com.rabbitmq.client.AMQP.BasicProperties;
 import com.rabbitmq.client.Envelope;
 
 public class WebHookDataSubscriber extends EngineSubscriberResponseHandler {
 
 	private static Logger log = LogManager.getLogger(WebHookDataSubscriber.class);
+	private static final String WEBHOOK_PARAM_HEADER_PREFIX = "webhookParam.";
 	private GraphDBHandler dbHandler = new GraphDBHandler();
 	private WebHookConfig webhookConfig;
+	private static final CypherQueryTemplateCache<String> updateQueryCache = CypherQueryTemplateCache
+			.getCache("WebHookUpdate");
 
 
 	public WebHookDataSubscriber(WebHookConfig webhookConfig, String mqChannelName) throws Exception {
@@ -54,7 +67,7 @@ public class WebHookDataSubscriber extends EngineSubscriberResponseHandler {
 	@Override
 	public void handleDelivery(String consumerTag, Envelope envelope, BasicProperties properties, byte[] body)
 			throws IOException {
-		String message = new String(body, StandardCharsets.UTF_8);
+		String message = addRequestParameters(new String(body, StandardCharsets.UTF_8), properties);
 		try {
 			long startTime = System.nanoTime();
 			
@@ -72,12 +85,21 @@ public class WebHookDataSubscriber extends EngineSubscriberResponseHandler {
 							getChannel().basicAck(envelope.getDeliveryTag(), false);
 						}
 					} else if (this.webhookConfig.getIsUpdateRequired().booleanValue()) {
-						updateNeo4jNode(toolData, this.webhookConfig);
-						getChannel().basicAck(envelope.getDeliveryTag(), false);
+						int failedRows = updateNeo4jNode(toolData, this.webhookConfig);
+						if (failedRows == 0) {
+							getChannel().basicAck(envelope.getDeliveryTag(), false);
+						} else {
+							settleFailedUpdate(envelope, failedRows, toolData.size());
+						}
 					} else {
+						String label = this.webhookConfig.getLabelName().toUpperCase();
 						String query = "UNWIND {props} AS properties " + "CREATE (n:RAW:"
-								+ this.webhookConfig.getLabelName().toUpperCase() + ") " + "SET n = properties";
-						dbHandler.bulkCreateNodes(toolData, null, query);
+								+ label + ") " + "SET n = properties";
+						if (CorrelationChangeLog.isEnabled()) {
+							query += " return " + CorrelationChangeLog.getNodeIdsReturnItem("n");
+						}
+						JsonObject graphResponse = dbHandler.bulkCreateNodes(toolData, null, query);
+						CorrelationChangeLog.getInstance().record(Collections.singletonList(label), graphResponse);
 						getChannel().basicAck(envelope.getDeliveryTag(), false);
 					}
 					
@@ -102,32 +124,167 @@ public class WebHookDataSubscriber extends EngineSubscriberResponseHandler {
 		}
 	}
 
-	// Execution of the Query in which node updation in Neo4j is required,based on
-	// the unique property.
-	private void updateNeo4jNode(List<JsonObject> toolData, WebHookConfig webhookConfig2) throws Exception {
+	/**
+	 * The webhook publishes the payload as received, with the request parameters
+	 * as message headers. They are added to the payload object as properties and
+	 * replace a field of the same name, as they did when the webhook merged them.
+	 * Payloads of older webhooks carry the parameters already and have no such
+	 * headers, a payload which is not a json object is returned unchanged.
+	 */
+	static String addRequestParameters(String message, BasicProperties properties) {
+		Map<String, Object> headers = properties == null ? null : properties.getHeaders();
+		if (headers == null) {
+			return message;
+		}
+		Map<String, String> parameters = new LinkedHashMap<>();
+		for (Map.Entry<String, Object> header : headers.entrySet()) {
+			if (header.getKey().startsWith(WEBHOOK_PARAM_HEADER_PREFIX) && header.getValue() != null) {
+				parameters.put(header.getKey().substring(WEBHOOK_PARAM_HEADER_PREFIX.length()),
+						header.getValue().toString());
+			}
+		}
+		if (parameters.isEmpty()) {
+			return message;
+		}
+		JsonElement payload;
+		try {
+			payload = new JsonParser().parse(message);
+		} catch (JsonParseException e) {
+			log.debug(" Webhook payload is not valid json, request parameters not added {} ", e.getMessage());
+			return message;
+		}
+		if (!payload.isJsonObject()) {
+			return message;
+		}
+		JsonObject payloadObject = payload.getAsJsonObject();
+		for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+			payloadObject.addProperty(parameter.getKey(), parameter.getValue());
+		}
+		payloadObject.addProperty("iswebhookdata", Boolean.TRUE);
+		return payloadObject.toString();
+	}
+
+	/**
+	 * A message with failed rows is never acked, the update is a MERGE so the
+	 * rows which were written are written again unchanged. The message is
+	 * requeued once and rejected when it fails again on redelivery.
+	 */
+	private void settleFailedUpdate(Envelope envelope, int failedRows, int rows) throws IOException {
+		boolean requeue = !envelope.isRedeliver();
+		log.error(" toolName={} agentId={} routingKey={} {} of the {} rows not updated, {} message ",
+				this.webhookConfig.getToolName(), this.webhookConfig.getWebHookName(),
+				this.webhookConfig.getMQChannel(), failedRows, rows, requeue ? "requeuing" : "rejecting");
+		if (requeue) {
+			getChannel().basicNack(envelope.getDeliveryTag(), false, true);
+			return;
+		}
+		EngineStatusLogger.getInstance().createWebhookEngineStatusNode(
+				failedRows + " of " + rows + " Webhook Nodes are not updated in DB for "
+						+ this.webhookConfig.getWebHookName(),
+				PlatformServiceConstants.FAILURE);
+		getChannel().basicReject(envelope.getDeliveryTag(), false);
+	}
+
+	/**
+	 * Execution of the Query in which node updation in Neo4j is required,based on
+	 * the unique property. The rows are sent in chunks of the agent data
+	 * chunkSize, one UNWIND statement per chunk. A chunk which fails is rolled
+	 * back by Neo4j and written again row by row, so that only its failing rows
+	 * are reported. Rows without the unique property can not be merged and are
+	 * reported without being sent.
+	 *
+	 * @return number of rows which were not updated
+	 */
+	private int updateNeo4jNode(List<JsonObject> toolData, WebHookConfig webhookConfig2) throws Exception {
 		try {
-			String finalQuery = "";
+			long startTime = System.nanoTime();
+			String finalQuery = getUpdateQuery(webhookConfig2);
+			String fieldUsedForUpdate = webhookConfig2.getFieldUsedForUpdate();
+			List<JsonObject> rows = new ArrayList<>(toolData.size());
+			int failedRows = 0;
 			for (JsonObject jsonObject : toolData) {
-				StringBuilder query = new StringBuilder();
-				query.append("UNWIND {props} AS properties MERGE (node:RAW:").append(webhookConfig2.getLabelName());
-				if (webhookConfig2.getFieldUsedForUpdate() != null) {
-					query.append(" { " + webhookConfig2.getFieldUsedForUpdate() + ": ");
-					query.append(jsonObject.get(webhookConfig2.getFieldUsedForUpdate()));
-					query.append(" }) ");
+				if (fieldUsedForUpdate != null
+						&& (!jsonObject.has(fieldUsedForUpdate) || jsonObject.get(fieldUsedForUpdate).isJsonNull())) {
+					failedRows++;
+					log.error(" toolName={} agentId={} routingKey={} Unable to update node without {} : {} ",this.webhookConfig.getToolName(),this.webhookConfig.getWebHookName(),this.webhookConfig.getMQChannel(),
+							fieldUsedForUpdate, jsonObject);
+				} else {
+					rows.add(jsonObject);
 				}
-				query.append(" set node+=properties ").append(" ");
-				query.append("return count(node)").append(" ");
-				finalQuery = query.toString();
-				JsonObject graphresponse = dbHandler.createNodesWithSingleData(jsonObject, finalQuery);
-				if (graphresponse.get("response").getAsJsonObject().get("errors").getAsJsonArray().size() > 0) {
-					log.error(" toolName={} agentId={} routingKey={} Unable to insert nodes for routing key: {} and webhook Name {} , error occured: {} ",this.webhookConfig.getToolName(),this.webhookConfig.getWebHookName(),this.webhookConfig.getMQChannel(),
-							webhookConfig2.getMQChannel(), webhookConfig2.getWebHookName(), graphresponse);
+			}
+			int chunkSize = Math.max(1, ApplicationConfigProvider.getInstance().getAgentDataIngestion().getChunkSize());
+			int chunks = 0;
+			for (int index = 0; index < rows.size(); index += chunkSize) {
+				List<JsonObject> chunk = rows.subList(index, Math.min(rows.size(), index + chunkSize));
+				JsonObject graphresponse = dbHandler.bulkCreateNodes(chunk, null, finalQuery);
+				chunks++;
+				if (hasErrors(graphresponse)) {
+					log.debug(" Update of {} rows for webhook {} failed, updating them one by one {} ", chunk.size(),
+							webhookConfig2.getWebHookName(), graphresponse);
+					failedRows += updateRows(chunk, finalQuery, webhookConfig2);
+				} else {
+					CorrelationChangeLog.getInstance()
+							.record(Collections.singletonList(webhookConfig2.getLabelName()), graphresponse);
 				}
 			}
+			log.debug("Type=WebhookEngine WebHookName={} rows={} chunks={} failedRows={} UpdateTime={} ",
+					webhookConfig2.getWebHookName(), toolData.size(), chunks, failedRows,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+			return failedRows;
 		} catch (Exception e) {
 			log.error(" toolName={} agentId={} routingKey={} Error while featching DB record  ",this.webhookConfig.getToolName(),this.webhookConfig.getWebHookName(),this.webhookConfig.getMQChannel(), e);
 			throw e;
 		}
 	}
 
-}
\ No newline at end of file
+	/**
+	 * @return number of rows which were not updated
+	 */
+	private int updateRows(List<JsonObject> rows, String finalQuery, WebHookConfig webhookConfig2) throws Exception {
+		int failedRows = 0;
+		for (JsonObject jsonObject : rows) {
+			JsonObject graphresponse = dbHandler.createNodesWithSingleData(jsonObject, finalQuery);
+			if (hasErrors(graphresponse)) {
+				failedRows++;
+				log.error(" toolName={} agentId={} routingKey={} Unable to insert nodes for routing key: {} and webhook Name {} , error occured: {} ",this.webhookConfig.getToolName(),this.webhookConfig.getWebHookName(),this.webhookConfig.getMQChannel(),
+						webhookConfig2.getMQChannel(), webhookConfig2.getWebHookName(), graphresponse);
+			} else {
+				CorrelationChangeLog.getInstance()
+						.record(Collections.singletonList(webhookConfig2.getLabelName()), graphresponse);
+			}
+		}
+		return failedRows;
+	}
+
+	private static boolean hasErrors(JsonObject graphresponse) {
+		return graphresponse.has("response")
+				&& graphresponse.get("response").getAsJsonObject().get("errors").getAsJsonArray().size() > 0;
+	}
+
+	/**
+	 * The unique field value is read from each row of the properties parameter,
+	 * so one statement per label and update field is built and cached and serves
+	 * a single row as well as a chunk of rows.
+	 */
+	private String getUpdateQuery(WebHookConfig webhookConfig2) {
+		String labelName = webhookConfig2.getLabelName();
+		String fieldUsedForUpdate = webhookConfig2.getFieldUsedForUpdate();
+		boolean recordChanges = CorrelationChangeLog.isEnabled();
+		return updateQueryCache.get(labelName + "|" + fieldUsedForUpdate + "|" + recordChanges, () -> {
+			StringBuilder query = new StringBuilder();
+			query.append("UNWIND {props} AS properties MERGE (node:RAW:").append(labelName);
+			if (fieldUsedForUpdate != null) {
+				query.append(" { ").append(fieldUsedForUpdate).append(": properties.").append(fieldUsedForUpdate);
+				query.append(" }");
+			}
+			query.append(") ");
+			query.append(" set node+=properties ").append(" ");
+			query.append("return count(node)").append(" ");
+			if (recordChanges) {
+				query.append(", ").append(CorrelationChangeLog.getNodeIdsReturnItem("node")).append(" ");
+			}
+			return query.toString();
+		});
+	}
+
+}
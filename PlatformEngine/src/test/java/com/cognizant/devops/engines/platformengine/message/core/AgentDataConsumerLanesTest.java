@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.engines.platformengine.message.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.cognizant.devops.platformcommons.exception.InsightsCustomException;
+import com.google.gson.JsonObject;
+
+public class AgentDataConsumerLanesTest {
+
+	private static final List<String> UNIQUE_KEYS = Arrays.asList("key", "project");
+
+	AgentDataConsumerLanes lanes = null;
+
+	@BeforeMethod
+	protected void setUp() {
+		lanes = new AgentDataConsumerLanes("TEST.DATA", 4);
+	}
+
+	@AfterMethod
+	protected void tearDown() {
+		lanes.shutdown();
+	}
+
+	@Test
+	public void testGetLaneIsStablePerEntity() {
+		JsonObject first = getRecord("ISSUE-1", "P1");
+		first.addProperty("status", "open");
+		JsonObject update = getRecord("ISSUE-1", "P1");
+		update.addProperty("status", "closed");
+		int lane = AgentDataConsumerLanes.getLane(first, UNIQUE_KEYS, 4);
+		Assert.assertEquals(AgentDataConsumerLanes.getLane(update, UNIQUE_KEYS, 4), lane);
+		Assert.assertTrue(lane >= 0 && lane < 4);
+	}
+
+	@Test
+	public void testGetLaneWithMissingKey() {
+		JsonObject record = new JsonObject();
+		record.addProperty("key", "ISSUE-2");
+		int lane = AgentDataConsumerLanes.getLane(record, UNIQUE_KEYS, 3);
+		Assert.assertTrue(lane >= 0 && lane < 3);
+	}
+
+	@Test
+	public void testKeyedRecordsOfOneEntityStayOnOneLane() throws InsightsCustomException {
+		List<JsonObject> records = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			records.add(getRecord("ISSUE-" + (i % 10), "P1"));
+		}
+		ConcurrentHashMap<String, Set<String>> threadsPerKey = new ConcurrentHashMap<>();
+		int chunkCount = lanes.write(records, UNIQUE_KEYS, part -> {
+			for (JsonObject record : part) {
+				threadsPerKey.computeIfAbsent(record.get("key").getAsString(), key -> ConcurrentHashMap.newKeySet())
+						.add(Thread.currentThread().getName());
+			}
+			return 1;
+		});
+		Assert.assertEquals(threadsPerKey.size(), 10);
+		for (Set<String> threads : threadsPerKey.values()) {
+			Assert.assertEquals(threads.size(), 1);
+		}
+		Assert.assertTrue(chunkCount >= 1 && chunkCount <= 4);
+	}
+
+	@Test
+	public void testRecordsWithoutUniqueKeyUseCallerThread() throws InsightsCustomException {
+		List<JsonObject> records = Arrays.asList(getRecord("ISSUE-1", "P1"), getRecord("ISSUE-2", "P1"));
+		String caller = Thread.currentThread().getName();
+		int chunkCount = lanes.write(records, Collections.emptyList(), part -> {
+			Assert.assertEquals(part.size(), 2);
+			Assert.assertEquals(Thread.currentThread().getName(), caller);
+			return 1;
+		});
+		Assert.assertEquals(chunkCount, 1);
+	}
+
+	@Test(expectedExceptions = InsightsCustomException.class)
+	public void testFailureIsRethrownAfterAllLanes() throws InsightsCustomException {
+		List<JsonObject> records = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			records.add(getRecord("ISSUE-" + i, "P1"));
+		}
+		lanes.write(records, UNIQUE_KEYS, part -> {
+			throw new InsightsCustomException("Unable to insert nodes");
+		});
+	}
+
+	private JsonObject getRecord(String key, String project) {
+		JsonObject record = new JsonObject();
+		record.addProperty("key", key);
+		record.addProperty("project", project);
+		return record;
+	}
+}
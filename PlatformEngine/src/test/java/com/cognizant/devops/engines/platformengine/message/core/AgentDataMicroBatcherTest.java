@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.engines.platformengine.message.core;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.cognizant.devops.platformcommons.config.AgentDataIngestionConfig;
+import com.google.gson.JsonObject;
+import com.rabbitmq.client.Channel;
+
+public class AgentDataMicroBatcherTest {
+
+	private static final String QUERY = "UNWIND {props} AS properties CREATE (n:DATA) set n=properties";
+	private static final long MAX_WAIT_IN_MS = 200;
+
+	List<String> channelCalls = null;
+	List<Integer> writtenBatches = null;
+	Channel channel = null;
+	AgentDataIngestionConfig config = null;
+
+	/**
+	 * Channel which records the acks and nacks of the batcher
+	 */
+	@BeforeMethod
+	protected void setUp() {
+		channelCalls = new CopyOnWriteArrayList<>();
+		writtenBatches = new CopyOnWriteArrayList<>();
+		channel = (Channel) Proxy.newProxyInstance(Channel.class.getClassLoader(), new Class<?>[] { Channel.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "basicAck":
+					case "basicNack":
+						channelCalls.add(method.getName() + ":" + args[0] + ":" + args[1]);
+						return null;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					default:
+						return null;
+					}
+				});
+		config = new AgentDataIngestionConfig();
+		config.setMicroBatchMaxMessages(10);
+		config.setMicroBatchMaxRecords(100);
+		config.setMicroBatchMaxWaitInMs(MAX_WAIT_IN_MS);
+	}
+
+	@Test
+	public void testCloseWritesPartlyFilledBatch() throws IOException, InterruptedException {
+		AgentDataMicroBatcher batcher = getBatcher();
+		batcher.add(QUERY, Collections.singletonList("DATA"), getRecords(2), 1);
+		batcher.add(QUERY, Collections.singletonList("DATA"), getRecords(3), 2);
+		Assert.assertTrue(writtenBatches.isEmpty());
+		batcher.close();
+		Assert.assertEquals(writtenBatches, Collections.singletonList(5));
+		Assert.assertEquals(channelCalls, Collections.singletonList("basicAck:2:true"));
+		/* the scheduled flush of the closed batch must not write it again */
+		Thread.sleep(MAX_WAIT_IN_MS * 3);
+		Assert.assertEquals(writtenBatches.size(), 1);
+		Assert.assertEquals(channelCalls.size(), 1);
+	}
+
+	@Test
+	public void testDeliveryAfterCloseIsRequeued() throws IOException {
+		AgentDataMicroBatcher batcher = getBatcher();
+		batcher.close();
+		batcher.add(QUERY, Collections.singletonList("DATA"), getRecords(1), 7);
+		Assert.assertTrue(writtenBatches.isEmpty());
+		Assert.assertEquals(channelCalls, Collections.singletonList("basicNack:7:false"));
+	}
+
+	@Test
+	public void testBatchIsFlushedAfterMaxWait() throws IOException, InterruptedException {
+		AgentDataMicroBatcher batcher = getBatcher();
+		batcher.add(QUERY, Collections.singletonList("DATA"), getRecords(1), 1);
+		long deadline = System.currentTimeMillis() + MAX_WAIT_IN_MS * 20;
+		while (writtenBatches.isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(writtenBatches, Collections.singletonList(1));
+		batcher.close();
+		Assert.assertEquals(writtenBatches.size(), 1);
+	}
+
+	@Test
+	public void testFullBatchIsFlushedOnAdd() throws IOException {
+		config.setMicroBatchMaxMessages(2);
+		AgentDataMicroBatcher batcher = getBatcher();
+		batcher.add(QUERY, Collections.singletonList("DATA"), getRecords(1), 1);
+		batcher.add(QUERY, Collections.singletonList("DATA"), getRecords(1), 2);
+		Assert.assertEquals(writtenBatches, Collections.singletonList(2));
+		Assert.assertEquals(channelCalls, Collections.singletonList("basicAck:2:true"));
+		batcher.close();
+		Assert.assertEquals(writtenBatches.size(), 1);
+	}
+
+	private AgentDataMicroBatcher getBatcher() {
+		return new AgentDataMicroBatcher("TEST.DATA", channel, config,
+				(cypherQuery, labels, records) -> writtenBatches.add(records.size()));
+	}
+
+	private List<JsonObject> getRecords(int count) {
+		List<JsonObject> records = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			JsonObject record = new JsonObject();
+			record.addProperty("key", "ISSUE-" + i);
+			records.add(record);
+		}
+		return records;
+	}
+}
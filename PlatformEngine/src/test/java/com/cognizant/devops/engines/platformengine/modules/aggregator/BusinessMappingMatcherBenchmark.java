@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.engines.platformengine.modules.aggregator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Compares online data tagging through {@link BusinessMappingMatcher} with
+ * the previous scan over every business mapping. Not part of the TestNG
+ * suite, compile the tests with the JmhBenchmark profile and run main.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BusinessMappingMatcherBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int mappingCount;
+
+	private List<BusinessMappingData> businessMappingList;
+	private BusinessMappingMatcher matcher;
+	private JsonObject record;
+
+	@Setup
+	public void setup() {
+		businessMappingList = new ArrayList<>(mappingCount);
+		for (int i = 0; i < mappingCount; i++) {
+			BusinessMappingData mapping = new BusinessMappingData();
+			mapping.setToolName("JIRA");
+			mapping.setBusinessMappingLabel("ORG" + (i % 5) + ":BU" + (i % 20) + ":PRJ" + i);
+			Map<String, String> propertyMap = new HashMap<>();
+			propertyMap.put("projectKey", "PRJ" + i);
+			propertyMap.put("issueType", i % 2 == 0 ? "Story" : "Bug");
+			mapping.setPropertyMap(propertyMap);
+			businessMappingList.add(mapping);
+		}
+		matcher = new BusinessMappingMatcher(businessMappingList);
+		record = new JsonObject();
+		record.addProperty("projectKey", "prj" + (mappingCount / 2));
+		record.addProperty("issueType", "STORY");
+		record.addProperty("key", "PRJ-1234");
+		record.addProperty("status", "In Progress");
+		record.addProperty("assignee", "user1");
+		record.addProperty("priority", "High");
+	}
+
+	@Benchmark
+	public JsonObject compiledMatcher() {
+		return matcher.applyDataTagging(record.deepCopy());
+	}
+
+	@Benchmark
+	public JsonObject mappingScan() {
+		return scanMappings(record.deepCopy());
+	}
+
+	/**
+	 * Data tagging as AgentDataSubscriber did it before the matcher
+	 */
+	private JsonObject scanMappings(JsonObject asJsonObject) {
+		List<String> selectedBusinessMappingArray = new ArrayList<>(0);
+		Map<String, String> labelMappingMap = new TreeMap<>();
+		for (BusinessMappingData businessMappingData : businessMappingList) {
+			Map<String, String> map = businessMappingData.getPropertyMap();
+			int totalCount = businessMappingData.getPropertyMap().size();
+			int matchLabelcount = 0;
+			for (Entry<String, String> mapValue : map.entrySet()) {
+				if (asJsonObject.has(mapValue.getKey())) {
+					String jsonValue = asJsonObject.get(mapValue.getKey()).getAsString();
+					if (jsonValue.equalsIgnoreCase(mapValue.getValue())) {
+						matchLabelcount++;
+					}
+				}
+			}
+			if (totalCount == matchLabelcount) {
+				selectedBusinessMappingArray.add(businessMappingData.getBusinessMappingLabel());
+			}
+		}
+		for (String selectedBusinessMapping : selectedBusinessMappingArray) {
+			StringTokenizer sk = new StringTokenizer(selectedBusinessMapping, ":");
+			int level = 0;
+			while (sk.hasMoreTokens()) {
+				String token = sk.nextToken();
+				level++;
+				String key = "orgLevel_" + level;
+				if (!labelMappingMap.containsKey(key)) {
+					labelMappingMap.put(key, token);
+				} else if (!labelMappingMap.get(key).contains(token)) {
+					labelMappingMap.put(key, labelMappingMap.get(key).concat("," + token));
+				}
+			}
+		}
+		JsonParser jsonParser = new JsonParser();
+		for (Entry<String, String> entry : labelMappingMap.entrySet()) {
+			List<String> items = Arrays.asList(entry.getValue().split("\\s*,\\s*"));
+			asJsonObject.add(entry.getKey(), (JsonArray) jsonParser.parse(items.toString()));
+		}
+		return asJsonObject;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder().include(BusinessMappingMatcherBenchmark.class.getSimpleName()).build();
+		new Runner(options).run();
+	}
+}
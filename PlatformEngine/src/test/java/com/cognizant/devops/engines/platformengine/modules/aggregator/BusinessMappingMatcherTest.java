@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.engines.platformengine.modules.aggregator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.StringTokenizer;
+import java.util.TreeMap;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class BusinessMappingMatcherTest {
+
+	private final JsonParser jsonParser = new JsonParser();
+
+	@Test
+	public void testCaseFoldingMatchesLikeEqualsIgnoreCase() {
+		List<BusinessMappingData> mappings = Arrays.asList(
+				getMapping("ORG1:BU1", "issueType", "Story"),
+				getMapping("ORG2:BU2", "phase", "\u00c9tape"),
+				getMapping("ORG3:BU3", "region", "\u0130zmir"));
+		String record = "{\"issueType\":\"STORY\",\"phase\":\"\u00e9TAPE\",\"region\":\"izmir\"}";
+		JsonObject tagged = assertSameAsMappingScan(mappings, record);
+		Assert.assertEquals(tagged.getAsJsonArray("orgLevel_1").toString(), "[\"ORG1\",\"ORG2\",\"ORG3\"]");
+		Assert.assertEquals(tagged.getAsJsonArray("orgLevel_2").toString(), "[\"BU1\",\"BU2\",\"BU3\"]");
+	}
+
+	@Test
+	public void testMissingPropertyDoesNotMatch() {
+		List<BusinessMappingData> mappings = Arrays.asList(
+				getMapping("ORG1:BU1", "projectKey", "PRJ", "issueType", "Bug"),
+				getMapping("ORG2:BU2", "projectKey", "PRJ", "component", null));
+		JsonObject tagged = assertSameAsMappingScan(mappings, "{\"projectKey\":\"prj\",\"status\":\"Open\"}");
+		Assert.assertFalse(tagged.has("orgLevel_1"));
+		Assert.assertEquals(tagged.entrySet().size(), 2);
+	}
+
+	@Test
+	public void testSeveralMappingsMatchOneRecord() {
+		List<BusinessMappingData> mappings = Arrays.asList(
+				getMapping("ORG1:BU1:PRJ1", "projectKey", "PRJ"),
+				getMapping("ORG9:BU9", "projectKey", "OTHER"),
+				getMapping("ORG1:BU2", "issueType", "Bug"),
+				getMapping("ORG2:BU1:PRJ2:TEAM1", "projectKey", "PRJ", "issueType", "bug"),
+				getMapping("ORG3"));
+		JsonObject tagged = assertSameAsMappingScan(mappings, "{\"projectKey\":\"PRJ\",\"issueType\":\"BUG\"}");
+		Assert.assertEquals(tagged.getAsJsonArray("orgLevel_1").toString(), "[\"ORG1\",\"ORG2\",\"ORG3\"]");
+		Assert.assertEquals(tagged.getAsJsonArray("orgLevel_2").toString(), "[\"BU1\",\"BU2\"]");
+		Assert.assertEquals(tagged.getAsJsonArray("orgLevel_3").toString(), "[\"PRJ1\",\"PRJ2\"]");
+		Assert.assertEquals(tagged.getAsJsonArray("orgLevel_4").toString(), "[\"TEAM1\"]");
+	}
+
+	@Test
+	public void testOrgLevelsFollowMappingOrder() {
+		List<BusinessMappingData> mappings = Arrays.asList(
+				getMapping("ORG2:2021", "issueType", "Bug"),
+				getMapping("ORG1,ORG3:2020", "projectKey", "PRJ"));
+		JsonObject tagged = assertSameAsMappingScan(mappings,
+				"{\"projectKey\":\"PRJ\",\"issueType\":\"Bug\",\"orgLevel_1\":[\"OLD\"]}");
+		Assert.assertEquals(tagged.getAsJsonArray("orgLevel_1").toString(), "[\"ORG2\",\"ORG1\",\"ORG3\"]");
+		Assert.assertEquals(tagged.getAsJsonArray("orgLevel_2").toString(), "[2021,2020]");
+	}
+
+	@Test
+	public void testGeneratedMappingsMatchMappingScan() {
+		Random random = new Random(20201018L);
+		String[] issueTypes = { "Story", "Bug", "Epic", "Task" };
+		List<BusinessMappingData> mappings = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			String label = "ORG" + (10 + random.nextInt(5)) + ":BU" + (10 + random.nextInt(20)) + ":PRJ" + (10 + i % 50);
+			switch (random.nextInt(4)) {
+			case 0:
+				mappings.add(getMapping(label, "projectKey", "PRJ" + random.nextInt(10)));
+				break;
+			case 1:
+				mappings.add(getMapping(label, "issueType", issueTypes[random.nextInt(issueTypes.length)]));
+				break;
+			case 2:
+				mappings.add(getMapping(label, "projectKey", "PRJ" + random.nextInt(10), "issueType",
+						issueTypes[random.nextInt(issueTypes.length)]));
+				break;
+			default:
+				mappings.add(getMapping(label, "projectKey", "PRJ" + random.nextInt(10), "sprint",
+						String.valueOf(random.nextInt(3))));
+				break;
+			}
+		}
+		for (int i = 0; i < 100; i++) {
+			JsonObject record = new JsonObject();
+			record.addProperty("projectKey", random.nextBoolean() ? "prj" + random.nextInt(10) : "PRJ" + random.nextInt(10));
+			record.addProperty("issueType", issueTypes[random.nextInt(issueTypes.length)].toUpperCase());
+			if (random.nextBoolean()) {
+				record.addProperty("sprint", random.nextInt(3));
+			}
+			assertSameAsMappingScan(mappings, record.toString());
+		}
+	}
+
+	@Test
+	public void testLabelContainedInAnotherLabelIsKept() {
+		/* the mapping scan skipped ORG1 after ORG10, as it checked the joined values with contains */
+		List<BusinessMappingData> mappings = Arrays.asList(
+				getMapping("ORG10:BU1", "projectKey", "PRJ"),
+				getMapping("ORG1:BU1", "projectKey", "PRJ"));
+		JsonObject tagged = new BusinessMappingMatcher(mappings).applyDataTagging(parse("{\"projectKey\":\"PRJ\"}"));
+		Assert.assertEquals(tagged.getAsJsonArray("orgLevel_1").toString(), "[\"ORG10\",\"ORG1\"]");
+		Assert.assertEquals(tagged.getAsJsonArray("orgLevel_2").toString(), "[\"BU1\"]");
+	}
+
+	@Test
+	public void testEmptyMatcherKeepsRecord() {
+		JsonObject record = parse("{\"projectKey\":\"PRJ\"}");
+		Assert.assertTrue(BusinessMappingMatcher.empty().isEmpty());
+		Assert.assertSame(BusinessMappingMatcher.empty().applyDataTagging(record), record);
+		Assert.assertEquals(record.entrySet().size(), 1);
+	}
+
+	private JsonObject assertSameAsMappingScan(List<BusinessMappingData> mappings, String record) {
+		JsonObject tagged = new BusinessMappingMatcher(mappings).applyDataTagging(parse(record));
+		Assert.assertEquals(tagged, scanMappings(mappings, parse(record)), record);
+		return tagged;
+	}
+
+	/**
+	 * Data tagging as AgentDataSubscriber did it before the matcher
+	 */
+	private JsonObject scanMappings(List<BusinessMappingData> businessMappingList, JsonObject asJsonObject) {
+		List<String> selectedBusinessMappingArray = new ArrayList<>(0);
+		Map<String, String> labelMappingMap = new TreeMap<>();
+		for (BusinessMappingData businessMappingData : businessMappingList) {
+			Map<String, String> map = businessMappingData.getPropertyMap();
+			int totalCount = businessMappingData.getPropertyMap().size();
+			int matchLabelcount = 0;
+			for (Entry<String, String> mapValue : map.entrySet()) {
+				if (asJsonObject.has(mapValue.getKey())) {
+					String jsonValue = asJsonObject.get(mapValue.getKey()).getAsString();
+					if (jsonValue.equalsIgnoreCase(mapValue.getValue())) {
+						matchLabelcount++;
+					}
+				}
+			}
+			if (totalCount == matchLabelcount) {
+				selectedBusinessMappingArray.add(businessMappingData.getBusinessMappingLabel());
+			}
+		}
+		for (String selectedBusinessMapping : selectedBusinessMappingArray) {
+			StringTokenizer sk = new StringTokenizer(selectedBusinessMapping, ":");
+			int level = 0;
+			while (sk.hasMoreTokens()) {
+				String token = sk.nextToken();
+				level++;
+				String key = "orgLevel_" + level;
+				if (!labelMappingMap.containsKey(key)) {
+					labelMappingMap.put(key, token);
+				} else if (!labelMappingMap.get(key).contains(token)) {
+					labelMappingMap.put(key, labelMappingMap.get(key).concat("," + token));
+				}
+			}
+		}
+		for (Entry<String, String> entry : labelMappingMap.entrySet()) {
+			List<String> items = Arrays.asList(entry.getValue().split("\\s*,\\s*"));
+			asJsonObject.add(entry.getKey(), (JsonArray) jsonParser.parse(items.toString()));
+		}
+		return asJsonObject;
+	}
+
+	private JsonObject parse(String record) {
+		return jsonParser.parse(record).getAsJsonObject();
+	}
+
+	private static BusinessMappingData getMapping(String label, String... properties) {
+		BusinessMappingData mapping = new BusinessMappingData();
+		mapping.setToolName("JIRA");
+		mapping.setBusinessMappingLabel(label);
+		Map<String, String> propertyMap = new LinkedHashMap<>();
+		for (int i = 0; i < properties.length; i += 2) {
+			propertyMap.put(properties[i], properties[i + 1]);
+		}
+		mapping.setPropertyMap(propertyMap);
+		return mapping;
+	}
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.engines.platformwebhookengine.message.subscriber;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.rabbitmq.client.AMQP.BasicProperties;
+
+public class WebHookDataSubscriberTest {
+
+	@Test
+	public void testParametersAreAddedToPayload() {
+		Map<String, Object> headers = new LinkedHashMap<>();
+		headers.put("webhookParam.project", "Insights");
+		headers.put("webhookParam.build", 42);
+		String message = WebHookDataSubscriber.addRequestParameters("{\"action\":\"created\"}",
+				getProperties(headers));
+		JsonObject payload = new JsonParser().parse(message).getAsJsonObject();
+		Assert.assertEquals(payload.get("action").getAsString(), "created");
+		Assert.assertEquals(payload.get("project").getAsString(), "Insights");
+		Assert.assertEquals(payload.get("build").getAsString(), "42");
+		Assert.assertTrue(payload.get("iswebhookdata").getAsBoolean());
+	}
+
+	@Test
+	public void testParameterWinsOverPayloadField() {
+		Map<String, Object> headers = new LinkedHashMap<>();
+		headers.put("webhookParam.action", "param");
+		String message = WebHookDataSubscriber.addRequestParameters("{\"action\":\"created\"}",
+				getProperties(headers));
+		Assert.assertEquals(new JsonParser().parse(message).getAsJsonObject().get("action").getAsString(), "param");
+	}
+
+	@Test
+	public void testParameterReplacesPayloadFieldWithoutDuplicateKey() {
+		Map<String, Object> headers = new LinkedHashMap<>();
+		headers.put("webhookParam.action", "param");
+		String message = WebHookDataSubscriber.addRequestParameters("{\"action\":\"created\",\"id\":1}",
+				getProperties(headers));
+		Assert.assertEquals(message.indexOf("\"action\""), message.lastIndexOf("\"action\""));
+		Assert.assertEquals(new JsonParser().parse(message).getAsJsonObject().get("id").getAsInt(), 1);
+	}
+
+	@Test
+	public void testBraceInsideStringIsNotSplitAt() {
+		Map<String, Object> headers = new LinkedHashMap<>();
+		headers.put("webhookParam.project", "Insights");
+		String message = WebHookDataSubscriber.addRequestParameters(
+				"{\"commit\":{\"message\":\"fix }\"},\"note\":\"ends with }\"}", getProperties(headers));
+		JsonObject payload = new JsonParser().parse(message).getAsJsonObject();
+		Assert.assertEquals(payload.get("note").getAsString(), "ends with }");
+		Assert.assertEquals(payload.getAsJsonObject("commit").get("message").getAsString(), "fix }");
+		Assert.assertEquals(payload.get("project").getAsString(), "Insights");
+		Assert.assertFalse(payload.getAsJsonObject("commit").has("project"));
+	}
+
+	@Test
+	public void testArrayPayloadIsUnchanged() {
+		Map<String, Object> headers = new LinkedHashMap<>();
+		headers.put("webhookParam.project", "Insights");
+		String message = "[{\"id\":1},{\"id\":2}]";
+		Assert.assertSame(WebHookDataSubscriber.addRequestParameters(message, getProperties(headers)), message);
+	}
+
+	@Test
+	public void testParametersAreAddedToEmptyPayload() {
+		Map<String, Object> headers = new LinkedHashMap<>();
+		headers.put("webhookParam.project", "Insights");
+		String message = WebHookDataSubscriber.addRequestParameters(" { } ", getProperties(headers));
+		JsonObject payload = new JsonParser().parse(message).getAsJsonObject();
+		Assert.assertEquals(payload.entrySet().size(), 2);
+		Assert.assertEquals(payload.get("project").getAsString(), "Insights");
+	}
+
+	@Test
+	public void testParameterValuesAreEscaped() {
+		Map<String, Object> headers = new LinkedHashMap<>();
+		headers.put("webhookParam.title", "say \"hi\"\n}");
+		String message = WebHookDataSubscriber.addRequestParameters("{\"action\":\"created\"}",
+				getProperties(headers));
+		Assert.assertEquals(new JsonParser().parse(message).getAsJsonObject().get("title").getAsString(),
+				"say \"hi\"\n}");
+	}
+
+	@Test
+	public void testMessageWithoutParametersIsUnchanged() {
+		String message = "{\"action\":\"created\"}";
+		Map<String, Object> headers = new LinkedHashMap<>();
+		headers.put("x-retry", "1");
+		headers.put("webhookParam.empty", null);
+		Assert.assertSame(WebHookDataSubscriber.addRequestParameters(message, getProperties(headers)), message);
+		Assert.assertSame(WebHookDataSubscriber.addRequestParameters(message, new BasicProperties()), message);
+		Assert.assertSame(WebHookDataSubscriber.addRequestParameters(message, null), message);
+	}
+
+	@Test
+	public void testPayloadWithoutObjectIsUnchanged() {
+		Map<String, Object> headers = new LinkedHashMap<>();
+		headers.put("webhookParam.project", "Insights");
+		Assert.assertEquals(WebHookDataSubscriber.addRequestParameters("not json", getProperties(headers)),
+				"not json");
+		Assert.assertEquals(WebHookDataSubscriber.addRequestParameters("{\"id\":", getProperties(headers)),
+				"{\"id\":");
+	}
+
+	private BasicProperties getProperties(Map<String, Object> headers) {
+		return new BasicProperties.Builder().headers(headers).build();
+	}
+}
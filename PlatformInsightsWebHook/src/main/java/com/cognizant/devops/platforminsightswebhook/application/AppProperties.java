@@ -51,6 +51,57 @@ public class AppProperties {
 	
 	@Value("${app.enableDeadLetterExchange}")
 	public static boolean enableDeadLetterExchange = false;
+
+	@Value("${app.maxChannelsPerRoutingKey}")
+	public static int maxChannelsPerRoutingKey = 4;
+
+	@Value("${app.maxOutstandingConfirms}")
+	public static int maxOutstandingConfirms = 1000;
+
+	@Value("${app.confirmTimeoutInMs}")
+	public static long confirmTimeoutInMs = 5000;
+
+	@Value("${app.backpressurePolicy}")
+	public static String backpressurePolicy = "block";
+
+	@Value("${app.spillDirectory}")
+	public static String spillDirectory = "";
+
+	@Value("${app.spillReplayIntervalInSeconds}")
+	public static int spillReplayIntervalInSeconds = 10;
+
+	@Value("${app.spillOnPublishFailure}")
+	public static boolean spillOnPublishFailure = true;
+
+	@Value("${app.spillSegmentSizeInMb}")
+	public static int spillSegmentSizeInMb = 64;
+
+	@Value("${app.spillMaxSizeInMb}")
+	public static int spillMaxSizeInMb = 1024;
+
+	@Value("${app.spillFsyncPolicy}")
+	public static String spillFsyncPolicy = "always";
+
+	@Value("${app.spillFsyncIntervalInMs}")
+	public static long spillFsyncIntervalInMs = 1000;
+
+	@Value("${app.spillReplayBatchSize}")
+	public static int spillReplayBatchSize = 100;
+
+	@Value("${app.ingestQueueSize}")
+	public static int ingestQueueSize = 1000;
+
+	@Value("${app.ingestWorkerThreads}")
+	public static int ingestWorkerThreads = 8;
+
+	@Value("${app.ingestTimeoutInMs}")
+	public static long ingestTimeoutInMs = 30000;
+
+	@Value("${app.retryAfterInSeconds}")
+	public static int retryAfterInSeconds = 5;
+
+	@Value("${app.maxBodySizeInMb}")
+	public static int maxBodySizeInMb = 25;
 	
 	
 	
@@ -111,4 +162,140 @@ public class AppProperties {
 		this.enableDeadLetterExchange = enableDeadLetterExchange;
 	}
 
+	public int getMaxChannelsPerRoutingKey() {
+		return maxChannelsPerRoutingKey;
+	}
+
+	public void setMaxChannelsPerRoutingKey(int maxChannelsPerRoutingKey) {
+		AppProperties.maxChannelsPerRoutingKey = maxChannelsPerRoutingKey;
+	}
+
+	public int getMaxOutstandingConfirms() {
+		return maxOutstandingConfirms;
+	}
+
+	public void setMaxOutstandingConfirms(int maxOutstandingConfirms) {
+		AppProperties.maxOutstandingConfirms = maxOutstandingConfirms;
+	}
+
+	public long getConfirmTimeoutInMs() {
+		return confirmTimeoutInMs;
+	}
+
+	public void setConfirmTimeoutInMs(long confirmTimeoutInMs) {
+		AppProperties.confirmTimeoutInMs = confirmTimeoutInMs;
+	}
+
+	public String getBackpressurePolicy() {
+		return backpressurePolicy;
+	}
+
+	public void setBackpressurePolicy(String backpressurePolicy) {
+		AppProperties.backpressurePolicy = backpressurePolicy;
+	}
+
+	public String getSpillDirectory() {
+		return spillDirectory;
+	}
+
+	public void setSpillDirectory(String spillDirectory) {
+		AppProperties.spillDirectory = spillDirectory;
+	}
+
+	public int getSpillReplayIntervalInSeconds() {
+		return spillReplayIntervalInSeconds;
+	}
+
+	public void setSpillReplayIntervalInSeconds(int spillReplayIntervalInSeconds) {
+		AppProperties.spillReplayIntervalInSeconds = spillReplayIntervalInSeconds;
+	}
+
+	public boolean isSpillOnPublishFailure() {
+		return spillOnPublishFailure;
+	}
+
+	public void setSpillOnPublishFailure(boolean spillOnPublishFailure) {
+		AppProperties.spillOnPublishFailure = spillOnPublishFailure;
+	}
+
+	public int getSpillSegmentSizeInMb() {
+		return spillSegmentSizeInMb;
+	}
+
+	public void setSpillSegmentSizeInMb(int spillSegmentSizeInMb) {
+		AppProperties.spillSegmentSizeInMb = spillSegmentSizeInMb;
+	}
+
+	public int getSpillMaxSizeInMb() {
+		return spillMaxSizeInMb;
+	}
+
+	public void setSpillMaxSizeInMb(int spillMaxSizeInMb) {
+		AppProperties.spillMaxSizeInMb = spillMaxSizeInMb;
+	}
+
+	public String getSpillFsyncPolicy() {
+		return spillFsyncPolicy;
+	}
+
+	public void setSpillFsyncPolicy(String spillFsyncPolicy) {
+		AppProperties.spillFsyncPolicy = spillFsyncPolicy;
+	}
+
+	public long getSpillFsyncIntervalInMs() {
+		return spillFsyncIntervalInMs;
+	}
+
+	public void setSpillFsyncIntervalInMs(long spillFsyncIntervalInMs) {
+		AppProperties.spillFsyncIntervalInMs = spillFsyncIntervalInMs;
+	}
+
+	public int getSpillReplayBatchSize() {
+		return spillReplayBatchSize;
+	}
+
+	public void setSpillReplayBatchSize(int spillReplayBatchSize) {
+		AppProperties.spillReplayBatchSize = spillReplayBatchSize;
+	}
+
+	public int getIngestQueueSize() {
+		return ingestQueueSize;
+	}
+
+	public void setIngestQueueSize(int ingestQueueSize) {
+		AppProperties.ingestQueueSize = ingestQueueSize;
+	}
+
+	public int getIngestWorkerThreads() {
+		return ingestWorkerThreads;
+	}
+
+	public void setIngestWorkerThreads(int ingestWorkerThreads) {
+		AppProperties.ingestWorkerThreads = ingestWorkerThreads;
+	}
+
+	public long getIngestTimeoutInMs() {
+		return ingestTimeoutInMs;
+	}
+
+	public void setIngestTimeoutInMs(long ingestTimeoutInMs) {
+		AppProperties.ingestTimeoutInMs = ingestTimeoutInMs;
+	}
+
+	public int getRetryAfterInSeconds() {
+		return retryAfterInSeconds;
+	}
+
+	public void setRetryAfterInSeconds(int retryAfterInSeconds) {
+		AppProperties.retryAfterInSeconds = retryAfterInSeconds;
+	}
+
+	public int getMaxBodySizeInMb() {
+		return maxBodySizeInMb;
+	}
+
+	public void setMaxBodySizeInMb(int maxBodySizeInMb) {
+		AppProperties.maxBodySizeInMb = maxBodySizeInMb;
+	}
+
 }
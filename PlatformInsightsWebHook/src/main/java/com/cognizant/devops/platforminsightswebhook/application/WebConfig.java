@@ -69,6 +69,7 @@ public class WebConfig {
 		servRegBean.setServlet(webhookEvent);
 		servRegBean.addUrlMappings("/insightsDevOpsWebHook/*");
 		servRegBean.setLoadOnStartup(1);
+		servRegBean.setAsyncSupported(true);
 		return servRegBean;
 	}
 
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platforminsightswebhook.config;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+
+/**
+ * Channel in publisher confirm mode. Each publish gets a future which is
+ * completed when the broker acks or nacks its delivery tag, a multiple ack
+ * completes every outstanding publish up to the tag at once. When the channel
+ * shuts down the outstanding publishes fail with the shutdown cause.
+ */
+public class ConfirmChannel {
+
+	private static Logger LOG = LogManager.getLogger(ConfirmChannel.class);
+	private final Channel channel;
+	private final ConcurrentNavigableMap<Long, CompletableFuture<Void>> outstandingConfirms = new ConcurrentSkipListMap<>();
+
+	public ConfirmChannel(Channel channel) throws IOException {
+		this.channel = channel;
+		channel.confirmSelect();
+		channel.addConfirmListener((deliveryTag, multiple) -> complete(deliveryTag, multiple, null),
+				(deliveryTag, multiple) -> complete(deliveryTag, multiple,
+						new IOException("Message rejected by Rabbit Mq, delivery tag " + deliveryTag)));
+		channel.addShutdownListener(cause -> failOutstanding(cause));
+	}
+
+	/**
+	 * Publish the message, sequence number and publish are kept together as the
+	 * channel may be used by several threads
+	 *
+	 * @return future completed by the confirm of the broker
+	 * @throws IOException
+	 */
+	public CompletableFuture<Void> publish(String exchangeName, String routingKey, AMQP.BasicProperties properties,
+			byte[] data) throws IOException {
+		CompletableFuture<Void> confirm = new CompletableFuture<>();
+		synchronized (channel) {
+			long deliveryTag = channel.getNextPublishSeqNo();
+			outstandingConfirms.put(deliveryTag, confirm);
+			try {
+				channel.basicPublish(exchangeName, routingKey, properties, data);
+			} catch (IOException | RuntimeException e) {
+				outstandingConfirms.remove(deliveryTag);
+				throw e;
+			}
+		}
+		return confirm;
+	}
+
+	public boolean isOpen() {
+		return channel.isOpen();
+	}
+
+	public int getOutstandingConfirms() {
+		return outstandingConfirms.size();
+	}
+
+	public void close() {
+		try {
+			if (channel.isOpen()) {
+				channel.close();
+			}
+		} catch (IOException | TimeoutException e) {
+			LOG.error("Error while closing channel {} ", e.getMessage());
+		}
+		failOutstanding(new IOException("Channel closed before the broker confirmed the message"));
+	}
+
+	private void complete(long deliveryTag, boolean multiple, Exception error) {
+		Map<Long, CompletableFuture<Void>> confirmed = multiple ? outstandingConfirms.headMap(deliveryTag, true)
+				: outstandingConfirms.subMap(deliveryTag, true, deliveryTag, true);
+		for (CompletableFuture<Void> confirm : confirmed.values()) {
+			if (error == null) {
+				confirm.complete(null);
+			} else {
+				confirm.completeExceptionally(error);
+			}
+		}
+		confirmed.clear();
+	}
+
+	private void failOutstanding(Exception cause) {
+		for (CompletableFuture<Void> confirm : outstandingConfirms.values()) {
+			confirm.completeExceptionally(cause);
+		}
+		outstandingConfirms.clear();
+	}
+}
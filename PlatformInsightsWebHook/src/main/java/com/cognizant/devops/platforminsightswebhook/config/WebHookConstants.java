@@ -35,4 +35,5 @@ public interface WebHookConstants {
 	String RECOVER_QUEUE="INSIGHTS_RECOVER_QUEUE";
 	String RECOVER_ROUNTINGKEY_QUEUE="INSIGHTS.RECOVER.QUEUE";
 	String RECOVER_EXCHANGE_PROPERTY= "x-dead-letter-exchange";
+	String WEBHOOK_PARAM_HEADER_PREFIX = "webhookParam.";
 }
@@ -16,9 +16,21 @@
 package com.cognizant.devops.platforminsightswebhook.config;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -26,24 +38,70 @@ import org.springframework.stereotype.Component;
 
 import com.cognizant.devops.platforminsightswebhook.application.AppProperties;
 import com.cognizant.devops.platforminsightswebhook.message.core.SubscriberStatusLogger;
+import com.google.gson.JsonObject;
+import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
 
+/**
+ * Publishes the webhook data to Rabbit Mq. Channels are pooled per routing key,
+ * at most maxChannelsPerRoutingKey of them, and run in publisher confirm mode,
+ * a publish returns only after the broker confirmed the message. When
+ * maxOutstandingConfirms messages wait for their confirm, backpressurePolicy
+ * decides what happens to the next one: block waits up to confirmTimeoutInMs
+ * for a free slot, reject fails it with {@link WebHookOverloadedException} and
+ * spill appends it to the {@link WebHookSpillJournal}, from where it is
+ * published again once Rabbit Mq keeps up. With spillOnPublishFailure a
+ * message which could not be sent, was nacked or whose channel closed before
+ * the confirm is journaled as well, and while the journal holds messages new
+ * ones are appended behind them so that Rabbit Mq receives them in order. A
+ * message which is not confirmed in confirmTimeoutInMs may still reach the
+ * queue, it is not journaled but failed, so that it is not published twice by
+ * the webhook. Replay of the journal is at least once, a spilled message whose
+ * confirm times out is published again with the next replay.
+ */
 @Component("webhookmessagepublisher")
 public class WebHookMessagePublisher {
 
 	private static Logger LOG = LogManager.getLogger(WebHookMessagePublisher.class);
+
+	public enum BackpressurePolicy {
+		BLOCK, REJECT, SPILL
+	}
+
+	/**
+	 * The message was published but the broker neither confirmed nor rejected it,
+	 * it may have reached the queue
+	 */
+	private static class UnconfirmedMessageException extends IOException {
+		private static final long serialVersionUID = 7016285390437741862L;
+
+		private UnconfirmedMessageException(String message) {
+			super(message);
+		}
+	}
+
 	private ConnectionFactory factory;
-	private Connection connection;
-	Channel channel;
+	private volatile Connection connection;
 	String exchangeName;
 	String routingKey;
-	Map<String, Channel> mqMappingMap = new HashMap<String, Channel>(0);
+	private final Map<String, ChannelPool> channelPools = new ConcurrentHashMap<>();
+	private Semaphore confirmSlots;
+	private BackpressurePolicy backpressurePolicy;
+	private WebHookSpillJournal spillJournal;
+	private ScheduledExecutorService spillReplayer;
+	private volatile double replayRatePerSecond;
+	private final LongAdder publishedMessages = new LongAdder();
+	private final LongAdder confirmedMessages = new LongAdder();
+	private final LongAdder failedMessages = new LongAdder();
+	private final LongAdder rejectedMessages = new LongAdder();
+	private final LongAdder spilledMessages = new LongAdder();
+	private final LongAdder replayedMessages = new LongAdder();
 
  static WebHookMessagePublisher webhookmessagepublisher;
 
-	public static WebHookMessagePublisher getInstance() {
+	public static synchronized WebHookMessagePublisher getInstance() {
 		if (webhookmessagepublisher == null) {
 			webhookmessagepublisher = new WebHookMessagePublisher();
 		}
@@ -54,13 +112,15 @@ public class WebHookMessagePublisher {
 
 	}
 
-	public void initilizeMq() throws TimeoutException, IOException {
+	public synchronized void initilizeMq() throws TimeoutException, IOException {
 		LOG.debug(" In initilizeMq ======== host = {} port = {} user = {} passcode = {} exchangeName= {} enableDeadLetterExchange = {}",
 				AppProperties.mqHost, AppProperties.port, AppProperties.mqUser, AppProperties.mqPassword,
 				AppProperties.mqExchangeName,AppProperties.enableDeadLetterExchange);
 		try {
 			this.exchangeName = AppProperties.mqExchangeName;
 			this.routingKey = WebHookConstants.WEBHOOK_EVENTDATA;
+			initilizeBackpressure();
+			closeChannelPools();
 			factory = new ConnectionFactory();
 			factory.setHost(AppProperties.mqHost);
 			factory.setUsername(AppProperties.mqUser);
@@ -87,85 +147,417 @@ public class WebHookMessagePublisher {
 
 	}
 
+	private void initilizeBackpressure() {
+		if (confirmSlots != null) {
+			return;
+		}
+		confirmSlots = new Semaphore(Math.max(1, AppProperties.maxOutstandingConfirms));
+		try {
+			backpressurePolicy = BackpressurePolicy.valueOf(AppProperties.backpressurePolicy.trim().toUpperCase());
+		} catch (Exception e) {
+			LOG.error("Invalid backpressurePolicy {}, using block ", AppProperties.backpressurePolicy);
+			backpressurePolicy = BackpressurePolicy.BLOCK;
+		}
+		if (backpressurePolicy == BackpressurePolicy.SPILL || AppProperties.spillOnPublishFailure) {
+			initilizeSpillJournal();
+		}
+		LOG.debug(" Publisher confirms with maxOutstandingConfirms = {} backpressurePolicy = {} maxChannelsPerRoutingKey = {} spillOnPublishFailure = {} ",
+				AppProperties.maxOutstandingConfirms, backpressurePolicy, AppProperties.maxChannelsPerRoutingKey,
+				AppProperties.spillOnPublishFailure);
+	}
+
+	private void initilizeSpillJournal() {
+		WebHookSpillJournal.FsyncPolicy fsyncPolicy;
+		try {
+			fsyncPolicy = WebHookSpillJournal.FsyncPolicy.valueOf(AppProperties.spillFsyncPolicy.trim().toUpperCase());
+		} catch (Exception e) {
+			LOG.error("Invalid spillFsyncPolicy {}, using always ", AppProperties.spillFsyncPolicy);
+			fsyncPolicy = WebHookSpillJournal.FsyncPolicy.ALWAYS;
+		}
+		try {
+			spillJournal = new WebHookSpillJournal(WebHookSpillJournal.resolveSpillDir(AppProperties.spillDirectory),
+					Math.max(1, AppProperties.spillSegmentSizeInMb) * 1024L * 1024L,
+					Math.max(1, AppProperties.spillMaxSizeInMb) * 1024L * 1024L, fsyncPolicy);
+		} catch (IOException e) {
+			LOG.error("Unable to open spill journal, messages will not be spilled ", e);
+			return;
+		}
+		spillReplayer = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "WebHookSpillReplay");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long interval = Math.max(1, AppProperties.spillReplayIntervalInSeconds);
+		spillReplayer.scheduleWithFixedDelay(this::replaySpilledMessages, interval, interval, TimeUnit.SECONDS);
+		if (fsyncPolicy == WebHookSpillJournal.FsyncPolicy.INTERVAL) {
+			long fsyncInterval = Math.max(1, AppProperties.spillFsyncIntervalInMs);
+			spillReplayer.scheduleWithFixedDelay(spillJournal::sync, fsyncInterval, fsyncInterval, TimeUnit.MILLISECONDS);
+		}
+		LOG.debug(" Spill journal opened with fsyncPolicy = {} statistics {} ", fsyncPolicy, spillJournal.getStatistics());
+	}
+
 	public void publishEventAction(byte[] data, String webHookMqChannelName) throws IOException, TimeoutException {
+		publishEventAction(data, webHookMqChannelName, null);
+	}
+
+	/**
+	 * Publish the webhook payload as received, the webhook name and request
+	 * parameters travel as message headers
+	 *
+	 * @param data                 raw request body
+	 * @param webHookMqChannelName
+	 * @param headers              null when the message has no headers
+	 * @throws IOException
+	 * @throws TimeoutException
+	 */
+	public void publishEventAction(byte[] data, String webHookMqChannelName, Map<String, Object> headers)
+			throws IOException, TimeoutException {
 		LOG.debug(" Inside publishEventAction ==== {}", connection);
+		if (spillJournal != null && spillJournal.hasPending()) {
+			/* keep the order, the message waits behind the journaled ones */
+			spill(webHookMqChannelName, webHookMqChannelName, headers, data);
+			return;
+		}
 		try {
-
-			if (!connection.isOpen()) {
-				LOG.debug(" Connection is not open " + " connection{} " , connection.isOpen());
-				initilizeMq();
-			}
-			if (mqMappingMap.containsKey(webHookMqChannelName)) {
-				channel = mqMappingMap.get(webHookMqChannelName);
-				channel.basicPublish(exchangeName, webHookMqChannelName, null, data);
-				LOG.debug(" data published in queue {}" ,webHookMqChannelName);
-			} else {
-				channel = connection.createChannel();
-				Map<String, Object> args = new HashMap<>();
-				
-				if(AppProperties.enableDeadLetterExchange) {
-					args.put(WebHookConstants.RECOVER_EXCHANGE_PROPERTY, WebHookConstants.RECOVER_EXCHANGE_NAME);
+			Connection current = connection;
+			if (current == null || !current.isOpen()) {
+				LOG.debug(" Connection is not open, reconnecting ");
+				synchronized (this) {
+					if (connection == null || !connection.isOpen()) {
+						initilizeMq();
+					}
 				}
-				
-				channel.exchangeDeclare(exchangeName, WebHookConstants.EXCHANGE_TYPE, true);
-				channel.queueDeclare(webHookMqChannelName, true, false, false, args);
-				channel.queueBind(webHookMqChannelName, exchangeName, webHookMqChannelName);
-				channel.basicPublish(exchangeName, webHookMqChannelName, null, data);
-				LOG.debug(" data published first time in queue  {}", webHookMqChannelName);
-				mqMappingMap.put(webHookMqChannelName, channel);
 			}
-		} catch (Exception e) {
-			LOG.error("Error while publishEventAction " , e);
+			publish(webHookMqChannelName, webHookMqChannelName, headers, data, true);
+			LOG.debug(" data published in queue {}" ,webHookMqChannelName);
+		} catch (WebHookOverloadedException | UnconfirmedMessageException e) {
+			LOG.error("Error while publishEventAction {} ", e.getMessage());
 			throw e;
+		} catch (IOException | TimeoutException e) {
+			if (spillJournal == null || !AppProperties.spillOnPublishFailure) {
+				LOG.error("Error while publishEventAction " , e);
+				throw e;
+			}
+			LOG.error("Error while publishEventAction, spilling data of queue {} {} ", webHookMqChannelName, e.getMessage());
+			spill(webHookMqChannelName, webHookMqChannelName, headers, data);
 		}
 	}
 
 	public void publishHealthData(byte[] data, String webHookHealthqueueName, String webHookHealthRoutingKey)
 			throws TimeoutException, IOException {
 		LOG.debug(" Inside publishHealthData ==== ");
-		channel = connection.createChannel();
 		try {
-			channel = connection.createChannel();
-			Map<String, Object> args = new HashMap<>();
-			if(AppProperties.enableDeadLetterExchange) {
-				args.put(WebHookConstants.RECOVER_EXCHANGE_PROPERTY, WebHookConstants.RECOVER_EXCHANGE_NAME);
-			}
-			
-			channel.exchangeDeclare(exchangeName, WebHookConstants.EXCHANGE_TYPE, true);
-			channel.queueDeclare(webHookHealthqueueName, true, false, false, args);
-			channel.queueBind(webHookHealthqueueName, exchangeName, webHookHealthRoutingKey);
-			channel.basicPublish(exchangeName, webHookHealthRoutingKey, null, data);
-			LOG.debug(" Health data published first time in queue {}", webHookHealthRoutingKey);
+			if (connection == null || !connection.isOpen()) {
+				throw new IOException("Connection with Rabbit Mq is not open");
+			}
+			publish(webHookHealthqueueName, webHookHealthRoutingKey, null, data, false);
+			LOG.debug(" Health data published in queue {}", webHookHealthRoutingKey);
 		} catch (Exception e) {
-			LOG.error("Error while publishEventAction ", e);
-		}finally {
-						channel.close();
+			LOG.error("Error while publishHealthData ", e);
+		}
 	}
-	}	
 
-	public void releaseMqConnetion() {
+	/**
+	 * Publish the message and wait for the confirm of the broker
+	 *
+	 * @param allowSpill false for messages which must not be written to the
+	 *                   spill journal, they are rejected instead
+	 * @throws WebHookOverloadedException  when the message is not published as
+	 *                                     too many messages wait for a confirm
+	 * @throws UnconfirmedMessageException when the broker did not confirm the
+	 *                                     message in confirmTimeoutInMs
+	 */
+	private void publish(String queueName, String routingKey, Map<String, Object> headers, byte[] data,
+			boolean allowSpill) throws IOException, TimeoutException {
+		if (!acquireConfirmSlot()) {
+			if (allowSpill && backpressurePolicy == BackpressurePolicy.SPILL && spillJournal != null) {
+				spill(queueName, routingKey, headers, data);
+				return;
+			}
+			rejectedMessages.increment();
+			throw new WebHookOverloadedException("Rabbit Mq is not keeping up, " + AppProperties.maxOutstandingConfirms
+					+ " messages wait for confirm, statistics " + getStatistics());
+		}
+		awaitConfirm(send(queueName, routingKey, headers, data));
+	}
+
+	/**
+	 * Publish the message on a pooled channel, the caller holds a confirm slot
+	 * which is released when the broker confirmed the message
+	 *
+	 * @return future completed by the confirm of the broker
+	 */
+	private CompletableFuture<Void> send(String queueName, String routingKey, Map<String, Object> headers, byte[] data)
+			throws IOException, TimeoutException {
+		AMQP.BasicProperties properties = headers == null ? null
+				: new AMQP.BasicProperties.Builder().headers(headers).build();
+		CompletableFuture<Void> confirm;
+		try {
+			ChannelPool pool = channelPools.computeIfAbsent(routingKey, key -> new ChannelPool(queueName, key));
+			ConfirmChannel confirmChannel = pool.borrow();
+			try {
+				confirm = confirmChannel.publish(exchangeName, routingKey, properties, data);
+			} finally {
+				pool.giveBack(confirmChannel);
+			}
+		} catch (IOException | TimeoutException | RuntimeException e) {
+			confirmSlots.release();
+			failedMessages.increment();
+			throw e;
+		}
+		publishedMessages.increment();
+		confirm.whenComplete((result, error) -> confirmSlots.release());
+		return confirm;
+	}
+
+	private void awaitConfirm(CompletableFuture<Void> confirm) throws IOException {
+		try {
+			confirm.get(AppProperties.confirmTimeoutInMs, TimeUnit.MILLISECONDS);
+			confirmedMessages.increment();
+		} catch (ExecutionException e) {
+			failedMessages.increment();
+			throw new IOException("Message not confirmed by Rabbit Mq " + e.getCause().getMessage(), e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UnconfirmedMessageException("Interrupted while waiting for the confirm of Rabbit Mq");
+		} catch (TimeoutException e) {
+			failedMessages.increment();
+			throw new UnconfirmedMessageException(
+					"Message not confirmed by Rabbit Mq in " + AppProperties.confirmTimeoutInMs + " ms");
+		}
+	}
+
+	private boolean acquireConfirmSlot() throws IOException {
+		if (backpressurePolicy != BackpressurePolicy.BLOCK) {
+			return confirmSlots.tryAcquire();
+		}
+		try {
+			return confirmSlots.tryAcquire(AppProperties.confirmTimeoutInMs, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting to publish to Rabbit Mq");
+		}
+	}
+
+	private void spill(String queueName, String routingKey, Map<String, Object> headers, byte[] data)
+			throws IOException {
+		spillJournal.append(queueName, routingKey, headers, data);
+		spilledMessages.increment();
+		LOG.debug(" data spilled to journal for queue {} ", queueName);
+	}
+
+	/**
+	 * Publish the journaled messages in batches of spillReplayBatchSize until the
+	 * journal is empty or Rabbit Mq fails a message
+	 */
+	private void replaySpilledMessages() {
 		try {
-			LOG.info(" In releaseMqConnetion ");
-			for (Map.Entry<String, Channel> entry : mqMappingMap.entrySet()) {
-				Channel channel = entry.getValue();
-				if (channel != null && connection != null) {
-					channel.close();
+			if (!spillJournal.hasPending()) {
+				return;
+			}
+			if (connection == null || !connection.isOpen()) {
+				synchronized (this) {
+					if (connection == null || !connection.isOpen()) {
+						initilizeMq();
+					}
+				}
+			}
+			long startTime = System.nanoTime();
+			int replayed = 0;
+			List<WebHookSpillJournal.SpilledMessage> batch;
+			while (!(batch = spillJournal.read(Math.max(1, AppProperties.spillReplayBatchSize))).isEmpty()) {
+				int published = publishSpilledMessages(batch);
+				replayed += published;
+				if (published < batch.size()) {
+					break;
 				}
 			}
-			if (connection != null) {
-				//connection.close();
+			if (replayed > 0) {
+				replayedMessages.add(replayed);
+				long duration = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+				replayRatePerSecond = replayed * 1000d / duration;
+				LOG.debug(" {} spilled messages published in {} ms, statistics {} ", replayed, duration, getStatistics());
 			}
-		} catch (IOException |TimeoutException e) {
-			LOG.error(e.getMessage());
+		} catch (Exception e) {
+			LOG.error("Error while publishing spilled messages {} ", e.getMessage());
+		}
+	}
+
+	/**
+	 * Publish the batch without waiting in between, then wait for the confirms
+	 * and commit the messages up to the first one which was not confirmed
+	 *
+	 * @return number of messages committed
+	 */
+	private int publishSpilledMessages(List<WebHookSpillJournal.SpilledMessage> batch) throws IOException {
+		List<CompletableFuture<Void>> confirms = new ArrayList<>(batch.size());
+		for (WebHookSpillJournal.SpilledMessage message : batch) {
+			try {
+				if (!confirmSlots.tryAcquire(AppProperties.confirmTimeoutInMs, TimeUnit.MILLISECONDS)) {
+					break;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			try {
+				confirms.add(send(message.getQueueName(), message.getRoutingKey(), message.getHeaders(), message.getData()));
+			} catch (IOException | TimeoutException | RuntimeException e) {
+				LOG.debug(" Replay of spilled messages stopped {} ", e.getMessage());
+				break;
+			}
+		}
+		int confirmed = 0;
+		for (CompletableFuture<Void> confirm : confirms) {
+			try {
+				awaitConfirm(confirm);
+			} catch (IOException e) {
+				LOG.debug(" Replay of spilled messages stopped {} ", e.getMessage());
+				break;
+			}
+			confirmed++;
+		}
+		if (confirmed > 0) {
+			spillJournal.commit(batch.get(confirmed - 1));
+		}
+		return confirmed;
+	}
+
+	/**
+	 * @return message counts of the publisher
+	 */
+	public JsonObject getStatistics() {
+		JsonObject statistics = new JsonObject();
+		statistics.addProperty("publishedMessages", publishedMessages.sum());
+		statistics.addProperty("confirmedMessages", confirmedMessages.sum());
+		statistics.addProperty("failedMessages", failedMessages.sum());
+		statistics.addProperty("rejectedMessages", rejectedMessages.sum());
+		statistics.addProperty("spilledMessages", spilledMessages.sum());
+		statistics.addProperty("replayedMessages", replayedMessages.sum());
+		statistics.addProperty("replayRatePerSecond", Math.round(replayRatePerSecond));
+		int outstanding = 0;
+		for (ChannelPool pool : channelPools.values()) {
+			outstanding += pool.getOutstandingConfirms();
+		}
+		statistics.addProperty("outstandingConfirms", outstanding);
+		if (spillJournal != null) {
+			statistics.add("spillJournal", spillJournal.getStatistics());
+		}
+		return statistics;
+	}
+
+	public void releaseMqConnetion() {
+		LOG.info(" In releaseMqConnetion, statistics {} ", getStatistics());
+		if (spillReplayer != null) {
+			spillReplayer.shutdownNow();
+		}
+		if (spillJournal != null) {
+			spillJournal.close();
+		}
+		closeChannelPools();
+		if (connection != null) {
+			//connection.close();
 		}
 	}
 
 	public void purgeQueue(String queueName) {
-		try {
-			channel = connection.createChannel();
+		try (Channel channel = connection.createChannel()) {
 			channel.queuePurge(queueName);
 		} catch (Exception e) {
 			LOG.error("Error while purgeQueue ",e);
 		}
 	}
+
+	private void closeChannelPools() {
+		for (ChannelPool pool : channelPools.values()) {
+			pool.close();
+		}
+		channelPools.clear();
+	}
+
+	/**
+	 * Confirm channels of one routing key, a channel is borrowed only for the
+	 * publish itself, the confirm is awaited after it was given back
+	 */
+	private class ChannelPool {
+		private final String queueName;
+		private final String routingKey;
+		private final BlockingQueue<ConfirmChannel> idleChannels = new LinkedBlockingQueue<>();
+		private final Map<ConfirmChannel, Boolean> openChannels = new ConcurrentHashMap<>();
+		private final Semaphore channelSlots = new Semaphore(Math.max(1, AppProperties.maxChannelsPerRoutingKey));
+		private volatile boolean declared = false;
+
+		private ChannelPool(String queueName, String routingKey) {
+			this.queueName = queueName;
+			this.routingKey = routingKey;
+		}
+
+		private ConfirmChannel borrow() throws IOException, TimeoutException {
+			ConfirmChannel confirmChannel = idleChannels.poll();
+			if (confirmChannel != null) {
+				return confirmChannel;
+			}
+			if (channelSlots.tryAcquire()) {
+				try {
+					return createChannel();
+				} catch (IOException | RuntimeException e) {
+					channelSlots.release();
+					throw e;
+				}
+			}
+			try {
+				confirmChannel = idleChannels.poll(AppProperties.confirmTimeoutInMs, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for a channel of " + routingKey);
+			}
+			if (confirmChannel == null) {
+				throw new TimeoutException("No channel of " + routingKey + " free in " + AppProperties.confirmTimeoutInMs + " ms");
+			}
+			return confirmChannel;
+		}
+
+		private void giveBack(ConfirmChannel confirmChannel) {
+			if (confirmChannel.isOpen()) {
+				idleChannels.offer(confirmChannel);
+			} else {
+				openChannels.remove(confirmChannel);
+				channelSlots.release();
+			}
+		}
+
+		private ConfirmChannel createChannel() throws IOException {
+			Channel channel = connection.createChannel();
+			if (!declared) {
+				Map<String, Object> args = new HashMap<>();
+				if(AppProperties.enableDeadLetterExchange) {
+					args.put(WebHookConstants.RECOVER_EXCHANGE_PROPERTY, WebHookConstants.RECOVER_EXCHANGE_NAME);
+				}
+				channel.exchangeDeclare(exchangeName, WebHookConstants.EXCHANGE_TYPE, true);
+				channel.queueDeclare(queueName, true, false, false, args);
+				channel.queueBind(queueName, exchangeName, routingKey);
+				declared = true;
+				LOG.debug(" queue {} declared for routing key {} ", queueName, routingKey);
+			}
+			ConfirmChannel confirmChannel = new ConfirmChannel(channel);
+			openChannels.put(confirmChannel, Boolean.TRUE);
+			return confirmChannel;
+		}
+
+		private int getOutstandingConfirms() {
+			int outstanding = 0;
+			for (ConfirmChannel confirmChannel : openChannels.keySet()) {
+				outstanding += confirmChannel.getOutstandingConfirms();
+			}
+			return outstanding;
+		}
+
+		private void close() {
+			for (ConfirmChannel confirmChannel : openChannels.keySet()) {
+				confirmChannel.close();
+			}
+			openChannels.clear();
+			idleChannels.clear();
+		}
+	}
 }
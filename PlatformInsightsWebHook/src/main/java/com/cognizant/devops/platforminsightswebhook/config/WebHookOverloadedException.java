@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platforminsightswebhook.config;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a message is not published because too many messages wait for
+ * the confirm of Rabbit Mq, the webhook is answered with 503 so that the tool
+ * sends it again later
+ */
+public class WebHookOverloadedException extends IOException {
+
+	private static final long serialVersionUID = -3127468953046218731L;
+
+	public WebHookOverloadedException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platforminsightswebhook.config;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the request body is larger than maxBodySizeInMb, the webhook is
+ * answered with 413
+ */
+public class WebHookPayloadTooLargeException extends IOException {
+
+	private static final long serialVersionUID = 5408152384732270115L;
+
+	public WebHookPayloadTooLargeException(String message) {
+		super(message);
+	}
+}
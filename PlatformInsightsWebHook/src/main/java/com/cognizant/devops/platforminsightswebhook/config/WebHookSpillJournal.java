@@ -0,0 +1,584 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platforminsightswebhook.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Append only journal of the webhook messages which could not be published to
+ * Rabbit Mq. Messages are appended to segment files of at most segmentSize
+ * bytes, each record carries its length and the CRC32 of its content. Records
+ * are read back in the order they were appended, a checkpoint file remembers
+ * up to where they were published and a segment is deleted once all its
+ * records were published. A record which fails its checksum ends its segment,
+ * the rest of that segment is skipped.
+ *
+ * Messages published after the last checkpoint of a crashed process are
+ * published again after the restart.
+ */
+public class WebHookSpillJournal {
+
+	private static Logger LOG = LogManager.getLogger(WebHookSpillJournal.class);
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_EXTENSION = ".journal";
+	private static final String CHECKPOINT_FILE = "checkpoint";
+	private static final int RECORD_HEADER_SIZE = 8;
+
+	/**
+	 * always forces every record to disk before append returns, interval
+	 * leaves it to {@link #sync()} and none to the operating system
+	 */
+	public enum FsyncPolicy {
+		ALWAYS, INTERVAL, NONE
+	}
+
+	public static class SpilledMessage {
+		private final String queueName;
+		private final String routingKey;
+		private final Map<String, Object> headers;
+		private final byte[] data;
+		private final long segmentId;
+		private final long endOffset;
+		private final long recordNumber;
+
+		private SpilledMessage(String queueName, String routingKey, Map<String, Object> headers, byte[] data,
+				long segmentId, long endOffset, long recordNumber) {
+			this.queueName = queueName;
+			this.routingKey = routingKey;
+			this.headers = headers;
+			this.data = data;
+			this.segmentId = segmentId;
+			this.endOffset = endOffset;
+			this.recordNumber = recordNumber;
+		}
+
+		public String getQueueName() {
+			return queueName;
+		}
+
+		public String getRoutingKey() {
+			return routingKey;
+		}
+
+		/**
+		 * @return header values as strings, null when the message had no headers
+		 */
+		public Map<String, Object> getHeaders() {
+			return headers;
+		}
+
+		public byte[] getData() {
+			return data;
+		}
+	}
+
+	private final Path journalDir;
+	private final long segmentSize;
+	private final long maxJournalSize;
+	private final FsyncPolicy fsyncPolicy;
+	private final NavigableMap<Long, Long> segmentSizes = new ConcurrentSkipListMap<>();
+	private final Map<Long, Long> segmentRecords = new ConcurrentSkipListMap<>();
+	private final AtomicLong journalBytes = new AtomicLong();
+	private final AtomicLong pendingRecords = new AtomicLong();
+	private final LongAdder appendedRecords = new LongAdder();
+	private final LongAdder replayedRecords = new LongAdder();
+	private final LongAdder corruptRecords = new LongAdder();
+	private final LongAdder fsyncs = new LongAdder();
+	private FileChannel activeSegment;
+	private volatile long activeSegmentId;
+	private boolean unsynced = false;
+	/* replay position, used by the replaying thread only */
+	private long replaySegmentId;
+	private long replayOffset;
+	private long replayedRecordsInSegment;
+
+	/**
+	 * Open the journal, records left by a previous run are validated and kept
+	 * for replay, appending always starts in a new segment
+	 */
+	public WebHookSpillJournal(Path journalDir, long segmentSize, long maxJournalSize, FsyncPolicy fsyncPolicy)
+			throws IOException {
+		this.journalDir = journalDir;
+		this.segmentSize = segmentSize;
+		this.maxJournalSize = maxJournalSize;
+		this.fsyncPolicy = fsyncPolicy;
+		Files.createDirectories(journalDir);
+		recover();
+		long pending = pendingRecords.get();
+		if (pending > 0) {
+			LOG.info(" Spill journal {} has {} messages to publish ", journalDir, pending);
+		}
+	}
+
+	/**
+	 * @param spillDirectory configured directory, when empty the journal is
+	 *                       created in INSIGHTS_HOME or else in the temp
+	 *                       directory
+	 */
+	public static Path resolveSpillDir(String spillDirectory) {
+		if (spillDirectory != null && !spillDirectory.trim().isEmpty()) {
+			return Paths.get(spillDirectory.trim());
+		}
+		String baseDir = System.getenv("INSIGHTS_HOME");
+		if (baseDir == null) {
+			baseDir = System.getProperty("java.io.tmpdir");
+		}
+		return Paths.get(baseDir, "webhookSpill");
+	}
+
+	/**
+	 * Append the message, header values are kept as strings
+	 *
+	 * @throws WebHookOverloadedException when the journal reached
+	 *                                    maxJournalSize
+	 */
+	public synchronized void append(String queueName, String routingKey, Map<String, Object> headers, byte[] data)
+			throws IOException {
+		byte[] content = encode(queueName, routingKey, headers, data);
+		int recordSize = RECORD_HEADER_SIZE + content.length;
+		if (journalBytes.get() + recordSize > maxJournalSize) {
+			throw new WebHookOverloadedException(
+					"Spill journal full, " + journalBytes.get() + " bytes in " + journalDir + " statistics " + getStatistics());
+		}
+		if (activeSegment == null) {
+			throw new IOException("Spill journal " + journalDir + " is closed");
+		}
+		long size = segmentSizes.get(activeSegmentId);
+		if (size > 0 && size + recordSize > segmentSize) {
+			rotate();
+			size = 0;
+		}
+		ByteBuffer record = ByteBuffer.allocate(recordSize);
+		record.putInt(content.length);
+		record.putInt(checksum(content));
+		record.put(content);
+		record.flip();
+		try {
+			while (record.hasRemaining()) {
+				activeSegment.write(record);
+			}
+			if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+				activeSegment.force(false);
+				fsyncs.increment();
+			} else {
+				unsynced = true;
+			}
+		} catch (IOException e) {
+			/* drop the partly written record, the next append starts on a record boundary */
+			activeSegment.truncate(size);
+			throw e;
+		}
+		segmentRecords.merge(activeSegmentId, 1L, Long::sum);
+		segmentSizes.put(activeSegmentId, size + recordSize);
+		journalBytes.addAndGet(recordSize);
+		pendingRecords.incrementAndGet();
+		appendedRecords.increment();
+	}
+
+	public boolean hasPending() {
+		return pendingRecords.get() > 0;
+	}
+
+	/**
+	 * Force appended records to disk, used with the interval fsync policy
+	 */
+	public synchronized void sync() {
+		if (!unsynced || activeSegment == null) {
+			return;
+		}
+		try {
+			activeSegment.force(false);
+			fsyncs.increment();
+			unsynced = false;
+		} catch (IOException e) {
+			LOG.error("Unable to sync spill journal {} ", journalDir, e);
+		}
+	}
+
+	/**
+	 * Read the next messages after the replay position, the position moves only
+	 * with {@link #commit(SpilledMessage)}. A batch never spans two segments.
+	 *
+	 * @return at most maxMessages messages, empty when nothing is left to
+	 *         replay
+	 */
+	public List<SpilledMessage> read(int maxMessages) throws IOException {
+		while (true) {
+			boolean sealed = replaySegmentId != activeSegmentId;
+			Long limit = segmentSizes.get(replaySegmentId);
+			if (limit == null) {
+				Long nextSegmentId = segmentSizes.higherKey(replaySegmentId);
+				if (nextSegmentId == null) {
+					return Collections.emptyList();
+				}
+				moveTo(nextSegmentId);
+				continue;
+			}
+			if (replayOffset >= limit) {
+				if (!sealed) {
+					return Collections.emptyList();
+				}
+				finishSegment();
+				continue;
+			}
+			List<SpilledMessage> messages = new ArrayList<>();
+			boolean corrupt = readSegment(maxMessages, limit, messages);
+			if (!messages.isEmpty()) {
+				return messages;
+			}
+			if (corrupt) {
+				corruptRecords.increment();
+				LOG.error("Corrupt record in spill journal segment {} at {}, skipping the rest of the segment ",
+						segmentPath(replaySegmentId), replayOffset);
+				if (!sealed) {
+					synchronized (this) {
+						rotate();
+					}
+				}
+				finishSegment();
+			}
+		}
+	}
+
+	/**
+	 * Mark the message and all messages read before it as published
+	 */
+	public void commit(SpilledMessage message) throws IOException {
+		if (message.segmentId != replaySegmentId || message.endOffset <= replayOffset) {
+			return;
+		}
+		long committed = message.recordNumber - replayedRecordsInSegment;
+		replayOffset = message.endOffset;
+		replayedRecordsInSegment = message.recordNumber;
+		pendingRecords.addAndGet(-committed);
+		replayedRecords.add(committed);
+		boolean sealed = replaySegmentId != activeSegmentId;
+		Long size = segmentSizes.get(replaySegmentId);
+		if (sealed && size != null && replayOffset >= size) {
+			finishSegment();
+		} else {
+			writeCheckpoint();
+		}
+	}
+
+	/**
+	 * @return journal depth in messages and bytes and the record counts
+	 */
+	public JsonObject getStatistics() {
+		JsonObject statistics = new JsonObject();
+		statistics.addProperty("journalMessages", pendingRecords.get());
+		statistics.addProperty("journalBytes", journalBytes.get());
+		statistics.addProperty("journalSegments", segmentSizes.size());
+		statistics.addProperty("appendedMessages", appendedRecords.sum());
+		statistics.addProperty("replayedMessages", replayedRecords.sum());
+		statistics.addProperty("corruptRecords", corruptRecords.sum());
+		statistics.addProperty("fsyncs", fsyncs.sum());
+		return statistics;
+	}
+
+	public synchronized void close() {
+		if (activeSegment == null) {
+			return;
+		}
+		try {
+			activeSegment.force(false);
+			activeSegment.close();
+		} catch (IOException e) {
+			LOG.error("Error while closing spill journal {} ", journalDir, e);
+		}
+		activeSegment = null;
+	}
+
+	/**
+	 * Read the records from the replay position up to limit
+	 *
+	 * @return true when a record failed its checksum or runs past the limit
+	 */
+	private boolean readSegment(int maxMessages, long limit, List<SpilledMessage> messages) throws IOException {
+		long offset = replayOffset;
+		long recordNumber = replayedRecordsInSegment;
+		ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+		try (FileChannel segment = FileChannel.open(segmentPath(replaySegmentId), StandardOpenOption.READ)) {
+			while (offset < limit && messages.size() < maxMessages) {
+				byte[] content = readRecord(segment, offset, limit, header);
+				if (content == null) {
+					return true;
+				}
+				offset += RECORD_HEADER_SIZE + content.length;
+				recordNumber++;
+				try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(content))) {
+					String queueName = readString(in);
+					String routingKey = readString(in);
+					int headerCount = in.readInt();
+					Map<String, Object> headers = headerCount == 0 ? null : new LinkedHashMap<>();
+					for (int i = 0; i < headerCount; i++) {
+						headers.put(readString(in), readString(in));
+					}
+					byte[] data = new byte[in.readInt()];
+					in.readFully(data);
+					messages.add(new SpilledMessage(queueName, routingKey, headers, data, replaySegmentId, offset,
+							recordNumber));
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return content of the record at offset, null when it fails its checksum
+	 *         or does not end before limit
+	 */
+	private static byte[] readRecord(FileChannel segment, long offset, long limit, ByteBuffer header)
+			throws IOException {
+		if (offset + RECORD_HEADER_SIZE > limit) {
+			return null;
+		}
+		header.clear();
+		readFully(segment, header, offset);
+		header.flip();
+		int length = header.getInt();
+		int checksum = header.getInt();
+		if (length < 0 || offset + RECORD_HEADER_SIZE + length > limit) {
+			return null;
+		}
+		ByteBuffer content = ByteBuffer.allocate(length);
+		readFully(segment, content, offset + RECORD_HEADER_SIZE);
+		if (checksum(content.array()) != checksum) {
+			return null;
+		}
+		return content.array();
+	}
+
+	private static void readFully(FileChannel segment, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (segment.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of spill journal segment");
+			}
+		}
+	}
+
+	/**
+	 * Strings are written as their UTF-8 length and bytes, header values have no
+	 * length limit
+	 */
+	private static byte[] encode(String queueName, String routingKey, Map<String, Object> headers, byte[] data)
+			throws IOException {
+		ByteArrayOutputStream content = new ByteArrayOutputStream(data.length + 128);
+		try (DataOutputStream out = new DataOutputStream(content)) {
+			writeString(out, queueName);
+			writeString(out, routingKey);
+			out.writeInt(headers == null ? 0 : headers.size());
+			if (headers != null) {
+				for (Map.Entry<String, Object> header : headers.entrySet()) {
+					writeString(out, header.getKey());
+					writeString(out, String.valueOf(header.getValue()));
+				}
+			}
+			out.writeInt(data.length);
+			out.write(data);
+		}
+		return content.toByteArray();
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static int checksum(byte[] content) {
+		CRC32 crc = new CRC32();
+		crc.update(content, 0, content.length);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Delete the segment at the replay position, all its records were published
+	 * or skipped, and move to the next one
+	 */
+	private void finishSegment() throws IOException {
+		long finishedSegmentId = replaySegmentId;
+		Long records = segmentRecords.remove(finishedSegmentId);
+		if (records != null && records > replayedRecordsInSegment) {
+			/* records skipped after a corrupt record */
+			pendingRecords.addAndGet(replayedRecordsInSegment - records);
+		}
+		Long nextSegmentId = segmentSizes.higherKey(finishedSegmentId);
+		moveTo(nextSegmentId == null ? activeSegmentId : nextSegmentId);
+		Long size = segmentSizes.remove(finishedSegmentId);
+		if (size != null) {
+			journalBytes.addAndGet(-size);
+		}
+		Files.deleteIfExists(segmentPath(finishedSegmentId));
+	}
+
+	private void moveTo(long segmentId) throws IOException {
+		replaySegmentId = segmentId;
+		replayOffset = 0;
+		replayedRecordsInSegment = 0;
+		writeCheckpoint();
+	}
+
+	private void rotate() throws IOException {
+		long nextSegmentId = activeSegmentId + 1;
+		if (activeSegment != null) {
+			activeSegment.force(false);
+			activeSegment.close();
+			unsynced = false;
+		}
+		activeSegment = FileChannel.open(segmentPath(nextSegmentId), StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.WRITE);
+		segmentRecords.put(nextSegmentId, 0L);
+		segmentSizes.put(nextSegmentId, 0L);
+		activeSegmentId = nextSegmentId;
+		LOG.debug(" Spill journal segment {} started, statistics {} ", nextSegmentId, getStatistics());
+	}
+
+	private void writeCheckpoint() throws IOException {
+		Path checkpoint = journalDir.resolve(CHECKPOINT_FILE);
+		Path tempCheckpoint = journalDir.resolve(CHECKPOINT_FILE + ".tmp");
+		byte[] content = (replaySegmentId + " " + replayOffset).getBytes(StandardCharsets.UTF_8);
+		try (FileChannel out = FileChannel.open(tempCheckpoint, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			out.write(ByteBuffer.wrap(content));
+			if (fsyncPolicy != FsyncPolicy.NONE) {
+				out.force(false);
+			}
+		}
+		Files.move(tempCheckpoint, checkpoint, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Validate the segments left by a previous run, truncating a segment at its
+	 * first invalid record, and restore the replay position of the checkpoint
+	 */
+	private void recover() throws IOException {
+		long checkpointSegmentId = 0;
+		long checkpointOffset = 0;
+		Path checkpoint = journalDir.resolve(CHECKPOINT_FILE);
+		if (Files.exists(checkpoint)) {
+			String[] position = new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8).trim().split(" ");
+			try {
+				checkpointSegmentId = Long.parseLong(position[0]);
+				checkpointOffset = Long.parseLong(position[1]);
+			} catch (RuntimeException e) {
+				LOG.error("Invalid spill journal checkpoint {}, replaying all segments ", checkpoint);
+			}
+		}
+		replaySegmentId = checkpointSegmentId;
+		File[] segmentFiles = journalDir.toFile()
+				.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_EXTENSION));
+		long lastSegmentId = checkpointSegmentId;
+		if (segmentFiles != null) {
+			for (File segmentFile : segmentFiles) {
+				String name = segmentFile.getName();
+				long segmentId;
+				try {
+					segmentId = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_EXTENSION.length()));
+				} catch (NumberFormatException e) {
+					continue;
+				}
+				if (segmentId < checkpointSegmentId) {
+					Files.delete(segmentFile.toPath());
+					continue;
+				}
+				recoverSegment(segmentId, segmentId == checkpointSegmentId ? checkpointOffset : 0);
+				lastSegmentId = Math.max(lastSegmentId, segmentId);
+			}
+		}
+		activeSegmentId = lastSegmentId;
+		rotate();
+		Long firstSegmentId = segmentSizes.firstKey();
+		if (firstSegmentId != checkpointSegmentId) {
+			moveTo(firstSegmentId);
+		}
+	}
+
+	private void recoverSegment(long segmentId, long checkpointOffset) throws IOException {
+		Path segmentPath = segmentPath(segmentId);
+		long offset = 0;
+		long records = 0;
+		long recordsBeforeCheckpoint = 0;
+		long offsetBeforeCheckpoint = 0;
+		ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+		try (FileChannel segment = FileChannel.open(segmentPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long fileSize = segment.size();
+			byte[] content;
+			while ((content = readRecord(segment, offset, fileSize, header)) != null) {
+				offset += RECORD_HEADER_SIZE + content.length;
+				records++;
+				if (offset <= checkpointOffset) {
+					recordsBeforeCheckpoint = records;
+					offsetBeforeCheckpoint = offset;
+				}
+			}
+			if (offset < fileSize) {
+				corruptRecords.increment();
+				LOG.error("Spill journal segment {} truncated from {} to {} bytes at its first invalid record ",
+						segmentPath, fileSize, offset);
+				segment.truncate(offset);
+				segment.force(false);
+			}
+		}
+		segmentSizes.put(segmentId, offset);
+		segmentRecords.put(segmentId, records);
+		journalBytes.addAndGet(offset);
+		pendingRecords.addAndGet(records - recordsBeforeCheckpoint);
+		if (checkpointOffset > 0) {
+			replaySegmentId = segmentId;
+			replayOffset = offsetBeforeCheckpoint;
+			replayedRecordsInSegment = recordsBeforeCheckpoint;
+		}
+	}
+
+	private Path segmentPath(long segmentId) {
+		return journalDir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segmentId, SEGMENT_EXTENSION));
+	}
+}
@@ -15,13 +15,25 @@
  ******************************************************************************/
 package com.cognizant.devops.platforminsightswebhook.events;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.stream.Collectors;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
 import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -33,18 +45,21 @@ import org.apache.logging.log4j.Logger;
 import com.cognizant.devops.platforminsightswebhook.application.AppProperties;
 import com.cognizant.devops.platforminsightswebhook.config.WebHookConstants;
 import com.cognizant.devops.platforminsightswebhook.config.WebHookMessagePublisher;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.cognizant.devops.platforminsightswebhook.config.WebHookOverloadedException;
+import com.cognizant.devops.platforminsightswebhook.config.WebHookPayloadTooLargeException;
+import com.cognizant.devops.platforminsightswebhook.events.WebHookIngestQueue.IngestRequest;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 /**
  * Servlet implementation class to receive webhook data from tool
  */
 
-@WebServlet(urlPatterns = "/insightsDevOpsWebHook/*", loadOnStartup = 1)
+@WebServlet(urlPatterns = "/insightsDevOpsWebHook/*", loadOnStartup = 1, asyncSupported = true)
 public class WebHookHandlerServlet extends HttpServlet {
 	private static final long serialVersionUID = 1L;
 	private static Logger log = LogManager.getLogger(WebHookHandlerServlet.class);
+	private static final int BUFFER_SIZE = 8192;
 
 	public WebHookHandlerServlet() {
 		super();
@@ -60,6 +75,13 @@ public class WebHookHandlerServlet extends HttpServlet {
 		log.debug(" In only doGet not in post  ");
 		try {
 			processRequest(request);
+		} catch (WebHookPayloadTooLargeException e) {
+			log.error("Rejected webhook data in doGet method {} ", e.getMessage());
+			setResponseMessage(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage());
+		} catch (WebHookOverloadedException e) {
+			log.error("Rejected webhook data in doGet method {} ", e.getMessage());
+			response.setHeader("Retry-After", String.valueOf(AppProperties.retryAfterInSeconds));
+			setResponseMessage(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
 		} catch (Exception e) {
 			log.error("Error while adding data in Mq in doget method {} ", e.getMessage());
 			setResponseMessage(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
@@ -74,15 +96,134 @@ public class WebHookHandlerServlet extends HttpServlet {
 	}
 
 	/**
+	 * The body is read without blocking and the request is queued for the
+	 * publisher workers of {@link WebHookIngestQueue}, which answer it. The
+	 * container thread is released at once.
+	 * 
 	 * @see HttpServlet#doPost(HttpServletRequest request, HttpServletResponse
 	 *      response)
 	 */
 	@Override
 	protected void doPost(HttpServletRequest request, HttpServletResponse response)
 			throws ServletException, IOException {
+		log.debug("In do post ");
+		if (!request.isAsyncSupported()) {
+			publishRequest(request, response);
+			return;
+		}
+		WebHookIngestQueue ingestQueue = WebHookIngestQueue.getInstance();
+		AsyncContext asyncContext = request.startAsync();
+		asyncContext.setTimeout(WebHookIngestQueue.getAsyncTimeoutInMs());
+		IngestRequest ingestRequest = new IngestRequest(asyncContext, System.nanoTime());
+		asyncContext.addListener(new AsyncListener() {
+			@Override
+			public void onTimeout(AsyncEvent event) {
+				ingestQueue.expire(ingestRequest);
+			}
+
+			@Override
+			public void onError(AsyncEvent event) {
+				log.error("Error in webhook request ", event.getThrowable());
+				ingestQueue.complete(ingestRequest, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+			}
+
+			@Override
+			public void onComplete(AsyncEvent event) {
+				/* answered by the ingest queue */
+			}
+
+			@Override
+			public void onStartAsync(AsyncEvent event) {
+				/* not started again */
+			}
+		});
+		ServletInputStream in = request.getInputStream();
+		in.setReadListener(new BodyReader(request, in, ingestRequest, ingestQueue));
+	}
+
+	/**
+	 * Reads the body as far as it is available, the container calls it again
+	 * when more arrives. A body larger than maxBodySizeInMb is answered with 413
+	 * and not read further.
+	 */
+	private class BodyReader implements ReadListener {
+		private final HttpServletRequest request;
+		private final ServletInputStream in;
+		private final IngestRequest ingestRequest;
+		private final WebHookIngestQueue ingestQueue;
+		private final ByteArrayOutputStream body;
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+
+		private BodyReader(HttpServletRequest request, ServletInputStream in, IngestRequest ingestRequest,
+				WebHookIngestQueue ingestQueue) {
+			this.request = request;
+			this.in = in;
+			this.ingestRequest = ingestRequest;
+			this.ingestQueue = ingestQueue;
+			long contentLength = request.getContentLengthLong();
+			if (contentLength > getMaxBodySize()) {
+				rejectTooLarge(contentLength);
+				this.body = new ByteArrayOutputStream(0);
+			} else {
+				this.body = new ByteArrayOutputStream(contentLength > 0 ? (int) contentLength : BUFFER_SIZE);
+			}
+		}
+
+		@Override
+		public void onDataAvailable() throws IOException {
+			int count;
+			while (!ingestRequest.isCompleted() && in.isReady() && (count = in.read(buffer)) != -1) {
+				if (body.size() + count > getMaxBodySize()) {
+					rejectTooLarge((long) body.size() + count);
+					return;
+				}
+				body.write(buffer, 0, count);
+			}
+		}
+
+		private void rejectTooLarge(long size) {
+			log.error(" Request body of {} bytes exceeds maxBodySizeInMb {} ", size, AppProperties.maxBodySizeInMb);
+			ingestQueue.reject(ingestRequest, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+		}
+
+		@Override
+		public void onAllDataRead() {
+			if (ingestRequest.isCompleted()) {
+				return;
+			}
+			byte[] data = body.toByteArray();
+			String webHookName = request.getParameter(WebHookConstants.REQUEST_PARAM_KEY_WEBHOOKNAME);
+			if (!isJsonObject(data) || webHookName == null) {
+				log.debug(" Request body is empty or not a json object, or webHookName is missing ");
+				ingestQueue.reject(ingestRequest, HttpServletResponse.SC_OK);
+				return;
+			}
+			ingestRequest.setPayload(webHookName, WebHookConstants.MQ_CHANNEL_PREFIX.concat(webHookName),
+					getHeaders(request), data);
+			ingestQueue.offer(ingestRequest);
+		}
+
+		@Override
+		public void onError(Throwable error) {
+			log.error("unable to read data from request body from the http request ==== ", error);
+			ingestQueue.reject(ingestRequest, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	/**
+	 * Publish on the request thread, used when the container has no async
+	 * support for the request
+	 */
+	private void publishRequest(HttpServletRequest request, HttpServletResponse response) {
 		try {
-			log.debug("In do post ");
 			processRequest(request);
+		} catch (WebHookPayloadTooLargeException e) {
+			log.error("Rejected webhook data in doPost method {} ", e.getMessage());
+			setResponseMessage(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage());
+		} catch (WebHookOverloadedException e) {
+			log.error("Rejected webhook data in doPost method {} ", e.getMessage());
+			response.setHeader("Retry-After", String.valueOf(AppProperties.retryAfterInSeconds));
+			setResponseMessage(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
 		} catch (TimeoutException e) {
 			setResponseMessage(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
 			log.error(e.getMessage());
@@ -93,69 +234,128 @@ public class WebHookHandlerServlet extends HttpServlet {
 	}
 
 	/**
-	 * used to process request and add data in RabbitMq
+	 * used to process request and add data in RabbitMq, the body is published as
+	 * received and the request parameters are sent as message headers
 	 * 
 	 * @param request
 	 * @throws Exception
 	 */
 	private void processRequest(HttpServletRequest request) throws Exception {
 		long startTime = System.nanoTime();
-		JsonObject dataWithReqParam = getBody(request);
-		if (dataWithReqParam != null) {
-			String webHookMqChannelName = WebHookConstants.MQ_CHANNEL_PREFIX
-					.concat(dataWithReqParam.get(WebHookConstants.REQUEST_PARAM_KEY_WEBHOOKNAME).getAsString());
-			String res = dataWithReqParam.toString();
-			WebHookMessagePublisher.getInstance().publishEventAction(res.getBytes(), webHookMqChannelName);
+		byte[] body = getBody(request);
+		if (isJsonObject(body)) {
+			Map<String, Object> headers = getHeaders(request);
+			String webHookName = request.getParameter(WebHookConstants.REQUEST_PARAM_KEY_WEBHOOKNAME);
+			if (webHookName == null) {
+				log.error(" Request parameter {} is missing ", WebHookConstants.REQUEST_PARAM_KEY_WEBHOOKNAME);
+				return;
+			}
+			String webHookMqChannelName = WebHookConstants.MQ_CHANNEL_PREFIX.concat(webHookName);
+			WebHookMessagePublisher.getInstance().publishEventAction(body, webHookMqChannelName, headers);
 			long processingTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
 			log.debug(" Data successfully published in webhook name as {} ",webHookMqChannelName);
-			log.debug("Type=Webhook  WebhookName={} MqChannel={} Size={} ProcessingTime={}",request.getParameter("webHookName"),webHookMqChannelName,res.getBytes().length,processingTime);
+			log.debug("Type=Webhook  WebhookName={} MqChannel={} Size={} ProcessingTime={}",webHookName,webHookMqChannelName,body.length,processingTime);
 		} else {
-			log.debug(" Request body is empty ");
+			log.debug(" Request body is empty or not a json object ");
 		}
 	}
 
 	/**
-	 * This method used to create json sstring from request body
+	 * This method used to read the request body, it is read in one piece when
+	 * the content length is known
 	 * 
 	 * @param request
-	 * @return
+	 * @return request body
+	 * @throws WebHookPayloadTooLargeException when the body is larger than
+	 *                                         maxBodySizeInMb
 	 * @throws IOException
 	 */
-	public JsonObject getBody(HttpServletRequest request) throws IOException {
-
-
-		JsonObject responceJson = null;
-		try {
-			String bodymessage = request.getReader().lines().collect(Collectors.joining());
-			if (bodymessage.length() > 1) {
-				JsonElement element = new JsonParser().parse(bodymessage);
-				responceJson = element.getAsJsonObject();
-				StringBuilder paramDetail = new StringBuilder();
-				Enumeration<String> parameterNames = request.getParameterNames();
-				while (parameterNames.hasMoreElements()) {
-					String paramName = parameterNames.nextElement();
-					String[] paramValues = request.getParameterValues(paramName);
-					for (int i = 0; i < paramValues.length; i++) {
-						String paramValue = paramValues[i];
-						paramDetail.append(paramName + ":" + paramValue + ",\n");
-						responceJson.addProperty(paramName, paramValue);
+	public byte[] getBody(HttpServletRequest request) throws IOException {
+		long maxBodySize = getMaxBodySize();
+		int contentLength = request.getContentLength();
+		if (request.getContentLengthLong() > maxBodySize) {
+			throw new WebHookPayloadTooLargeException(
+					"Request body of " + request.getContentLengthLong() + " bytes exceeds " + maxBodySize + " bytes");
+		}
+		try (InputStream in = request.getInputStream()) {
+			if (contentLength >= 0) {
+				byte[] body = new byte[contentLength];
+				int read = 0;
+				while (read < contentLength) {
+					int count = in.read(body, read, contentLength - read);
+					if (count < 0) {
+						return Arrays.copyOf(body, read);
 					}
+					read += count;
 				}
-				responceJson.addProperty("iswebhookdata", Boolean.TRUE);
+				return body;
 			}
-		} catch (Exception e) {
-			log.error("unable to read data from request body from the http request ==== ", e);
-			return null;
+			ByteArrayOutputStream body = new ByteArrayOutputStream(BUFFER_SIZE);
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				if (body.size() + count > maxBodySize) {
+					throw new WebHookPayloadTooLargeException("Request body exceeds " + maxBodySize + " bytes");
+				}
+				body.write(buffer, 0, count);
+			}
+			return body.toByteArray();
+		}
+	}
+
+	private static long getMaxBodySize() {
+		return Math.max(1, AppProperties.maxBodySizeInMb) * 1024L * 1024L;
+	}
+
+	/**
+	 * The body is validated without building a tree, the webhook engine parses
+	 * it
+	 * 
+	 * @param body
+	 * @return true when the body is exactly one valid json object
+	 */
+	static boolean isJsonObject(byte[] body) {
+		int start = 0;
+		if (body.length >= 3 && (body[0] & 0xFF) == 0xEF && (body[1] & 0xFF) == 0xBB && (body[2] & 0xFF) == 0xBF) {
+			/* UTF-8 byte order mark */
+			start = 3;
+		}
+		try (JsonReader reader = new JsonReader(new InputStreamReader(
+				new ByteArrayInputStream(body, start, body.length - start), StandardCharsets.UTF_8))) {
+			if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+				return false;
+			}
+			reader.skipValue();
+			return reader.peek() == JsonToken.END_DOCUMENT;
+		} catch (IOException e) {
+			return false;
 		}
+	}
 
-		return responceJson;
+	/**
+	 * Request parameters as message headers, the last value is used when a
+	 * parameter is repeated
+	 * 
+	 * @param request
+	 * @return headers
+	 */
+	private Map<String, Object> getHeaders(HttpServletRequest request) {
+		Map<String, Object> headers = new HashMap<>();
+		Enumeration<String> parameterNames = request.getParameterNames();
+		while (parameterNames.hasMoreElements()) {
+			String paramName = parameterNames.nextElement();
+			String[] paramValues = request.getParameterValues(paramName);
+			headers.put(WebHookConstants.WEBHOOK_PARAM_HEADER_PREFIX + paramName, paramValues[paramValues.length - 1]);
+		}
+		return headers;
 	}
 
 	/**
-	 * Used to release rabbitMq connection
+	 * Used to stop the ingest queue and release rabbitMq connection
 	 */
 	@Override
 	public void destroy() {
+		WebHookIngestQueue.shutdownIfStarted();
 		WebHookMessagePublisher.getInstance().releaseMqConnetion();
 	}
 
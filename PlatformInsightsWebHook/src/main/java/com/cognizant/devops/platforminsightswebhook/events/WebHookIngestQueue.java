@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platforminsightswebhook.events;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.cognizant.devops.platforminsightswebhook.application.AppProperties;
+import com.cognizant.devops.platforminsightswebhook.config.WebHookMessagePublisher;
+import com.cognizant.devops.platforminsightswebhook.config.WebHookOverloadedException;
+import com.google.gson.JsonObject;
+
+/**
+ * Webhook requests waiting to be published. The servlet queues the request and
+ * releases its container thread, ingestWorkerThreads workers publish the queued
+ * requests and complete their responses. A request which finds ingestQueueSize
+ * requests queued is answered with 429, a request which Rabbit Mq could not take
+ * or which waited longer than ingestTimeoutInMs with 503, both with a
+ * Retry-After of retryAfterInSeconds. A worker takes a request before it
+ * publishes it and answers it, a request which waited longer than
+ * ingestTimeoutInMs is answered with 503 by the worker which takes it. The
+ * async timeout adds the time a publish may take, so that it only fires for a
+ * request no worker took, and it never waits for a worker.
+ */
+public class WebHookIngestQueue {
+
+	private static Logger log = LogManager.getLogger(WebHookIngestQueue.class);
+	static final int SC_TOO_MANY_REQUESTS = 429;
+	private static WebHookIngestQueue instance = null;
+
+	/**
+	 * Created when the request goes async, the payload is set once the body was
+	 * read
+	 */
+	static class IngestRequest {
+		private final AsyncContext asyncContext;
+		private final long receivedTime;
+		private final AtomicBoolean taken = new AtomicBoolean();
+		private final AtomicBoolean completed = new AtomicBoolean();
+		private String webHookName;
+		private String webHookMqChannelName;
+		private Map<String, Object> headers;
+		private byte[] body;
+
+		IngestRequest(AsyncContext asyncContext, long receivedTime) {
+			this.asyncContext = asyncContext;
+			this.receivedTime = receivedTime;
+		}
+
+		void setPayload(String webHookName, String webHookMqChannelName, Map<String, Object> headers, byte[] body) {
+			this.webHookName = webHookName;
+			this.webHookMqChannelName = webHookMqChannelName;
+			this.headers = headers;
+			this.body = body;
+		}
+
+		boolean isCompleted() {
+			return completed.get();
+		}
+
+		/**
+		 * @return false when a worker or the async timeout took the request already
+		 */
+		boolean take() {
+			return taken.compareAndSet(false, true);
+		}
+	}
+
+	private final BlockingQueue<IngestRequest> ingestQueue;
+	private final List<Thread> workers = new ArrayList<>();
+	private volatile boolean shutdown = false;
+	private final LongAdder acceptedRequests = new LongAdder();
+	private final LongAdder publishedRequests = new LongAdder();
+	private final LongAdder failedRequests = new LongAdder();
+	private final LongAdder queueFullRejections = new LongAdder();
+	private final LongAdder overloadRejections = new LongAdder();
+	private final LongAdder expiredRequests = new LongAdder();
+	private final LongAdder totalQueueTimeInMs = new LongAdder();
+	private final LongAdder totalLatencyInMs = new LongAdder();
+	private final LongAccumulator maxLatencyInMs = new LongAccumulator(Math::max, 0);
+
+	private WebHookIngestQueue() {
+		ingestQueue = new ArrayBlockingQueue<>(Math.max(1, AppProperties.ingestQueueSize));
+		int workerThreads = Math.max(1, AppProperties.ingestWorkerThreads);
+		for (int workerId = 1; workerId <= workerThreads; workerId++) {
+			Thread worker = new Thread(this::publishQueuedRequests, "WebHookPublisher-" + workerId);
+			worker.setDaemon(true);
+			workers.add(worker);
+			worker.start();
+		}
+		log.debug(" Webhook ingest queue started with ingestQueueSize = {} ingestWorkerThreads = {} ",
+				AppProperties.ingestQueueSize, workerThreads);
+	}
+
+	public static synchronized WebHookIngestQueue getInstance() {
+		if (instance == null) {
+			instance = new WebHookIngestQueue();
+		}
+		return instance;
+	}
+
+	/**
+	 * Async timeout of a request, ingestTimeoutInMs in the queue plus the time a
+	 * publish may take, which waits up to confirmTimeoutInMs each for a channel,
+	 * a confirm slot and the confirm
+	 *
+	 * @return timeout in ms
+	 */
+	static long getAsyncTimeoutInMs() {
+		return Math.max(1, AppProperties.ingestTimeoutInMs) + 3 * Math.max(1, AppProperties.confirmTimeoutInMs);
+	}
+
+	/**
+	 * Shut the queue down if it was started
+	 */
+	static synchronized void shutdownIfStarted() {
+		if (instance != null) {
+			instance.shutdown();
+			instance = null;
+		}
+	}
+
+	/**
+	 * Stop the workers and answer the requests still queued with 503, new
+	 * requests are answered with 503 as well. The workers are interrupted, a
+	 * publish which waits for Rabbit Mq fails with the interrupt, and each worker
+	 * is given confirmTimeoutInMs to answer its request and stop.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		for (Thread worker : workers) {
+			worker.interrupt();
+		}
+		for (Thread worker : workers) {
+			try {
+				worker.join(Math.max(1, AppProperties.confirmTimeoutInMs));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		List<IngestRequest> queuedRequests = new ArrayList<>();
+		ingestQueue.drainTo(queuedRequests);
+		for (IngestRequest request : queuedRequests) {
+			reject(request, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+		}
+		log.info(" Webhook ingest queue stopped, {} queued requests answered with 503, statistics {} ",
+				queuedRequests.size(), getStatistics());
+	}
+
+	/**
+	 * Queue the request, when the queue is full the request is answered with 429
+	 * and completed at once, when the queue is shut down with 503
+	 *
+	 * @return false when the request was rejected
+	 */
+	boolean offer(IngestRequest request) {
+		if (shutdown) {
+			reject(request, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			return false;
+		}
+		if (!ingestQueue.offer(request)) {
+			queueFullRejections.increment();
+			log.error(" Webhook ingest queue full, rejecting data of {} statistics {} ", request.webHookName,
+					getStatistics());
+			reject(request, SC_TOO_MANY_REQUESTS);
+			return false;
+		}
+		acceptedRequests.increment();
+		if (shutdown && ingestQueue.remove(request)) {
+			/* queued while the queue was drained */
+			reject(request, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Answer a request which ran over the async timeout before a worker took it.
+	 * A request which a worker took is left to the worker, the container thread
+	 * returns at once.
+	 */
+	void expire(IngestRequest request) {
+		if (!request.take()) {
+			if (!request.isCompleted()) {
+				log.error(" Webhook data of {} still publishing after the async timeout ", request.webHookName);
+			}
+			return;
+		}
+		if (complete(request, HttpServletResponse.SC_SERVICE_UNAVAILABLE)) {
+			expiredRequests.increment();
+			log.error(" Webhook data of {} not published in {} ms ", request.webHookName == null ? "-" : request.webHookName,
+					getAsyncTimeoutInMs());
+		}
+	}
+
+	/**
+	 * Answer a request which is not published, unless a worker or the async
+	 * timeout took it already
+	 */
+	void reject(IngestRequest request, int status) {
+		if (request.take()) {
+			complete(request, status);
+		}
+	}
+
+	private void publishQueuedRequests() {
+		while (!shutdown && !Thread.currentThread().isInterrupted()) {
+			IngestRequest request;
+			try {
+				request = ingestQueue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			publish(request);
+		}
+	}
+
+	private void publish(IngestRequest request) {
+		long queueTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - request.receivedTime);
+		totalQueueTimeInMs.add(queueTime);
+		if (!request.take()) {
+			/* answered by the async timeout while it was queued */
+			return;
+		}
+		if (queueTime > Math.max(1, AppProperties.ingestTimeoutInMs)) {
+			expiredRequests.increment();
+			log.error(" Webhook data of {} waited {} ms in the queue, not published ", request.webHookName, queueTime);
+			complete(request, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			return;
+		}
+		int status = HttpServletResponse.SC_OK;
+		try {
+			WebHookMessagePublisher.getInstance().publishEventAction(request.body, request.webHookMqChannelName,
+					request.headers);
+			publishedRequests.increment();
+		} catch (WebHookOverloadedException e) {
+			overloadRejections.increment();
+			log.error(" Rejected webhook data of {} {} ", request.webHookName, e.getMessage());
+			status = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+		} catch (IOException | TimeoutException | RuntimeException e) {
+			failedRequests.increment();
+			log.error("Error while adding data in Mq for {} ", request.webHookName, e);
+			status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+		}
+		complete(request, status);
+		long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - request.receivedTime);
+		totalLatencyInMs.add(latency);
+		maxLatencyInMs.accumulate(latency);
+		log.debug("Type=Webhook  WebhookName={} MqChannel={} Size={} QueueTime={} ProcessingTime={} QueueDepth={} Status={}",
+				request.webHookName, request.webHookMqChannelName, request.body.length, queueTime, latency,
+				ingestQueue.size(), status);
+	}
+
+	/**
+	 * Answer the request unless it was answered already
+	 *
+	 * @return false when the request was answered already
+	 */
+	boolean complete(IngestRequest request, int status) {
+		if (!request.completed.compareAndSet(false, true)) {
+			return false;
+		}
+		try {
+			HttpServletResponse response = (HttpServletResponse) request.asyncContext.getResponse();
+			response.setStatus(status);
+			if (status == SC_TOO_MANY_REQUESTS || status == HttpServletResponse.SC_SERVICE_UNAVAILABLE) {
+				response.setHeader("Retry-After", String.valueOf(AppProperties.retryAfterInSeconds));
+			}
+			request.asyncContext.complete();
+		} catch (Exception e) {
+			log.error("Error while completing webhook response for {} ", request.webHookName, e);
+		}
+		return true;
+	}
+
+	/**
+	 * @return queue depth, request counts and average and maximum latency
+	 */
+	public JsonObject getStatistics() {
+		JsonObject statistics = new JsonObject();
+		long accepted = acceptedRequests.sum();
+		statistics.addProperty("queueDepth", ingestQueue.size());
+		statistics.addProperty("acceptedRequests", accepted);
+		statistics.addProperty("publishedRequests", publishedRequests.sum());
+		statistics.addProperty("failedRequests", failedRequests.sum());
+		statistics.addProperty("queueFullRejections", queueFullRejections.sum());
+		statistics.addProperty("overloadRejections", overloadRejections.sum());
+		statistics.addProperty("expiredRequests", expiredRequests.sum());
+		statistics.addProperty("averageQueueTimeInMs", totalQueueTimeInMs.sum() / Math.max(1, accepted));
+		statistics.addProperty("averageLatencyInMs", totalLatencyInMs.sum() / Math.max(1, accepted));
+		statistics.addProperty("maxLatencyInMs", maxLatencyInMs.get());
+		return statistics;
+	}
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platforminsightswebhook.events;
+
+import java.nio.charset.StandardCharsets;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class WebHookHandlerServletTest {
+
+	@Test
+	public void testObjectBodyIsAccepted() {
+		Assert.assertTrue(isJsonObject("{\"action\":\"created\",\"commit\":{\"message\":\"fix }\"}}"));
+		Assert.assertTrue(isJsonObject(" \r\n{ }\n"));
+	}
+
+	@Test
+	public void testObjectBodyWithByteOrderMarkIsAccepted() {
+		byte[] json = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+		byte[] body = new byte[json.length + 3];
+		body[0] = (byte) 0xEF;
+		body[1] = (byte) 0xBB;
+		body[2] = (byte) 0xBF;
+		System.arraycopy(json, 0, body, 3, json.length);
+		Assert.assertTrue(WebHookHandlerServlet.isJsonObject(body));
+	}
+
+	@Test
+	public void testBodyWhichOnlyLooksLikeObjectIsRejected() {
+		Assert.assertFalse(isJsonObject("{not json}"));
+		Assert.assertFalse(isJsonObject("{\"id\":}"));
+		Assert.assertFalse(isJsonObject("{\"a\":1}{\"b\":2}"));
+		Assert.assertFalse(isJsonObject("{\"a\":\"}"));
+	}
+
+	@Test
+	public void testBodyWithoutObjectIsRejected() {
+		Assert.assertFalse(isJsonObject(""));
+		Assert.assertFalse(isJsonObject("   "));
+		Assert.assertFalse(isJsonObject("[{\"id\":1}]"));
+		Assert.assertFalse(isJsonObject("\"text\""));
+	}
+
+	private static boolean isJsonObject(String body) {
+		return WebHookHandlerServlet.isJsonObject(body.getBytes(StandardCharsets.UTF_8));
+	}
+}
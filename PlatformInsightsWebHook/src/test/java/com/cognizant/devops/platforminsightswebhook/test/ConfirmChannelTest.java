@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platforminsightswebhook.test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.cognizant.devops.platforminsightswebhook.config.ConfirmChannel;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmCallback;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+
+public class ConfirmChannelTest {
+
+	ConfirmCallback ackCallback = null;
+	ConfirmCallback nackCallback = null;
+	ShutdownListener shutdownListener = null;
+	long nextPublishSeqNo;
+	ConfirmChannel confirmChannel = null;
+
+	/**
+	 * Channel which only hands out sequence numbers and keeps the listeners, so
+	 * that the broker confirms can be played by the test
+	 */
+	@BeforeMethod
+	protected void setUp() throws IOException {
+		nextPublishSeqNo = 1;
+		Channel channel = (Channel) Proxy.newProxyInstance(Channel.class.getClassLoader(),
+				new Class<?>[] { Channel.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getNextPublishSeqNo":
+						return nextPublishSeqNo;
+					case "basicPublish":
+						nextPublishSeqNo++;
+						return null;
+					case "addConfirmListener":
+						ackCallback = (ConfirmCallback) args[0];
+						nackCallback = (ConfirmCallback) args[1];
+						return null;
+					case "addShutdownListener":
+						shutdownListener = (ShutdownListener) args[0];
+						return null;
+					case "isOpen":
+						return Boolean.FALSE;
+					default:
+						return null;
+					}
+				});
+		confirmChannel = new ConfirmChannel(channel);
+	}
+
+	@Test
+	public void testSingleAckCompletesOnlyItsPublish() throws IOException {
+		List<CompletableFuture<Void>> confirms = publish(3);
+		ackCallback.handle(2, false);
+		Assert.assertFalse(confirms.get(0).isDone());
+		Assert.assertTrue(confirms.get(1).isDone());
+		Assert.assertFalse(confirms.get(1).isCompletedExceptionally());
+		Assert.assertFalse(confirms.get(2).isDone());
+		Assert.assertEquals(confirmChannel.getOutstandingConfirms(), 2);
+	}
+
+	@Test
+	public void testMultipleAckCompletesEveryPublishUpToTag() throws IOException {
+		List<CompletableFuture<Void>> confirms = publish(4);
+		ackCallback.handle(3, true);
+		for (int i = 0; i < 3; i++) {
+			Assert.assertTrue(confirms.get(i).isDone());
+			Assert.assertFalse(confirms.get(i).isCompletedExceptionally());
+		}
+		Assert.assertFalse(confirms.get(3).isDone());
+		Assert.assertEquals(confirmChannel.getOutstandingConfirms(), 1);
+	}
+
+	@Test
+	public void testSingleNackFailsOnlyItsPublish() throws IOException {
+		List<CompletableFuture<Void>> confirms = publish(2);
+		nackCallback.handle(1, false);
+		Assert.assertTrue(confirms.get(0).isCompletedExceptionally());
+		Assert.assertFalse(confirms.get(1).isDone());
+		Assert.assertEquals(confirmChannel.getOutstandingConfirms(), 1);
+	}
+
+	@Test
+	public void testMultipleNackFailsEveryPublishUpToTag() throws IOException {
+		List<CompletableFuture<Void>> confirms = publish(3);
+		ackCallback.handle(1, false);
+		nackCallback.handle(3, true);
+		Assert.assertFalse(confirms.get(0).isCompletedExceptionally());
+		Assert.assertTrue(confirms.get(1).isCompletedExceptionally());
+		Assert.assertTrue(confirms.get(2).isCompletedExceptionally());
+		Assert.assertEquals(confirmChannel.getOutstandingConfirms(), 0);
+		try {
+			confirms.get(2).get();
+			Assert.fail("Nacked publish must fail");
+		} catch (InterruptedException | ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+	@Test
+	public void testConfirmAfterMultipleAckIsIgnored() throws IOException {
+		List<CompletableFuture<Void>> confirms = publish(2);
+		ackCallback.handle(2, true);
+		nackCallback.handle(1, false);
+		Assert.assertFalse(confirms.get(0).isCompletedExceptionally());
+		Assert.assertFalse(confirms.get(1).isCompletedExceptionally());
+		Assert.assertEquals(confirmChannel.getOutstandingConfirms(), 0);
+	}
+
+	@Test
+	public void testShutdownFailsOutstandingPublishes() throws IOException {
+		List<CompletableFuture<Void>> confirms = publish(2);
+		ackCallback.handle(1, false);
+		shutdownListener.shutdownCompleted(new ShutdownSignalException(false, false, null, null));
+		Assert.assertFalse(confirms.get(0).isCompletedExceptionally());
+		Assert.assertTrue(confirms.get(1).isCompletedExceptionally());
+		Assert.assertEquals(confirmChannel.getOutstandingConfirms(), 0);
+	}
+
+	private List<CompletableFuture<Void>> publish(int count) throws IOException {
+		List<CompletableFuture<Void>> confirms = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			confirms.add(confirmChannel.publish("TEST.EXCHANGE", "IPW_TEST", null, new byte[0]));
+		}
+		return confirms;
+	}
+}
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platforminsightswebhook.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.cognizant.devops.platforminsightswebhook.config.WebHookOverloadedException;
+import com.cognizant.devops.platforminsightswebhook.config.WebHookSpillJournal;
+import com.cognizant.devops.platforminsightswebhook.config.WebHookSpillJournal.FsyncPolicy;
+import com.cognizant.devops.platforminsightswebhook.config.WebHookSpillJournal.SpilledMessage;
+
+public class WebHookSpillJournalTest {
+
+	private static final long SEGMENT_SIZE = 1024L * 1024L;
+	private static final long MAX_JOURNAL_SIZE = 16L * 1024L * 1024L;
+	private static final String QUEUE_NAME = "IPW_SpillTest";
+
+	Path journalDir = null;
+	WebHookSpillJournal journal = null;
+
+	@BeforeMethod
+	protected void setUp() throws IOException {
+		journalDir = Files.createTempDirectory("webhookSpillTest");
+		journal = open(SEGMENT_SIZE);
+	}
+
+	@AfterMethod
+	protected void tearDown() throws IOException {
+		journal.close();
+		File[] files = journalDir.toFile().listFiles();
+		if (files != null) {
+			for (File file : files) {
+				Files.deleteIfExists(file.toPath());
+			}
+		}
+		Files.deleteIfExists(journalDir);
+	}
+
+	@Test
+	public void testAppendAndReadInOrder() throws IOException {
+		Map<String, Object> headers = new LinkedHashMap<>();
+		headers.put("webhookParam.project", "Insights");
+		headers.put("webhookParam.build", 42);
+		journal.append(QUEUE_NAME, QUEUE_NAME, headers, payload(1));
+		journal.append(QUEUE_NAME, QUEUE_NAME, null, payload(2));
+		Assert.assertTrue(journal.hasPending());
+		List<SpilledMessage> messages = journal.read(10);
+		Assert.assertEquals(messages.size(), 2);
+		Assert.assertEquals(messages.get(0).getQueueName(), QUEUE_NAME);
+		Assert.assertEquals(messages.get(0).getRoutingKey(), QUEUE_NAME);
+		Assert.assertEquals(messages.get(0).getHeaders().get("webhookParam.project"), "Insights");
+		Assert.assertEquals(messages.get(0).getHeaders().get("webhookParam.build"), "42");
+		Assert.assertEquals(messages.get(0).getData(), payload(1));
+		Assert.assertNull(messages.get(1).getHeaders());
+		Assert.assertEquals(messages.get(1).getData(), payload(2));
+	}
+
+	@Test
+	public void testHeaderLongerThan64KbIsKept() throws IOException {
+		char[] value = new char[70000];
+		Arrays.fill(value, '\u00e9');
+		Map<String, Object> headers = Collections.singletonMap("webhookParam.description", new String(value));
+		journal.append(QUEUE_NAME, QUEUE_NAME, headers, payload(1));
+		List<SpilledMessage> messages = journal.read(1);
+		Assert.assertEquals(messages.get(0).getHeaders().get("webhookParam.description"), new String(value));
+	}
+
+	@Test
+	public void testReadWithoutCommitReturnsSameMessages() throws IOException {
+		append(3);
+		List<SpilledMessage> first = journal.read(2);
+		List<SpilledMessage> second = journal.read(2);
+		Assert.assertEquals(second.size(), 2);
+		Assert.assertEquals(second.get(0).getData(), first.get(0).getData());
+		Assert.assertEquals(second.get(1).getData(), first.get(1).getData());
+	}
+
+	@Test
+	public void testCommitMovesReplayPosition() throws IOException {
+		append(3);
+		List<SpilledMessage> messages = journal.read(2);
+		journal.commit(messages.get(1));
+		Assert.assertEquals(journal.getStatistics().get("journalMessages").getAsLong(), 1);
+		List<SpilledMessage> rest = journal.read(10);
+		Assert.assertEquals(rest.size(), 1);
+		Assert.assertEquals(rest.get(0).getData(), payload(3));
+		journal.commit(rest.get(0));
+		Assert.assertFalse(journal.hasPending());
+		Assert.assertTrue(journal.read(10).isEmpty());
+	}
+
+	@Test
+	public void testCommittedSegmentsAreDeleted() throws IOException {
+		journal.close();
+		journal = open(256);
+		append(10);
+		Assert.assertTrue(journal.getStatistics().get("journalSegments").getAsInt() > 2);
+		int replayed = 0;
+		List<SpilledMessage> messages;
+		while (!(messages = journal.read(3)).isEmpty()) {
+			for (SpilledMessage message : messages) {
+				replayed++;
+				Assert.assertEquals(message.getData(), payload(replayed));
+			}
+			journal.commit(messages.get(messages.size() - 1));
+		}
+		Assert.assertEquals(replayed, 10);
+		Assert.assertFalse(journal.hasPending());
+		Assert.assertEquals(journal.getStatistics().get("journalSegments").getAsInt(), 1);
+	}
+
+	@Test
+	public void testRecoverResumesAfterCheckpoint() throws IOException {
+		append(3);
+		journal.commit(journal.read(1).get(0));
+		journal.close();
+		journal = open(SEGMENT_SIZE);
+		Assert.assertEquals(journal.getStatistics().get("journalMessages").getAsLong(), 2);
+		List<SpilledMessage> messages = journal.read(10);
+		Assert.assertEquals(messages.size(), 2);
+		Assert.assertEquals(messages.get(0).getData(), payload(2));
+		Assert.assertEquals(messages.get(1).getData(), payload(3));
+	}
+
+	@Test
+	public void testRecoverTruncatesTornRecord() throws IOException {
+		append(2);
+		journal.close();
+		Path segment = lastSegment();
+		Files.write(segment, new byte[] { 0, 0, 0, 100, 1, 2, 3 }, StandardOpenOption.APPEND);
+		journal = open(SEGMENT_SIZE);
+		Assert.assertEquals(journal.getStatistics().get("corruptRecords").getAsLong(), 1);
+		Assert.assertEquals(journal.getStatistics().get("journalMessages").getAsLong(), 2);
+		List<SpilledMessage> messages = journal.read(10);
+		Assert.assertEquals(messages.size(), 2);
+		Assert.assertEquals(messages.get(1).getData(), payload(2));
+	}
+
+	@Test(expectedExceptions = WebHookOverloadedException.class)
+	public void testFullJournalRejectsAppend() throws IOException {
+		journal.close();
+		journal = new WebHookSpillJournal(journalDir, 256, 256, FsyncPolicy.NONE);
+		append(10);
+	}
+
+	private WebHookSpillJournal open(long segmentSize) throws IOException {
+		return new WebHookSpillJournal(journalDir, segmentSize, MAX_JOURNAL_SIZE, FsyncPolicy.ALWAYS);
+	}
+
+	private void append(int count) throws IOException {
+		for (int i = 1; i <= count; i++) {
+			journal.append(QUEUE_NAME, QUEUE_NAME, null, payload(i));
+		}
+	}
+
+	private Path lastSegment() {
+		File[] segments = journalDir.toFile()
+				.listFiles((dir, name) -> name.endsWith(".journal") && new File(dir, name).length() > 0);
+		Arrays.sort(segments);
+		return segments[segments.length - 1].toPath();
+	}
+
+	private static byte[] payload(int number) {
+		return ("{\"message\":" + number + ",\"padding\":\"0123456789012345678901234567890123456789\"}")
+				.getBytes(StandardCharsets.UTF_8);
+	}
+}
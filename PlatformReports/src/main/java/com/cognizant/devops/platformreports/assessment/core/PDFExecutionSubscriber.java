@@ -20,15 +20,14 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
 import com.cognizant.devops.platformcommons.constants.AssessmentReportAndWorkflowConstants;
 import com.cognizant.devops.platformcommons.constants.PlatformServiceConstants;
 import com.cognizant.devops.platformcommons.core.enums.WorkflowTaskEnum;
@@ -45,9 +44,10 @@ import com.cognizant.devops.platformreports.exception.InsightsJobFailedException
 import com.cognizant.devops.platformworkflow.workflowtask.core.InsightsStatusProvider;
 import com.cognizant.devops.platformworkflow.workflowtask.message.factory.WorkflowTaskSubscriberHandler;
 import com.cognizant.devops.platformworkflow.workflowtask.utils.MQMessageConstants;
-import com.cognizant.devops.platformworkflow.workflowthread.core.WorkflowThreadPool;
+import com.cognizant.devops.platformworkflow.workflowthread.core.WorkflowTaskScheduler;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
@@ -135,44 +135,45 @@ public class PDFExecutionSubscriber extends WorkflowTaskSubscriberHandler {
 			throws InterruptedException, ExecutionException {
 
 		List<JsonObject> failedJobs = new ArrayList<>();
-		List<Callable<JsonObject>> kpiListToExecute = new ArrayList<>();
-		JsonArray resultArray = new JsonArray();
+		String visualizationDatasource = ApplicationConfigProvider.getInstance().getAssessmentReport()
+				.getOutputDatasource();
+		WorkflowTaskScheduler<Integer, JsonObject> kpiScheduler = new WorkflowTaskScheduler<>(
+				"PDFExecutionSubscriber KPI");
+		List<Integer> kpiIds = new ArrayList<>();
 		for (InsightsReportsKPIConfig reportKpiConfig : reportsKPIConfigSet) {
 			PDFKPIVisualizationProcesser pdfProcesser = new PDFKPIVisualizationProcesser(reportKpiConfig,
 					assessmentReportDTO);
-			kpiListToExecute.add(pdfProcesser);
+			kpiScheduler.submit(kpiIds.size(), visualizationDatasource, pdfProcesser);
+			kpiIds.add(reportKpiConfig.getKpiConfig().getKpiId());
 		}
-		/* segregate entire KPI execution list into defined chunks */
-
-		List<List<Callable<JsonObject>>> kpiChunkList = WorkflowThreadPool.getChunk(kpiListToExecute, 3);
-
-		/* submit each chunk to threadpool in a loop */
 
-		executeKpiChunks(kpiChunkList, failedJobs, resultArray);
+		/* collect results as they complete, the result array keeps the template order */
 
-		if (!failedJobs.isEmpty()) {
-			updateFailedTaskStatusLog(failedJobs, assessmentReportDTO);
-		}
-		assessmentReportDTO.setVisualizationResult(resultArray);
-
-	}
-
-	private void executeKpiChunks(List<List<Callable<JsonObject>>> chunkList, List<JsonObject> failedJobs,
-			JsonArray resultArray) throws InterruptedException, ExecutionException {
+		JsonElement[] kpiResults = new JsonElement[kpiIds.size()];
 		JsonArray failedKpiList = new JsonArray();
-		for (List<Callable<JsonObject>> chunk : chunkList) {
-			List<Future<JsonObject>> chunkResponse = WorkflowThreadPool.getInstance().invokeAll(chunk);
-			for (Future<JsonObject> singleChunkResponse : chunkResponse) {
-				if (!singleChunkResponse.isCancelled()
-						&& !singleChunkResponse.get().get("status").getAsString().equalsIgnoreCase("success")) {
+		kpiScheduler.execute(new WorkflowTaskScheduler.TaskListener<Integer, JsonObject>() {
 
-					failedKpiList.add(singleChunkResponse.get().get("kpiId"));
+			@Override
+			public void onSuccess(Integer index, JsonObject result) {
+				if (!result.get("status").getAsString().equalsIgnoreCase("success")) {
+					failedKpiList.add(result.get("kpiId"));
 				} else {
-					resultArray.add(singleChunkResponse.get().get("data"));
+					kpiResults[index] = result.get("data");
 				}
 			}
-		}
 
+			@Override
+			public void onFailure(Integer index, Throwable error) {
+				failedKpiList.add(kpiIds.get(index));
+			}
+		});
+
+		JsonArray resultArray = new JsonArray();
+		for (JsonElement kpiResult : kpiResults) {
+			if (kpiResult != null) {
+				resultArray.add(kpiResult);
+			}
+		}
 		if (failedKpiList.size() > 0) {
 			JsonObject kpiObject = new JsonObject();
 			kpiObject.addProperty("status", "failure");
@@ -180,6 +181,11 @@ public class PDFExecutionSubscriber extends WorkflowTaskSubscriberHandler {
 			failedJobs.add(kpiObject);
 		}
 
+		if (!failedJobs.isEmpty()) {
+			updateFailedTaskStatusLog(failedJobs, assessmentReportDTO);
+		}
+		assessmentReportDTO.setVisualizationResult(resultArray);
+
 	}
 
 	private void updateFailedTaskStatusLog(List<JsonObject> failedJobs,
@@ -20,15 +20,14 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
 import com.cognizant.devops.platformcommons.constants.AssessmentReportAndWorkflowConstants;
 import com.cognizant.devops.platformcommons.constants.PlatformServiceConstants;
 import com.cognizant.devops.platformcommons.core.enums.WorkflowTaskEnum;
@@ -44,12 +43,13 @@ import com.cognizant.devops.platformreports.assessment.dal.ReportPostgresDataHan
 import com.cognizant.devops.platformreports.assessment.datamodel.ContentConfigDefinition;
 import com.cognizant.devops.platformreports.assessment.datamodel.InsightsKPIConfigDTO;
 import com.cognizant.devops.platformreports.assessment.kpi.KPIExecutor;
+import com.cognizant.devops.platformreports.assessment.kpi.KPIQueryResultCache;
 import com.cognizant.devops.platformreports.exception.InsightsJobFailedException;
 import com.cognizant.devops.platformworkflow.workflowtask.core.InsightsStatusProvider;
 import com.cognizant.devops.platformworkflow.workflowtask.message.factory.WorkflowTaskSubscriberHandler;
 import com.cognizant.devops.platformworkflow.workflowtask.utils.MQMessageConstants;
 import com.cognizant.devops.platformworkflow.workflowtask.utils.WorkflowUtils;
-import com.cognizant.devops.platformworkflow.workflowthread.core.WorkflowThreadPool;
+import com.cognizant.devops.platformworkflow.workflowthread.core.WorkflowTaskScheduler;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
@@ -103,6 +103,7 @@ public class ReportKPISubscriber extends WorkflowTaskSubscriberHandler {
 			log.debug("Worlflow Detail ==== ReportKPISubscriber before executeKPI  ", kpiConfigList.size());
 			executeKPI(kpiConfigList, failedJobs);
 
+			KPIQueryResultCache.getInstance().logSummary();
 			if (!failedJobs.isEmpty()) {
 				updateFailedTaskStatusLog(failedJobs);
 			}
@@ -162,12 +163,12 @@ public class ReportKPISubscriber extends WorkflowTaskSubscriberHandler {
 	}
 
 	private void executeKPI(List<InsightsKPIConfig> kpiConfigList, List<JsonObject> failedJobs)
-			throws InterruptedException, ExecutionException {
+			throws InterruptedException {
 		log.debug("Worlflow Detail ==== ReportKPISubscriber  inside executeKPI start ");
 		int assessmentId = workflowConfig.getAssessmentConfig().getId();
 		String assessmentInputDataSource = workflowConfig.getAssessmentConfig().getInputDatasource();
 		int reportTemplateId = workflowConfig.getAssessmentConfig().getReportTemplateEntity().getReportId();
-		List<Callable<JsonObject>> kpiListToExecute = new ArrayList<>();
+		WorkflowTaskScheduler<Integer, JsonObject> kpiScheduler = new WorkflowTaskScheduler<>("ReportKPISubscriber KPI");
 		for (InsightsKPIConfig kpiConfig : kpiConfigList) {
 			try {
 				InsightsKPIConfigDTO kpiConfigDTO = new InsightsKPIConfigDTO();
@@ -193,43 +194,43 @@ public class ReportKPISubscriber extends WorkflowTaskSubscriberHandler {
 				kpiConfigDTO.setOutputDatasource(kpiConfig.getOutputDatasource());				
 
 				KPIExecutor kpirun = new KPIExecutor(kpiConfigDTO);
-				kpiListToExecute.add(kpirun);				
+				kpiScheduler.submit(kpiConfig.getKpiId(), kpiConfig.getDatasource(), kpirun);
 
 			} catch (Exception e) {
 				log.debug("Worlflow Detail ==== ReportKPISubscriber  Exception  after  thread complete  ");				
 			}
 		}
 
-		/* segregate entire KPI execution list into defined chunks */
-
-		List<List<Callable<JsonObject>>> kpiChunkList = WorkflowThreadPool.getChunk(kpiListToExecute, 3);
-
-		/* submit each chunk to threadpool in a loop */
-
-		executeKpiChunks(kpiChunkList, failedJobs);
-
-		log.debug("Worlflow Detail ==== ReportKPISubscriber  executeKPI completed ");
-	}
+		/* keep the workflow pool busy and collect failed KPIs as they complete */
 
-	private void executeKpiChunks(List<List<Callable<JsonObject>>> chunkList, List<JsonObject> failedJobs)
-			throws InterruptedException, ExecutionException {
+		kpiScheduler.execute(new WorkflowTaskScheduler.TaskListener<Integer, JsonObject>() {
 
-		for (List<Callable<JsonObject>> chunk : chunkList) {
-			List<Future<JsonObject>> chunkResponse = WorkflowThreadPool.getInstance().invokeAll(chunk);
-			for (Future<JsonObject> singleChunkResponse : chunkResponse) {
-				if (!singleChunkResponse.isCancelled()
-						&& !singleChunkResponse.get().get("Status").getAsString().equalsIgnoreCase("Success")) {
-					failedJobs.add(singleChunkResponse.get());
+			@Override
+			public void onSuccess(Integer kpiId, JsonObject result) {
+				if (!result.get("Status").getAsString().equalsIgnoreCase("Success")) {
+					failedJobs.add(result);
 				}
+			}
 
+			@Override
+			public void onFailure(Integer kpiId, Throwable error) {
+				JsonArray kpiArray = new JsonArray();
+				kpiArray.add(kpiId);
+				JsonObject failedKpi = new JsonObject();
+				failedKpi.addProperty("Status", "Failure");
+				failedKpi.add("kpiArray", kpiArray);
+				failedJobs.add(failedKpi);
 			}
-		}
+		});
 
+		log.debug("Worlflow Detail ==== ReportKPISubscriber  executeKPI completed ");
 	}
 
 	private void executeContent(List<Integer> contentList, List<JsonObject> failedJobs)
-			throws InterruptedException, ExecutionException {
-		List<Callable<Integer>> contentListToExecute = new ArrayList<>();
+			throws InterruptedException {
+		WorkflowTaskScheduler<Integer, Integer> contentScheduler = new WorkflowTaskScheduler<>(
+				"ReportKPISubscriber Content");
+		String contentDatasource = ApplicationConfigProvider.getInstance().getAssessmentReport().getOutputDatasource();
 		ReportPostgresDataHandler contentProcessing = new ReportPostgresDataHandler();
 		int assessmentId = workflowConfig.getAssessmentConfig().getId();
 		int reportTemplateId = workflowConfig.getAssessmentConfig().getReportTemplateEntity().getReportId();
@@ -250,7 +251,7 @@ public class ReportKPISubscriber extends WorkflowTaskSubscriberHandler {
 				contentConfigDefinition.setWorkflowId(workflowConfig.getWorkflowId());
 				contentConfigDefinition.setReportId(reportTemplateId);
 				contentConfigDefinition.setAssessmentId(assessmentId);
-				contentListToExecute.add(new ContentExecutor(contentConfigDefinition));
+				contentScheduler.submit(contentId, contentDatasource, new ContentExecutor(contentConfigDefinition));
 
 			} else
 			{
@@ -265,29 +266,23 @@ public class ReportKPISubscriber extends WorkflowTaskSubscriberHandler {
 			}
 		}
 
-		/* segregate entire content execution list into defined chunks */
-
-		List<List<Callable<Integer>>> contentChunkList = WorkflowThreadPool.getChunk(contentListToExecute, 3);
-
-		/* submit each chunk to threadpool in a loop */
-
-		executeContentChunks(contentChunkList, failedJobs);
+		/* content ids are returned by the executor when the content failed, -1 otherwise */
 
-	}
-
-	private void executeContentChunks(List<List<Callable<Integer>>> chunkList, List<JsonObject> failedJobs)
-			throws InterruptedException, ExecutionException {
 		JsonArray failedContentList = new JsonArray();
+		contentScheduler.execute(new WorkflowTaskScheduler.TaskListener<Integer, Integer>() {
 
-		for (List<Callable<Integer>> chunk : chunkList) {
-			List<Future<Integer>> chunkResponse = WorkflowThreadPool.getInstance().invokeAll(chunk);
-			for (Future<Integer> singleChunkResponse : chunkResponse) {
-				if (!singleChunkResponse.isCancelled() && singleChunkResponse.get() != -1) {
-					failedContentList.add(singleChunkResponse.get());
+			@Override
+			public void onSuccess(Integer contentId, Integer result) {
+				if (result != -1) {
+					failedContentList.add(result);
 				}
+			}
 
+			@Override
+			public void onFailure(Integer contentId, Throwable error) {
+				failedContentList.add(contentId);
 			}
-		}
+		});
 
 		if (failedContentList.size() > 0) {
 			JsonObject contentObject = new JsonObject();
@@ -18,6 +18,7 @@
  */
 package com.cognizant.devops.platformreports.assessment.dal;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.cognizant.devops.platformreports.assessment.datamodel.ContentConfigDefinition;
@@ -37,6 +38,23 @@ public interface ReportDataHandler {
 
 	public List<JsonObject> fetchKPIData(String query, InsightsKPIConfigDTO kpiDefinition, QueryModel qModel);
 
+	/**
+	 * Fetch the KPI data of every query model, the result of a model is returned
+	 * at the same index as the model
+	 * 
+	 * @param queryModels
+	 * @param kpiDefinition
+	 * @return List<List<JsonObject>>
+	 */
+	public default List<List<JsonObject>> fetchKPIData(List<QueryModel> queryModels,
+			InsightsKPIConfigDTO kpiDefinition) {
+		List<List<JsonObject>> results = new ArrayList<>(queryModels.size());
+		for (QueryModel model : queryModels) {
+			results.add(fetchKPIData(model.getQuery(), kpiDefinition, model));
+		}
+		return results;
+	}
+
 	public List<InsightsKPIResultDetails> fetchKPIResultData(ContentConfigDefinition contentConfigDefinition);
 
 	public void saveContentResult(JsonObject contentResult);
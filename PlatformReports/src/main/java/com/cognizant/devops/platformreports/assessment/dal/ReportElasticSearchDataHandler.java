@@ -19,7 +19,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
@@ -27,6 +26,7 @@ import org.apache.logging.log4j.Logger;
 
 import com.cognizant.devops.platformcommons.core.enums.JobSchedule;
 import com.cognizant.devops.platformcommons.core.util.InsightsUtils;
+import com.cognizant.devops.platformcommons.exception.InsightsCustomException;
 import com.cognizant.devops.platformdal.dal.ElasticSearchNativeHandler;
 import com.cognizant.devops.platformreports.assessment.datamodel.ContentConfigDefinition;
 import com.cognizant.devops.platformreports.assessment.datamodel.InsightsKPIConfigDTO;
@@ -64,7 +64,11 @@ public class ReportElasticSearchDataHandler implements ReportDataHandler {
 		try {
 
 			String indexName = ReportEngineUtils.ES_KPI_RESULT_INDEX;
-			deoES.saveESResult(indexName.toLowerCase(), resultList);
+			List<JsonObject> failedRecords = deoES.saveESResult(indexName.toLowerCase(), resultList);
+			if (!failedRecords.isEmpty()) {
+				throw new InsightsJobFailedException(failedRecords.size() + " of " + resultList.size()
+						+ " KPI records not saved, first error " + failedRecords.get(0).get("error"));
+			}
 
 		} catch (Exception e) {
 			log.error("Error while saving saving KPI record {}", e.getMessage());
@@ -80,7 +84,6 @@ public class ReportElasticSearchDataHandler implements ReportDataHandler {
 	@Override
 	public List<InsightsKPIResultDetails> fetchKPIResultData(ContentConfigDefinition contentConfigDefinition) {
 		List<InsightsKPIResultDetails> kpiResultDetailList = new ArrayList<>(0);
-		List<JsonObject> kpiResponce = new ArrayList<>();
 		try {
 			long startTime = System.nanoTime();
 			String query_type = "ES_" + contentConfigDefinition.getCategory().toString();
@@ -89,8 +92,10 @@ public class ReportElasticSearchDataHandler implements ReportDataHandler {
 					.replace("%executionId%", String.valueOf(contentConfigDefinition.getExecutionId()));
 			log.debug("Worlflow Detail ==== In ES, esQuery {} ", esQuery);
 
-			kpiResponce = deoES.getESResult(esQuery, ReportEngineUtils.ES_KPI_RESULT_INDEX);
-			creatingResultDetailFromESResponce(kpiResultDetailList, contentConfigDefinition, kpiResponce);
+			int recordCount = deoES.scrollESResult(esQuery, ReportEngineUtils.ES_KPI_RESULT_INDEX,
+					kpiRecord -> creatingResultDetailFromESRecord(kpiResultDetailList, contentConfigDefinition, kpiRecord));
+			log.debug("Worlflow Detail ==== In ES, KPI Id {} number of record return by kpi query {} ====  ",
+					contentConfigDefinition.getKpiId(), recordCount);
 			log.debug("Worlflow Detail ==== In ES, Number of KPI result record return {} ",
 					kpiResultDetailList.size());
 			long processingTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
@@ -120,7 +125,11 @@ public class ReportElasticSearchDataHandler implements ReportDataHandler {
 			List<JsonObject> rows = new ArrayList<>();
 			rows.add(contentResult);
 			String indexName = ReportEngineUtils.ES_CONTENT_RESULT_INDEX;
-			deoES.saveESResult(indexName.toLowerCase(), rows);
+			List<JsonObject> failedRecords = deoES.saveESResult(indexName.toLowerCase(), rows);
+			if (!failedRecords.isEmpty()) {
+				throw new InsightsJobFailedException(
+						"Content Result record not saved, error " + failedRecords.get(0).get("error"));
+			}
 			log.debug("Worlflow Detail ==== In ES,  saveContentResult completed ");
 		} catch (Exception e) {
 			log.error("Error while saving Content Result record {}", e.getMessage());
@@ -128,47 +137,39 @@ public class ReportElasticSearchDataHandler implements ReportDataHandler {
 		}
 	}
 
-	public void creatingResultDetailFromESResponce(List<InsightsKPIResultDetails> kpiResultDetailList,
-			ContentConfigDefinition contentConfigDefinition, List<JsonObject> kpiResponce) {
-
-		log.debug("Worlflow Detail ==== In ES, KPI Id {} number of record return by kpi query {} ====  ",
-				contentConfigDefinition.getKpiId(), kpiResponce.size());
-
-		for (JsonObject jsonObject : kpiResponce) {
-			try {
-				long startTime = System.nanoTime();
-				InsightsKPIResultDetails resultMapping = gson.fromJson(jsonObject, InsightsKPIResultDetails.class);
-				JsonArray columnProperty = jsonObject.get(ReportEngineUtils.COLUMN_PROPERTY).getAsJsonArray();
-				Map<String, Object> results = new HashMap<>();
-				for (int i = 0; i < columnProperty.size(); i++) {
-					String columnName = columnProperty.get(i).getAsString();
-					if (jsonObject.get(columnName) != null) {
-						Object result = ReportEngineUtils.getJsonValue(jsonObject.get(columnName));
-						results.put(columnName, result);
-					} else {
-						log.error(" null value found for {} ", columnName);
-					}
+	public void creatingResultDetailFromESRecord(List<InsightsKPIResultDetails> kpiResultDetailList,
+			ContentConfigDefinition contentConfigDefinition, JsonObject jsonObject) {
+		try {
+			long startTime = System.nanoTime();
+			InsightsKPIResultDetails resultMapping = gson.fromJson(jsonObject, InsightsKPIResultDetails.class);
+			JsonArray columnProperty = jsonObject.get(ReportEngineUtils.COLUMN_PROPERTY).getAsJsonArray();
+			Map<String, Object> results = new HashMap<>();
+			for (int i = 0; i < columnProperty.size(); i++) {
+				String columnName = columnProperty.get(i).getAsString();
+				if (jsonObject.get(columnName) != null) {
+					Object result = ReportEngineUtils.getJsonValue(jsonObject.get(columnName));
+					results.put(columnName, result);
+				} else {
+					log.error(" null value found for {} ", columnName);
 				}
-				resultMapping.setResults(results);
-				kpiResultDetailList.add(resultMapping);
-				long processingTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
-				log.debug("Type=TaskExecution  executionId={} workflowId={} ConfigId={} WorkflowType={} KpiId={} Category={} ProcessingTime={} message={}",
-						contentConfigDefinition.getExecutionId(),contentConfigDefinition.getWorkflowId(),contentConfigDefinition.getReportId(),"-",
-						contentConfigDefinition.getKpiId(),contentConfigDefinition.getCategory(),processingTime,
-						"schedule:" +contentConfigDefinition.getSchedule() +
-						"resultField:" +contentConfigDefinition.getResultField());						
-			} catch (Exception e) {
-				log.error(" Error while parsing inference result for ES ", e);
 			}
+			resultMapping.setResults(results);
+			kpiResultDetailList.add(resultMapping);
+			long processingTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+			log.debug("Type=TaskExecution  executionId={} workflowId={} ConfigId={} WorkflowType={} KpiId={} Category={} ProcessingTime={} message={}",
+					contentConfigDefinition.getExecutionId(),contentConfigDefinition.getWorkflowId(),contentConfigDefinition.getReportId(),"-",
+					contentConfigDefinition.getKpiId(),contentConfigDefinition.getCategory(),processingTime,
+					"schedule:" +contentConfigDefinition.getSchedule() +
+					"resultField:" +contentConfigDefinition.getResultField());						
+		} catch (Exception e) {
+			log.error(" Error while parsing inference result for ES ", e);
 		}
-
 	}
 
 	@Override
 	public JsonArray fetchVisualizationResults(String query) {
 
-		List<JsonObject> queryResponce = deoES.getESResult(query, ReportEngineUtils.ES_KPI_RESULT_INDEX);
-		return creatingVisualizationJsontFromGraphResponce(queryResponce);
+		return fetchVisualizationResults(query, ReportEngineUtils.ES_KPI_RESULT_INDEX);
 	}
 
 	@Override
@@ -178,32 +179,30 @@ public class ReportElasticSearchDataHandler implements ReportDataHandler {
 		vQuery = vQuery.replace("%kpiId%", String.valueOf(kpiId))
 				.replace("%executionId%", String.valueOf(executionId));
 		vQuery = vQuery.replace(":kpiId", String.valueOf(kpiId)).replace(":executionId", String.valueOf(executionId));
-		List<JsonObject> queryResponce = deoES.getESResult(vQuery, ReportEngineUtils.ES_CONTENT_RESULT_INDEX);
-		return creatingVisualizationJsontFromGraphResponce(queryResponce);
+		return fetchVisualizationResults(vQuery, ReportEngineUtils.ES_CONTENT_RESULT_INDEX);
 	}
 
-	// Check time field and convert to date
-	public JsonArray creatingVisualizationJsontFromGraphResponce(List<JsonObject> queryResponce) {
-		JsonArray listOfResultJson = new JsonArray();
+	/**
+	 * Read all pages of the query directly into the visualization data array
+	 */
+	private JsonArray fetchVisualizationResults(String query, String indexName) {
 		JsonArray resultArray = new JsonArray();
-		JsonArray columns = new JsonArray();
-		if (!queryResponce.isEmpty()) {
-			for (JsonObject jsonObject : queryResponce) {
-				resultArray.add(jsonObject);
-			}
-			//get column array 
-
-			JsonObject firstRecord = queryResponce.get(0).getAsJsonObject();
-			Set<String> columnSet = firstRecord.keySet();
-			for (String string : columnSet) {
-				columns.add(string);
+		try {
+			deoES.scrollESResult(query, indexName, resultArray::add);
+		} catch (InsightsCustomException e) {
+			log.error(" Error while fetching visualization results from ES index {} ", indexName, e);
+		}
+		JsonArray listOfResultJson = new JsonArray();
+		if (resultArray.size() > 0) {
+			JsonArray columns = new JsonArray();
+			for (String column : resultArray.get(0).getAsJsonObject().keySet()) {
+				columns.add(column);
 			}
 			JsonObject kpiResultObject = new JsonObject();
 			kpiResultObject.add("columns", columns);
 			kpiResultObject.add("data", resultArray);
 			listOfResultJson.add(kpiResultObject);
 		}
-
 		return listOfResultJson;
 	}
 
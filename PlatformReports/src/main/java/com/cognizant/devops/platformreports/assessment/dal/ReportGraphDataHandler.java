@@ -25,6 +25,7 @@ import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
 import com.cognizant.devops.platformcommons.constants.AssessmentReportAndWorkflowConstants;
 import com.cognizant.devops.platformcommons.constants.PlatformServiceConstants;
 import com.cognizant.devops.platformcommons.core.enums.KPIJobResultAttributes;
@@ -35,6 +36,7 @@ import com.cognizant.devops.platformdal.assessmentreport.ReportConfigDAL;
 import com.cognizant.devops.platformreports.assessment.datamodel.ContentConfigDefinition;
 import com.cognizant.devops.platformreports.assessment.datamodel.InsightsKPIConfigDTO;
 import com.cognizant.devops.platformreports.assessment.datamodel.InsightsKPIResultDetails;
+import com.cognizant.devops.platformreports.assessment.datamodel.KPIQueryResult;
 import com.cognizant.devops.platformreports.assessment.datamodel.QueryModel;
 import com.cognizant.devops.platformreports.assessment.kpi.InsightsStatusProvider;
 import com.cognizant.devops.platformreports.assessment.util.ReportEngineUtils;
@@ -95,16 +97,16 @@ public class ReportGraphDataHandler implements ReportDataHandler {
 			if (!kpiDefinition.getInputDatasource().isEmpty()) {
 				graphDBHandler = new GraphDBHandler(kpiDefinition.getInputDatasource());
 			}
-			List<JsonObject> graphResp = fetchData(graphQuery);
-			JsonArray graphJsonResult = graphResp.get(0).getAsJsonArray(AssessmentReportAndWorkflowConstants.RESULTS);
-
-			JsonArray data = graphJsonResult.get(0).getAsJsonObject().getAsJsonArray("data");
-			JsonArray columns = graphJsonResult.get(0).getAsJsonObject().getAsJsonArray(AssessmentReportAndWorkflowConstants.COLUMNS);
+			JsonObject propertyJson = ReportEngineUtils.getInferencePropertyJson(kpiDefinition);
+			int rowCount = graphDBHandler.executeCypherQueryForRows(graphQuery, (statementIndex, columns, rowData) -> {
+				JsonObject dataJson = creatingResultJsonFromRow(rowData, columns, propertyJson, kpiDefinition, model);
+				if (dataJson != null) {
+					listOfResultJson.add(dataJson);
+				}
+			});
 			log.debug(" Worlflow Detail ==== KPI Id {0}  record return by query ==== {1} ", kpiDefinition.getKpiId(),
-					data.size());
-			if (data.size() > 0) {
-				listOfResultJson.addAll(creatingResulJsontFromGraphResponce(data, columns, kpiDefinition, model));
-			} else {
+					rowCount);
+			if (rowCount == 0) {
 				log.error("Worlflow Detail ==== No Result Neo4j query returned invalid result for the KPIID {} ",
 						kpiDefinition.getKpiId());
 				/*
@@ -127,6 +129,91 @@ public class ReportGraphDataHandler implements ReportDataHandler {
 		return listOfResultJson;
 	}
 
+	@Override
+	public List<List<JsonObject>> fetchKPIData(List<QueryModel> queryModels, InsightsKPIConfigDTO kpiDefinition) {
+		List<KPIQueryResult> queryResults = fetchKPIQueryResults(queryModels, kpiDefinition);
+		JsonObject propertyJson = ReportEngineUtils.getInferencePropertyJson(kpiDefinition);
+		List<List<JsonObject>> results = new ArrayList<>(queryModels.size());
+		for (int i = 0; i < queryModels.size(); i++) {
+			results.add(creatingResultJsonFromQueryResult(queryResults.get(i), propertyJson, kpiDefinition,
+					queryModels.get(i)));
+		}
+		return results;
+	}
+
+	/**
+	 * Runs the query of every window in multi statement transactions of
+	 * kpiQueriesPerTransaction statements instead of one transaction per window.
+	 * Rows are matched back to their window by statement index.
+	 * 
+	 * @param queryModels
+	 * @param kpiDefinition
+	 * @return rows of each window, at the index of the window
+	 */
+	public List<KPIQueryResult> fetchKPIQueryResults(List<QueryModel> queryModels, InsightsKPIConfigDTO kpiDefinition) {
+		List<KPIQueryResult> results = new ArrayList<>(queryModels.size());
+		queryModels.forEach(model -> results.add(new KPIQueryResult()));
+		try {
+			long startTime = System.nanoTime();
+			if (!kpiDefinition.getInputDatasource().isEmpty()) {
+				graphDBHandler = new GraphDBHandler(kpiDefinition.getInputDatasource());
+			}
+			int batchSize = Math.max(1,
+					ApplicationConfigProvider.getInstance().getAssessmentReport().getKpiQueriesPerTransaction());
+			int rowCount = 0;
+			for (int offset = 0; offset < queryModels.size(); offset += batchSize) {
+				List<QueryModel> batch = queryModels.subList(offset, Math.min(offset + batchSize, queryModels.size()));
+				List<String> queries = new ArrayList<>(batch.size());
+				batch.forEach(model -> queries.add(model.getQuery()));
+				List<KPIQueryResult> batchResults = results.subList(offset, offset + batch.size());
+				log.debug("Worlflow Detail ==== {} graphQueries with date for KPI {} ==== first is === {} ",
+						queries.size(), kpiDefinition.getKpiId(), queries.get(0));
+				rowCount += graphDBHandler.executeCypherQueriesForRows(queries, (statementIndex, columns, rowData) -> {
+					KPIQueryResult queryResult = batchResults.get(statementIndex);
+					queryResult.setColumns(columns);
+					queryResult.getRows().add(rowData);
+				});
+			}
+			if (rowCount == 0) {
+				log.error("Worlflow Detail ==== No Result Neo4j query returned invalid result for the KPIID {} ",
+						kpiDefinition.getKpiId());
+			}
+			long processingTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+			log.debug("Type=TaskExecution  executionId={} workflowId={} ConfigId={} WorkflowType={} KpiId={} Category={} ProcessingTime={} message={}",
+					kpiDefinition.getExecutionId(),kpiDefinition.getWorkflowId(),kpiDefinition.getReportId() ,"-",kpiDefinition.getKpiId(),
+					kpiDefinition.getCategory(),processingTime,"usecasename: " +kpiDefinition.getUsecaseName() + " queries: " + queryModels.size());
+		} catch (Exception e) {
+			log.error("Exception while running neo4j operation  ", e);
+			log.error("Type=TaskExecution  executionId={} workflowId={} ConfigId={} WorkflowType={} KpiId={} Category={} ProcessingTime={} message={}",
+					kpiDefinition.getExecutionId(),kpiDefinition.getWorkflowId(),kpiDefinition.getReportId() ,"-",kpiDefinition.getKpiId(),
+					kpiDefinition.getCategory(),0,"usecasename: " +kpiDefinition.getUsecaseName() +"Exception while running neo4j operation" + e.getMessage());
+			throw new InsightsJobFailedException("Exception while running neo4j operation  " + e.getMessage());
+		}
+		return results;
+	}
+
+	/**
+	 * Used to create the KPI result Json Objects of one window from its rows
+	 * 
+	 * @param queryResult
+	 * @param propertyJson
+	 * @param kpiDefinition
+	 * @param model
+	 * @return List<JsonObject>
+	 */
+	public List<JsonObject> creatingResultJsonFromQueryResult(KPIQueryResult queryResult, JsonObject propertyJson,
+			InsightsKPIConfigDTO kpiDefinition, QueryModel model) {
+		List<JsonObject> listOfResultJson = new ArrayList<>(queryResult.getRows().size());
+		for (JsonArray rowData : queryResult.getRows()) {
+			JsonObject dataJson = creatingResultJsonFromRow(rowData, queryResult.getColumns(), propertyJson,
+					kpiDefinition, model);
+			if (dataJson != null) {
+				listOfResultJson.add(dataJson);
+			}
+		}
+		return listOfResultJson;
+	}
+
 	@Override
 	public List<InsightsKPIResultDetails> fetchKPIResultData(ContentConfigDefinition contentConfigDefinition) {
 		List<InsightsKPIResultDetails> kpiDetailList = new ArrayList<>(0);
@@ -190,40 +277,56 @@ public class ReportGraphDataHandler implements ReportDataHandler {
 		List<JsonObject> listOfResultJson = new ArrayList<>();
 		JsonObject propertyJson = ReportEngineUtils.getInferencePropertyJson(kpiDefinition);
 		for (int dataIndex = 0; dataIndex < data.size(); dataIndex++) {
-			JsonObject dataJson = new JsonObject();
 			JsonArray rowData = data.get(dataIndex).getAsJsonObject().getAsJsonArray("row");
-			for (int rowDataIndex = 0; rowDataIndex < rowData.size(); rowDataIndex++) {
-				// Checking if row or column data is null or not
-				if (!rowData.get(rowDataIndex).isJsonNull() && !columns.get(rowDataIndex).isJsonNull()) {
-					dataJson.add(columns.get(rowDataIndex).getAsString(), rowData.get(rowDataIndex));
-				} else {
-					log.error("Either row or column data of graph response is not available for the KPI ID {}",
-							kpiDefinition.getKpiId());
-
-				}
-			}
-			//String resultValue = String.valueOf(dataJson.get(kpiDefinition.getResultField()));
-			if (!dataJson.entrySet().isEmpty()) { //&& validateJson(dataJson)
-				long currentDateTime=InsightsUtils.getTodayTime();
-				dataJson.addProperty(KPIJobResultAttributes.RESULTTIME.getValue(), currentDateTime);
-				dataJson.addProperty(KPIJobResultAttributes.RESULTTIMEX.getValue(),
-						InsightsUtils.insightsTimeXFormat(currentDateTime));
-				dataJson.add(ReportEngineUtils.COLUMN_PROPERTY, columns);
-				dataJson.addProperty("recordDate", model.getRecordDate());
-				dataJson.addProperty("recordDateX", InsightsUtils.insightsTimeXFormat(model.getRecordDate()*1000));
-
-				// merge two json, merge result column with column value and inference Config
-				// Property Json
-				dataJson = ReportEngineUtils.mergeTwoJson(dataJson, propertyJson);
+			JsonObject dataJson = creatingResultJsonFromRow(rowData, columns, propertyJson, kpiDefinition, model);
+			if (dataJson != null) {
 				listOfResultJson.add(dataJson);
+			}
+		}
+		return listOfResultJson;
+	}
+
+	/**
+	 * Used to create the result Json Object of a single KPI query row
+	 * 
+	 * @param rowData
+	 * @param columns
+	 * @param propertyJson
+	 * @param kpiDefinition
+	 * @param model
+	 * @return result json or null when the row has no result
+	 */
+	private JsonObject creatingResultJsonFromRow(JsonArray rowData, JsonArray columns, JsonObject propertyJson,
+			InsightsKPIConfigDTO kpiDefinition, QueryModel model) {
+		JsonObject dataJson = new JsonObject();
+		for (int rowDataIndex = 0; rowDataIndex < rowData.size(); rowDataIndex++) {
+			// Checking if row or column data is null or not
+			if (!rowData.get(rowDataIndex).isJsonNull() && !columns.get(rowDataIndex).isJsonNull()) {
+				dataJson.add(columns.get(rowDataIndex).getAsString(), rowData.get(rowDataIndex).deepCopy());
 			} else {
-				log.error(
-						" No result calculated  or  ResultField row value field is null or zero for the KPI ID {} ....",
+				log.error("Either row or column data of graph response is not available for the KPI ID {}",
 						kpiDefinition.getKpiId());
 
 			}
 		}
-		return listOfResultJson;
+		//String resultValue = String.valueOf(dataJson.get(kpiDefinition.getResultField()));
+		if (!dataJson.entrySet().isEmpty()) { //&& validateJson(dataJson)
+			long currentDateTime=InsightsUtils.getTodayTime();
+			dataJson.addProperty(KPIJobResultAttributes.RESULTTIME.getValue(), currentDateTime);
+			dataJson.addProperty(KPIJobResultAttributes.RESULTTIMEX.getValue(),
+					InsightsUtils.insightsTimeXFormat(currentDateTime));
+			dataJson.add(ReportEngineUtils.COLUMN_PROPERTY, columns);
+			dataJson.addProperty("recordDate", model.getRecordDate());
+			dataJson.addProperty("recordDateX", InsightsUtils.insightsTimeXFormat(model.getRecordDate()*1000));
+
+			// merge two json, merge result column with column value and inference Config
+			// Property Json
+			return ReportEngineUtils.mergeTwoJson(dataJson, propertyJson);
+		}
+		log.error(
+				" No result calculated  or  ResultField row value field is null or zero for the KPI ID {} ....",
+				kpiDefinition.getKpiId());
+		return null;
 	}
 
 	private boolean validateJson(JsonObject dataJson) {
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformreports.assessment.datamodel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.JsonArray;
+
+/**
+ * Rows returned by the KPI query of one window, before they are turned into
+ * KPI results. Nothing in here depends on the KPI, the same rows can be used
+ * by every KPI which runs the same query for the same window.
+ */
+public class KPIQueryResult {
+
+	private JsonArray columns = new JsonArray();
+	private final List<JsonArray> rows = new ArrayList<>();
+	private long createdTime = System.currentTimeMillis();
+
+	public JsonArray getColumns() {
+		return columns;
+	}
+	public void setColumns(JsonArray columns) {
+		this.columns = columns;
+	}
+	public List<JsonArray> getRows() {
+		return rows;
+	}
+	public long getCreatedTime() {
+		return createdTime;
+	}
+	public void setCreatedTime(long createdTime) {
+		this.createdTime = createdTime;
+	}
+
+}
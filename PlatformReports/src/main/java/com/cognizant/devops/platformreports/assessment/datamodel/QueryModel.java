@@ -18,6 +18,7 @@ package com.cognizant.devops.platformreports.assessment.datamodel;
 public class QueryModel {
 	
 	private long recordDate;
+	private long endDate;
 	private String query;
 	
 	
@@ -27,6 +28,12 @@ public class QueryModel {
 	public void setRecordDate(long reportDate) {
 		this.recordDate = reportDate;
 	}
+	public long getEndDate() {
+		return endDate;
+	}
+	public void setEndDate(long endDate) {
+		this.endDate = endDate;
+	}
 	public String getQuery() {
 		return query;
 	}
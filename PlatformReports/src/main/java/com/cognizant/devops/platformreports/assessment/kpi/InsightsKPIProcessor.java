@@ -96,13 +96,14 @@ public class InsightsKPIProcessor {
 			log.debug("Worlflow Detail ====  In processKPI for kpiId {} category {} queryModelList {}",
 					kpiDefinition.getKpiId(), kpiDefinition.getCategory(), queryModelList.size());			
 			long startTime = System.nanoTime();
-			for (QueryModel model : queryModelList) {
+			List<List<JsonObject>> queryResults = KPIQueryResultCache.getInstance().fetchKPIData(kPIQueryDataHandler,
+					queryModelList, kpiDefinition);
+			for (List<JsonObject> result : queryResults) {
 				if (kpiDefinition.getCategory().equalsIgnoreCase(ReportEngineUtils.PREDICTION)) {
-					List<JsonObject> result = kPIQueryDataHandler.fetchKPIData(model.getQuery(), kpiDefinition, model);					
 					listOfResultJson.addAll(AutoMLPrediction.getPrediction(result,
 							result.get(0).get("columnProperty").getAsJsonArray(), kpiDefinition.getUsecaseName()));
 				} else {
-					listOfResultJson.addAll(kPIQueryDataHandler.fetchKPIData(model.getQuery(), kpiDefinition, model));
+					listOfResultJson.addAll(result);
 				}
 			}
 			long processingTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
@@ -148,6 +149,7 @@ public class InsightsKPIProcessor {
 		dateReplaceMap.put(ReportEngineUtils.END_TIME_FIELD, toDate);
 		StringSubstitutor sub = new StringSubstitutor(dateReplaceMap, "{", "}");
 		queryModel.setRecordDate(fromDate);
+		queryModel.setEndDate(toDate);
 		queryModel.setQuery(sub.replace(neo4jQuery));
 		queryModelList.add(queryModel);
 		long processingTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
@@ -176,6 +178,7 @@ public class InsightsKPIProcessor {
 				dateReplaceMap.put(ReportEngineUtils.END_TIME_FIELD, endDate);
 				StringSubstitutor sub = new StringSubstitutor(dateReplaceMap, "{", "}");
 				qmodel.setRecordDate(startDate);
+				qmodel.setEndDate(endDate);
 				qmodel.setQuery(sub.replace(query));
 				queryModelList.add(qmodel);
 				startDate = InsightsUtils.addDaysInGivenTime(startDate, 1);
@@ -197,6 +200,7 @@ public class InsightsKPIProcessor {
 				StringSubstitutor sub = new StringSubstitutor(dateReplaceMap, "{", "}");
 				neo4jQueries.add(sub.replace(query));
 				qmodel.setRecordDate(startOfTheDayInWeek);
+				qmodel.setEndDate(endDayOfTheWeek);
 				qmodel.setQuery(sub.replace(query));
 				queryModelList.add(qmodel);
 				startOfTheDayInWeek = InsightsUtils.addDaysInGivenTime(startOfTheDayInWeek, 7);
@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformreports.assessment.kpi;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
+import com.cognizant.devops.platformcommons.config.KPIQueryCacheConfig;
+import com.cognizant.devops.platformcommons.dal.neo4j.GraphDBHandler;
+import com.cognizant.devops.platformreports.assessment.dal.ReportDataHandler;
+import com.cognizant.devops.platformreports.assessment.dal.ReportGraphDataHandler;
+import com.cognizant.devops.platformreports.assessment.datamodel.InsightsKPIConfigDTO;
+import com.cognizant.devops.platformreports.assessment.datamodel.KPIQueryResult;
+import com.cognizant.devops.platformreports.assessment.datamodel.QueryModel;
+import com.cognizant.devops.platformreports.assessment.util.ReportEngineUtils;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Keeps the rows returned by KPI queries so that KPIs of other assessments and
+ * later executions which run the same query for the same window do not query
+ * Neo4j again. Entries are keyed by the normalized query text, the input
+ * datasource and the start/end of the window, and are evicted by TTL, entry
+ * count and total row count. Only windows which already ended are cached.
+ * When persistToOutputDatasource is set, entries are also stored as
+ * KPI:QUERY_CACHE nodes so that other report engine instances can use them,
+ * nodes older than the TTL are deleted whenever new entries are persisted.
+ * The cache is off by default.
+ */
+public class KPIQueryResultCache {
+
+	private static final Logger log = LogManager.getLogger(KPIQueryResultCache.class);
+	private static final KPIQueryResultCache instance = new KPIQueryResultCache();
+	private static final String PERSIST_QUERY = "UNWIND {props} AS properties MERGE (n:"
+			+ ReportEngineUtils.NEO4J_QUERY_CACHE_LABEL + " {cacheKey : properties.cacheKey}) SET n = properties";
+
+	private final LinkedHashMap<String, KPIQueryResult> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<Integer, KPICacheStatistics> statistics = new ConcurrentHashMap<>();
+	private int cachedRows = 0;
+
+	private static class KPICacheStatistics {
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+
+		private double getHitRatio() {
+			long total = hits.sum() + misses.sum();
+			return total == 0 ? 0 : (double) hits.sum() / total;
+		}
+	}
+
+	private KPIQueryResultCache() {
+	}
+
+	public static KPIQueryResultCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Fetch the KPI data of every query model, windows found in the cache are
+	 * not queried again. Same contract as
+	 * {@link ReportDataHandler#fetchKPIData(List, InsightsKPIConfigDTO)}.
+	 *
+	 * @param dataHandler
+	 * @param queryModels
+	 * @param kpiDefinition
+	 * @return List<List<JsonObject>>
+	 */
+	public List<List<JsonObject>> fetchKPIData(ReportDataHandler dataHandler, List<QueryModel> queryModels,
+			InsightsKPIConfigDTO kpiDefinition) {
+		KPIQueryCacheConfig cacheConfig = ApplicationConfigProvider.getInstance().getAssessmentReport()
+				.getKpiQueryCache();
+		if (!cacheConfig.isEnabled() || !(dataHandler instanceof ReportGraphDataHandler)) {
+			return dataHandler.fetchKPIData(queryModels, kpiDefinition);
+		}
+		ReportGraphDataHandler graphDataHandler = (ReportGraphDataHandler) dataHandler;
+		long currentTime = System.currentTimeMillis();
+		String[] cacheKeys = new String[queryModels.size()];
+		KPIQueryResult[] queryResults = new KPIQueryResult[queryModels.size()];
+		Map<String, Integer> missingKeys = new HashMap<>();
+		for (int i = 0; i < queryModels.size(); i++) {
+			QueryModel model = queryModels.get(i);
+			if (model.getEndDate() > 0 && model.getEndDate() < TimeUnit.MILLISECONDS.toSeconds(currentTime)) {
+				cacheKeys[i] = getCacheKey(model, kpiDefinition);
+				queryResults[i] = get(cacheKeys[i], cacheConfig, currentTime);
+				if (queryResults[i] == null) {
+					missingKeys.put(cacheKeys[i], i);
+				}
+			}
+		}
+		if (cacheConfig.isPersistToOutputDatasource() && !missingKeys.isEmpty()) {
+			loadPersistedResults(missingKeys, queryResults, cacheConfig, currentTime);
+		}
+
+		List<Integer> missingIndexes = new ArrayList<>();
+		for (int i = 0; i < queryResults.length; i++) {
+			if (queryResults[i] == null) {
+				missingIndexes.add(i);
+			}
+		}
+		if (!missingIndexes.isEmpty()) {
+			List<QueryModel> missingModels = new ArrayList<>(missingIndexes.size());
+			missingIndexes.forEach(index -> missingModels.add(queryModels.get(index)));
+			List<KPIQueryResult> fetchedResults = graphDataHandler.fetchKPIQueryResults(missingModels, kpiDefinition);
+			Map<String, KPIQueryResult> newEntries = new HashMap<>();
+			for (int j = 0; j < missingIndexes.size(); j++) {
+				int index = missingIndexes.get(j);
+				queryResults[index] = fetchedResults.get(j);
+				if (cacheKeys[index] != null) {
+					put(cacheKeys[index], fetchedResults.get(j), cacheConfig);
+					newEntries.put(cacheKeys[index], fetchedResults.get(j));
+				}
+			}
+			if (cacheConfig.isPersistToOutputDatasource() && !newEntries.isEmpty()) {
+				persistResults(newEntries, cacheConfig, currentTime);
+			}
+		}
+		recordStatistics(kpiDefinition, queryModels.size() - missingIndexes.size(), missingIndexes.size());
+
+		JsonObject propertyJson = ReportEngineUtils.getInferencePropertyJson(kpiDefinition);
+		List<List<JsonObject>> results = new ArrayList<>(queryModels.size());
+		for (int i = 0; i < queryModels.size(); i++) {
+			results.add(graphDataHandler.creatingResultJsonFromQueryResult(queryResults[i], propertyJson,
+					kpiDefinition, queryModels.get(i)));
+		}
+		return results;
+	}
+
+	/**
+	 * Cache hits, misses and hit ratio of every KPI since the engine started
+	 *
+	 * @return JsonObject
+	 */
+	public JsonObject getStatistics() {
+		JsonObject statisticsJson = new JsonObject();
+		statistics.forEach((kpiId, kpiStatistics) -> {
+			JsonObject kpiJson = new JsonObject();
+			kpiJson.addProperty("hits", kpiStatistics.hits.sum());
+			kpiJson.addProperty("misses", kpiStatistics.misses.sum());
+			kpiJson.addProperty("hitRatio", kpiStatistics.getHitRatio());
+			statisticsJson.add(String.valueOf(kpiId), kpiJson);
+		});
+		return statisticsJson;
+	}
+
+	/**
+	 * Log size of the cache and hit ratio of every KPI
+	 */
+	public void logSummary() {
+		synchronized (this) {
+			log.debug("Worlflow Detail ==== kpiQueryCache entries={} rows={} ", entries.size(), cachedRows);
+		}
+		statistics.forEach((kpiId, kpiStatistics) -> log.debug(
+				"Worlflow Detail ==== kpiQueryCache kpiId={} hits={} misses={} hitRatio={} ", kpiId,
+				kpiStatistics.hits.sum(), kpiStatistics.misses.sum(), kpiStatistics.getHitRatio()));
+	}
+
+	private synchronized KPIQueryResult get(String cacheKey, KPIQueryCacheConfig cacheConfig, long currentTime) {
+		KPIQueryResult queryResult = entries.get(cacheKey);
+		if (queryResult != null && isExpired(queryResult, cacheConfig, currentTime)) {
+			entries.remove(cacheKey);
+			cachedRows -= queryResult.getRows().size();
+			return null;
+		}
+		return queryResult;
+	}
+
+	private synchronized void put(String cacheKey, KPIQueryResult queryResult, KPIQueryCacheConfig cacheConfig) {
+		if (queryResult.getRows().size() > cacheConfig.getMaxRows()) {
+			return;
+		}
+		KPIQueryResult previous = entries.put(cacheKey, queryResult);
+		if (previous != null) {
+			cachedRows -= previous.getRows().size();
+		}
+		cachedRows += queryResult.getRows().size();
+		Iterator<KPIQueryResult> iterator = entries.values().iterator();
+		while (iterator.hasNext() && (entries.size() > cacheConfig.getMaxEntries() || cachedRows > cacheConfig.getMaxRows())) {
+			cachedRows -= iterator.next().getRows().size();
+			iterator.remove();
+		}
+	}
+
+	private boolean isExpired(KPIQueryResult queryResult, KPIQueryCacheConfig cacheConfig, long currentTime) {
+		return queryResult.getCreatedTime() + TimeUnit.MINUTES.toMillis(cacheConfig.getTtlInMinutes()) < currentTime;
+	}
+
+	private void recordStatistics(InsightsKPIConfigDTO kpiDefinition, int hits, int misses) {
+		KPICacheStatistics kpiStatistics = statistics.computeIfAbsent(kpiDefinition.getKpiId(),
+				kpiId -> new KPICacheStatistics());
+		kpiStatistics.hits.add(hits);
+		kpiStatistics.misses.add(misses);
+		log.debug("Type=TaskExecution  executionId={} workflowId={} ConfigId={} WorkflowType={} KpiId={} Category={} ProcessingTime={} message={}",
+				kpiDefinition.getExecutionId(), kpiDefinition.getWorkflowId(), kpiDefinition.getReportId(), "-",
+				kpiDefinition.getKpiId(), kpiDefinition.getCategory(), 0, "kpiQueryCache hits: " + hits + " misses: "
+						+ misses + " hitRatio: " + kpiStatistics.getHitRatio());
+	}
+
+	private void loadPersistedResults(Map<String, Integer> missingKeys, KPIQueryResult[] queryResults,
+			KPIQueryCacheConfig cacheConfig, long currentTime) {
+		if (!isOutputDatasourceGraph()) {
+			return;
+		}
+		StringBuilder query = new StringBuilder("MATCH (n:").append(ReportEngineUtils.NEO4J_QUERY_CACHE_LABEL)
+				.append(") WHERE n.cacheKey IN [");
+		String separator = "";
+		for (String cacheKey : missingKeys.keySet()) {
+			query.append(separator).append('\'').append(cacheKey).append('\'');
+			separator = ",";
+		}
+		query.append("] AND n.createdTime >= ")
+				.append(currentTime - TimeUnit.MINUTES.toMillis(cacheConfig.getTtlInMinutes()))
+				.append(" RETURN n.cacheKey, n.createdTime, n.result");
+		try {
+			JsonParser jsonParser = new JsonParser();
+			new GraphDBHandler().executeCypherQueryForRows(query.toString(), (statementIndex, columns, row) -> {
+				String cacheKey = row.get(0).getAsString();
+				JsonObject resultJson = jsonParser.parse(row.get(2).getAsString()).getAsJsonObject();
+				KPIQueryResult queryResult = new KPIQueryResult();
+				queryResult.setCreatedTime(row.get(1).getAsLong());
+				queryResult.setColumns(resultJson.getAsJsonArray("columns"));
+				resultJson.getAsJsonArray("rows").forEach(rowData -> queryResult.getRows().add(rowData.getAsJsonArray()));
+				queryResults[missingKeys.get(cacheKey)] = queryResult;
+				put(cacheKey, queryResult, cacheConfig);
+			});
+		} catch (Exception e) {
+			log.error("Worlflow Detail ==== Unable to load persisted KPI query results ", e);
+		}
+	}
+
+	private void persistResults(Map<String, KPIQueryResult> newEntries, KPIQueryCacheConfig cacheConfig,
+			long currentTime) {
+		if (!isOutputDatasourceGraph()) {
+			return;
+		}
+		List<JsonObject> nodes = new ArrayList<>(newEntries.size());
+		newEntries.forEach((cacheKey, queryResult) -> {
+			JsonObject resultJson = new JsonObject();
+			resultJson.add("columns", queryResult.getColumns());
+			JsonArray rows = new JsonArray();
+			queryResult.getRows().forEach(rows::add);
+			resultJson.add("rows", rows);
+			JsonObject node = new JsonObject();
+			node.addProperty("cacheKey", cacheKey);
+			node.addProperty("createdTime", queryResult.getCreatedTime());
+			node.addProperty("result", resultJson.toString());
+			nodes.add(node);
+		});
+		try {
+			new GraphDBHandler().bulkCreateNodes(nodes, null, PERSIST_QUERY);
+		} catch (Exception e) {
+			log.error("Worlflow Detail ==== Unable to persist KPI query results ", e);
+		}
+		deleteExpiredResults(cacheConfig, currentTime);
+	}
+
+	private void deleteExpiredResults(KPIQueryCacheConfig cacheConfig, long currentTime) {
+		String query = "MATCH (n:" + ReportEngineUtils.NEO4J_QUERY_CACHE_LABEL + ") WHERE n.createdTime < "
+				+ (currentTime - TimeUnit.MINUTES.toMillis(cacheConfig.getTtlInMinutes())) + " DETACH DELETE n";
+		try {
+			new GraphDBHandler().executeCypherQuery(query);
+		} catch (Exception e) {
+			log.error("Worlflow Detail ==== Unable to delete expired KPI query results ", e);
+		}
+	}
+
+	private boolean isOutputDatasourceGraph() {
+		return "NEO4J".equalsIgnoreCase(ApplicationConfigProvider.getInstance().getAssessmentReport().getOutputDatasource());
+	}
+
+	private String getCacheKey(QueryModel model, InsightsKPIConfigDTO kpiDefinition) {
+		String normalizedQuery = model.getQuery().trim().replaceAll("\\s+", " ");
+		String cacheKey = kpiDefinition.getInputDatasource() + "|" + model.getRecordDate() + "|" + model.getEndDate()
+				+ "|" + normalizedQuery;
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(cacheKey.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hexKey = new StringBuilder(digest.length * 2);
+			for (byte value : digest) {
+				hexKey.append(String.format("%02x", value));
+			}
+			return hexKey.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
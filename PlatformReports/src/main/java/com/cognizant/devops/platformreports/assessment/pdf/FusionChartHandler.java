@@ -15,12 +15,13 @@
  ******************************************************************************/
 package com.cognizant.devops.platformreports.assessment.pdf;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
@@ -29,14 +30,20 @@ import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.pdfbox.multipdf.PDFMergerUtility;
@@ -52,8 +59,6 @@ import com.cognizant.devops.platformcommons.constants.AssessmentReportAndWorkflo
 import com.cognizant.devops.platformcommons.constants.ReportChartCollection;
 import com.cognizant.devops.platformcommons.dal.multipart.MultipartDataHandler;
 import com.cognizant.devops.platformcommons.exception.InsightsCustomException;
-import com.cognizant.devops.platformdal.assessmentreport.InsightsReportTemplateConfigFiles;
-import com.cognizant.devops.platformdal.assessmentreport.ReportConfigDAL;
 import com.cognizant.devops.platformreports.assessment.datamodel.InsightsAssessmentConfigurationDTO;
 import com.cognizant.devops.platformreports.assessment.datamodel.InsightsReportPdfTableConfig;
 import com.cognizant.devops.platformreports.assessment.util.PdfReportTableUtil;
@@ -70,40 +75,72 @@ public class FusionChartHandler implements BasePDFProcessor {
 	private static Logger log = LogManager.getLogger(FusionChartHandler.class);
 	MultipartDataHandler multiPartHandler = new MultipartDataHandler();
 	private float yStart = 1f;
-	ReportConfigDAL reportConfigDAL = new ReportConfigDAL();
+	private static final ExecutorService PDF_RENDER_POOL = createRenderPool();
 	
+	/**
+	 * Builds the chart config and the content of the html template, then the
+	 * Fusion export of the charts and the OpenPDF rendering of the tables run
+	 * at the same time. The template files are zipped in memory with the
+	 * modified html, and the two PDFs are merged in memory into the exported
+	 * file. The time of each stage is logged.
+	 */
 	@Override
 	public void generatePDF(InsightsAssessmentConfigurationDTO assessmentReportDTO) {
-
+		Map<String, Long> stageTimings = Collections.synchronizedMap(new LinkedHashMap<>());
 		try {
 			long startTime = System.nanoTime();
 			createPDFDirectory(assessmentReportDTO);
+			long stageStartTime = recordStage(stageTimings, "templateFiles", startTime);
 
 			JsonArray finalTemplateJson = generateChartsConfig(assessmentReportDTO);
+			stageStartTime = recordStage(stageTimings, "chartsConfig", stageStartTime);
 
-			modifyHtmlTemplate(assessmentReportDTO);
-			
-			InsightsReportPdfTableConfig insightsReportPdfTableConfig = processHtmlTableWithOpenPDF(
-					assessmentReportDTO);
+			List<String> tableDivIds = new ArrayList<>();
+			String modifiedHtml = modifyHtmlTemplate(assessmentReportDTO, tableDivIds);
+			recordStage(stageTimings, "htmlTemplate", stageStartTime);
+
+			InsightsReportPdfTableConfig insightsReportPdfTableConfig = new InsightsReportPdfTableConfig();
+			CompletableFuture<byte[]> tablePdf = CompletableFuture.supplyAsync(() -> processHtmlTableWithOpenPDF(
+					assessmentReportDTO, tableDivIds, insightsReportPdfTableConfig, stageTimings), PDF_RENDER_POOL);
 			
-			exportPDFFile(finalTemplateJson, assessmentReportDTO, insightsReportPdfTableConfig);
+			exportPDFFile(finalTemplateJson, assessmentReportDTO, modifiedHtml, tablePdf, insightsReportPdfTableConfig,
+					stageTimings);
 			long processingTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
 			log.debug("Type=TaskExecution  executionId={} workflowId={} ConfigId={} WorkflowType={} KpiId={} Category={} ProcessingTime={} message={}",
 					assessmentReportDTO.getExecutionId(),assessmentReportDTO.getWorkflowId(),assessmentReportDTO.getConfigId(),"-","-","-",processingTime,
 					"reportId: "+assessmentReportDTO.getReportId() + "reportName: " +assessmentReportDTO.getReportName() + "VisualizationUtil" +
-					assessmentReportDTO.getVisualizationutil());
+					assessmentReportDTO.getVisualizationutil() + " stageTimings: " + stageTimings);
 
 		} catch (Exception e) {
 			log.error(e);
 			log.error("Type=TaskExecution  executionId={} workflowId={} ConfigId={} WorkflowType={} KpiId={} Category={} ProcessingTime={} message={}",
 					assessmentReportDTO.getExecutionId(),assessmentReportDTO.getWorkflowId(),assessmentReportDTO.getConfigId(),"-","-","-",0,
 					"reportId: "+assessmentReportDTO.getReportId() + "reportName: " +assessmentReportDTO.getReportName() + "VisualizationUtil" +
-					assessmentReportDTO.getVisualizationutil() + e.getMessage());
+					assessmentReportDTO.getVisualizationutil() + " stageTimings: " + stageTimings + " " + e.getMessage());
 			throw new InsightsJobFailedException(e.getMessage());
 		}
 
 	}
 
+	private static long recordStage(Map<String, Long> stageTimings, String stage, long stageStartTime) {
+		long now = System.nanoTime();
+		stageTimings.put(stage, TimeUnit.NANOSECONDS.toMillis(now - stageStartTime));
+		return now;
+	}
+
+	private static ExecutorService createRenderPool() {
+		int poolSize = Math.max(1, ApplicationConfigProvider.getInstance().getWorkflowDetails().getTaskParallelism());
+		AtomicInteger threadCount = new AtomicInteger();
+		ThreadPoolExecutor renderPool = new ThreadPoolExecutor(poolSize, poolSize, 1, TimeUnit.MINUTES,
+				new LinkedBlockingQueue<Runnable>(), runnable -> {
+					Thread thread = new Thread(runnable, "PDFTableRender-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		renderPool.allowCoreThreadTimeOut(true);
+		return renderPool;
+	}
+
 	private void createPDFDirectory(InsightsAssessmentConfigurationDTO assessmentReportDTO) {
 		try {
 			long startTime = System.nanoTime();
@@ -131,16 +168,8 @@ public class FusionChartHandler implements BasePDFProcessor {
 	}
 
 	public void setReportExecutionFolder(InsightsAssessmentConfigurationDTO assessmentReportDTO) throws IOException {
-
-		List<InsightsReportTemplateConfigFiles> records = reportConfigDAL
-				.getReportTemplateConfigFileByReportId(assessmentReportDTO.getReportId());
-		for (InsightsReportTemplateConfigFiles record : records) {
-			String filePath = assessmentReportDTO.getPdfReportDirPath() + File.separator + record.getFileName();
-			File file = new File(filePath);
-			if (!file.exists()) {
-				FileUtils.writeByteArrayToFile(file, record.getFileData());
-			}
-		}
+		ReportTemplateAssetCache.getInstance().copyTemplateFiles(assessmentReportDTO.getReportId(),
+				Paths.get(assessmentReportDTO.getPdfReportDirPath()));
 	}
 
 	private JsonArray generateChartsConfig(InsightsAssessmentConfigurationDTO assessmentReportDTO) throws IOException {
@@ -245,7 +274,16 @@ public class FusionChartHandler implements BasePDFProcessor {
 		}
 	}
 
-	private void modifyHtmlTemplate(InsightsAssessmentConfigurationDTO assessmentReportDTO) {
+	/**
+	 * Add the content to the html template, the template file itself is not
+	 * rewritten
+	 * 
+	 * @param assessmentReportDTO
+	 * @param tableDivIds         filled with the ids of the table divs in
+	 *                            document order
+	 * @return modified html, null when the template is unchanged
+	 */
+	private String modifyHtmlTemplate(InsightsAssessmentConfigurationDTO assessmentReportDTO, List<String> tableDivIds) {
 		String templateHtmlPath = assessmentReportDTO.getPdfReportDirPath() + File.separator
 				+ assessmentReportDTO.getReportFilePath() + AssessmentReportAndWorkflowConstants.HTMLEXTENSION;
 		log.debug("Worlflow Detail ==== templateHtmlPath {} ", templateHtmlPath);
@@ -255,17 +293,16 @@ public class FusionChartHandler implements BasePDFProcessor {
 			Document document = Jsoup.parse(render, "UTF-8");
 			String originalHTml = document.toString();
 			processHtmlContent(assessmentReportDTO, document);
-			String modifiedHtml = document.toString();
-			if (!originalHTml.equalsIgnoreCase(modifiedHtml)) {
-				try(PrintWriter printWriter = new PrintWriter(new FileWriter(templateHtmlPath))) {
-					printWriter.print(modifiedHtml);
-				}
+			for (Element elmTableDiv : document.getElementsByAttributeValueMatching("id", "table_*")) {
+				tableDivIds.add(elmTableDiv.attr("id"));
 			}
+			String modifiedHtml = document.toString();
 			long processingTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
 			log.debug("Type=TaskExecution  executionId={} workflowId={} ConfigId={} WorkflowType={} KpiId={} Category={} ProcessingTime={} message={}",
 					assessmentReportDTO.getExecutionId(),assessmentReportDTO.getWorkflowId(),assessmentReportDTO.getConfigId(),"-","-","-",processingTime,
 					"reportId: "+assessmentReportDTO.getReportId() + "reportName: " +assessmentReportDTO.getReportName()
 					);
+			return originalHTml.equalsIgnoreCase(modifiedHtml) ? null : modifiedHtml;
 		} catch (FileNotFoundException e) {
 			log.error("Worlflow Detail ==== Unable to update html template , report template html file not found", e);
 			throw new InsightsJobFailedException("Unable to update html template, report template html file not found "
@@ -276,56 +313,43 @@ public class FusionChartHandler implements BasePDFProcessor {
 		} 
 	}
 
-	private InsightsReportPdfTableConfig processHtmlTableWithOpenPDF(
-			InsightsAssessmentConfigurationDTO assessmentReportDTO) {
-		InsightsReportPdfTableConfig insightsReportPdfTableConfig = new InsightsReportPdfTableConfig();
-		try {
-			String templateHtmlPath = assessmentReportDTO.getPdfReportDirPath() + File.separator
-					+ assessmentReportDTO.getReportFilePath() + AssessmentReportAndWorkflowConstants.HTMLEXTENSION;
-			File render = new File(templateHtmlPath);
-			Document document;
-			document = Jsoup.parse(render, "UTF-8");
+	/**
+	 * Render the tables of the report with OpenPDF
+	 * 
+	 * @return saved table pdf, null when the report has no table data
+	 */
+	private byte[] processHtmlTableWithOpenPDF(InsightsAssessmentConfigurationDTO assessmentReportDTO,
+			List<String> tableDivIds, InsightsReportPdfTableConfig insightsReportPdfTableConfig,
+			Map<String, Long> stageTimings) {
+		long startTime = System.nanoTime();
+		try (PDDocument doc = new PDDocument()) {
 			String reportDirPath = assessmentReportDTO.getPdfReportDirPath() + File.separator;
 			PdfReportTableUtil pdfReportTableUtil = new PdfReportTableUtil();
-			PDDocument doc = new PDDocument();
 			PDPage page = pdfReportTableUtil.addNewPage(doc);
 			pdfReportTableUtil.fetchPdfConfig(reportDirPath, insightsReportPdfTableConfig);
-			Elements allTableDiv = document.getElementsByAttributeValueMatching("id", "table_*");
-			if (!allTableDiv.isEmpty()) {
-				Map<String, JsonArray> tableJsonObjMap = assessmentReportDTO.getTableJsonObjMap();
-				int tableIndex = 0;
-				for (Element elmTableDiv : allTableDiv) {
-					String divId = elmTableDiv.attr("id");
-					if (tableJsonObjMap.containsKey(divId)) {
-						commonTableResponse(elmTableDiv, tableJsonObjMap.get(divId), assessmentReportDTO, tableIndex,
-								doc, page, insightsReportPdfTableConfig);
-						tableIndex++;
-					}
-				}
-				try {
-					if (tableIndex > 0) {
-						doc.save(assessmentReportDTO.getPdfReportDirPath() + File.separator
-								+ assessmentReportDTO.getAsseementreportname() + "_Open."
-								+ ReportEngineUtils.REPORT_TYPE);
-					}
-				} catch (IOException e) {
-					log.error("Worlflow Detail ==== unable to save open pdf with tables ", e);
-				} finally {
-					try {
-						doc.close();
-					} catch (IOException e) {
-						log.error("Worlflow Detail ==== unable to close open pdf with tables ", e);
-					}
+			Map<String, JsonArray> tableJsonObjMap = assessmentReportDTO.getTableJsonObjMap();
+			int tableIndex = 0;
+			for (String divId : tableDivIds) {
+				if (tableJsonObjMap.containsKey(divId)) {
+					commonTableResponse(tableJsonObjMap.get(divId), assessmentReportDTO, tableIndex, doc, page,
+							insightsReportPdfTableConfig);
+					tableIndex++;
 				}
 			}
-		} catch (IOException e1) {
-			log.error(e1);
+			if (tableIndex == 0) {
+				return null;
+			}
+			/* saved so that the fonts used by the tables are embedded before the merge */
+			ByteArrayOutputStream tablePdf = new ByteArrayOutputStream();
+			doc.save(tablePdf);
+			return tablePdf.toByteArray();
+		} catch (IOException e) {
+			log.error("Worlflow Detail ==== unable to save open pdf with tables ", e);
+			return null;
+		} finally {
+			recordStage(stageTimings, "tables", startTime);
 		}
-
-		return insightsReportPdfTableConfig;
-
 	}
-	
 
 	private void processHtmlContent(InsightsAssessmentConfigurationDTO assessmentReportDTO, Document document) {
 		Elements allContentDiv = document.getElementsByAttributeValueMatching("id", "content_*");
@@ -341,31 +365,25 @@ public class FusionChartHandler implements BasePDFProcessor {
 		}
 	}
 
-	private void exportPDFFile(JsonArray finalTemplateJson, InsightsAssessmentConfigurationDTO assessmentReportDTO, InsightsReportPdfTableConfig insightsReportPdfTableConfig) {
-		Path zipPathVeriable = null;
+	private void exportPDFFile(JsonArray finalTemplateJson, InsightsAssessmentConfigurationDTO assessmentReportDTO,
+			String modifiedHtml, CompletableFuture<byte[]> tablePdf,
+			InsightsReportPdfTableConfig insightsReportPdfTableConfig, Map<String, Long> stageTimings) {
+		PDDocument fusionPages = null;
 		try {
 			long startTime = System.nanoTime();
 			String url = ApplicationConfigProvider.getInstance().getAssessmentReport().getFusionExportAPIUrl();
-			String zipPath = assessmentReportDTO.getPdfReportDirPath() + ".zip";
-			Path sourceFolderPath = Paths.get(assessmentReportDTO.getPdfReportDirPath());
-			zipPathVeriable = Paths.get(zipPath);
-			Path zipData = getPDFZipFolder(sourceFolderPath, zipPathVeriable);
-			if (zipData.toFile().exists()) {
-				log.debug("Worlflow Detail ====  Zip file created  {} ", zipPath);
-			} else {
-				throw new InsightsCustomException("Worlflow Detail ==== Zip file not created ");
-			}
 			String exportedFilePath = assessmentReportDTO.getPdfReportDirPath() + File.separator
 					+ assessmentReportDTO.getAsseementreportname() + "." + ReportEngineUtils.REPORT_TYPE;
 			assessmentReportDTO.setPdfExportedFilePath(exportedFilePath);
-			String fusionFilePath = assessmentReportDTO.getPdfReportDirPath() + File.separator
-					+ assessmentReportDTO.getAsseementreportname() + "_Fusion." + ReportEngineUtils.REPORT_TYPE;
 
 			String templateFilePathInZip = assessmentReportDTO.getReportFilePath() + AssessmentReportAndWorkflowConstants.HTMLEXTENSION;
 			String dashboardLogoPathInzip = "image.webp";
 
-			Map<String, String> multipartFiles = new HashMap<>();
-			multipartFiles.put("payload", zipPath);
+			byte[] zipData = getPDFZip(Paths.get(assessmentReportDTO.getPdfReportDirPath()), templateFilePathInZip,
+					modifiedHtml, Paths.get(exportedFilePath));
+			log.debug("Worlflow Detail ====  Zip created with {} bytes ", zipData.length);
+			long stageStartTime = recordStage(stageTimings, "zip", startTime);
+
 			String chartConfigJson = new Gson().toJson(finalTemplateJson);
 			Map<String, String> formDataMultiPartMap = new HashMap<>();
 			formDataMultiPartMap.put("chartConfig", chartConfigJson);
@@ -381,73 +399,89 @@ public class FusionChartHandler implements BasePDFProcessor {
 
 			Map<String, String> headers = new HashMap<>();
 
-			boolean fileUploadStatus = multiPartHandler.uploadMultipartFile(url, multipartFiles, formDataMultiPartMap,
-					headers, ReportEngineUtils.REPORT_MEDIA_TYPE, fusionFilePath);
-			if (fileUploadStatus) {
-				log.debug("Worlflow Detail ==== pdf File Saved {} ", fusionFilePath);
-				long processingTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
-				log.debug("Type=TaskExecution  executionId={} workflowId={} ConfigId={} WorkflowType={} KpiId={} Category={} ProcessingTime={} message={}",
-						assessmentReportDTO.getExecutionId(),assessmentReportDTO.getWorkflowId(),assessmentReportDTO.getConfigId(),"-","-","-",processingTime,
-						"reportId: "+assessmentReportDTO.getReportId() + "reportName: " +assessmentReportDTO.getReportName() + "VisualizationUtil" +
-						assessmentReportDTO.getVisualizationutil() + "FusionFilePath :" +fusionFilePath);
-				String fusion = assessmentReportDTO.getPdfReportDirPath() + File.separator
-						+ assessmentReportDTO.getAsseementreportname() + "_Fusion." + ReportEngineUtils.REPORT_TYPE;
-				String open = assessmentReportDTO.getPdfReportDirPath() + File.separator
-						+ assessmentReportDTO.getAsseementreportname() + "_Open." + ReportEngineUtils.REPORT_TYPE;
-				File openFile = new File(open);
-				if(openFile.exists()) {
-					PDDocument fusionPages = PDDocument.load(new File(fusion));
-					PDDocument openPages = PDDocument.load(new File(open));
-					PDDocument f = new PdfReportTableUtil().footer(assessmentReportDTO,openPages,fusionPages.getPages().getCount(),insightsReportPdfTableConfig);
-					f.save(new File(open));
-					PDFMergerUtility merger = new PDFMergerUtility();
-					merger.setDestinationFileName(exportedFilePath);
-					merger.addSource(new File(fusion));
-					merger.addSource(open);
-					merger.mergeDocuments(null);
-				}else {
-					PDFMergerUtility merger = new PDFMergerUtility();
-					merger.setDestinationFileName(exportedFilePath);
-					merger.addSource(new File(fusion));
-					merger.mergeDocuments(null);
-				}
-			} else {
-				log.error("Worlflow Detail ==== Error while created pdf file {}", exportedFilePath);
+			try (InputStream fusionPdf = multiPartHandler.uploadMultipartStream(url, "payload",
+					assessmentReportDTO.getPdfReportFolderName() + ".zip", new ByteArrayInputStream(zipData),
+					formDataMultiPartMap, headers, ReportEngineUtils.REPORT_MEDIA_TYPE)) {
+				fusionPages = PDDocument.load(fusionPdf);
+			} catch (InsightsCustomException | IOException e) {
+				log.error("Worlflow Detail ==== Error while created pdf file {}", exportedFilePath, e);
 				log.error("Type=TaskExecution  executionId={} workflowId={} ConfigId={} WorkflowType={} KpiId={} Category={} ProcessingTime={} message={}",
 						assessmentReportDTO.getExecutionId(),assessmentReportDTO.getWorkflowId(),assessmentReportDTO.getConfigId(),"-","-","-",0,
 						"reportId: "+assessmentReportDTO.getReportId() + "reportName: " +assessmentReportDTO.getReportName() + "VisualizationUtil" +
-						assessmentReportDTO.getVisualizationutil() + "FusionFilePath :" +fusionFilePath +"Error while created pdf file");
+						assessmentReportDTO.getVisualizationutil() + "ExportedFilePath :" +exportedFilePath +"Error while created pdf file");
 				throw new InsightsJobFailedException(
 						"Unable to generate pdf, Please check pdf export server connectivity  ");
 			}
+			stageStartTime = recordStage(stageTimings, "fusionExport", stageStartTime);
+			long processingTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+			log.debug("Type=TaskExecution  executionId={} workflowId={} ConfigId={} WorkflowType={} KpiId={} Category={} ProcessingTime={} message={}",
+					assessmentReportDTO.getExecutionId(),assessmentReportDTO.getWorkflowId(),assessmentReportDTO.getConfigId(),"-","-","-",processingTime,
+					"reportId: "+assessmentReportDTO.getReportId() + "reportName: " +assessmentReportDTO.getReportName() + "VisualizationUtil" +
+					assessmentReportDTO.getVisualizationutil() + "Fusion pages :" +fusionPages.getNumberOfPages());
+
+			byte[] tableData = tablePdf.join();
+			stageStartTime = System.nanoTime();
+			if (tableData != null) {
+				try (PDDocument openPages = PDDocument.load(tableData)) {
+					PDDocument f = new PdfReportTableUtil().footer(assessmentReportDTO, openPages,
+							fusionPages.getNumberOfPages(), insightsReportPdfTableConfig);
+					new PDFMergerUtility().appendDocument(fusionPages, f);
+					fusionPages.save(new File(exportedFilePath));
+				}
+			} else {
+				fusionPages.save(new File(exportedFilePath));
+			}
+			log.debug("Worlflow Detail ==== pdf File Saved {} ", exportedFilePath);
+			recordStage(stageTimings, "merge", stageStartTime);
 		} catch (Exception e) {
 			log.error("Worlflow Detail ==== Error while created pdf ", e);
 			throw new InsightsJobFailedException(e.getMessage());
 		} finally {
-			try {
-				if (zipPathVeriable != null) {
-					Files.delete(zipPathVeriable);
+			if (fusionPages != null) {
+				try {
+					fusionPages.close();
+				} catch (IOException e) {
+					log.error("Worlflow Detail ==== unable to close fusion pdf ", e);
 				}
-			} catch (Exception e) {
-				log.error(" Worlflow Detail ==== unable to delete file, It might not created ");
 			}
 		}
 
 	}
 
-	public Path getPDFZipFolder(Path sourceFolderPath, Path zipPath) throws IOException {
-		try (final ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipPath.toFile()))) {
+	/**
+	 * Zip the report template files in memory, the html template entry gets
+	 * the modified html and the exported pdf of an earlier run is left out
+	 * 
+	 * @param sourceFolderPath
+	 * @param templateFilePathInZip
+	 * @param modifiedHtml          null to keep the template file as is
+	 * @param exportedFilePath
+	 * @return zip content
+	 * @throws IOException
+	 */
+	public byte[] getPDFZip(Path sourceFolderPath, String templateFilePathInZip, String modifiedHtml,
+			Path exportedFilePath) throws IOException {
+		ByteArrayOutputStream zipData = new ByteArrayOutputStream();
+		try (final ZipOutputStream zos = new ZipOutputStream(zipData)) {
 			Files.walkFileTree(sourceFolderPath, new SimpleFileVisitor<Path>() {
 				@Override
 				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-					zos.putNextEntry(new ZipEntry(sourceFolderPath.relativize(file).toString().replace("\\", "/")));
-					Files.copy(file, zos);
+					if (file.equals(exportedFilePath)) {
+						return FileVisitResult.CONTINUE;
+					}
+					String entryName = sourceFolderPath.relativize(file).toString().replace("\\", "/");
+					zos.putNextEntry(new ZipEntry(entryName));
+					if (modifiedHtml != null && entryName.equals(templateFilePathInZip)) {
+						zos.write(modifiedHtml.getBytes(StandardCharsets.UTF_8));
+					} else {
+						Files.copy(file, zos);
+					}
 					zos.closeEntry();
 					return FileVisitResult.CONTINUE;
 				}
 			});
 		}
-		return zipPath;
+		return zipData.toByteArray();
 	}
 
 	private JsonObject getChartJsonFromVisualizationJson(JsonArray fromkpiResultArray, JsonObject toTemplateObject) {
@@ -579,7 +613,7 @@ public class FusionChartHandler implements BasePDFProcessor {
 		elmDiv.append(contentList.toString());
 	}
 
-	private void commonTableResponse(Element elmDiv, JsonArray fromTableResultArray,
+	private void commonTableResponse(JsonArray fromTableResultArray,
 			InsightsAssessmentConfigurationDTO assessmentReportDTO, int tableIndex, PDDocument doc, PDPage page,
 			InsightsReportPdfTableConfig insightsReportPdfTableConfig) {
 		JsonArray columnData = fromTableResultArray.get(0).getAsJsonObject().get("columns").getAsJsonArray();
@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright 2020 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformreports.assessment.pdf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
+import com.cognizant.devops.platformcommons.config.GrafanaPdfBrowserConfig;
+import com.cognizant.devops.platformreports.exception.InsightsJobFailedException;
+import com.google.gson.JsonObject;
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.BrowserType.LaunchOptions;
+import com.microsoft.playwright.Playwright;
+
+/**
+ * Long lived headless Chromium browsers for the Grafana PDF exports. Playwright
+ * objects may only be used by the thread which created them, so each of the
+ * browserPoolSize workers owns one Playwright and one warm browser and takes
+ * exports from a shared queue of exportQueueSize. Every export gets a fresh
+ * browser context on the warm browser, which is closed afterwards. A browser
+ * which crashed or disconnected is relaunched and the export which hit the
+ * crash is run once more on the new browser.
+ *
+ * exportTimeoutInSeconds bounds each wait of the caller separately: for a
+ * free queue slot, for a worker to start the export and for the export itself
+ * once it started. The last one covers all pages and panels of the export,
+ * every single Playwright call of it is also limited to the same value through
+ * the default timeout of the context. The workers close their Playwright and
+ * browser when the pool is shut down, on JVM exit at the latest.
+ */
+public class GrafanaBrowserPool {
+
+	private static Logger log = LogManager.getLogger(GrafanaBrowserPool.class);
+	private static GrafanaBrowserPool instance = null;
+
+	public interface BrowserTask<T> {
+		T execute(BrowserContext context) throws Exception;
+	}
+
+	private static class ExportRequest<T> {
+		private final String name;
+		private final BrowserTask<T> task;
+		private final CompletableFuture<Void> started = new CompletableFuture<>();
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+		private final long queuedTime = System.nanoTime();
+
+		private ExportRequest(String name, BrowserTask<T> task) {
+			this.name = name;
+			this.task = task;
+		}
+	}
+
+	private final GrafanaPdfBrowserConfig browserConfig;
+	private final BlockingQueue<ExportRequest<?>> exportQueue;
+	private final List<Thread> workers = new ArrayList<>();
+	private volatile boolean shutdown = false;
+	private final LongAdder completedExports = new LongAdder();
+	private final LongAdder failedExports = new LongAdder();
+	private final LongAdder rejectedExports = new LongAdder();
+	private final LongAdder browserRestarts = new LongAdder();
+	private final LongAdder queueTimeInMs = new LongAdder();
+	private final LongAdder exportTimeInMs = new LongAdder();
+
+	private GrafanaBrowserPool(GrafanaPdfBrowserConfig browserConfig) {
+		this.browserConfig = browserConfig;
+		this.exportQueue = new ArrayBlockingQueue<>(Math.max(1, browserConfig.getExportQueueSize()));
+		int poolSize = Math.max(1, browserConfig.getBrowserPoolSize());
+		for (int workerId = 1; workerId <= poolSize; workerId++) {
+			Thread worker = new Thread(new BrowserWorker(), "GrafanaBrowser-" + workerId);
+			worker.setDaemon(true);
+			worker.start();
+			workers.add(worker);
+		}
+		log.debug("Worlflow Detail ==== Grafana browser pool started with browserPoolSize={} exportQueueSize={} ",
+				poolSize, browserConfig.getExportQueueSize());
+	}
+
+	public static synchronized GrafanaBrowserPool getInstance() {
+		if (instance == null) {
+			instance = new GrafanaBrowserPool(
+					ApplicationConfigProvider.getInstance().getAssessmentReport().getGrafanaPdfBrowser());
+			Runtime.getRuntime().addShutdownHook(new Thread(instance::shutdown, "GrafanaBrowserPoolShutdown"));
+		}
+		return instance;
+	}
+
+	/**
+	 * Queue the export and wait for its result. The caller waits at most
+	 * exportTimeoutInSeconds for a free queue slot, again for a worker to start
+	 * the export and again for the export itself.
+	 *
+	 * @param name identifies the export in the logs
+	 * @param task runs on a pool thread with a new context of a warm browser
+	 * @return result of the task
+	 */
+	public <T> T execute(String name, BrowserTask<T> task) {
+		long timeout = browserConfig.getExportTimeoutInSeconds();
+		ExportRequest<T> request = new ExportRequest<>(name, task);
+		if (shutdown) {
+			throw new InsightsJobFailedException("Grafana browser pool is shut down, unable to export " + name);
+		}
+		try {
+			if (!exportQueue.offer(request, timeout, TimeUnit.SECONDS)) {
+				rejectedExports.increment();
+				throw new InsightsJobFailedException("Grafana export queue is full, unable to export " + name);
+			}
+			if (!awaitStart(request, timeout)) {
+				rejectedExports.increment();
+				throw new InsightsJobFailedException(name + " not started in " + timeout + " seconds");
+			}
+			return request.result.get(timeout, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			request.started.cancel(false);
+			request.result.cancel(false);
+			throw new InsightsJobFailedException("Interrupted while exporting " + name);
+		} catch (TimeoutException e) {
+			request.result.cancel(false);
+			throw new InsightsJobFailedException(name + " not exported in " + timeout + " seconds");
+		} catch (ExecutionException e) {
+			throw new InsightsJobFailedException(String.valueOf(e.getCause().getMessage()));
+		}
+	}
+
+	/**
+	 * @return false when no worker started the export in time, the export is
+	 *         then dropped from the queue
+	 */
+	private boolean awaitStart(ExportRequest<?> request, long timeout)
+			throws InterruptedException, ExecutionException {
+		try {
+			request.started.get(timeout, TimeUnit.SECONDS);
+			return true;
+		} catch (TimeoutException e) {
+			return !request.started.cancel(false);
+		}
+	}
+
+	/**
+	 * Stop the workers, each one closes its Playwright and browser. Exports
+	 * still queued fail.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		workers.forEach(Thread::interrupt);
+		for (Thread worker : workers) {
+			try {
+				worker.join(TimeUnit.SECONDS.toMillis(10));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		ExportRequest<?> request;
+		while ((request = exportQueue.poll()) != null) {
+			request.result.completeExceptionally(
+					new InsightsJobFailedException("Grafana browser pool is shut down, unable to export " + request.name));
+		}
+		log.debug("Worlflow Detail ==== Grafana browser pool shut down ");
+	}
+
+	/**
+	 * @return export counts and average queue and export time
+	 */
+	public JsonObject getStatistics() {
+		long completed = completedExports.sum();
+		long failed = failedExports.sum();
+		JsonObject statistics = new JsonObject();
+		statistics.addProperty("completedExports", completed);
+		statistics.addProperty("failedExports", failed);
+		statistics.addProperty("rejectedExports", rejectedExports.sum());
+		statistics.addProperty("browserRestarts", browserRestarts.sum());
+		statistics.addProperty("queuedExports", exportQueue.size());
+		long exports = Math.max(1, completed + failed);
+		statistics.addProperty("averageQueueTimeInMs", queueTimeInMs.sum() / exports);
+		statistics.addProperty("averageExportTimeInMs", exportTimeInMs.sum() / exports);
+		return statistics;
+	}
+
+	private class BrowserWorker implements Runnable {
+		private Playwright playwright;
+		private Browser browser;
+
+		@Override
+		public void run() {
+			try {
+				launch();
+			} catch (Exception e) {
+				log.error("Worlflow Detail ==== Unable to launch browser, retrying on the next export ", e);
+			}
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					export(exportQueue.take());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				close();
+			}
+		}
+
+		private <T> void export(ExportRequest<T> request) {
+			if (request.result.isDone() || !request.started.complete(null)) {
+				/* caller gave up while the export was queued */
+				return;
+			}
+			long startTime = System.nanoTime();
+			long queueTime = TimeUnit.NANOSECONDS.toMillis(startTime - request.queuedTime);
+			queueTimeInMs.add(queueTime);
+			try {
+				T result;
+				try {
+					result = run(request);
+				} catch (Exception e) {
+					if (browser != null && browser.isConnected()) {
+						throw e;
+					}
+					log.error("Worlflow Detail ==== Browser lost during export {}, retrying on a new browser ",
+							request.name, e);
+					result = run(request);
+				}
+				request.result.complete(result);
+				completedExports.increment();
+			} catch (Exception e) {
+				failedExports.increment();
+				request.result.completeExceptionally(e);
+			}
+			long exportTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+			exportTimeInMs.add(exportTime);
+			log.debug("Worlflow Detail ==== Grafana export {} queueTime={} ms exportTime={} ms statistics={} ",
+					request.name, queueTime, exportTime, getStatistics());
+		}
+
+		private <T> T run(ExportRequest<T> request) throws Exception {
+			if (browser == null || !browser.isConnected()) {
+				if (playwright != null) {
+					browserRestarts.increment();
+				}
+				close();
+				launch();
+			}
+			BrowserContext context = browser.newContext();
+			context.setDefaultTimeout(TimeUnit.SECONDS.toMillis(browserConfig.getExportTimeoutInSeconds()));
+			try {
+				return request.task.execute(context);
+			} finally {
+				try {
+					context.close();
+				} catch (Exception e) {
+					log.error("Worlflow Detail ==== Unable to close browser context {} ", e.getMessage());
+				}
+			}
+		}
+
+		private void launch() {
+			playwright = Playwright.create();
+			LaunchOptions launchOptions = new LaunchOptions();
+			launchOptions.setHeadless(Boolean.TRUE);
+			launchOptions.setDevtools(Boolean.FALSE);
+			browser = playwright.chromium().launch(launchOptions);
+			browser.onDisconnected(
+					disconnected -> log.error("Worlflow Detail ==== Browser of {} disconnected ", Thread.currentThread().getName()));
+			log.debug("Worlflow Detail ==== Browser {} launched ", browser.version());
+		}
+
+		private void close() {
+			try {
+				if (playwright != null) {
+					playwright.close();
+				}
+			} catch (Exception e) {
+				log.error("Worlflow Detail ==== Unable to close Playwright {} ", e.getMessage());
+			}
+			playwright = null;
+			browser = null;
+		}
+	}
+}
@@ -20,15 +20,16 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
@@ -52,19 +53,14 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
-import com.microsoft.playwright.Browser;
-import com.microsoft.playwright.BrowserContext;
-import com.microsoft.playwright.BrowserType;
-import com.microsoft.playwright.BrowserType.LaunchOptions;
 import com.microsoft.playwright.ElementHandle;
 import com.microsoft.playwright.Page;
 import com.microsoft.playwright.Page.NavigateOptions;
 import com.microsoft.playwright.Page.PdfOptions;
-import com.microsoft.playwright.Playwright;
+import com.microsoft.playwright.TimeoutError;
 import com.microsoft.playwright.options.LoadState;
 import com.microsoft.playwright.options.Margin;
 import com.microsoft.playwright.options.Media;
-import com.microsoft.playwright.options.WaitForSelectorState;
 import com.microsoft.playwright.options.WaitUntilState;
 
 public class GrafanaPDFHandler implements BasePDFProcessor {
@@ -73,6 +69,7 @@ public class GrafanaPDFHandler implements BasePDFProcessor {
 	
 	private static final String HEADER_HTML = "header.html";
 	private static final String FOOTER_HTML = "footer.html";
+	private static final Map<String, String> TEMPLATE_CACHE = new ConcurrentHashMap<>();
 	private static final String DASHBOARD = "Dashboard";
 	
 	private static final String PDF_TYPE = " PDFType: ";
@@ -81,7 +78,10 @@ public class GrafanaPDFHandler implements BasePDFProcessor {
 	
 	private static final String STATUS = " Status: ";
 	
-	private static final int TRANSITION_TIME = 1000;
+	/* panels are on the page and none of them shows a loading indicator (Grafana 6 to 9 markup) */
+	private static final String PANELS_LOADED_SCRIPT = "() => document.readyState === 'complete'"
+			+ " && document.querySelectorAll('.panel-container, .panel-wrapper, [data-panelid]').length > 0"
+			+ " && document.querySelectorAll('.panel-loading, .panel-loading-bar, [aria-label=\"Panel loading bar\"]').length === 0";
 
 	private WorkflowDAL workflowDAL = new WorkflowDAL();
 	private GrafanaDashboardPdfConfigDAL grafanaDashboardConfigDAL = new GrafanaDashboardPdfConfigDAL();
@@ -159,7 +159,8 @@ public class GrafanaPDFHandler implements BasePDFProcessor {
 
 
 	/**
-	 * Uses playwright to create current url of grafana dashboard as pdf
+	 * Uses playwright to create current url of grafana dashboard as pdf, the
+	 * export runs on a warm browser of the {@link GrafanaBrowserPool}
 	 * @param assessmentReportDTO 
 	 * @param grafanaDashboardConfig 
 	 * @param incomingTaskMessageJson
@@ -173,85 +174,57 @@ public class GrafanaPDFHandler implements BasePDFProcessor {
 		int loadTime = config.getAsJsonObject().get("loadTime").getAsInt() * 1000;
 		log.debug("Worlflow Detail ==== LoadTIme configured for Grafana in milliseconds ===== {} ",loadTime);
 		String grafanaUrl = config.getAsJsonObject().get("dashUrl").getAsString().replace("<GRAFANA_URL>", grafanaEndpoint);
-		Playwright playwright = null;
 		try {
-			playwright = Playwright.create();
 			long startTime = System.nanoTime();
-			BrowserType browserType = 	playwright.chromium();
-			LaunchOptions launchOptions = new LaunchOptions();
-			launchOptions.setHeadless(Boolean.TRUE);
-			launchOptions.setDevtools(Boolean.FALSE);
-			
-			Browser browser = browserType.launch(launchOptions);
-			BrowserContext context = browser.newContext();
-			Page page = context.newPage();
-
 			Map<String, String> headers = getGrafanaHeaders(config);
+			String headerTemplate = fetchTemplate(HEADER_HTML);
+			String footerTemplate = fetchTemplate(FOOTER_HTML);
+
+			byte[] pdf = GrafanaBrowserPool.getInstance().execute("Dashboard " + assessmentReportDTO.getExecutionId(), context -> {
+				Page page = context.newPage();
+				page.setExtraHTTPHeaders(headers);
+				page.onRequest(request -> log.debug(">> {} {} ", request.method(), request.url()));
+			    page.onResponse(response -> log.debug("<< {} {} ",response.status(), response.url()));
+			    
+				NavigateOptions navigateOptions = new NavigateOptions();
+				navigateOptions.setWaitUntil(WaitUntilState.NETWORKIDLE);
+
+				page.navigate(grafanaUrl,navigateOptions);
+				page.waitForLoadState();
+				waitForPanels(page, loadTime);
 
-			page.setExtraHTTPHeaders(headers);
-			page.onRequest(request -> log.debug(">> {} {} ", request.method(), request.url()));
-		    page.onResponse(response -> log.debug("<< {} {} ",response.status(), response.url()));
-		    
-			NavigateOptions navigateOptions = new NavigateOptions();
-			navigateOptions.setWaitUntil(WaitUntilState.NETWORKIDLE);
-
-			page.navigate(grafanaUrl,navigateOptions);
-			page.waitForLoadState();
-			log.debug("Dashboard load time configured in milliseconds == {} ",loadTime);
-			log.debug("Waiting for dashboard to load == {} ",Instant.now());
-			page.waitForTimeout(loadTime);
-			log.debug("Waiting exit post configured time to load Dashboard == {} ", Instant.now());
-
-			page.evaluate("() => {for (el of document.getElementsByClassName('sidemenu')) {return el.hidden = true; };  }");
-			page.evaluate("() => {for (el of document.getElementsByClassName('navbar')) {return el.hidden = true; };  }");
-			page.evaluate("() => {for (el of document.getElementsByClassName('react-resizable-handle')) {return el.hidden = true; };  }");
-			page.evaluate("() => {for (el of document.getElementsByClassName('panel-info-corner')) {return el.hidden = true; };  }");
-			page.evaluate("() => {for (el of document.getElementsByClassName('submenu-controls')) {return el.hidden = true; };  }");
-
-			Object width = page.evaluate("() => { return document.getElementsByClassName('react-grid-layout')[0].getBoundingClientRect().width; }");
-			log.debug("Worlflow Detail ==== Grafana grid Width ===== {} ",width);
-			int dashboardwidth = width instanceof Integer ? (int) width + 40 : Integer.parseInt(width.toString());
-			log.debug("Worlflow Detail ==== Grafana Dashboard width ===== {} ",dashboardwidth);
-			Object height = page.evaluate("() => { return document.getElementsByClassName('react-grid-layout')[0].getBoundingClientRect().bottom; }");
-			log.debug("Worlflow Detail ==== Grafana grid height ===== {} ",height);
-			int dashboardlength = height instanceof Integer ? (int) height + 160 : Integer.parseInt(height.toString());
-			log.debug("Worlflow Detail ==== Grafana Dashboard dashboard ===== {} ",dashboardlength);
-			page.evaluate("async () => { await new Promise((resolve, reject) => {"
-					+ "let totalHeight=0;"
-					+ "let distance =100;"
-					+ "let height_px= document.getElementsByClassName('react-grid-layout')[0].getBoundingClientRect().bottom; "
-					+ "let timer =setInterval(()=>{"
-							+ "var scrollHeight = height_px+160;"
-							+ "var element = document.querySelector('.view');"
-							+ "element.scrollBy({"
-									+ " top: distance,"
-									+ "left: 0,"
-									+ "behavior: 'smooth'"
-							+ "});"
-							+ "totalHeight += distance;"
-							+ "console.log('totalHeight', totalHeight); "
-							+ "if (totalHeight >= scrollHeight) {"
-								+ "clearInterval(timer);resolve();}},300) "
-							+ "});"
-					+ "}");
-			log.debug("Waiting for dashboard to load completely before screenshot == {} ",Instant.now());
-			page.waitForTimeout(loadTime);
-			log.debug("Waiting time completed for dashboard == {} ",Instant.now());
-			page.waitForLoadState(LoadState.NETWORKIDLE);
-			PdfOptions pdfOptions =  new PdfOptions();
-			pdfOptions.setPrintBackground(Boolean.TRUE);
-			pdfOptions.setWidth(dashboardwidth+"px");
-			pdfOptions.setHeight(dashboardlength+"px");
-			pdfOptions.setScale(1);
-			pdfOptions.setDisplayHeaderFooter(true);
-			pdfOptions.setHeaderTemplate(fetchTemplate(HEADER_HTML));
-			pdfOptions.setFooterTemplate(fetchTemplate(FOOTER_HTML));
-			pdfOptions.setMargin(new Margin().setTop("90").setRight("0").setBottom("50").setLeft("0"));
-			page.emulateMedia(new Page.EmulateMediaOptions().setMedia(Media.SCREEN));
-			byte[] pdf = page.pdf(pdfOptions);
-			page.close();
-			context.close();
-			browser.close();
+				page.evaluate("() => {for (el of document.getElementsByClassName('sidemenu')) {return el.hidden = true; };  }");
+				page.evaluate("() => {for (el of document.getElementsByClassName('navbar')) {return el.hidden = true; };  }");
+				page.evaluate("() => {for (el of document.getElementsByClassName('react-resizable-handle')) {return el.hidden = true; };  }");
+				page.evaluate("() => {for (el of document.getElementsByClassName('panel-info-corner')) {return el.hidden = true; };  }");
+				page.evaluate("() => {for (el of document.getElementsByClassName('submenu-controls')) {return el.hidden = true; };  }");
+
+				Object width = page.evaluate("() => { return document.getElementsByClassName('react-grid-layout')[0].getBoundingClientRect().width; }");
+				log.debug("Worlflow Detail ==== Grafana grid Width ===== {} ",width);
+				int dashboardwidth = width instanceof Integer ? (int) width + 40 : Integer.parseInt(width.toString());
+				log.debug("Worlflow Detail ==== Grafana Dashboard width ===== {} ",dashboardwidth);
+				Object height = page.evaluate("() => { return document.getElementsByClassName('react-grid-layout')[0].getBoundingClientRect().bottom; }");
+				log.debug("Worlflow Detail ==== Grafana grid height ===== {} ",height);
+				int dashboardlength = height instanceof Integer ? (int) height + 160 : Integer.parseInt(height.toString());
+				log.debug("Worlflow Detail ==== Grafana Dashboard dashboard ===== {} ",dashboardlength);
+				/* the whole dashboard in the viewport lets Grafana load the lazy panels without scrolling */
+				page.setViewportSize(dashboardwidth, dashboardlength);
+				waitForPanels(page, loadTime);
+				page.waitForLoadState(LoadState.NETWORKIDLE);
+				PdfOptions pdfOptions =  new PdfOptions();
+				pdfOptions.setPrintBackground(Boolean.TRUE);
+				pdfOptions.setWidth(dashboardwidth+"px");
+				pdfOptions.setHeight(dashboardlength+"px");
+				pdfOptions.setScale(1);
+				pdfOptions.setDisplayHeaderFooter(true);
+				pdfOptions.setHeaderTemplate(headerTemplate);
+				pdfOptions.setFooterTemplate(footerTemplate);
+				pdfOptions.setMargin(new Margin().setTop("90").setRight("0").setBottom("50").setLeft("0"));
+				page.emulateMedia(new Page.EmulateMediaOptions().setMedia(Media.SCREEN));
+				byte[] dashboardPdf = page.pdf(pdfOptions);
+				page.close();
+				return dashboardPdf;
+			});
 			
 			File extractedPdfFile = new File(exportedFilePath);
 			savePDFFile(extractedPdfFile, pdf);
@@ -272,15 +245,30 @@ public class GrafanaPDFHandler implements BasePDFProcessor {
 					assessmentReportDTO.getExecutionId(),assessmentReportDTO.getWorkflowId(),assessmentReportDTO.getConfigId(),
 					"-","-","-",0," Grafana Dashboard export as PDF Completed with error " + e.getMessage());
 			throw new InsightsJobFailedException(e.getMessage());
-		}finally {
-			try {
-				playwright.close();
-			} catch (Exception e) {
-				log.error("Worlflow Detail ==== Unable to close Playwright {} ", e.getMessage());
-				log.error("Type=TaskExecution  executionId={} workflowId={} ConfigId={} WorkflowType={} KpiId={} Category={} ProcessingTime={} message={}",
-						assessmentReportDTO.getExecutionId(),assessmentReportDTO.getWorkflowId(),assessmentReportDTO.getConfigId(),
-						"-","-","-",0," Unable to close Playwright " + e.getMessage());
-			}
+		}
+	}
+
+	/**
+	 * Wait until Grafana rendered the panels in view, that is the page has
+	 * panels and none of them shows a loading indicator. The configured load
+	 * time is the upper bound, when it passes the export continues with the
+	 * page as it is.
+	 * 
+	 * @param page
+	 * @param loadTime in milliseconds
+	 */
+	private void waitForPanels(Page page, int loadTime) {
+		long startTime = System.nanoTime();
+		Page.WaitForFunctionOptions waitOptions = new Page.WaitForFunctionOptions();
+		waitOptions.setTimeout(loadTime);
+		waitOptions.setPollingInterval(ApplicationConfigProvider.getInstance().getAssessmentReport()
+				.getGrafanaPdfBrowser().getPanelPollingIntervalInMs());
+		try {
+			page.waitForFunction(PANELS_LOADED_SCRIPT, null, waitOptions);
+			log.debug("Worlflow Detail ==== Grafana panels loaded in {} ms ",
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+		} catch (TimeoutError e) {
+			log.debug("Worlflow Detail ==== Grafana panels still loading after {} ms, continuing ", loadTime);
 		}
 	}
 
@@ -302,20 +290,9 @@ public class GrafanaPDFHandler implements BasePDFProcessor {
 	 * @param incomingTaskMessageJson
 	 * @param exportedFilePath 
 	 */
-	private synchronized void printableDashboardAsPdf(InsightsAssessmentConfigurationDTO assessmentReportDTO, GrafanaDashboardPdfConfig grafanaDashboardPdfConfig, String exportedFilePath) {
-		Playwright playwright = null;
+	private void printableDashboardAsPdf(InsightsAssessmentConfigurationDTO assessmentReportDTO, GrafanaDashboardPdfConfig grafanaDashboardPdfConfig, String exportedFilePath) {
 		try {
-			playwright = Playwright.create();
 			long startTime = System.nanoTime();
-			BrowserType browserType = 	playwright.chromium();
-			LaunchOptions launchOptions = new LaunchOptions();
-			launchOptions.setHeadless(Boolean.TRUE);
-			launchOptions.setDevtools(Boolean.FALSE);
-			
-			Browser browser = browserType.launch(launchOptions);
-			BrowserContext context = browser.newContext();
-			Page page = context.newPage();
-			
 			JsonParser jsonParser = new JsonParser();
 			JsonElement config = jsonParser.parse(grafanaDashboardPdfConfig.getDashboardJson());
 			int loadTime = config.getAsJsonObject().get("loadTime").getAsInt() * 1000;
@@ -331,50 +308,51 @@ public class GrafanaPDFHandler implements BasePDFProcessor {
 			});
 
 			Map<String, String> headers = getGrafanaHeaders(config);
+			String dynamicTemplate = assessmentReportDTO.getPdfReportDirPath() + File.separator
+					+ assessmentReportDTO.getAsseementreportname() + "." + ReportEngineUtils.HTML_EXTENSION;
+			log.debug("Worlflow Detail ==== Generated DynamicTemplate.html name  ===== {} ",dynamicTemplate);
+			String headerTemplate = fetchTemplate(HEADER_HTML);
+			String footerTemplate = fetchTemplate(FOOTER_HTML);
 
-			NavigateOptions navigateOptions = new NavigateOptions();
-			navigateOptions.setWaitUntil(WaitUntilState.NETWORKIDLE);
-			
-			List<byte[]> imageList = new ArrayList<>();
-			for(int idx=0;idx<grafanaPanelList.size();idx++) {
-
+			byte[] pdf = GrafanaBrowserPool.getInstance().execute("Printable " + assessmentReportDTO.getExecutionId(), context -> {
+				Page page = context.newPage();
 				page.setExtraHTTPHeaders(headers);
-				page.waitForTimeout(TRANSITION_TIME);
 				page.setViewportSize(1200, 800);
 				page.route("**", route -> route.resume());
 				page.onRequest(request -> log.debug(">> {} {}  ", request.method(), request.url()));
 			    page.onResponse(response -> log.debug("<< {} {} ",response.status(), response.url()));
-				page.navigate(grafanaPanelList.get(idx),navigateOptions);
-				Page.WaitForSelectorOptions waitForSelectorOptions = new Page.WaitForSelectorOptions();
-				waitForSelectorOptions.setState(WaitForSelectorState.ATTACHED);
-				log.debug("Waiting for panel {} to load completely before screenshot == {} ",idx,Instant.now());
-				page.waitForTimeout(loadTime);
-				log.debug("Waiting time completed for dashboard == {} ",Instant.now());
-				page.evaluate("() => {for (el of document.getElementsByClassName('navbar')) {return el.hidden = true; };  }");
-				page.evaluate("() => {for (el of document.getElementsByClassName('submenu-controls')) {return el.hidden = true; };  }");
-				ElementHandle elementHandle = page.querySelector(".panel-wrapper.panel-wrapper--view");
-				page.waitForTimeout(TRANSITION_TIME);
-				byte[] image = elementHandle.screenshot();
-				imageList.add(image);
-			}
-			String dynamicTemplate = assessmentReportDTO.getPdfReportDirPath() + File.separator
-					+ assessmentReportDTO.getAsseementreportname() + "." + ReportEngineUtils.HTML_EXTENSION;
-			log.debug("Worlflow Detail ==== Generated DynamicTemplate.html name  ===== {} ",dynamicTemplate);
-			File extractedPdfFile = new File(exportedFilePath);
-			prepareHtml(imageList,dynamicTemplate, grafanaDashboardPdfConfig);
-			page = context.newPage();
-			page.navigate(new File(dynamicTemplate).getAbsolutePath());
-			PdfOptions pdfOptions =  new PdfOptions();
-			pdfOptions.setPrintBackground(Boolean.TRUE);
-			pdfOptions.setDisplayHeaderFooter(true);
-			pdfOptions.setHeaderTemplate(fetchTemplate(HEADER_HTML));
-			pdfOptions.setFooterTemplate(fetchTemplate(FOOTER_HTML));
-			pdfOptions.setMargin(new Margin().setTop("90").setRight("10").setBottom("50").setLeft("10"));
-			byte[] pdf = page.pdf(pdfOptions);
-			page.close();
-			context.close();
-			browser.close();
+
+				NavigateOptions navigateOptions = new NavigateOptions();
+				navigateOptions.setWaitUntil(WaitUntilState.NETWORKIDLE);
+				
+				List<byte[]> imageList = new ArrayList<>();
+				for(int idx=0;idx<grafanaPanelList.size();idx++) {
+					page.navigate(grafanaPanelList.get(idx),navigateOptions);
+					log.debug("Waiting for panel {} to load completely before screenshot == {} ",idx,Instant.now());
+					waitForPanels(page, loadTime);
+					log.debug("Waiting time completed for dashboard == {} ",Instant.now());
+					page.evaluate("() => {for (el of document.getElementsByClassName('navbar')) {return el.hidden = true; };  }");
+					page.evaluate("() => {for (el of document.getElementsByClassName('submenu-controls')) {return el.hidden = true; };  }");
+					ElementHandle elementHandle = page.querySelector(".panel-wrapper.panel-wrapper--view");
+					byte[] image = elementHandle.screenshot();
+					imageList.add(image);
+				}
+				page.close();
+				prepareHtml(imageList,dynamicTemplate, grafanaDashboardPdfConfig);
+				Page templatePage = context.newPage();
+				templatePage.navigate(new File(dynamicTemplate).getAbsolutePath());
+				PdfOptions pdfOptions =  new PdfOptions();
+				pdfOptions.setPrintBackground(Boolean.TRUE);
+				pdfOptions.setDisplayHeaderFooter(true);
+				pdfOptions.setHeaderTemplate(headerTemplate);
+				pdfOptions.setFooterTemplate(footerTemplate);
+				pdfOptions.setMargin(new Margin().setTop("90").setRight("10").setBottom("50").setLeft("10"));
+				byte[] printablePdf = templatePage.pdf(pdfOptions);
+				templatePage.close();
+				return printablePdf;
+			});
 			
+			File extractedPdfFile = new File(exportedFilePath);
 			savePDFFile(extractedPdfFile, pdf);
 			saveToVisualizationContaner(assessmentReportDTO, pdf);
 			updateReportStatus(grafanaDashboardPdfConfig);
@@ -392,15 +370,6 @@ public class GrafanaPDFHandler implements BasePDFProcessor {
 					assessmentReportDTO.getExecutionId(),assessmentReportDTO.getWorkflowId(),assessmentReportDTO.getConfigId(),
 					"-","-","-",0," Grafana Dashboard export as Printable PDF Completed with error " + e.getMessage());
 			throw new InsightsJobFailedException(e.getMessage());
-		}finally {
-			try {
-				playwright.close();
-			} catch (Exception e) {
-				log.error("Worlflow Detail ==== Unable to close Playwright {} ", e.getMessage());
-				log.error("Type=TaskExecution  executionId={} workflowId={} ConfigId={} WorkflowType={} KpiId={} Category={} ProcessingTime={} message={}",
-						assessmentReportDTO.getExecutionId(),assessmentReportDTO.getWorkflowId(),assessmentReportDTO.getConfigId(),
-						"-","-","-",0," Unable to close Playwright " + e.getMessage());
-			}
 		}
 
 	}
@@ -488,18 +457,27 @@ public class GrafanaPDFHandler implements BasePDFProcessor {
 		}
 	}
 	
+	/**
+	 * Header and footer templates are classpath resources, they are read once
+	 * and kept for every later export
+	 */
 	private String fetchTemplate(String templateFileName) {
-		InputStream templateStream = getClass().getClassLoader().getResourceAsStream(templateFileName);
-		BufferedReader r = new BufferedReader(new InputStreamReader(templateStream));
-		String line;
+		String template = TEMPLATE_CACHE.computeIfAbsent(templateFileName, this::readTemplate);
+		return template == null ? "" : template;
+	}
+
+	private String readTemplate(String templateFileName) {
 		StringBuilder render = new StringBuilder();
-		try {
+		try (BufferedReader r = new BufferedReader(new InputStreamReader(
+				getClass().getClassLoader().getResourceAsStream(templateFileName), StandardCharsets.UTF_8))) {
+			String line;
 			while ((line = r.readLine()) != null) {
 				render.append(line);
 			}
-			r.close();
 		} catch (IOException e) {
 			log.error("Workflow Detail ==== Error fetching template ", e);
+			/* not cached, read again on the next export */
+			return null;
 		}
 		return render.toString();
 	}
@@ -0,0 +1,256 @@
+/*******************************************************************************
+ * Copyright 2020 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformreports.assessment.pdf;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.cognizant.devops.platformcommons.constants.AssessmentReportAndWorkflowConstants;
+import com.cognizant.devops.platformdal.assessmentreport.InsightsReportTemplateConfigFiles;
+import com.cognizant.devops.platformdal.assessmentreport.ReportConfigDAL;
+import com.google.gson.JsonObject;
+
+/**
+ * Local copy of the report template design files. The files are kept in a
+ * content addressed directory, named by the SHA-256 of their data, and
+ * remembered by reportId, file name and file version. An execution only reads
+ * the file names and versions of its report, fetches the data of new or
+ * changed files and hard links the rest into its execution folder (copied when
+ * the file system has no hard links). Uploading a file through the service
+ * increments its version, which makes the next execution fetch it again.
+ *
+ * Files placed in an execution folder may share their data with the cache, they
+ * must not be modified in place. A cached file which no report file refers to
+ * any more, after a new version or a removed file, is deleted from the
+ * directory, the execution folders keep their own links to the data. Files
+ * left by a previous run are deleted when the cache is created.
+ */
+public class ReportTemplateAssetCache {
+
+	private static Logger log = LogManager.getLogger(ReportTemplateAssetCache.class);
+	private static final String ASSET_DIR = "templateAssets";
+	private static ReportTemplateAssetCache instance = null;
+
+	private static class CachedAsset {
+		private final long fileVersion;
+		private final Path assetPath;
+
+		private CachedAsset(long fileVersion, Path assetPath) {
+			this.fileVersion = fileVersion;
+			this.assetPath = assetPath;
+		}
+	}
+
+	private final ReportConfigDAL reportConfigDAL;
+	private final Path assetDir;
+	private final Map<Integer, Map<String, CachedAsset>> reportAssets = new ConcurrentHashMap<>();
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder cacheMisses = new LongAdder();
+	private final LongAdder deletedAssets = new LongAdder();
+	private final Object assetLock = new Object();
+
+	ReportTemplateAssetCache(ReportConfigDAL reportConfigDAL, Path assetDir) {
+		this.reportConfigDAL = reportConfigDAL;
+		this.assetDir = assetDir;
+	}
+
+	public static synchronized ReportTemplateAssetCache getInstance() {
+		if (instance == null) {
+			instance = new ReportTemplateAssetCache(new ReportConfigDAL(),
+					Paths.get(AssessmentReportAndWorkflowConstants.REPORT_PDF_RESOLVED_PATH + ASSET_DIR));
+			instance.deleteLeftoverAssets();
+		}
+		return instance;
+	}
+
+	/**
+	 * Place the current version of every template file of the report in the
+	 * execution folder, files already present in the folder are kept
+	 *
+	 * @param reportId
+	 * @param executionDir
+	 * @throws IOException
+	 */
+	public void copyTemplateFiles(int reportId, Path executionDir) throws IOException {
+		Map<String, Long> fileVersions = reportConfigDAL.getReportTemplateConfigFileVersionsByReportId(reportId);
+		Map<String, CachedAsset> assets = reportAssets.computeIfAbsent(reportId, id -> new ConcurrentHashMap<>());
+		List<Path> supersededAssets = new ArrayList<>();
+		Iterator<Map.Entry<String, CachedAsset>> removedFiles = assets.entrySet().iterator();
+		while (removedFiles.hasNext()) {
+			Map.Entry<String, CachedAsset> entry = removedFiles.next();
+			if (!fileVersions.containsKey(entry.getKey())) {
+				supersededAssets.add(entry.getValue().assetPath);
+				removedFiles.remove();
+			}
+		}
+		Files.createDirectories(executionDir);
+		try {
+			for (Map.Entry<String, Long> fileVersion : fileVersions.entrySet()) {
+				String fileName = fileVersion.getKey();
+				CachedAsset asset = assets.get(fileName);
+				if (asset == null || asset.fileVersion != fileVersion.getValue() || !Files.exists(asset.assetPath)) {
+					cacheMisses.increment();
+					InsightsReportTemplateConfigFiles record = reportConfigDAL
+							.getReportTemplateConfigFileByFileNameAndReportId(fileName, reportId);
+					synchronized (assetLock) {
+						if (record == null) {
+							/* deleted after the versions were read */
+							CachedAsset removed = assets.remove(fileName);
+							if (removed != null) {
+								supersededAssets.add(removed.assetPath);
+							}
+							continue;
+						}
+						asset = new CachedAsset(fileVersion.getValue(), store(record.getFileData()));
+						CachedAsset previous = assets.put(fileName, asset);
+						if (previous != null && !previous.assetPath.equals(asset.assetPath)) {
+							supersededAssets.add(previous.assetPath);
+						}
+						link(asset.assetPath, executionDir.resolve(fileName));
+					}
+					log.debug("Worlflow Detail ==== Report {} template file {} version {} cached ", reportId, fileName,
+							asset.fileVersion);
+				} else {
+					cacheHits.increment();
+					synchronized (assetLock) {
+						/* a concurrent execution of the report may have replaced it meanwhile */
+						CachedAsset current = assets.get(fileName);
+						if (current != null) {
+							link(current.assetPath, executionDir.resolve(fileName));
+						}
+					}
+				}
+			}
+		} finally {
+			deleteUnreferencedAssets(supersededAssets);
+		}
+		log.debug("Worlflow Detail ==== Report {} template files placed in {} statistics={} ", reportId, executionDir,
+				getStatistics());
+	}
+
+	/**
+	 * @return cache hits and misses and the number of cached reports
+	 */
+	public JsonObject getStatistics() {
+		JsonObject statistics = new JsonObject();
+		statistics.addProperty("cacheHits", cacheHits.sum());
+		statistics.addProperty("cacheMisses", cacheMisses.sum());
+		statistics.addProperty("cachedReports", reportAssets.size());
+		statistics.addProperty("deletedAssets", deletedAssets.sum());
+		return statistics;
+	}
+
+	/**
+	 * Delete the given cached files unless a report file still refers to them,
+	 * the same data can be cached for several reports and file names
+	 */
+	private void deleteUnreferencedAssets(List<Path> assetPaths) {
+		if (assetPaths.isEmpty()) {
+			return;
+		}
+		synchronized (assetLock) {
+			Set<Path> referencedAssets = new HashSet<>();
+			reportAssets.values()
+					.forEach(assets -> assets.values().forEach(asset -> referencedAssets.add(asset.assetPath)));
+			for (Path assetPath : assetPaths) {
+				if (referencedAssets.contains(assetPath)) {
+					continue;
+				}
+				try {
+					if (Files.deleteIfExists(assetPath)) {
+						deletedAssets.increment();
+						log.debug("Worlflow Detail ==== Superseded template asset {} deleted ", assetPath);
+					}
+				} catch (IOException e) {
+					log.error("Worlflow Detail ==== Unable to delete template asset {} {} ", assetPath, e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Nothing refers to the files of a previous run, they would only be reused
+	 * when a report still has the same data
+	 */
+	private void deleteLeftoverAssets() {
+		if (!Files.isDirectory(assetDir)) {
+			return;
+		}
+		try (Stream<Path> leftoverAssets = Files.list(assetDir)) {
+			leftoverAssets.forEach(assetPath -> {
+				try {
+					Files.deleteIfExists(assetPath);
+				} catch (IOException e) {
+					log.error("Worlflow Detail ==== Unable to delete template asset {} {} ", assetPath, e.getMessage());
+				}
+			});
+		} catch (IOException e) {
+			log.error("Worlflow Detail ==== Unable to clean template asset directory {} {} ", assetDir, e.getMessage());
+		}
+	}
+
+	private Path store(byte[] fileData) throws IOException {
+		String assetName = DigestUtils.sha256Hex(fileData);
+		Path assetPath = assetDir.resolve(assetName);
+		if (Files.exists(assetPath)) {
+			return assetPath;
+		}
+		Files.createDirectories(assetDir);
+		Path tempPath = assetDir.resolve(assetName + "." + UUID.randomUUID() + ".tmp");
+		try {
+			Files.write(tempPath, fileData);
+			Files.move(tempPath, assetPath, StandardCopyOption.ATOMIC_MOVE);
+		} catch (FileAlreadyExistsException e) {
+			/* stored by a concurrent execution */
+		} finally {
+			Files.deleteIfExists(tempPath);
+		}
+		return assetPath;
+	}
+
+	private void link(Path assetPath, Path filePath) throws IOException {
+		if (Files.exists(filePath)) {
+			return;
+		}
+		Files.createDirectories(filePath.getParent());
+		try {
+			Files.createLink(filePath, assetPath);
+		} catch (FileAlreadyExistsException e) {
+			/* placed by a concurrent execution */
+		} catch (IOException | UnsupportedOperationException e) {
+			log.debug("Worlflow Detail ==== Unable to link {}, copying it {} ", filePath, e.getMessage());
+			Files.copy(assetPath, filePath, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
@@ -44,6 +44,7 @@ public class ReportEngineUtils {
 	public static final String NEO4J_CONFIG_LABEL = "KPI:CONFIG";
 	public static final String NEO4J_CONTENT_CONFIG_LABEL = "KPI:CONTENT_CONFIG";
 	public static final String NEO4J_CONTENT_RESULT_LABEL = "KPI:CONTENT_RESULT";
+	public static final String NEO4J_QUERY_CACHE_LABEL = "KPI:QUERY_CACHE";
 	public static final String CONFIG_DIR = ".InSights";
 	public static final String CONFIG_FILE = "ContentConfiguration.json";
 	public static final String INSIGHTS_HOME = "INSIGHTS_HOME";
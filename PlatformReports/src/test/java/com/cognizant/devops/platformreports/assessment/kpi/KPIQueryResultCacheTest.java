@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformreports.assessment.kpi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
+import com.cognizant.devops.platformcommons.config.KPIQueryCacheConfig;
+import com.cognizant.devops.platformreports.assessment.dal.ReportGraphDataHandler;
+import com.cognizant.devops.platformreports.assessment.datamodel.InsightsKPIConfigDTO;
+import com.cognizant.devops.platformreports.assessment.datamodel.KPIQueryResult;
+import com.cognizant.devops.platformreports.assessment.datamodel.QueryModel;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+public class KPIQueryResultCacheTest {
+
+	private static final long HOUR_IN_SECONDS = TimeUnit.HOURS.toSeconds(1);
+	private static final long ENDED_WINDOW_END_DATE = 1600000000L;
+
+	KPIQueryCacheConfig cacheConfig = null;
+	boolean enabled;
+	long ttlInMinutes;
+	String outputDatasource;
+
+	/**
+	 * Counts the windows queried from the graph, rows are built from the query
+	 * text so that no database is needed
+	 */
+	private static class CountingDataHandler extends ReportGraphDataHandler {
+		private int queriedWindows = 0;
+		private int uncachedCalls = 0;
+		private long createdTime = System.currentTimeMillis();
+
+		@Override
+		public List<KPIQueryResult> fetchKPIQueryResults(List<QueryModel> queryModels,
+				InsightsKPIConfigDTO kpiDefinition) {
+			List<KPIQueryResult> results = new ArrayList<>(queryModels.size());
+			for (QueryModel model : queryModels) {
+				KPIQueryResult queryResult = new KPIQueryResult();
+				queryResult.setCreatedTime(createdTime);
+				JsonArray row = new JsonArray();
+				row.add(model.getQuery());
+				queryResult.getRows().add(row);
+				results.add(queryResult);
+			}
+			queriedWindows += queryModels.size();
+			return results;
+		}
+
+		@Override
+		public List<List<JsonObject>> fetchKPIData(List<QueryModel> queryModels, InsightsKPIConfigDTO kpiDefinition) {
+			uncachedCalls++;
+			return Collections.emptyList();
+		}
+
+		@Override
+		public List<JsonObject> creatingResultJsonFromQueryResult(KPIQueryResult queryResult, JsonObject propertyJson,
+				InsightsKPIConfigDTO kpiDefinition, QueryModel model) {
+			List<JsonObject> resultList = new ArrayList<>();
+			for (JsonArray row : queryResult.getRows()) {
+				JsonObject result = new JsonObject();
+				result.addProperty("query", row.get(0).getAsString());
+				resultList.add(result);
+			}
+			return resultList;
+		}
+	}
+
+	@BeforeMethod
+	protected void setUp() {
+		cacheConfig = ApplicationConfigProvider.getInstance().getAssessmentReport().getKpiQueryCache();
+		enabled = cacheConfig.isEnabled();
+		ttlInMinutes = cacheConfig.getTtlInMinutes();
+		outputDatasource = ApplicationConfigProvider.getInstance().getAssessmentReport().getOutputDatasource();
+		cacheConfig.setEnabled(true);
+		cacheConfig.setTtlInMinutes(60);
+		ApplicationConfigProvider.getInstance().getAssessmentReport().setOutputDatasource("POSTGRES");
+	}
+
+	@AfterMethod
+	protected void tearDown() {
+		cacheConfig.setEnabled(enabled);
+		cacheConfig.setTtlInMinutes(ttlInMinutes);
+		ApplicationConfigProvider.getInstance().getAssessmentReport().setOutputDatasource(outputDatasource);
+	}
+
+	@Test
+	public void testCacheIsOffByDefault() {
+		Assert.assertFalse(new KPIQueryCacheConfig().isEnabled());
+		cacheConfig.setEnabled(false);
+		CountingDataHandler dataHandler = new CountingDataHandler();
+		KPIQueryResultCache.getInstance().fetchKPIData(dataHandler,
+				Collections.singletonList(getEndedWindow("MATCH (n:OFF) RETURN n")), getKpiDefinition(101));
+		Assert.assertEquals(dataHandler.uncachedCalls, 1);
+		Assert.assertEquals(dataHandler.queriedWindows, 0);
+	}
+
+	@Test
+	public void testEndedWindowIsServedFromCache() {
+		CountingDataHandler dataHandler = new CountingDataHandler();
+		List<QueryModel> queryModels = Collections.singletonList(getEndedWindow("MATCH (n:ENDED) RETURN n"));
+		List<List<JsonObject>> first = KPIQueryResultCache.getInstance().fetchKPIData(dataHandler, queryModels,
+				getKpiDefinition(102));
+		List<List<JsonObject>> second = KPIQueryResultCache.getInstance().fetchKPIData(dataHandler,
+				Collections.singletonList(getEndedWindow("MATCH  (n:ENDED)\n RETURN n")), getKpiDefinition(103));
+		Assert.assertEquals(dataHandler.queriedWindows, 1);
+		Assert.assertEquals(second, first);
+		Assert.assertEquals(KPIQueryResultCache.getInstance().getStatistics().getAsJsonObject("103")
+				.get("hits").getAsLong(), 1);
+	}
+
+	@Test
+	public void testOpenWindowIsNotCached() {
+		CountingDataHandler dataHandler = new CountingDataHandler();
+		QueryModel model = new QueryModel();
+		model.setQuery("MATCH (n:OPEN) RETURN n");
+		model.setRecordDate(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) - HOUR_IN_SECONDS);
+		model.setEndDate(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + HOUR_IN_SECONDS);
+		List<QueryModel> queryModels = Collections.singletonList(model);
+		KPIQueryResultCache.getInstance().fetchKPIData(dataHandler, queryModels, getKpiDefinition(104));
+		KPIQueryResultCache.getInstance().fetchKPIData(dataHandler, queryModels, getKpiDefinition(104));
+		Assert.assertEquals(dataHandler.queriedWindows, 2);
+	}
+
+	@Test
+	public void testExpiredEntryIsQueriedAgain() {
+		CountingDataHandler dataHandler = new CountingDataHandler();
+		dataHandler.createdTime = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(61);
+		List<QueryModel> queryModels = Collections.singletonList(getEndedWindow("MATCH (n:EXPIRED) RETURN n"));
+		KPIQueryResultCache.getInstance().fetchKPIData(dataHandler, queryModels, getKpiDefinition(105));
+		KPIQueryResultCache.getInstance().fetchKPIData(dataHandler, queryModels, getKpiDefinition(105));
+		Assert.assertEquals(dataHandler.queriedWindows, 2);
+	}
+
+	private QueryModel getEndedWindow(String query) {
+		QueryModel model = new QueryModel();
+		model.setQuery(query);
+		model.setRecordDate(ENDED_WINDOW_END_DATE - HOUR_IN_SECONDS);
+		model.setEndDate(ENDED_WINDOW_END_DATE);
+		return model;
+	}
+
+	private InsightsKPIConfigDTO getKpiDefinition(int kpiId) {
+		InsightsKPIConfigDTO kpiDefinition = new InsightsKPIConfigDTO();
+		kpiDefinition.setKpiId(kpiId);
+		kpiDefinition.setInputDatasource("");
+		return kpiDefinition;
+	}
+}
@@ -949,9 +949,12 @@ public class AssesmentReportServiceImpl {
 			record.setFileData(FileUtils.readFileToByteArray(file));
 			record.setFileType(fileType);
 			record.setReportId(reportId);
+			record.setFileVersion(1L);
 			reportConfigDAL.saveReportTemplateConfigFiles(record);
 		} else {
 			templateFile.setFileData(FileUtils.readFileToByteArray(file));
+			/* a new version makes the report engine fetch the file again instead of its cached copy */
+			templateFile.setFileVersion(templateFile.getFileVersion() == null ? 1L : templateFile.getFileVersion() + 1);
 			reportConfigDAL.updateReportTemplateConfigFiles(templateFile);
 		}
 	}
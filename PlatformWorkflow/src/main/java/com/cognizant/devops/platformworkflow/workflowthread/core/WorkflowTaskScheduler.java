@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * Copyright 2017 Cognizant Technology Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package com.cognizant.devops.platformworkflow.workflowthread.core;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.cognizant.devops.platformcommons.config.ApplicationConfigProvider;
+import com.cognizant.devops.platformcommons.config.WorkflowDetails;
+
+/**
+ * Runs a set of workflow tasks on {@link WorkflowThreadPool#getSchedulerInstance()}.
+ * Up to taskParallelism tasks are kept in flight, a new task is submitted as
+ * soon as one finishes, and tasks of a datasource which has a concurrency
+ * limit wait in this scheduler (not in a pool thread) until the datasource has
+ * a free slot. Each task gets taskTimeoutInSeconds from its submission, after
+ * which it is cancelled and reported as failed. A cancelled task keeps its
+ * datasource slot until its thread actually returns, as the call behind it may
+ * not react to the interrupt. Results and failures are handed to the
+ * {@link TaskListener} in completion order.
+ *
+ * Instances are not thread safe, submit tasks and call {@link #execute} from
+ * the same thread.
+ *
+ * @param <K> task key, returned to the listener
+ * @param <T> task result
+ */
+public class WorkflowTaskScheduler<K, T> {
+
+	private static final Logger log = LogManager.getLogger(WorkflowTaskScheduler.class);
+
+	public interface TaskListener<K, T> {
+
+		void onSuccess(K key, T result);
+
+		/**
+		 * Called when the task threw an exception, was cancelled or ran over the
+		 * timeout, in the last case error is a {@link TimeoutException}
+		 */
+		void onFailure(K key, Throwable error);
+	}
+
+	private static class WorkflowTask<K, T> {
+		private final K key;
+		private final String datasource;
+		private final Callable<T> callable;
+		private final AtomicBoolean started = new AtomicBoolean();
+		private Future<T> future;
+		private long deadline;
+
+		private WorkflowTask(K key, String datasource, Callable<T> callable) {
+			this.key = key;
+			this.datasource = datasource;
+			this.callable = callable;
+		}
+	}
+
+	private final String name;
+	private final ExecutorService executor;
+	private final WorkflowDetails workflowDetails;
+	private final List<WorkflowTask<K, T>> pendingTasks = new LinkedList<>();
+	private final Set<WorkflowTask<K, T>> runningTasks = new HashSet<>();
+	private final Map<String, Integer> runningPerDatasource = new HashMap<>();
+	private int completedCount = 0;
+	private int failedCount = 0;
+	private int timedOutCount = 0;
+
+	public WorkflowTaskScheduler(String name) {
+		this(name, WorkflowThreadPool.getSchedulerInstance(),
+				ApplicationConfigProvider.getInstance().getWorkflowDetails());
+	}
+
+	/**
+	 * @param name
+	 * @param executor must queue or reject tasks it cannot run, a caller runs
+	 *                 policy would run the task on the scheduler thread
+	 * @param workflowDetails
+	 */
+	public WorkflowTaskScheduler(String name, ExecutorService executor, WorkflowDetails workflowDetails) {
+		this.name = name;
+		this.executor = executor;
+		this.workflowDetails = workflowDetails;
+	}
+
+	/**
+	 * Queue a task, it is not started before {@link #execute} is called
+	 *
+	 * @param key        identifies the task to the listener
+	 * @param datasource datasource the task works against, null when it should
+	 *                   only be limited by taskParallelism
+	 * @param callable
+	 */
+	public void submit(K key, String datasource, Callable<T> callable) {
+		pendingTasks.add(new WorkflowTask<>(key, datasource == null ? null : datasource.toUpperCase(), callable));
+	}
+
+	/**
+	 * Run every queued task and return once all of them completed, failed or
+	 * timed out. When the calling thread is interrupted the running tasks are
+	 * cancelled and the InterruptedException is thrown.
+	 *
+	 * @param listener
+	 * @throws InterruptedException
+	 */
+	public void execute(TaskListener<K, T> listener) throws InterruptedException {
+		long startTime = System.nanoTime();
+		int parallelism = Math.max(1, workflowDetails.getTaskParallelism());
+		long timeoutInNanos = TimeUnit.SECONDS.toNanos(workflowDetails.getTaskTimeoutInSeconds());
+		BlockingQueue<WorkflowTask<K, T>> finishedTasks = new LinkedBlockingQueue<>();
+		try {
+			while (!pendingTasks.isEmpty() || !runningTasks.isEmpty()) {
+				dispatch(finishedTasks, parallelism, timeoutInNanos, listener);
+				if (pendingTasks.isEmpty() && runningTasks.isEmpty()) {
+					break;
+				}
+				WorkflowTask<K, T> task = pollNext(finishedTasks, timeoutInNanos);
+				if (task != null) {
+					complete(task, listener);
+				}
+				cancelExpiredTasks(listener);
+			}
+		} finally {
+			for (WorkflowTask<K, T> task : runningTasks) {
+				task.future.cancel(true);
+			}
+			runningTasks.clear();
+			runningPerDatasource.clear();
+			pendingTasks.clear();
+		}
+		log.debug("Worlflow Detail ==== {} completed={} failed={} timedOut={} processingTime={} ", name,
+				completedCount, failedCount, timedOutCount,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+	}
+
+	private void dispatch(BlockingQueue<WorkflowTask<K, T>> finishedTasks, int parallelism, long timeoutInNanos,
+			TaskListener<K, T> listener) {
+		Iterator<WorkflowTask<K, T>> iterator = pendingTasks.iterator();
+		while (runningTasks.size() < parallelism && iterator.hasNext()) {
+			WorkflowTask<K, T> task = iterator.next();
+			if (!hasDatasourceSlot(task.datasource)) {
+				continue;
+			}
+			iterator.remove();
+			task.deadline = timeoutInNanos > 0 ? System.nanoTime() + timeoutInNanos : Long.MAX_VALUE;
+			runningPerDatasource.merge(String.valueOf(task.datasource), 1, Integer::sum);
+			try {
+				task.future = executor.submit(track(task, finishedTasks));
+				runningTasks.add(task);
+			} catch (RejectedExecutionException e) {
+				release(task);
+				failedCount++;
+				log.error("Worlflow Detail ==== {} task {} rejected ", name, task.key, e);
+				listener.onFailure(task.key, e);
+			}
+		}
+	}
+
+	/**
+	 * Report the task to the scheduler once its thread returned, a task that is
+	 * cancelled before it started never runs
+	 */
+	private Callable<T> track(WorkflowTask<K, T> task, BlockingQueue<WorkflowTask<K, T>> finishedTasks) {
+		return () -> {
+			if (!task.started.compareAndSet(false, true)) {
+				return null;
+			}
+			try {
+				return task.callable.call();
+			} finally {
+				finishedTasks.add(task);
+			}
+		};
+	}
+
+	private boolean hasDatasourceSlot(String datasource) {
+		int limit = workflowDetails.getDatasourceConcurrency(datasource);
+		return limit <= 0 || runningPerDatasource.getOrDefault(datasource, 0) < limit;
+	}
+
+	/**
+	 * Wait for the next task to return, at most until the earliest deadline.
+	 * Without running tasks the pending ones wait for a timed out task to free
+	 * its datasource slot.
+	 */
+	private WorkflowTask<K, T> pollNext(BlockingQueue<WorkflowTask<K, T>> finishedTasks, long timeoutInNanos)
+			throws InterruptedException {
+		if (timeoutInNanos <= 0 || runningTasks.isEmpty()) {
+			return finishedTasks.take();
+		}
+		long earliestDeadline = Long.MAX_VALUE;
+		for (WorkflowTask<K, T> task : runningTasks) {
+			earliestDeadline = Math.min(earliestDeadline, task.deadline);
+		}
+		long waitTime = earliestDeadline - System.nanoTime();
+		return waitTime > 0 ? finishedTasks.poll(waitTime, TimeUnit.NANOSECONDS) : finishedTasks.poll();
+	}
+
+	private void complete(WorkflowTask<K, T> task, TaskListener<K, T> listener) throws InterruptedException {
+		release(task);
+		if (!runningTasks.remove(task)) {
+			/* cancelled after its timeout, already reported */
+			return;
+		}
+		try {
+			T result = task.future.get();
+			completedCount++;
+			listener.onSuccess(task.key, result);
+		} catch (ExecutionException e) {
+			failedCount++;
+			log.error("Worlflow Detail ==== {} task {} failed ", name, task.key, e.getCause());
+			listener.onFailure(task.key, e.getCause());
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception e) {
+			failedCount++;
+			log.error("Worlflow Detail ==== {} task {} cancelled ", name, task.key);
+			listener.onFailure(task.key, e);
+		}
+	}
+
+	private void cancelExpiredTasks(TaskListener<K, T> listener) {
+		long now = System.nanoTime();
+		Iterator<WorkflowTask<K, T>> iterator = runningTasks.iterator();
+		while (iterator.hasNext()) {
+			WorkflowTask<K, T> task = iterator.next();
+			if (task.deadline - now > 0 || task.future.isDone()) {
+				continue;
+			}
+			task.future.cancel(true);
+			iterator.remove();
+			if (task.started.compareAndSet(false, true)) {
+				/* never started, its slot is free right away */
+				release(task);
+			}
+			timedOutCount++;
+			log.error("Worlflow Detail ==== {} task {} cancelled after {} seconds ", name, task.key,
+					workflowDetails.getTaskTimeoutInSeconds());
+			listener.onFailure(task.key, new TimeoutException(
+					"Task " + task.key + " did not complete in " + workflowDetails.getTaskTimeoutInSeconds() + " seconds"));
+		}
+	}
+
+	private void release(WorkflowTask<K, T> task) {
+		runningPerDatasource.computeIfPresent(String.valueOf(task.datasource), (datasource, count) -> count > 1 ? count - 1 : null);
+	}
+}
@@ -33,6 +33,8 @@ public class WorkflowThreadPool extends ThreadPoolExecutor {
 
 	private static WorkflowThreadPool workflowThreadPool = null;
 
+	private static WorkflowThreadPool schedulerThreadPool = null;
+
 	private static final Logger log = LogManager.getLogger(WorkflowThreadPool.class);
 
 	private WorkflowThreadPool(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
@@ -54,6 +56,26 @@ public class WorkflowThreadPool extends ThreadPoolExecutor {
 		return workflowThreadPool;
 	}
 
+	/**
+	 * Pool of the {@link WorkflowTaskScheduler}. Unlike {@link #getInstance()}
+	 * a task never runs on the submitting thread, tasks wait in the queue for a
+	 * free thread. The schedulers already bound the number of queued tasks by
+	 * their taskParallelism.
+	 * 
+	 * @return WorkflowThreadPool
+	 */
+	public static synchronized WorkflowThreadPool getSchedulerInstance() {
+		if (schedulerThreadPool == null) {
+			WorkflowDetails threadDetails = ApplicationConfigProvider.getInstance().getWorkflowDetails();
+			int poolSize = Math.max(1, threadDetails.getMaximumPoolSize());
+			schedulerThreadPool = new WorkflowThreadPool(poolSize, poolSize, threadDetails.getKeepAliveTime(),
+					TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(), new ThreadPoolExecutor.AbortPolicy());
+			schedulerThreadPool.allowCoreThreadTimeOut(threadDetails.getKeepAliveTime() > 0);
+			log.debug("Worlflow Thread Details ==== scheduler ThreadPoolExecutor created with {} threads", poolSize);
+		}
+		return schedulerThreadPool;
+	}
+
 	@Override
 	protected void afterExecute(Runnable r, Throwable t) {
 		super.afterExecute(r, t);